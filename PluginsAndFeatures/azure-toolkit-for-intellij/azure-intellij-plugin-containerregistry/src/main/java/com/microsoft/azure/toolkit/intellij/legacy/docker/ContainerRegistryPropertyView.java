@@ -272,7 +272,7 @@ public class ContainerRegistryPropertyView extends BaseEditor implements Contain
                     return;
                 }
                 disableWidgets(false, true);
-                containerPropertyPresenter.onListTags(subscriptionId, registryId, currentRepo, true /*isNextPage*/);
+                containerPropertyPresenter.onRefreshTags(subscriptionId, registryId, currentRepo);
             }
         };
 
@@ -259,6 +259,7 @@ public class SparkBatchJobDeployFactory implements ILogger {
         }
 
         //TODO:use httpobservable to replace sparkbathsubmission and deprecate the old constructor.
-        return jobDeploy;
+        // Reuse the artifact deployed before if its content is unchanged
+        return jobDeploy == null ? null : new ArtifactDedupDeploy(jobDeploy);
     }
 }
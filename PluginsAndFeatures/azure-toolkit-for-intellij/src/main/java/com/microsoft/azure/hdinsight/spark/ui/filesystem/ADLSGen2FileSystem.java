@@ -5,24 +5,27 @@
 
 package com.microsoft.azure.hdinsight.spark.ui.filesystem;
 
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileListener;
 import com.microsoft.azure.hdinsight.common.AbfsUri;
 import com.microsoft.azure.hdinsight.common.AzureStorageUri;
 import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
 import com.microsoft.azure.hdinsight.sdk.common.errorresponse.ForbiddenHttpErrorStatus;
+import com.microsoft.azure.hdinsight.sdk.rest.azure.storageaccounts.RemoteFile;
 import com.microsoft.azure.hdinsight.sdk.storage.adlsgen2.ADLSGen2FSOperation;
 import com.microsoft.azure.hdinsight.spark.common.ADLSGen2Deploy;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
-import rx.Observable;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class ADLSGen2FileSystem extends AzureStorageVirtualFileSystem {
     public static final String myProtocol = "abfs";
+    private static final int PREFETCH_CHILD_DIRS_MAX = 8;
 
     @Nullable
     private HttpObservable http;
@@ -42,6 +45,10 @@ public class ADLSGen2FileSystem extends AzureStorageVirtualFileSystem {
         return myProtocol;
     }
 
+    /**
+     * List the children of the directory from the listing cache, then prefetch the listings of the first child
+     * directories in background, which are likely to be expanded next
+     */
     @NotNull
     public VirtualFile[] listFiles(AdlsGen2VirtualFile vf) {
         List<AdlsGen2VirtualFile> childrenList = new ArrayList<>();
@@ -50,23 +57,33 @@ public class ADLSGen2FileSystem extends AzureStorageVirtualFileSystem {
             String fileSystemRootPath = rootPathUri.resolve("/").getUrl().toString();
             // sample directoryParam: sub/path/to
             String directoryParam = vf.getAbfsUri().getDirectoryParam();
-            childrenList = this.op.list(fileSystemRootPath, directoryParam)
-                    // sample remoteFile.getName(): sub/path/to/SparkSubmission
-                    .map(remoteFile -> new AdlsGen2VirtualFile(
-                            (AbfsUri) AbfsUri.parse(fileSystemRootPath)
-                                    .resolveAsRoot(AzureStorageUri.encodeAndNormalizePath(remoteFile.getName())),
-                            remoteFile.isDirectory(),
-                            this))
-                    .doOnNext(file -> file.setParent(vf))
-                    .onErrorResumeNext(err -> {
-                                String errorMessage = "Failed to list folders and files with error " + err.getMessage() + ". ";
-                                if (err instanceof ForbiddenHttpErrorStatus) {
-                                    errorMessage += ADLSGen2Deploy.getForbiddenErrorHints(vf.toString());
-                                }
-                                return Observable.error(new IOException(errorMessage));
-                            }
-                    )
-                    .toList().toBlocking().lastOrDefault(new ArrayList<>());
+            List<RemoteFile> remoteFiles;
+            try {
+                remoteFiles = this.op.listCached(fileSystemRootPath, directoryParam);
+            } catch (ExecutionException | UncheckedExecutionException ex) {
+                Throwable err = ex.getCause() != null ? ex.getCause() : ex;
+                String errorMessage = "Failed to list folders and files with error " + err.getMessage() + ". ";
+                if (err instanceof ForbiddenHttpErrorStatus) {
+                    errorMessage += ADLSGen2Deploy.getForbiddenErrorHints(vf.toString());
+                }
+                throw new RuntimeException(new IOException(errorMessage, err));
+            }
+
+            for (RemoteFile remoteFile : remoteFiles) {
+                // sample remoteFile.getName(): sub/path/to/SparkSubmission
+                AdlsGen2VirtualFile file = new AdlsGen2VirtualFile(
+                        (AbfsUri) AbfsUri.parse(fileSystemRootPath)
+                                .resolveAsRoot(AzureStorageUri.encodeAndNormalizePath(remoteFile.getName())),
+                        remoteFile.isDirectory(),
+                        this);
+                file.setParent(vf);
+                childrenList.add(file);
+            }
+
+            remoteFiles.stream()
+                    .filter(RemoteFile::isDirectory)
+                    .limit(PREFETCH_CHILD_DIRS_MAX)
+                    .forEach(dir -> this.op.prefetchList(fileSystemRootPath, dir.getName()));
         }
 
         return childrenList.toArray(new VirtualFile[0]);
@@ -80,7 +97,7 @@ public class ADLSGen2FileSystem extends AzureStorageVirtualFileSystem {
 
     @Override
     public void refresh(boolean asynchronous) {
-
+        ADLSGen2FSOperation.getListingCache().invalidateAll();
     }
 
     @Nullable
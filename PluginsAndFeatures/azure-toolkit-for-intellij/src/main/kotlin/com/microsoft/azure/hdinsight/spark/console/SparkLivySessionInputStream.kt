@@ -23,6 +23,7 @@
 package com.microsoft.azure.hdinsight.spark.console
 
 import com.microsoft.azure.hdinsight.common.logger.ILogger
+import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.AdaptivePoller
 import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.Session
 import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.Statement
 import com.microsoft.azure.hdinsight.sdk.rest.livy.interactive.StatementOutput
@@ -32,8 +33,10 @@ import java.util.*
 
 abstract class SparkLivySessionInputStream(val session: Session) : InputStream(), ILogger {
     private var isClosed: Boolean = false
-    private var nextStatementId = 0
+    // Started once the session is runnable, after the statements run before the console took it over
+    private var nextStatementId: Int? = null
     private var statementOutputQueue: ArrayDeque<Byte>? = null
+    private var emptyPolls = 0
 
     override fun read(): Int {
         if (isClosed) {
@@ -56,7 +59,9 @@ abstract class SparkLivySessionInputStream(val session: Session) : InputStream()
             fetchNextStatementOutput()
 
             if (isOutputEmpty()) {
-                Thread.sleep(1000)
+                Thread.sleep(outputPoller.getDelayMs(emptyPolls++))
+            } else {
+                emptyPolls = 0
             }
         }
 
@@ -66,24 +71,38 @@ abstract class SparkLivySessionInputStream(val session: Session) : InputStream()
     abstract fun createStatementBytesQueue(output: StatementOutput): String?
 
     private fun fetchNextStatementOutput() {
-        val statement = Statement(session, nextStatementId)
+        if (nextStatementId == null) {
+            if (!session.isStatementRunnable) {
+                return
+            }
+
+            nextStatementId = session.inheritedStatementCount
+        }
+
+        val statementId = nextStatementId!!
+        val statement = Statement(session, statementId)
 
         try {
             statementOutputQueue = statement.get()
                     .map { stm ->
                         createStatementBytesQueue(stm.output)?.let {
-                            log().debug("Statement $nextStatementId result $it")
+                            log().debug("Statement $statementId result $it")
                             ArrayDeque("$it\n".toByteArray(UTF_8).toList())
                         }
                     }
                     .toBlocking()
                     .singleOrDefault(null)
 
-            nextStatementId++
+            nextStatementId = statementId + 1
         } catch (err: Exception) {
-            log().debug("Can't get the $nextStatementId output", err)
+            log().debug("Can't get the $statementId output", err)
         }
     }
 
     private fun isOutputEmpty(): Boolean = (statementOutputQueue?.isEmpty() ?: true)
+
+    companion object {
+        // Poll fast after an output got, since the statements submitted are done one after another
+        private val outputPoller = AdaptivePoller(50, 1000, 1.5)
+    }
 }
\ No newline at end of file
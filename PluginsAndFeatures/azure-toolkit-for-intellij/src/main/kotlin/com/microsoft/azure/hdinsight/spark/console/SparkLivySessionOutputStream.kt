@@ -28,30 +28,36 @@ import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.Session
 import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.exceptions.StatementExecutionError
 import org.apache.commons.io.output.ByteArrayOutputStream
 import java.nio.charset.Charset
+import java.util.concurrent.atomic.AtomicReference
 
 class SparkLivySessionOutputStream(val session: Session) : ByteArrayOutputStream(), ILogger {
+    // The execution error of the codes sent before, thrown by the next flush
+    private val lastExecuteError = AtomicReference<SparkConsoleExceptions.LivySessionExecuteError>()
+
     override fun flush() {
         // Send the buffered statements into Livy services
         if (!session.isStarted) {
             throw SparkConsoleExceptions.LivyNotConnected("The Livy session to ${session.name} is not connected")
         }
 
+        lastExecuteError.getAndSet(null)?.let { throw it }
+
         val codes = toString(Charset.defaultCharset())
+        reset()
         log().debug("Send those codes to Livy: $codes")
 
-        session.runCodes(codes)
-                .doOnEach { reset() }
-                .toBlocking()
+        // Don't wait for the codes done, the outputs are got by the statement ID in order
+        session.submitCodes(codes)
                 .subscribe(
                         { result ->
                             log().debug("Livy running results: ${ObjectMapper().writeValueAsString(result)}")
                         },
                         { err -> when (err.cause) {
                             is StatementExecutionError -> log().debug(err.message)
-                            else -> throw SparkConsoleExceptions.LivySessionExecuteError(
+                            else -> lastExecuteError.compareAndSet(null, SparkConsoleExceptions.LivySessionExecuteError(
                                     "Got the code `${codes.split(
                                             "\n").first()}` execution error:",
-                                    err.cause ?: err)
+                                    err.cause ?: err))
                         }}
                 )
     }
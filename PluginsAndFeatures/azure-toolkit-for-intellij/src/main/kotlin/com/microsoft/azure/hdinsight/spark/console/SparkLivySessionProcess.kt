@@ -27,6 +27,7 @@ import com.intellij.remote.RemoteProcess
 import com.microsoft.azure.hdinsight.common.logger.ILogger
 import com.microsoft.azure.hdinsight.common.mvc.IdeSchedulers
 import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.Session
+import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.SessionPool
 import rx.Observable
 import java.io.InputStream
 import java.io.OutputStream
@@ -48,7 +49,7 @@ class SparkLivySessionProcess(
     override fun waitFor(): Int = 0
 
     override fun destroy() {
-        session.close()
+        SessionPool.getInstance().discard(session)
         outputStream.close()
         errorStream.close()
         inputStream.close()
@@ -70,8 +71,14 @@ class SparkLivySessionProcess(
                     "Deploy Livy interactive console artifacts dependencies..."))
             .observeOn(rxSchedulers.processBarVisibleAsync(
                     "Create Spark Livy interactive console session..."))
-            .flatMap { it.create() }
+            // Take over a warm console session if any, never a helper one with the others' states in it.
+            // The console session is discarded for the user's states in it
+            .flatMap { SessionPool.getInstance().lease(it, CONSOLE_POOL_USAGE) }
             .flatMap { it.awaitReady(rxSchedulers.processBarVisibleAsync(
                     "The Spark Livy interactive console session is starting..." )) }
             .doOnError { destroy() }
-}
\ No newline at end of file
+
+    companion object {
+        const val CONSOLE_POOL_USAGE = "console"
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.concurrent.cache.impl;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheType;
+
+/**
+ * The token and security caches under the concurrent requests of a filter: mostly reads of the cached tokens, and
+ * some writes of the new ones which evict the eldest once the cache is full. The contention is the point, so run it
+ * over the thread counts with "gradle jmhThreadSweep" rather than at the single thread JMH defaults to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentCacheBenchmark {
+    private static final long TTL_MINUTES = 60;
+
+    @Param({ "TTL", "LOCK_FREE_TTL" })
+    private ConcurrentCacheType cacheType;
+
+    @Param({ "10000" })
+    private long maxSize;
+
+    // The keys written are twice the size, so that the writes of new keys keep evicting
+    private String[] keys;
+    private ConcurrentCache<String, String> cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new String[(int) maxSize * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "token-" + i;
+        }
+        cache = new SimpleConcurrentCacheFactory<String, String>()
+                .createConcurrentCache(TTL_MINUTES, maxSize, cacheType);
+        for (int i = 0; i < maxSize; i++) {
+            cache.putIfAbsent(keys[i], keys[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.shutdownNow();
+    }
+
+    @Benchmark
+    public String get() {
+        return cache.get(keys[ThreadLocalRandom.current().nextInt((int) maxSize)]);
+    }
+
+    @Benchmark
+    public String getMostlyAndPut() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String key = keys[random.nextInt(keys.length)];
+        if (random.nextInt(10) == 0) {
+            return cache.putIfAbsent(key, key);
+        }
+        return cache.get(key);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.configuration.key.impl;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.oidc.common.name.Name;
+import com.microsoft.azure.oidc.common.name.impl.SimpleNameFactory;
+import com.microsoft.azure.oidc.common.timestamp.impl.SimpleTimeStampFactory;
+import com.microsoft.azure.oidc.configuration.key.Key;
+import com.microsoft.azure.oidc.configuration.key.KeyCache;
+import com.microsoft.azure.oidc.configuration.key.exponent.impl.SimpleExponentFactory;
+import com.microsoft.azure.oidc.configuration.key.modulus.impl.SimpleModulusFactory;
+
+/**
+ * Verifying the RS256 signature of a token, with the public key decoded and the {@link Signature} created on every
+ * verification as before the key cache, and with the key and the pooled signatures of the key cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class KeyCacheBenchmark {
+    private static final String KEY_CLASS_NAME = "RSA";
+    private static final String SIGNATURE_NAME = "SHA256withRSA";
+
+    private final Name keyName = SimpleNameFactory.getInstance().createKeyName("benchmark-key");
+    private Key key;
+    private KeyCache keyCache;
+    private byte[] payload;
+    private byte[] signature;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance(KEY_CLASS_NAME);
+        generator.initialize(2048);
+        final KeyPair keyPair = generator.generateKeyPair();
+        final RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+
+        key = SimpleKeyFactory.getInstance().createKey(
+                SimpleTimeStampFactory.getInstance().createTimeStamp(0L),
+                SimpleModulusFactory.getInstance().createKeyValue(
+                        Base64.encodeBase64URLSafeString(publicKey.getModulus().toByteArray())),
+                SimpleExponentFactory.getInstance().createKeyExponent(
+                        Base64.encodeBase64URLSafeString(publicKey.getPublicExponent().toByteArray())));
+        final Map<Name, Key> keys = Collections.singletonMap(keyName, key);
+        keyCache = SimpleKeyCacheFactory.getInstance().createKeyCache(keys, Collections.singleton(KEY_CLASS_NAME));
+
+        payload = "eyJhbGciOiJSUzI1NiJ9.eyJzdWIiOiJiZW5jaG1hcmsifQ".getBytes(StandardCharsets.US_ASCII);
+        final Signature signer = Signature.getInstance(SIGNATURE_NAME);
+        signer.initSign(keyPair.getPrivate());
+        signer.update(payload);
+        signature = signer.sign();
+    }
+
+    @Benchmark
+    public boolean verifyDecodingKey() throws GeneralSecurityException {
+        final Base64 decoder = new Base64();
+        final BigInteger exponent = new BigInteger(1, decoder.decode(key.getExponent().getValue()));
+        final BigInteger modulus = new BigInteger(1, decoder.decode(key.getSecret().getValue()));
+        final PublicKey pubKey = java.security.KeyFactory.getInstance(KEY_CLASS_NAME)
+                .generatePublic(new RSAPublicKeySpec(modulus, exponent));
+        final Signature sig = Signature.getInstance(SIGNATURE_NAME);
+        sig.initVerify(pubKey);
+        sig.update(payload);
+        return sig.verify(signature);
+    }
+
+    @Benchmark
+    public boolean verifyCachedKey() throws GeneralSecurityException {
+        final PublicKey pubKey = keyCache.getPublicKey(keyName, KEY_CLASS_NAME);
+        final Signature sig = keyCache.borrowSignature(SIGNATURE_NAME);
+        try {
+            sig.initVerify(pubKey);
+            sig.update(payload);
+            return sig.verify(signature);
+        } finally {
+            keyCache.releaseSignature(sig);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.filter.configuration.authentication.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.oidc.filter.configuration.authentication.UriPatternIndex;
+
+/**
+ * Looking up the first configured pattern matching a request URI, by the linear scan of the pattern regular
+ * expressions as before the index, and by the pattern index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UriPatternIndexBenchmark {
+    private static final int URI_COUNT = 1024;
+
+    @Param({ "10", "500" })
+    private int patternCount;
+
+    private List<Pattern> regexes;
+    private UriPatternIndex index;
+    private String[] uris;
+
+    @Setup
+    public void setUp() {
+        // The exact, trailing wildcard and inner wildcard patterns, as the exclusion and authorisation lists have
+        final List<String> patterns = new ArrayList<String>();
+        for (int i = 0; i < patternCount; i++) {
+            switch (i % 3) {
+            case 0:
+                patterns.add("/app/section" + i + "/index.html");
+                break;
+            case 1:
+                patterns.add("/app/section" + i + "/*");
+                break;
+            default:
+                patterns.add("/api/*/resource" + i);
+                break;
+            }
+        }
+        regexes = new ArrayList<Pattern>();
+        for (final String pattern : patterns) {
+            regexes.add(Pattern.compile(SimpleUriPatternIndex.toRegex(pattern)));
+        }
+        index = new SimpleUriPatternIndex(patterns);
+
+        // The URIs matching a pattern, and the ones matching none
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        uris = new String[URI_COUNT];
+        for (int i = 0; i < URI_COUNT; i++) {
+            final int section = random.nextInt(patternCount * 2);
+            switch (i % 4) {
+            case 0:
+                uris[i] = "/app/section" + section + "/index.html";
+                break;
+            case 1:
+                uris[i] = "/app/section" + section + "/static/main.js";
+                break;
+            case 2:
+                uris[i] = "/api/v1/resource" + section;
+                break;
+            default:
+                uris[i] = "/public/page" + section;
+                break;
+            }
+        }
+    }
+
+    @Benchmark
+    public int linearScan() {
+        final String uri = uris[ThreadLocalRandom.current().nextInt(URI_COUNT)];
+        for (int i = 0; i < regexes.size(); i++) {
+            if (regexes.get(i).matcher(uri).matches()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int index() {
+        return index.indexOf(uris[ThreadLocalRandom.current().nextInt(URI_COUNT)]);
+    }
+}
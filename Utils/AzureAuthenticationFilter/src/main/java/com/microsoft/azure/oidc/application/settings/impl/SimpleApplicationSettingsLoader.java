@@ -11,9 +11,20 @@ import com.microsoft.azure.oidc.application.settings.ApplicationSettingsLoader;
 public final class SimpleApplicationSettingsLoader implements ApplicationSettingsLoader {
     private static final ApplicationSettingsLoader INSTANCE = new SimpleApplicationSettingsLoader();
 
+    private final Object lock = new Object();
+
+    private volatile ApplicationSettings applicationSettings;
+
     @Override
     public ApplicationSettings load() {
-        return new SimpleApplicationSettings();
+        if (applicationSettings == null) {
+            synchronized (lock) {
+                if (applicationSettings == null) {
+                    applicationSettings = new SimpleApplicationSettings();
+                }
+            }
+        }
+        return applicationSettings;
     }
 
     public static ApplicationSettingsLoader getInstance() {
@@ -8,4 +8,6 @@ package com.microsoft.azure.oidc.concurrent.cache;
 public interface ConcurrentCacheFactory<K, V> {
 
     ConcurrentCache<K, V> createConcurrentCache(Long ttl, Long maxSize);
+
+    ConcurrentCache<K, V> createConcurrentCache(Long ttl, Long maxSize, ConcurrentCacheType type);
 }
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.concurrent.cache;
+
+public enum ConcurrentCacheType {
+
+    TTL,
+
+    LOCK_FREE_TTL;
+
+    public static ConcurrentCacheType fromName(final String name, final ConcurrentCacheType defaultType) {
+        if (name == null || "".equals(name.trim())) {
+            return defaultType;
+        }
+        for (final ConcurrentCacheType type : values()) {
+            if (type.name().equalsIgnoreCase(name.trim())) {
+                return type;
+            }
+        }
+        return defaultType;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.concurrent.cache.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+
+/**
+ * A TTL cache whose reads never lock.
+ *
+ * Every entry lives for the same TTL, so insertion order is also expiry order: the write queue is drained from the
+ * head for both expiry and size eviction, which keeps each step O(1). Draining is done by whichever writer wins a
+ * try-lock, and a single purge thread is shared by every instance.
+ */
+public final class LockFreeTTLConcurrentCache<K, V> implements ConcurrentCache<K, V> {
+    private static final Object SCHEDULER_LOCK = new Object();
+    private static ScheduledExecutorService sharedScheduler;
+    private static int sharedSchedulerUsers;
+
+    private final ConcurrentMap<K, Entry<K, V>> storeMap = new ConcurrentHashMap<K, Entry<K, V>>();
+    private final Queue<Entry<K, V>> writeQueue = new ConcurrentLinkedQueue<Entry<K, V>>();
+    private final AtomicLong size = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicBoolean isShutdown = new AtomicBoolean();
+    private final ScheduledFuture<?> purgeFuture;
+    private final long ttl;
+    private final long maxSize;
+
+    public LockFreeTTLConcurrentCache(final Long ttl, final Long maxSize) {
+        this.ttl = ttl * 60000;
+        this.maxSize = maxSize;
+        this.purgeFuture = acquireScheduler().scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                drain(System.currentTimeMillis());
+            }
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public V get(Object key) {
+        final Entry<K, V> entry = storeMap.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            remove(entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        final long now = System.currentTimeMillis();
+        final Entry<K, V> entry = new Entry<K, V>(key, value, now + ttl);
+        while (true) {
+            final Entry<K, V> existing = storeMap.putIfAbsent(key, entry);
+            if (existing == null) {
+                size.incrementAndGet();
+                writeQueue.offer(entry);
+                drain(now);
+                return null;
+            }
+            if (!existing.isExpired(now)) {
+                return existing.value;
+            }
+            remove(existing);
+        }
+    }
+
+    @Override
+    public void shutdownNow() {
+        if (isShutdown.compareAndSet(false, true)) {
+            purgeFuture.cancel(false);
+            releaseScheduler();
+        }
+    }
+
+    private void drain(final long now) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            for (Entry<K, V> head = writeQueue.peek(); head != null; head = writeQueue.peek()) {
+                final Boolean isStale = storeMap.get(head.key) != head;
+                if (!isStale && !head.isExpired(now) && size.get() <= maxSize) {
+                    break;
+                }
+                writeQueue.poll();
+                if (!isStale) {
+                    remove(head);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void remove(final Entry<K, V> entry) {
+        if (storeMap.remove(entry.key, entry)) {
+            size.decrementAndGet();
+        }
+    }
+
+    private static ScheduledExecutorService acquireScheduler() {
+        synchronized (SCHEDULER_LOCK) {
+            if (sharedScheduler == null) {
+                sharedScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "oidc-cache-purge");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            sharedSchedulerUsers++;
+            return sharedScheduler;
+        }
+    }
+
+    private static void releaseScheduler() {
+        synchronized (SCHEDULER_LOCK) {
+            sharedSchedulerUsers--;
+            if (sharedSchedulerUsers == 0 && sharedScheduler != null) {
+                sharedScheduler.shutdownNow();
+                sharedScheduler = null;
+            }
+        }
+    }
+
+    private static final class Entry<K, V> {
+        private final K key;
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(final K key, final V value, final long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(final long now) {
+            return expiresAt < now;
+        }
+    }
+}
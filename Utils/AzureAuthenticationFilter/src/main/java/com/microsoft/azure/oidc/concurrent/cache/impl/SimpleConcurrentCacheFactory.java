@@ -7,14 +7,31 @@ package com.microsoft.azure.oidc.concurrent.cache.impl;
 
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheFactory;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheType;
+import com.microsoft.azure.oidc.exception.PreconditionException;
 
 public class SimpleConcurrentCacheFactory<K, V> implements ConcurrentCacheFactory<K, V> {
     @SuppressWarnings("rawtypes")
     private static final ConcurrentCacheFactory INSTANCE = new SimpleConcurrentCacheFactory();
+    private static final ConcurrentCacheType DEFAULT_TYPE = ConcurrentCacheType.LOCK_FREE_TTL;
 
     @Override
     public ConcurrentCache<K, V> createConcurrentCache(Long ttl, Long maxSize) {
-        return new TTLConcurrentCache<K, V>(ttl, maxSize);
+        return createConcurrentCache(ttl, maxSize, DEFAULT_TYPE);
+    }
+
+    @Override
+    public ConcurrentCache<K, V> createConcurrentCache(Long ttl, Long maxSize, ConcurrentCacheType type) {
+        if (ttl == null || maxSize == null || type == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        switch (type) {
+        case TTL:
+            return new TTLConcurrentCache<K, V>(ttl, maxSize);
+        case LOCK_FREE_TTL:
+        default:
+            return new LockFreeTTLConcurrentCache<K, V>(ttl, maxSize);
+        }
     }
 
     @SuppressWarnings("unchecked")
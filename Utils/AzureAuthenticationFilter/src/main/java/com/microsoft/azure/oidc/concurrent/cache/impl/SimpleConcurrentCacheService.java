@@ -11,6 +11,7 @@ import java.util.Map;
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheFactory;
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheType;
 
 public class SimpleConcurrentCacheService implements ConcurrentCacheService {
     private final static ConcurrentCacheService INSTANCE = new SimpleConcurrentCacheService();
@@ -24,8 +25,16 @@ public class SimpleConcurrentCacheService implements ConcurrentCacheService {
     @Override
     public <V> ConcurrentCache<String, V> createCache(Class<V> clazzV, String name, Long ttl, Long maxSize) {
         final ConcurrentCache<String, Object> concurrentCache = concurrentCacheFactory.createConcurrentCache(ttl, maxSize);
-        cacheMap.put(name, concurrentCache);
-        return (ConcurrentCache<String, V>) concurrentCache;
+        return (ConcurrentCache<String, V>) register(name, concurrentCache);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <V> ConcurrentCache<String, V> createCache(Class<V> clazzV, String name, Long ttl, Long maxSize,
+            ConcurrentCacheType type) {
+        final ConcurrentCache<String, Object> concurrentCache = concurrentCacheFactory.createConcurrentCache(ttl, maxSize,
+                type);
+        return (ConcurrentCache<String, V>) register(name, concurrentCache);
     }
 
     @SuppressWarnings("unchecked")
@@ -42,6 +51,15 @@ public class SimpleConcurrentCacheService implements ConcurrentCacheService {
         cacheMap.clear();
     }
 
+    private ConcurrentCache<String, Object> register(final String name,
+            final ConcurrentCache<String, Object> concurrentCache) {
+        final ConcurrentCache<String, Object> previous = cacheMap.put(name, concurrentCache);
+        if (previous != null) {
+            previous.shutdownNow();
+        }
+        return concurrentCache;
+    }
+
     public static ConcurrentCacheService getInstance() {
         return INSTANCE;
     }
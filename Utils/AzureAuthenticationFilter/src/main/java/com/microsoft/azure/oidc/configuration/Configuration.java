@@ -13,6 +13,7 @@ import com.microsoft.azure.oidc.common.issuer.Issuer;
 import com.microsoft.azure.oidc.common.name.Name;
 import com.microsoft.azure.oidc.configuration.endpoint.EndPoint;
 import com.microsoft.azure.oidc.configuration.key.Key;
+import com.microsoft.azure.oidc.configuration.key.KeyCache;
 
 public interface Configuration {
 
@@ -22,6 +23,8 @@ public interface Configuration {
 
     Key getKey(Name name);
 
+    KeyCache getKeyCache();
+
     Issuer getIssuer();
 
     EndPoint getAuthenticationEndPoint();
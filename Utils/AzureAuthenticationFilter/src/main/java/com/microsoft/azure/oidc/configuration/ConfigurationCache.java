@@ -9,4 +9,8 @@ public interface ConfigurationCache {
 
     Configuration load();
 
+    Configuration refresh();
+
+    void shutdownNow();
+
 }
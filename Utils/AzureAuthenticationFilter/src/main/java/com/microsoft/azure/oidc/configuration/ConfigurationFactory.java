@@ -13,10 +13,11 @@ import com.microsoft.azure.oidc.common.issuer.Issuer;
 import com.microsoft.azure.oidc.common.name.Name;
 import com.microsoft.azure.oidc.configuration.endpoint.EndPoint;
 import com.microsoft.azure.oidc.configuration.key.Key;
+import com.microsoft.azure.oidc.configuration.key.KeyCache;
 
 public interface ConfigurationFactory {
 
-    Configuration createConfiguration(List<Algorithm> algorithms, Map<Name, Key> keys, Issuer issuer,
-            EndPoint authenticationEndPoint, EndPoint logoutEndPoint);
+    Configuration createConfiguration(List<Algorithm> algorithms, Map<Name, Key> keys, KeyCache keyCache,
+            Issuer issuer, EndPoint authenticationEndPoint, EndPoint logoutEndPoint);
 
 }
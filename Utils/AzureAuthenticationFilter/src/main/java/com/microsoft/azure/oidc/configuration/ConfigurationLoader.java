@@ -5,10 +5,13 @@
 
 package com.microsoft.azure.oidc.configuration;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 public interface ConfigurationLoader {
 
-    Future<Configuration> loadAsync();
+    Configuration load();
+
+    Future<Configuration> loadAsync(ExecutorService executorService);
 
 }
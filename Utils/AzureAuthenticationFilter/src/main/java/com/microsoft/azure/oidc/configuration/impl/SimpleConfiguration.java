@@ -14,18 +14,20 @@ import com.microsoft.azure.oidc.common.name.Name;
 import com.microsoft.azure.oidc.configuration.Configuration;
 import com.microsoft.azure.oidc.configuration.endpoint.EndPoint;
 import com.microsoft.azure.oidc.configuration.key.Key;
+import com.microsoft.azure.oidc.configuration.key.KeyCache;
 import com.microsoft.azure.oidc.exception.PreconditionException;
 
 final class SimpleConfiguration implements Configuration {
     private final Map<Name, Key> keys;
+    private final KeyCache keyCache;
     private final List<Algorithm> algorithms;
     private final Issuer issuer;
     private final EndPoint authenticationEndPoint;
     private final EndPoint logoutEndPoint;
 
-    SimpleConfiguration(final List<Algorithm> algorithms, final Map<Name, Key> keys, final Issuer issuer,
-            final EndPoint authenticationEndPoint, final EndPoint logoutEndPoint) {
-        if (algorithms == null || keys == null || issuer == null || authenticationEndPoint == null
+    SimpleConfiguration(final List<Algorithm> algorithms, final Map<Name, Key> keys, final KeyCache keyCache,
+            final Issuer issuer, final EndPoint authenticationEndPoint, final EndPoint logoutEndPoint) {
+        if (algorithms == null || keys == null || keyCache == null || issuer == null || authenticationEndPoint == null
                 || logoutEndPoint == null) {
             throw new PreconditionException("Required parameter is null");
         }
@@ -34,6 +36,7 @@ final class SimpleConfiguration implements Configuration {
         }
         this.algorithms = algorithms;
         this.keys = keys;
+        this.keyCache = keyCache;
         this.issuer = issuer;
         this.authenticationEndPoint = authenticationEndPoint;
         this.logoutEndPoint = logoutEndPoint;
@@ -59,6 +62,11 @@ final class SimpleConfiguration implements Configuration {
         return getKeys().get(name);
     }
 
+    @Override
+    public KeyCache getKeyCache() {
+        return keyCache;
+    }
+
     @Override
     public Issuer getIssuer() {
         return issuer;
@@ -5,38 +5,145 @@
 
 package com.microsoft.azure.oidc.configuration.impl;
 
-import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
-import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
 import com.microsoft.azure.oidc.configuration.Configuration;
 import com.microsoft.azure.oidc.configuration.ConfigurationCache;
 import com.microsoft.azure.oidc.configuration.ConfigurationLoader;
 import com.microsoft.azure.oidc.future.FutureHelper;
 import com.microsoft.azure.oidc.future.impl.SimpleFutureHelper;
+import com.microsoft.azure.oidc.metrics.Metric;
+import com.microsoft.azure.oidc.metrics.MetricsService;
+import com.microsoft.azure.oidc.metrics.impl.SimpleMetricsService;
 
+/**
+ * Holds the last loaded configuration and refreshes it in the background before it expires. Only one load runs at
+ * a time; callers keep receiving the previous configuration until the new one is in place, and only block when
+ * there is nothing to serve. The refresh thread is started on the first load and stopped by {@link #shutdownNow()},
+ * so it doesn't outlive the web application.
+ */
 public class SimpleConfigurationCache implements ConfigurationCache {
     private static final ConfigurationCache INSTANCE = new SimpleConfigurationCache();
+    private static final long TTL = 3600000L;
+    private static final long REFRESH_AHEAD = 600000L;
+    private static final long MAX_STALE = 3600000L;
+    private static final long RETRY_INTERVAL = 10000L;
+    private static final long MIN_FORCED_REFRESH_INTERVAL = 60000L;
 
     private final ConfigurationLoader configurationLoader = SimpleConfigurationLoader.getInstance();
 
     private final FutureHelper futureHelper = SimpleFutureHelper.getInstance();
 
-    private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
+    private final MetricsService metricsService = SimpleMetricsService.getInstance();
+
+    private final Object refreshLock = new Object();
+
+    private ExecutorService executorService;
+
+    private volatile Entry entry;
+
+    private volatile long lastAttemptAt;
+
+    private Future<Configuration> refreshFuture;
 
     @Override
     public Configuration load() {
-        final String key = "SINGLE";
-        final Configuration entry = concurrentCacheService.getCache(Configuration.class, "configurationCache").get(key);
-        if (entry != null) {
-            return entry;
+        final long now = System.currentTimeMillis();
+        final Entry current = entry;
+        if (current == null || current.loadedAt + TTL + MAX_STALE <= now) {
+            metricsService.increment(Metric.CONFIGURATION_CACHE_MISS);
+            return futureHelper.getResult(refreshAsync(now));
         }
-        final Configuration result = futureHelper.getResult(configurationLoader.loadAsync());
-        if (result == null) {
-            return result;
+        final Boolean isRefreshDue = current.loadedAt + TTL - REFRESH_AHEAD <= now;
+        if (isRefreshDue && lastAttemptAt + RETRY_INTERVAL <= now) {
+            refreshAsync(now);
+        }
+        metricsService.increment(Metric.CONFIGURATION_CACHE_HIT);
+        return current.configuration;
+    }
+
+    @Override
+    public Configuration refresh() {
+        final long now = System.currentTimeMillis();
+        final Entry current = entry;
+        if (current != null && Math.max(current.loadedAt, lastAttemptAt) + MIN_FORCED_REFRESH_INTERVAL > now) {
+            return current.configuration;
+        }
+        final Configuration result = futureHelper.getResult(refreshAsync(now));
+        if (result == null && current != null) {
+            return current.configuration;
         }
-        concurrentCacheService.getCache(Configuration.class, "configurationCache").putIfAbsent(key, result);
         return result;
     }
 
+    private Future<Configuration> refreshAsync(final long now) {
+        synchronized (refreshLock) {
+            if (refreshFuture != null && !refreshFuture.isDone()) {
+                return refreshFuture;
+            }
+            lastAttemptAt = now;
+            metricsService.increment(Metric.CONFIGURATION_CACHE_REFRESH);
+            final FutureTask<Configuration> task = new FutureTask<Configuration>(new Callable<Configuration>() {
+                public Configuration call() throws Exception {
+                    final long startTime = metricsService.startTimer();
+                    // Already on the refresh thread
+                    final Configuration result = configurationLoader.load();
+                    metricsService.stopTimer(Metric.CONFIGURATION_LOAD, startTime);
+                    if (result != null) {
+                        entry = new Entry(result, System.currentTimeMillis());
+                    }
+                    return result;
+                }
+            });
+            refreshFuture = task;
+            getExecutorService().execute(task);
+            return task;
+        }
+    }
+
+    @Override
+    public void shutdownNow() {
+        synchronized (refreshLock) {
+            if (executorService != null) {
+                executorService.shutdownNow();
+                executorService = null;
+            }
+            if (refreshFuture != null) {
+                refreshFuture.cancel(true);
+                refreshFuture = null;
+            }
+        }
+    }
+
+    private ExecutorService getExecutorService() {
+        if (executorService == null) {
+            executorService = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "oidc-configuration-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executorService;
+    }
+
+    private static final class Entry {
+        private final Configuration configuration;
+        private final long loadedAt;
+
+        private Entry(final Configuration configuration, final long loadedAt) {
+            this.configuration = configuration;
+            this.loadedAt = loadedAt;
+        }
+    }
+
     public static ConfigurationCache getInstance() {
         return INSTANCE;
     }
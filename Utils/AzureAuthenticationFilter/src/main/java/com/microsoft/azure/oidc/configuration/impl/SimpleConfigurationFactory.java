@@ -15,6 +15,7 @@ import com.microsoft.azure.oidc.configuration.Configuration;
 import com.microsoft.azure.oidc.configuration.ConfigurationFactory;
 import com.microsoft.azure.oidc.configuration.endpoint.EndPoint;
 import com.microsoft.azure.oidc.configuration.key.Key;
+import com.microsoft.azure.oidc.configuration.key.KeyCache;
 import com.microsoft.azure.oidc.exception.PreconditionException;
 
 public final class SimpleConfigurationFactory implements ConfigurationFactory {
@@ -22,15 +23,16 @@ public final class SimpleConfigurationFactory implements ConfigurationFactory {
 
     @Override
     public Configuration createConfiguration(final List<Algorithm> algorithms, final Map<Name, Key> keys,
-            final Issuer issuer, final EndPoint authenticationEndPoint, final EndPoint logoutEndPoint) {
-        if (algorithms == null || keys == null || issuer == null || authenticationEndPoint == null
+            final KeyCache keyCache, final Issuer issuer, final EndPoint authenticationEndPoint,
+            final EndPoint logoutEndPoint) {
+        if (algorithms == null || keys == null || keyCache == null || issuer == null || authenticationEndPoint == null
                 || logoutEndPoint == null) {
             throw new PreconditionException("Required parameter is null");
         }
         if (algorithms.isEmpty()) {
             throw new PreconditionException("Algorithm list is empty");
         }
-        return new SimpleConfiguration(algorithms, keys, issuer, authenticationEndPoint, logoutEndPoint);
+        return new SimpleConfiguration(algorithms, keys, keyCache, issuer, authenticationEndPoint, logoutEndPoint);
     }
 
     public static ConfigurationFactory getInstance() {
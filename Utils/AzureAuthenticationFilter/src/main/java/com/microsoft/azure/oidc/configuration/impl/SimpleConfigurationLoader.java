@@ -5,11 +5,12 @@
 
 package com.microsoft.azure.oidc.configuration.impl;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
@@ -24,6 +25,11 @@ import com.microsoft.azure.oidc.configuration.ConfigurationFactory;
 import com.microsoft.azure.oidc.configuration.ConfigurationLoader;
 import com.microsoft.azure.oidc.configuration.endpoint.EndPoint;
 import com.microsoft.azure.oidc.configuration.key.Key;
+import com.microsoft.azure.oidc.configuration.key.KeyCache;
+import com.microsoft.azure.oidc.configuration.key.KeyCacheFactory;
+import com.microsoft.azure.oidc.configuration.key.impl.SimpleKeyCacheFactory;
+import com.microsoft.azure.oidc.filter.configuration.algorithm.AlgorithmConfigurationService;
+import com.microsoft.azure.oidc.filter.configuration.algorithm.impl.SimpleAlgorithmConfigurationService;
 import com.microsoft.azure.oidc.future.FutureHelper;
 import com.microsoft.azure.oidc.future.impl.SimpleFutureHelper;
 import com.microsoft.azure.oidc.openid.keystore.KeyStoreLoader;
@@ -38,6 +44,7 @@ import com.microsoft.azure.oidc.openid.wellknown.impl.SimpleWellKnownLoader;
 public final class SimpleConfigurationLoader implements ConfigurationLoader {
     private static final ConfigurationLoader INSTANCE = new SimpleConfigurationLoader();
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleConfigurationLoader.class);
+    private static final String HMAC_CLASS_NAME = "HMAC";
 
     private final WellKnownLoader wellKnownLoader = SimpleWellKnownLoader.getInstance();
 
@@ -49,20 +56,23 @@ public final class SimpleConfigurationLoader implements ConfigurationLoader {
 
     private final ConfigurationFactory configurationFactory = SimpleConfigurationFactory.getInstance();
 
+    private final KeyCacheFactory keyCacheFactory = SimpleKeyCacheFactory.getInstance();
+
+    private final AlgorithmConfigurationService algorithmConfigurationService = SimpleAlgorithmConfigurationService
+            .getInstance();
+
     private final FutureHelper futureHelper = SimpleFutureHelper.getInstance();
 
     @Override
-    public Future<Configuration> loadAsync() {
-        final ExecutorService executorService = Executors.newSingleThreadExecutor();
-        final Future<Configuration> future = executorService.submit(new Callable<Configuration>() {
+    public Future<Configuration> loadAsync(final ExecutorService executorService) {
+        return executorService.submit(new Callable<Configuration>() {
             public Configuration call() throws Exception {
                 return load();
             }
         });
-        executorService.shutdown();
-        return future;
     }
 
+    @Override
     public Configuration load() {
         try {
             final JsonNode wellKnownNode = futureHelper.getResult(wellKnownLoader.loadAsync());
@@ -81,14 +91,25 @@ public final class SimpleConfigurationLoader implements ConfigurationLoader {
                 return null;
             }
             final Map<Name, Key> keys = keyStoreParser.getKeys(keyStoreNode);
-            return configurationFactory.createConfiguration(algorithms, keys, issuer, authenticationEndPoint,
-                    logoutEndPoint);
+            final KeyCache keyCache = keyCacheFactory.createKeyCache(keys, getKeyClassNames());
+            return configurationFactory.createConfiguration(algorithms, keys, keyCache, issuer,
+                    authenticationEndPoint, logoutEndPoint);
         } catch (RuntimeException e) {
             LOGGER.error(e.getMessage(), e);
             return null;
         }
     }
 
+    private Set<String> getKeyClassNames() {
+        final Set<String> keyClassNames = new HashSet<String>();
+        for (final String keyClassName : algorithmConfigurationService.get().getAlgorithmClassMap().values()) {
+            if (!HMAC_CLASS_NAME.equals(keyClassName)) {
+                keyClassNames.add(keyClassName);
+            }
+        }
+        return keyClassNames;
+    }
+
     public static ConfigurationLoader getInstance() {
         return INSTANCE;
     }
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.configuration.key;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+
+import com.microsoft.azure.oidc.common.name.Name;
+
+public interface KeyCache {
+
+    PublicKey getPublicKey(Name name, String keyClassName);
+
+    Signature borrowSignature(String algorithmName) throws NoSuchAlgorithmException;
+
+    void releaseSignature(Signature signature);
+
+}
@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.configuration.key;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.microsoft.azure.oidc.common.name.Name;
+
+public interface KeyCacheFactory {
+
+    KeyCache createKeyCache(Map<Name, Key> keys, Collection<String> keyClassNames);
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.configuration.key.impl;
+
+import java.math.BigInteger;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.binary.Base64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.microsoft.azure.oidc.common.name.Name;
+import com.microsoft.azure.oidc.configuration.key.Key;
+import com.microsoft.azure.oidc.configuration.key.KeyCache;
+import com.microsoft.azure.oidc.exception.PreconditionException;
+
+/**
+ * Public keys decoded once per keystore load, plus a bounded pool of {@link Signature} instances per algorithm so
+ * that verifying a token does not rebuild either. The pools belong to the cache rather than to the threads, so they
+ * are dropped with the keystore and don't pin the web application class loader to the container threads.
+ */
+final class SimpleKeyCache implements KeyCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimpleKeyCache.class);
+    private static final int MAX_POOLED_SIGNATURES = 2 * Runtime.getRuntime().availableProcessors();
+
+    private final Map<String, Map<Name, PublicKey>> publicKeys;
+    private final ConcurrentMap<String, SignaturePool> signaturePools = new ConcurrentHashMap<String, SignaturePool>();
+
+    public SimpleKeyCache(final Map<Name, Key> keys, final Collection<String> keyClassNames) {
+        if (keys == null || keyClassNames == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final Base64 decoder = new Base64();
+        final Map<String, Map<Name, PublicKey>> publicKeys = new HashMap<String, Map<Name, PublicKey>>();
+        for (final String keyClassName : keyClassNames) {
+            try {
+                final java.security.KeyFactory keyFactory = java.security.KeyFactory.getInstance(keyClassName);
+                final Map<Name, PublicKey> classKeys = new HashMap<Name, PublicKey>();
+                for (final Map.Entry<Name, Key> entry : keys.entrySet()) {
+                    final BigInteger exponent = new BigInteger(1,
+                            decoder.decode(entry.getValue().getExponent().getValue()));
+                    final BigInteger modulus = new BigInteger(1,
+                            decoder.decode(entry.getValue().getSecret().getValue()));
+                    try {
+                        classKeys.put(entry.getKey(),
+                                keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+                    } catch (InvalidKeySpecException e) {
+                        LOGGER.error(e.getMessage(), e);
+                    }
+                }
+                publicKeys.put(keyClassName, Collections.unmodifiableMap(classKeys));
+            } catch (NoSuchAlgorithmException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+        this.publicKeys = Collections.unmodifiableMap(publicKeys);
+    }
+
+    @Override
+    public PublicKey getPublicKey(final Name name, final String keyClassName) {
+        if (name == null || keyClassName == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final Map<Name, PublicKey> classKeys = publicKeys.get(keyClassName);
+        if (classKeys == null) {
+            return null;
+        }
+        return classKeys.get(name);
+    }
+
+    @Override
+    public Signature borrowSignature(final String algorithmName) throws NoSuchAlgorithmException {
+        if (algorithmName == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final SignaturePool pool = signaturePools.get(algorithmName);
+        final Signature signature = pool == null ? null : pool.poll();
+        if (signature != null) {
+            return signature;
+        }
+        return Signature.getInstance(algorithmName);
+    }
+
+    @Override
+    public void releaseSignature(final Signature signature) {
+        if (signature == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        SignaturePool pool = signaturePools.get(signature.getAlgorithm());
+        if (pool == null) {
+            final SignaturePool newPool = new SignaturePool();
+            pool = signaturePools.putIfAbsent(signature.getAlgorithm(), newPool);
+            if (pool == null) {
+                pool = newPool;
+            }
+        }
+        pool.offer(signature);
+    }
+
+    private static final class SignaturePool {
+        private final Queue<Signature> idle = new ConcurrentLinkedQueue<Signature>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        private Signature poll() {
+            final Signature signature = idle.poll();
+            if (signature != null) {
+                idleCount.decrementAndGet();
+            }
+            return signature;
+        }
+
+        private void offer(final Signature signature) {
+            // Drop the instances beyond the bound, the concurrent verifications are few more than the processors
+            if (idleCount.incrementAndGet() > MAX_POOLED_SIGNATURES) {
+                idleCount.decrementAndGet();
+                return;
+            }
+            idle.offer(signature);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.configuration.key.impl;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.microsoft.azure.oidc.common.name.Name;
+import com.microsoft.azure.oidc.configuration.key.Key;
+import com.microsoft.azure.oidc.configuration.key.KeyCache;
+import com.microsoft.azure.oidc.configuration.key.KeyCacheFactory;
+import com.microsoft.azure.oidc.exception.PreconditionException;
+
+public final class SimpleKeyCacheFactory implements KeyCacheFactory {
+    private static final KeyCacheFactory INSTANCE = new SimpleKeyCacheFactory();
+
+    @Override
+    public KeyCache createKeyCache(final Map<Name, Key> keys, final Collection<String> keyClassNames) {
+        if (keys == null || keyClassNames == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        return new SimpleKeyCache(keys, keyClassNames);
+    }
+
+    public static KeyCacheFactory getInstance() {
+        return INSTANCE;
+    }
+}
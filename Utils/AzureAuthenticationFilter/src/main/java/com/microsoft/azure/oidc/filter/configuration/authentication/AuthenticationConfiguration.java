@@ -7,18 +7,17 @@ package com.microsoft.azure.oidc.filter.configuration.authentication;
 
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 public interface AuthenticationConfiguration {
 
     List<String> getExclusionUriPatternList();
 
-    List<Pattern> getExclusionRegexPatternList();
-
     List<String> getAuthorisationUriPatternList();
 
-    List<Pattern> getAuthorisationRegexPatternList();
-
     Map<String, List<String>> getAuthorisationRoleMap();
 
+    UriPatternIndex getExclusionIndex();
+
+    UriPatternIndex getAuthorisationIndex();
+
 }
@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.filter.configuration.authentication;
+
+public interface UriPatternIndex {
+
+    int indexOf(String uri);
+
+    Boolean matches(String uri);
+
+}
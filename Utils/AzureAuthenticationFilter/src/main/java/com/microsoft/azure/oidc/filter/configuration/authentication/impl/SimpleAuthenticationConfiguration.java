@@ -8,17 +8,19 @@ package com.microsoft.azure.oidc.filter.configuration.authentication.impl;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfiguration;
+import com.microsoft.azure.oidc.filter.configuration.authentication.UriPatternIndex;
 
 final class SimpleAuthenticationConfiguration implements AuthenticationConfiguration {
+    private static final String FACES_RESOURCE_PATTERN = "/javax.faces.resource/*";
+
     private List<String> exclusionUriPatternList;
     private List<String> authorisationUriPatternList;
     private Map<String, List<String>> authorisationRoleMap;
 
-    private List<Pattern> exclusionRegexPatternList;
-    private List<Pattern> authorisationRegexPatternList;
+    private UriPatternIndex exclusionIndex;
+    private UriPatternIndex authorisationIndex;
 
     public SimpleAuthenticationConfiguration(final List<String> exclusionUriPatternList,
             final List<String> authorisationUriPatternList, final Map<String, List<String>> authorisationRoleMap) {
@@ -29,46 +31,21 @@ final class SimpleAuthenticationConfiguration implements AuthenticationConfigura
 
     private void setExclusionUriPatternList(List<String> exclusionUriPatternList) {
         this.exclusionUriPatternList = exclusionUriPatternList;
-        exclusionRegexPatternList = new ArrayList<Pattern>();
-        exclusionRegexPatternList.add(Pattern.compile(
-                "/javax.faces.resource/*".replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\.\\*)")));
-        if (exclusionRegexPatternList == null) {
-            return;
-        }
-        for (final String pattern : exclusionUriPatternList) {
-            final String localPattern = pattern.trim();
-            if (localPattern.endsWith("*")) {
-                exclusionRegexPatternList.add(Pattern
-                        .compile(localPattern.replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\.\\*)")));
-            } else if (localPattern.startsWith("/")) {
-                exclusionRegexPatternList.add(Pattern.compile(
-                        localPattern.replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\\\w\\*)")));
-            } else {
-                exclusionRegexPatternList.add(Pattern
-                        .compile(localPattern.replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\.\\*)")));
-            }
+        final List<String> exclusionIndexPatternList = new ArrayList<String>();
+        exclusionIndexPatternList.add(FACES_RESOURCE_PATTERN);
+        if (exclusionUriPatternList != null) {
+            exclusionIndexPatternList.addAll(exclusionUriPatternList);
         }
+        exclusionIndex = new SimpleUriPatternIndex(exclusionIndexPatternList);
     }
 
     private void setAuthorisationUriPatternList(List<String> authorisationUriPatternList) {
         this.authorisationUriPatternList = authorisationUriPatternList;
-        authorisationRegexPatternList = new ArrayList<Pattern>();
         if (authorisationUriPatternList == null) {
+            authorisationIndex = new SimpleUriPatternIndex(new ArrayList<String>());
             return;
         }
-        for (final String pattern : authorisationUriPatternList) {
-            final String localPattern = pattern.trim();
-            if (localPattern.endsWith("*")) {
-                authorisationRegexPatternList.add(Pattern
-                        .compile(localPattern.replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\.\\*)")));
-            } else if (localPattern.startsWith("/")) {
-                authorisationRegexPatternList.add(Pattern.compile(
-                        localPattern.replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\\\w\\*)")));
-            } else {
-                authorisationRegexPatternList.add(Pattern
-                        .compile(localPattern.replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\.\\*)")));
-            }
-        }
+        authorisationIndex = new SimpleUriPatternIndex(authorisationUriPatternList);
     }
 
     private void setAuthorisationRoleMap(Map<String, List<String>> authorisationRoleMap) {
@@ -81,22 +58,22 @@ final class SimpleAuthenticationConfiguration implements AuthenticationConfigura
     }
 
     @Override
-    public List<Pattern> getExclusionRegexPatternList() {
-        return exclusionRegexPatternList;
+    public List<String> getAuthorisationUriPatternList() {
+        return authorisationUriPatternList;
     }
 
     @Override
-    public List<String> getAuthorisationUriPatternList() {
-        return authorisationUriPatternList;
+    public Map<String, List<String>> getAuthorisationRoleMap() {
+        return authorisationRoleMap;
     }
 
     @Override
-    public List<Pattern> getAuthorisationRegexPatternList() {
-        return authorisationRegexPatternList;
+    public UriPatternIndex getExclusionIndex() {
+        return exclusionIndex;
     }
 
     @Override
-    public Map<String, List<String>> getAuthorisationRoleMap() {
-        return authorisationRoleMap;
+    public UriPatternIndex getAuthorisationIndex() {
+        return authorisationIndex;
     }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.filter.configuration.authentication.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.filter.configuration.authentication.UriPatternIndex;
+
+/**
+ * Matches a URI against a list of configured URI patterns without scanning the list.
+ *
+ * Every pattern is filed in a trie under its literal prefix (the text before the first wildcard). Looking up a URI
+ * walks the trie once along the URI; patterns without a wildcard and patterns with a single trailing wildcard are
+ * decided from the trie position alone, and only the remaining patterns fall back to their regular expression. The
+ * result is the position of the first matching pattern in the configured list, as a linear scan would return.
+ */
+final class SimpleUriPatternIndex implements UriPatternIndex {
+    private static final int NO_MATCH = -1;
+
+    private final Node root = new Node();
+
+    public SimpleUriPatternIndex(final List<String> uriPatternList) {
+        if (uriPatternList == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        int index = 0;
+        for (final String pattern : uriPatternList) {
+            add(pattern.trim(), index++);
+        }
+    }
+
+    @Override
+    public int indexOf(final String uri) {
+        if (uri == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        int result = NO_MATCH;
+        Node node = root;
+        for (int depth = 0; node != null; depth++) {
+            for (final Route route : node.routes) {
+                if (result != NO_MATCH && route.index > result) {
+                    break;
+                }
+                if (route.matches(uri, depth)) {
+                    result = route.index;
+                    break;
+                }
+            }
+            node = depth < uri.length() ? node.children.get(uri.charAt(depth)) : null;
+        }
+        return result;
+    }
+
+    @Override
+    public Boolean matches(final String uri) {
+        return indexOf(uri) != NO_MATCH;
+    }
+
+    private void add(final String pattern, final int index) {
+        final int wildcard = pattern.indexOf('*');
+        final String prefix = wildcard < 0 ? pattern : pattern.substring(0, wildcard);
+        Node node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            Node child = node.children.get(prefix.charAt(i));
+            if (child == null) {
+                child = new Node();
+                node.children.put(prefix.charAt(i), child);
+            }
+            node = child;
+        }
+        if (wildcard < 0) {
+            node.routes.add(new Route(index, RouteType.EXACT, null));
+        } else if (wildcard == pattern.length() - 1) {
+            node.routes.add(new Route(index, RouteType.PREFIX, null));
+        } else {
+            node.routes.add(new Route(index, RouteType.REGEX, Pattern.compile(toRegex(pattern))));
+        }
+    }
+
+    /**
+     * The regular expression of a configured URI pattern, for the patterns the trie can't decide alone.
+     */
+    static String toRegex(final String pattern) {
+        final String escaped = pattern.replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1");
+        if (pattern.endsWith("*") || !pattern.startsWith("/")) {
+            return escaped.replaceAll("\\*", "(\\.\\*)");
+        }
+        return escaped.replaceAll("\\*", "(\\\\w\\*)");
+    }
+
+    private static boolean hasLineTerminator(final String uri, final int start) {
+        for (int i = start; i < uri.length(); i++) {
+            final char c = uri.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private enum RouteType {
+        EXACT, PREFIX, REGEX
+    }
+
+    private static final class Route {
+        private final int index;
+        private final RouteType type;
+        private final Pattern regex;
+
+        private Route(final int index, final RouteType type, final Pattern regex) {
+            this.index = index;
+            this.type = type;
+            this.regex = regex;
+        }
+
+        private boolean matches(final String uri, final int depth) {
+            switch (type) {
+            case EXACT:
+                return uri.length() == depth;
+            case PREFIX:
+                return !hasLineTerminator(uri, depth);
+            default:
+                return regex.matcher(uri).matches();
+            }
+        }
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<Character, Node>();
+        private final List<Route> routes = new ArrayList<Route>();
+    }
+}
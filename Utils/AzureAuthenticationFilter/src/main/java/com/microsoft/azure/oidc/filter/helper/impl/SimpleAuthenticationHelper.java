@@ -9,8 +9,7 @@ import java.io.IOException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -37,6 +36,7 @@ import com.microsoft.azure.oidc.configuration.ConfigurationCache;
 import com.microsoft.azure.oidc.configuration.impl.SimpleConfigurationCache;
 import com.microsoft.azure.oidc.exception.GeneralException;
 import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfiguration;
 import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfigurationService;
 import com.microsoft.azure.oidc.filter.configuration.authentication.impl.SimpleAuthenticationConfigurationService;
 import com.microsoft.azure.oidc.filter.helper.AuthenticationHelper;
@@ -44,10 +44,15 @@ import com.microsoft.azure.oidc.filter.request.impl.AuthenticationRequestWrapper
 import com.microsoft.azure.oidc.filter.request.impl.SandboxRequestWrapper;
 import com.microsoft.azure.oidc.graph.GraphCache;
 import com.microsoft.azure.oidc.graph.impl.SimpleGraphCache;
+import com.microsoft.azure.oidc.metrics.Metric;
+import com.microsoft.azure.oidc.metrics.MetricsService;
+import com.microsoft.azure.oidc.metrics.impl.SimpleMetricsService;
 import com.microsoft.azure.oidc.token.Token;
+import com.microsoft.azure.oidc.token.TokenCache;
 import com.microsoft.azure.oidc.token.TokenParser;
 import com.microsoft.azure.oidc.token.TokenValidator;
 import com.microsoft.azure.oidc.token.impl.SimpeTokenParser;
+import com.microsoft.azure.oidc.token.impl.SimpleTokenCache;
 import com.microsoft.azure.oidc.token.impl.SimpleTokenValidator;
 
 public final class SimpleAuthenticationHelper implements AuthenticationHelper {
@@ -60,6 +65,10 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
 
     private final TokenValidator tokenValidator = SimpleTokenValidator.getInstance();
 
+    private final TokenCache tokenCache = SimpleTokenCache.getInstance();
+
+    private final MetricsService metricsService = SimpleMetricsService.getInstance();
+
     private final GraphCache graphCache = SimpleGraphCache.getInstance();
 
     private final ApplicationSettingsLoader applicationSettingsLoader = SimpleApplicationSettingsLoader.getInstance();
@@ -86,12 +95,14 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
     @Override
     public void doAuthenticateAction(final HttpServletRequest httpRequest, final HttpServletResponse httpResponse,
             final Token token, final Boolean isError) throws IOException {
+        metricsService.increment(Metric.REQUEST_REDIRECTED);
         httpResponse.sendRedirect(getAuthenticationEndPoint(httpRequest, token, isError));
     }
 
     @Override
     public void doInvalidTokenAction(final HttpServletResponse httpResponse) throws IOException {
         LOGGER.error("Token Failed Validation");
+        metricsService.increment(Metric.REQUEST_INVALID_TOKEN);
         httpResponse.sendError(HttpServletResponse.SC_FORBIDDEN, "Token Failed Validation");
     }
 
@@ -153,12 +164,30 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
 
     @Override
     public Token getToken(final String tokenString) {
-        return tokenParser.getToken(tokenString);
+        final Token cachedToken = tokenCache.load(tokenString);
+        if (cachedToken != null) {
+            metricsService.increment(Metric.TOKEN_CACHE_HIT);
+            return cachedToken;
+        }
+        metricsService.increment(Metric.TOKEN_CACHE_MISS);
+        final long startTime = metricsService.startTimer();
+        try {
+            return tokenParser.getToken(tokenString);
+        } finally {
+            metricsService.stopTimer(Metric.TOKEN_PARSE, startTime);
+        }
     }
 
     @Override
     public Boolean isValidToken(final Token token) {
-        return tokenValidator.validateCommon(token);
+        if (tokenCache.isVerified(token)) {
+            return tokenValidator.validateNotBefore(token);
+        }
+        final Boolean isValid = tokenValidator.validateCommon(token);
+        if (isValid) {
+            tokenCache.add(token);
+        }
+        return isValid;
     }
 
     @Override
@@ -178,6 +207,7 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
 
     private void doExcludedAction(final FilterChain chain, final HttpServletRequest httpRequest,
             final HttpServletResponse httpResponse, final Token token) throws IOException, ServletException {
+        metricsService.increment(Metric.REQUEST_EXCLUDED);
         chain.doFilter(getSandboxWrapper(httpRequest, token), httpResponse);
     }
 
@@ -194,60 +224,53 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
 
     private void doAuthenticatedAction(final FilterChain chain, final HttpServletRequest httpRequest,
             final HttpServletResponse httpResponse, final Token token) throws IOException, ServletException {
+        metricsService.increment(Metric.REQUEST_AUTHORISED);
         chain.doFilter(getAuthenticationWrapper(httpRequest, token), httpResponse);
     }
 
     private void doUnauthorisedAction(final HttpServletResponse httpResponse) throws IOException {
+        metricsService.increment(Metric.REQUEST_UNAUTHORISED);
         httpResponse.sendError(HttpServletResponse.SC_FORBIDDEN, "Not authorised to access this resource");
     }
 
     private Boolean isExcluded(final HttpServletRequest httpRequest) {
-        String uriString = null;
-        final Boolean isRootContext = "".equals(httpRequest.getContextPath());
-        if (isRootContext) {
-            uriString = httpRequest.getRequestURI();
-        } else {
-            final int length = httpRequest.getRequestURI().length();
-            uriString = httpRequest.getRequestURI().substring(length);
+        final String uriString = getUriString(httpRequest);
+        return authenticationConfigurationService.get().getExclusionIndex().matches(uriString);
+    }
+
+    private Boolean isAuthorised(final HttpServletRequest httpRequest, final Token token) {
+        final String uriString = getUriString(httpRequest);
+        final AuthenticationConfiguration authenticationConfiguration = authenticationConfigurationService.get();
+        final int index = authenticationConfiguration.getAuthorisationIndex().indexOf(uriString);
+        final Boolean isMatchFound = index >= 0;
+        if (!isMatchFound) {
+            return Boolean.TRUE;
+        }
+        if (token == null) {
+            return Boolean.FALSE;
         }
-        for (final Pattern pattern : authenticationConfigurationService.get().getExclusionRegexPatternList()) {
-            final Matcher matcher = pattern.matcher(uriString);
-            final Boolean isMatchFound = matcher.matches();
-            if (isMatchFound) {
+        final String urlPattern = authenticationConfiguration.getAuthorisationUriPatternList().get(index);
+        final List<String> roleNames = authenticationConfiguration.getAuthorisationRoleMap().get(urlPattern);
+        final Map<String, Boolean> userRoles = graphCache.getUserRoles(token.getUserID().getValue(), roleNames);
+        for (final String roleName : roleNames) {
+            final Boolean isUserInRole = userRoles.get(roleName);
+            if (isUserInRole == null) {
+                throw new GeneralException("Authorization Error");
+            }
+            if (isUserInRole) {
                 return Boolean.TRUE;
             }
         }
         return Boolean.FALSE;
     }
 
-    private Boolean isAuthorised(final HttpServletRequest httpRequest, final Token token) {
-        String uriString = null;
+    private String getUriString(final HttpServletRequest httpRequest) {
         final Boolean isRootContext = "".equals(httpRequest.getContextPath());
         if (isRootContext) {
-            uriString = httpRequest.getRequestURI();
-        } else {
-            final int length = httpRequest.getRequestURI().length();
-            uriString = httpRequest.getRequestURI().substring(length);
-        }
-        int index = 0;
-        for (final String urlPattern : authenticationConfigurationService.get().getAuthorisationUriPatternList()) {
-            final Pattern pattern = authenticationConfigurationService.get().getAuthorisationRegexPatternList()
-                    .get(index++);
-            final Matcher matcher = pattern.matcher(uriString);
-            final Boolean isMatchFound = matcher.matches();
-            if (isMatchFound) {
-                final HttpServletRequest authRequest = getAuthenticationWrapper(httpRequest, token);
-                for (final String roleName : authenticationConfigurationService.get().getAuthorisationRoleMap()
-                        .get(urlPattern)) {
-                    final Boolean isUserInRole = authRequest.isUserInRole(roleName);
-                    if (isUserInRole) {
-                        return Boolean.TRUE;
-                    }
-                }
-                return Boolean.FALSE;
-            }
+            return httpRequest.getRequestURI();
         }
-        return Boolean.TRUE;
+        final int length = httpRequest.getRequestURI().length();
+        return httpRequest.getRequestURI().substring(length);
     }
 
     private String addCookie(final HttpServletRequest httpRequest, final HttpServletResponse httpResponse,
@@ -17,8 +17,10 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheType;
 import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
-import com.microsoft.azure.oidc.configuration.Configuration;
+import com.microsoft.azure.oidc.configuration.ConfigurationCache;
+import com.microsoft.azure.oidc.configuration.impl.SimpleConfigurationCache;
 import com.microsoft.azure.oidc.exception.GeneralException;
 import com.microsoft.azure.oidc.exception.PreconditionException;
 import com.microsoft.azure.oidc.filter.configuration.algorithm.AlgorithmConfigurationService;
@@ -27,11 +29,16 @@ import com.microsoft.azure.oidc.filter.configuration.authentication.Authenticati
 import com.microsoft.azure.oidc.filter.configuration.authentication.impl.SimpleAuthenticationConfigurationService;
 import com.microsoft.azure.oidc.filter.helper.AuthenticationHelper;
 import com.microsoft.azure.oidc.filter.helper.impl.SimpleAuthenticationHelper;
+import com.microsoft.azure.oidc.graph.GraphService;
+import com.microsoft.azure.oidc.graph.impl.SimpleGraphService;
+import com.microsoft.azure.oidc.metrics.MetricsService;
+import com.microsoft.azure.oidc.metrics.impl.SimpleMetricsService;
 import com.microsoft.azure.oidc.token.Token;
 
 public final class SimpleAuthenticationFilter implements Filter {
     private static final String ALGORITHM_CONFIGURATION = "algorithmConfiguration";
     private static final String AUTHENTICATION_CONFIGURATION = "authenticationConfiguration";
+    private static final String METRICS_REGISTRY = "metricsRegistry";
     private static final String TOKEN_NAME = "id_token";
     private static final String ERROR_NAME = "error";
     private static final String NO_ERROR_STRING = null;
@@ -48,9 +55,18 @@ public final class SimpleAuthenticationFilter implements Filter {
 
     private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
 
+    private final MetricsService metricsService = SimpleMetricsService.getInstance();
+
+    private final ConfigurationCache configurationCache = SimpleConfigurationCache.getInstance();
+
+    private final GraphService graphService = SimpleGraphService.getInstance();
+
     @Override
     public void destroy() {
+        configurationCache.shutdownNow();
+        graphService.shutdownNow();
         concurrentCacheService.shutdownNow();
+        metricsService.shutdownNow();
     }
 
     @Override
@@ -86,14 +102,24 @@ public final class SimpleAuthenticationFilter implements Filter {
 
     @Override
     public void init(final FilterConfig filterConfig) throws ServletException {
+        metricsService.initialise(filterConfig, METRICS_REGISTRY);
         final String securityCacheSizeString = filterConfig.getInitParameter("securityCacheSize");
+        final ConcurrentCacheType cacheType = ConcurrentCacheType
+                .fromName(filterConfig.getInitParameter("cacheImplementation"), ConcurrentCacheType.LOCK_FREE_TTL);
         if (securityCacheSizeString == null) {
-            concurrentCacheService.createCache(Boolean.class, "roleCache", 30L, 1000L);
+            concurrentCacheService.createCache(Boolean.class, "roleCache", 30L, 1000L, cacheType);
         } else {
             concurrentCacheService.createCache(Boolean.class, "roleCache", 30L,
-                    Long.parseLong(securityCacheSizeString));
+                    Long.parseLong(securityCacheSizeString), cacheType);
+        }
+        concurrentCacheService.createCache(String.class, "groupCache", 60L, 1000L, cacheType);
+        final String tokenCacheSizeString = filterConfig.getInitParameter("tokenCacheSize");
+        if (tokenCacheSizeString == null) {
+            concurrentCacheService.createCache(Token.class, "tokenCache", 60L, 1000L, cacheType);
+        } else {
+            concurrentCacheService.createCache(Token.class, "tokenCache", 60L,
+                    Long.parseLong(tokenCacheSizeString), cacheType);
         }
-        concurrentCacheService.createCache(Configuration.class, "configurationCache", 60L, 1L);
         authenticationConfigurationService.initialise(filterConfig, AUTHENTICATION_CONFIGURATION);
         algorithmConfigurationService.initialise(filterConfig, ALGORITHM_CONFIGURATION);
     }
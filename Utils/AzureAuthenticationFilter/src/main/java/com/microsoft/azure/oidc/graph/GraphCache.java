@@ -5,8 +5,13 @@
 
 package com.microsoft.azure.oidc.graph;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface GraphCache {
 
     Boolean isUserInRole(String userID, String role);
 
+    Map<String, Boolean> getUserRoles(String userID, Collection<String> roles);
+
 }
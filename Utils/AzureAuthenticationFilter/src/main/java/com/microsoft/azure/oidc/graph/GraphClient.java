@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.graph;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface GraphClient {
+
+    String getBearerToken();
+
+    String getGroupID(String groupName);
+
+    Set<String> getMemberGroupIDs(String userID, Collection<String> groupIDs);
+
+}
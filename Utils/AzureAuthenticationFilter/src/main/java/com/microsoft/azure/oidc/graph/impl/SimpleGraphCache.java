@@ -5,37 +5,166 @@
 
 package com.microsoft.azure.oidc.graph.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
 import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import com.microsoft.azure.oidc.exception.PreconditionException;
 import com.microsoft.azure.oidc.future.FutureHelper;
 import com.microsoft.azure.oidc.future.impl.SimpleFutureHelper;
 import com.microsoft.azure.oidc.graph.GraphCache;
 import com.microsoft.azure.oidc.graph.GraphService;
+import com.microsoft.azure.oidc.metrics.Metric;
+import com.microsoft.azure.oidc.metrics.MetricsService;
+import com.microsoft.azure.oidc.metrics.impl.SimpleMetricsService;
 
+/**
+ * Role lookups backed by the "roleCache". Misses for several roles of one user go to the graph service as a single
+ * batch, and a caller that misses on a key another caller is already fetching waits for that result instead of
+ * issuing its own request.
+ */
 public class SimpleGraphCache implements GraphCache {
     private static final GraphCache INSTANCE = new SimpleGraphCache();
 
-    private final GraphService springGraphService = SimpleGraphService.getInstance();
+    private final GraphService springGraphService;
 
     private final FutureHelper futureHelper = SimpleFutureHelper.getInstance();
 
     private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
 
+    private final MetricsService metricsService = SimpleMetricsService.getInstance();
+
+    private final ConcurrentMap<String, Future<Boolean>> pendingMap = new ConcurrentHashMap<String, Future<Boolean>>();
+
+    private SimpleGraphCache() {
+        this(SimpleGraphService.getInstance());
+    }
+
+    SimpleGraphCache(final GraphService graphService) {
+        this.springGraphService = graphService;
+    }
+
     @Override
     public Boolean isUserInRole(String userID, String role) {
-        final String key = String.format("%s:%s", userID, role);
-        final Boolean entry = concurrentCacheService.getCache(Boolean.class, "roleCache").get(key);
-        if (entry != null) {
-            return entry;
+        return getUserRoles(userID, Collections.singleton(role)).get(role);
+    }
+
+    @Override
+    public Map<String, Boolean> getUserRoles(final String userID, final Collection<String> roles) {
+        if (userID == null || roles == null) {
+            throw new PreconditionException("Required parameter is null");
         }
-        final Boolean result = futureHelper.getResult(springGraphService.isUserInRoleAsync(userID, role));
-        if (result == null) {
-            return result;
+        final Map<String, Boolean> result = new HashMap<String, Boolean>();
+        final Map<String, Future<Boolean>> ownedMap = new HashMap<String, Future<Boolean>>();
+        final Map<String, Future<Boolean>> waitingMap = new HashMap<String, Future<Boolean>>();
+        final List<String> missedRoles = new ArrayList<String>();
+        final FutureTask<Map<String, Boolean>> batch = new FutureTask<Map<String, Boolean>>(
+                new Callable<Map<String, Boolean>>() {
+                    public Map<String, Boolean> call() throws Exception {
+                        return futureHelper.getResult(springGraphService.getUserRolesAsync(userID, missedRoles));
+                    }
+                });
+        try {
+            for (final String role : new LinkedHashSet<String>(roles)) {
+                final String key = getKey(userID, role);
+                final Boolean entry = concurrentCacheService.getCache(Boolean.class, "roleCache").get(key);
+                if (entry != null) {
+                    metricsService.increment(Metric.GRAPH_CACHE_HIT);
+                    result.put(role, entry);
+                    continue;
+                }
+                metricsService.increment(Metric.GRAPH_CACHE_MISS);
+                final Future<Boolean> future = new BatchRoleFuture(batch, role);
+                final Future<Boolean> pending = pendingMap.putIfAbsent(key, future);
+                if (pending == null) {
+                    ownedMap.put(role, future);
+                    missedRoles.add(role);
+                } else {
+                    waitingMap.put(role, pending);
+                }
+            }
+            if (!missedRoles.isEmpty()) {
+                batch.run();
+                final Map<String, Boolean> batchResult = futureHelper.getResult(batch);
+                for (final String role : missedRoles) {
+                    final Boolean value = batchResult == null ? null : batchResult.get(role);
+                    if (value != null) {
+                        concurrentCacheService.getCache(Boolean.class, "roleCache").putIfAbsent(getKey(userID, role),
+                                value);
+                    }
+                    result.put(role, value);
+                }
+            }
+        } finally {
+            if (!batch.isDone()) {
+                batch.cancel(false);
+            }
+            for (final Map.Entry<String, Future<Boolean>> owned : ownedMap.entrySet()) {
+                pendingMap.remove(getKey(userID, owned.getKey()), owned.getValue());
+            }
+        }
+        for (final Map.Entry<String, Future<Boolean>> waiting : waitingMap.entrySet()) {
+            result.put(waiting.getKey(), futureHelper.getResult(waiting.getValue()));
         }
-        concurrentCacheService.getCache(Boolean.class, "roleCache").putIfAbsent(key, result);
         return result;
     }
 
+    private String getKey(final String userID, final String role) {
+        return String.format("%s:%s", userID, role);
+    }
+
+    private static final class BatchRoleFuture implements Future<Boolean> {
+        private final Future<Map<String, Boolean>> batch;
+        private final String role;
+
+        private BatchRoleFuture(final Future<Map<String, Boolean>> batch, final String role) {
+            this.batch = batch;
+            this.role = role;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return batch.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return batch.isDone();
+        }
+
+        @Override
+        public Boolean get() throws InterruptedException, ExecutionException {
+            final Map<String, Boolean> result = batch.get();
+            return result == null ? null : result.get(role);
+        }
+
+        @Override
+        public Boolean get(final long timeout, final TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            final Map<String, Boolean> result = batch.get(timeout, unit);
+            return result == null ? null : result.get(role);
+        }
+    }
+
     public static GraphCache getInstance() {
         return INSTANCE;
     }
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.graph.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.net.ssl.HttpsURLConnection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.microsoft.azure.oidc.application.settings.ApplicationSettings;
+import com.microsoft.azure.oidc.application.settings.ApplicationSettingsLoader;
+import com.microsoft.azure.oidc.application.settings.impl.SimpleApplicationSettingsLoader;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
+import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.graph.GraphClient;
+import com.microsoft.azure.oidc.metrics.Metric;
+import com.microsoft.azure.oidc.metrics.MetricsService;
+import com.microsoft.azure.oidc.metrics.impl.SimpleMetricsService;
+
+/**
+ * Graph API calls over {@link HttpsURLConnection}. Every response body is read to the end and closed, so the JDK
+ * keep-alive cache can hand the same connection to the next call. The application bearer token is reused until
+ * shortly before it expires, and group names are resolved through the "groupCache".
+ */
+public final class SimpleGraphClient implements GraphClient {
+    private static final GraphClient INSTANCE = new SimpleGraphClient();
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimpleGraphClient.class);
+    private static final String GRAPH_RESOURCE = "https://graph.windows.net";
+    private static final String GROUP_CACHE = "groupCache";
+    private static final long TOKEN_REFRESH_MARGIN = 300000L;
+    private static final int MAX_GROUPS_PER_CHECK = 20;
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 30000;
+
+    private final ApplicationSettingsLoader applicationSettingsLoader = SimpleApplicationSettingsLoader.getInstance();
+
+    private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
+
+    private final MetricsService metricsService = SimpleMetricsService.getInstance();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Object tokenLock = new Object();
+
+    private volatile BearerToken bearerToken;
+
+    @Override
+    public String getBearerToken() {
+        final BearerToken current = bearerToken;
+        if (current != null && !current.isRefreshDue(System.currentTimeMillis())) {
+            return current.value;
+        }
+        synchronized (tokenLock) {
+            final BearerToken latest = bearerToken;
+            final long now = System.currentTimeMillis();
+            if (latest != null && !latest.isRefreshDue(now)) {
+                return latest.value;
+            }
+            final BearerToken fetched = fetchBearerToken();
+            if (fetched != null) {
+                bearerToken = fetched;
+                return fetched.value;
+            }
+            if (latest != null && !latest.isExpired(now)) {
+                return latest.value;
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public String getGroupID(final String groupName) {
+        if (groupName == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final ConcurrentCache<String, String> groupCache = concurrentCacheService.getCache(String.class, GROUP_CACHE);
+        final String entry = groupCache == null ? null : groupCache.get(groupName);
+        if (entry != null) {
+            return entry;
+        }
+        final String result = fetchGroupID(groupName);
+        if (result != null && groupCache != null) {
+            groupCache.putIfAbsent(groupName, result);
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> getMemberGroupIDs(final String userID, final Collection<String> groupIDs) {
+        if (userID == null || groupIDs == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final Set<String> result = new HashSet<String>();
+        final List<String> batch = new ArrayList<String>(MAX_GROUPS_PER_CHECK);
+        for (final String groupID : groupIDs) {
+            batch.add(groupID);
+            if (batch.size() == MAX_GROUPS_PER_CHECK) {
+                result.addAll(checkMemberGroups(userID, batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            result.addAll(checkMemberGroups(userID, batch));
+        }
+        return result;
+    }
+
+    private Set<String> checkMemberGroups(final String userID, final List<String> groupIDs) {
+        final Set<String> result = new HashSet<String>();
+        try {
+            final String token = getBearerToken();
+            if (token == null) {
+                return result;
+            }
+            final ApplicationSettings applicationSettings = applicationSettingsLoader.load();
+            final String urlString = String.format("%s/%s/users/%s/checkMemberGroups?api-version=1.6",
+                    GRAPH_RESOURCE, applicationSettings.getTenant().getName(), URLEncoder.encode(userID, "UTF-8"));
+            final ObjectNode payload = mapper.createObjectNode();
+            final ArrayNode groupIdsNode = payload.putArray("groupIds");
+            for (final String groupID : groupIDs) {
+                groupIdsNode.add(groupID);
+            }
+            final JsonNode node = send("POST", urlString, "application/json", token,
+                    mapper.writeValueAsString(payload));
+            for (final JsonNode groupNode : node.get("value")) {
+                result.add(groupNode.asText());
+            }
+            return result;
+        } catch (IOException e) {
+            LOGGER.error("IO Exception", e);
+            return result;
+        } catch (RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+            return result;
+        }
+    }
+
+    private String fetchGroupID(final String groupName) {
+        try {
+            final String token = getBearerToken();
+            if (token == null) {
+                return null;
+            }
+            final ApplicationSettings applicationSettings = applicationSettingsLoader.load();
+            final String urlString = String.format(
+                    "%s/%s/groups?$filter=displayName%%20eq%%20'%s'&api-version=1.6", GRAPH_RESOURCE,
+                    applicationSettings.getTenant().getName(), URLEncoder.encode(groupName, "UTF-8"));
+            final JsonNode node = send("GET", urlString, null, token, null);
+            for (final JsonNode groupNode : node.get("value")) {
+                return groupNode.get("objectId").asText();
+            }
+            return null;
+        } catch (IOException e) {
+            LOGGER.error("IO Exception", e);
+            return null;
+        } catch (RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private BearerToken fetchBearerToken() {
+        try {
+            final ApplicationSettings applicationSettings = applicationSettingsLoader.load();
+            final String payload = String.format(
+                    "grant_type=client_credentials&client_id=%s&client_secret=%s&resource=%s",
+                    applicationSettings.getPrincipalId().getValue(),
+                    URLEncoder.encode(applicationSettings.getPrincipalSecret().getValue(), "UTF-8"),
+                    URLEncoder.encode(GRAPH_RESOURCE, "UTF-8"));
+            final String urlString = String.format("https://login.microsoftonline.com/%s/oauth2/token",
+                    applicationSettings.getTenant().getName());
+            final long now = System.currentTimeMillis();
+            final JsonNode node = send("POST", urlString, "application/x-www-form-urlencoded", null, payload);
+            final long expiresIn = node.has("expires_in") ? node.get("expires_in").asLong() : 0L;
+            return new BearerToken(node.get("access_token").asText(), now + expiresIn * 1000);
+        } catch (IOException e) {
+            LOGGER.error("IO Exception", e);
+            return null;
+        } catch (RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private JsonNode send(final String method, final String urlString, final String contentType,
+            final String token, final String payload) throws IOException {
+        final long startTime = metricsService.startTimer();
+        try {
+            return sendRequest(method, urlString, contentType, token, payload);
+        } finally {
+            metricsService.stopTimer(Metric.GRAPH_HTTP, startTime);
+        }
+    }
+
+    private JsonNode sendRequest(final String method, final String urlString, final String contentType,
+            final String token, final String payload) throws IOException {
+        final HttpsURLConnection connection = (HttpsURLConnection) new URL(urlString).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setRequestProperty("Accept", "application/json");
+        if (contentType != null) {
+            connection.setRequestProperty("Content-Type", contentType);
+        }
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        if (payload != null) {
+            connection.setDoOutput(true);
+            try (final OutputStream out = connection.getOutputStream()) {
+                out.write(payload.getBytes("UTF-8"));
+            }
+        }
+        try (final InputStream in = connection.getInputStream()) {
+            return mapper.readTree(readFully(in));
+        } catch (IOException e) {
+            final InputStream errorStream = connection.getErrorStream();
+            if (errorStream != null) {
+                try (final InputStream in = errorStream) {
+                    readFully(in);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private byte[] readFully(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class BearerToken {
+        private final String value;
+        private final long expiresAt;
+
+        private BearerToken(final String value, final long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isRefreshDue(final long now) {
+            return expiresAt - TOKEN_REFRESH_MARGIN <= now;
+        }
+
+        private boolean isExpired(final long now) {
+            return expiresAt <= now;
+        }
+    }
+
+    public static GraphClient getInstance() {
+        return INSTANCE;
+    }
+}
@@ -5,168 +5,127 @@
 
 package com.microsoft.azure.oidc.graph.impl;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-
-import javax.net.ssl.HttpsURLConnection;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.microsoft.azure.oidc.application.settings.ApplicationSettings;
-import com.microsoft.azure.oidc.application.settings.ApplicationSettingsLoader;
-import com.microsoft.azure.oidc.application.settings.Secret;
-import com.microsoft.azure.oidc.application.settings.Tenant;
-import com.microsoft.azure.oidc.application.settings.impl.SimpleApplicationSettingsLoader;
-import com.microsoft.azure.oidc.common.id.ID;
-import com.microsoft.azure.oidc.exception.GeneralException;
+import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.graph.GraphClient;
 import com.microsoft.azure.oidc.graph.GraphService;
 
 public final class SimpleGraphService implements GraphService {
     private static final GraphService INSTANCE = new SimpleGraphService();
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleGraphService.class);
+    private static final int MAX_THREADS = 8;
+    private static final int MAX_QUEUED = 1000;
+
+    private final GraphClient graphClient = SimpleGraphClient.getInstance();
 
-    private final ApplicationSettingsLoader applicationSettingsLoader = SimpleApplicationSettingsLoader.getInstance();
+    private final Object executorLock = new Object();
+
+    private ExecutorService executorService;
 
     @Override
     public Future<Boolean> isUserInRoleAsync(final String userID, final String role) {
-        final ExecutorService executorService = Executors.newSingleThreadExecutor();
-        final Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
+        return getExecutorService().submit(new Callable<Boolean>() {
             public Boolean call() throws Exception {
-                return isUserInRole(userID, role);
+                return getUserRoles(userID, Collections.singleton(role)).get(role);
             }
         });
-        executorService.shutdown();
-        return future;
     }
 
-    private Boolean isUserInRole(final String userID, final String role) {
-        try {
-            final ApplicationSettings applicationSettings = applicationSettingsLoader.load();
-            final String bearerToken = getBearerToken(applicationSettings.getTenant(),
-                    applicationSettings.getPrincipalId(), applicationSettings.getPrincipalSecret());
-            final String roleID = getGroupID(applicationSettings.getTenant(), role, bearerToken);
-            if (roleID == null) {
-                return Boolean.FALSE;
-            }
-            return isUserInGroup(applicationSettings.getTenant(), userID, roleID, bearerToken);
-        } catch (GeneralException e) {
-            LOGGER.error("General Exception", e);
-            return Boolean.FALSE;
-        } catch (RuntimeException e) {
-            LOGGER.error(e.getMessage(), e);
-            return Boolean.FALSE;
+    @Override
+    public Future<Map<String, Boolean>> getUserRolesAsync(final String userID, final Collection<String> roles) {
+        if (userID == null || roles == null) {
+            throw new PreconditionException("Required parameter is null");
         }
+        final Set<String> roleSet = new LinkedHashSet<String>(roles);
+        return getExecutorService().submit(new Callable<Map<String, Boolean>>() {
+            public Map<String, Boolean> call() throws Exception {
+                return getUserRoles(userID, roleSet);
+            }
+        });
     }
 
-    private Boolean isUserInGroup(final Tenant tenant, final String userID, final String groupID,
-            final String bearerToken) {
-        try {
-            final String urlString = String.format("https://graph.windows.net/%s/isMemberOf?api-version=1.6",
-                    tenant.getName());
-            final String payload = String.format("{\"groupId\":\"%s\",\"memberId\":\"%s\"}", groupID, userID);
-            final URL url = new URL(urlString);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestProperty("Host", "graph.windows.net");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setRequestProperty("Authorization", "Bearer " + bearerToken);
-            connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.getOutputStream().write(payload.getBytes());
-            connection.getOutputStream().flush();
-            final StringBuilder result = new StringBuilder();
-            try (final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                for (String line = in.readLine(); line != null; line = in.readLine()) {
-                    result.append(line);
-                }
+    @Override
+    public void shutdownNow() {
+        synchronized (executorLock) {
+            if (executorService != null) {
+                executorService.shutdownNow();
+                executorService = null;
             }
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode node = mapper.readValue(result.toString().getBytes(), JsonNode.class);
-            return node.get("value").asBoolean();
-        } catch (IOException e) {
-            LOGGER.error("IO Exception", e);
-            return Boolean.FALSE;
-        } catch (RuntimeException e) {
-            LOGGER.error(e.getMessage(), e);
-            return Boolean.FALSE;
         }
     }
 
-    private String getGroupID(final Tenant tenant, final String group, final String bearerToken) {
+    private Map<String, Boolean> getUserRoles(final String userID, final Collection<String> roles) {
+        final Map<String, Boolean> result = new HashMap<String, Boolean>();
         try {
-            final String urlString = String.format(
-                    "https://graph.windows.net/%s/groups?$filter=displayName%%20eq%%20'%s'&api-version=1.6",
-                    tenant.getName(), URLEncoder.encode(group, "UTF-8"));
-            final URL url = new URL(urlString);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestProperty("Host", "graph.windows.net");
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setRequestProperty("Authorization", "Bearer " + bearerToken);
-            final StringBuilder result = new StringBuilder();
-            try (final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                for (String line = in.readLine(); line != null; line = in.readLine()) {
-                    result.append(line);
+            final Map<String, String> roleGroupIDs = new HashMap<String, String>();
+            for (final String role : roles) {
+                final String groupID = graphClient.getGroupID(role);
+                if (groupID == null) {
+                    result.put(role, Boolean.FALSE);
+                } else {
+                    roleGroupIDs.put(role, groupID);
                 }
             }
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode node = mapper.readValue(result.toString().getBytes(), JsonNode.class);
-            for (final JsonNode groupNode : node.get("value")) {
-                return groupNode.get("objectId").asText();
+            if (roleGroupIDs.isEmpty()) {
+                return result;
+            }
+            final Set<String> memberGroupIDs = graphClient.getMemberGroupIDs(userID, roleGroupIDs.values());
+            for (final Map.Entry<String, String> entry : roleGroupIDs.entrySet()) {
+                result.put(entry.getKey(), memberGroupIDs.contains(entry.getValue()));
             }
-            return null;
-        } catch (IOException e) {
-            LOGGER.error("IO Exception", e);
-            return null;
         } catch (RuntimeException e) {
             LOGGER.error(e.getMessage(), e);
-            return null;
+            for (final String role : roles) {
+                if (!result.containsKey(role)) {
+                    result.put(role, Boolean.FALSE);
+                }
+            }
         }
+        return result;
     }
 
-    private String getBearerToken(final Tenant tenant, final ID principal, final Secret secret) {
-        try {
-            final String payload = String.format(
-                    "grant_type=client_credentials&client_id=%s&client_secret=%s&resource=%s", principal.getValue(),
-                    URLEncoder.encode(secret.getValue(), "UTF-8"),
-                    URLEncoder.encode("https://graph.windows.net", "UTF-8"));
-            final URL url = new URL(
-                    String.format("https://login.microsoftonline.com/%s/oauth2/token", tenant.getName()));
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Host", "login.microsoftonline.com");
-            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setDoOutput(true);
-            connection.getOutputStream().write(payload.getBytes());
-            connection.getOutputStream().flush();
-            final StringBuilder result = new StringBuilder();
-            try (final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                for (String line = in.readLine(); line != null; line = in.readLine()) {
-                    result.append(line);
-                }
+    private ExecutorService getExecutorService() {
+        synchronized (executorLock) {
+            if (executorService == null) {
+                executorService = createExecutorService();
             }
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode node = mapper.readValue(result.toString().getBytes(), JsonNode.class);
-            return node.get("access_token").asText();
-        } catch (IOException e) {
-            LOGGER.error("IO Exception", e);
-            return null;
-        } catch (RuntimeException e) {
-            LOGGER.error(e.getMessage(), e);
-            return null;
+            return executorService;
         }
     }
 
+    private static ExecutorService createExecutorService() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_QUEUED), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "oidc-graph-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     public static GraphService getInstance() {
         return INSTANCE;
     }
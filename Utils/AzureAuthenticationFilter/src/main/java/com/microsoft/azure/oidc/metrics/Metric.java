@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.metrics;
+
+public enum Metric {
+
+    TOKEN_PARSE("tokenParse", MetricType.LATENCY),
+
+    SIGNATURE_VERIFY("signatureVerify", MetricType.LATENCY),
+
+    TOKEN_CACHE_HIT("tokenCacheHit", MetricType.COUNTER),
+
+    TOKEN_CACHE_MISS("tokenCacheMiss", MetricType.COUNTER),
+
+    CONFIGURATION_CACHE_HIT("configurationCacheHit", MetricType.COUNTER),
+
+    CONFIGURATION_CACHE_MISS("configurationCacheMiss", MetricType.COUNTER),
+
+    CONFIGURATION_CACHE_REFRESH("configurationCacheRefresh", MetricType.COUNTER),
+
+    CONFIGURATION_LOAD("configurationLoad", MetricType.LATENCY),
+
+    GRAPH_CACHE_HIT("graphCacheHit", MetricType.COUNTER),
+
+    GRAPH_CACHE_MISS("graphCacheMiss", MetricType.COUNTER),
+
+    GRAPH_HTTP("graphHttp", MetricType.LATENCY),
+
+    REQUEST_EXCLUDED("requestExcluded", MetricType.COUNTER),
+
+    REQUEST_AUTHORISED("requestAuthorised", MetricType.COUNTER),
+
+    REQUEST_REDIRECTED("requestRedirected", MetricType.COUNTER),
+
+    REQUEST_UNAUTHORISED("requestUnauthorised", MetricType.COUNTER),
+
+    REQUEST_INVALID_TOKEN("requestInvalidToken", MetricType.COUNTER);
+
+    private final String name;
+    private final MetricType type;
+
+    private Metric(final String name, final MetricType type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public MetricType getType() {
+        return type;
+    }
+}
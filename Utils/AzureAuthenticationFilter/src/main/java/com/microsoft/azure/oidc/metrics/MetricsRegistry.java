@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.metrics;
+
+/**
+ * Receives the filter's measurements. Implementations need a public no-argument constructor so they can be named by
+ * the "metricsRegistry" init-param, and must be safe to call from many request threads at once.
+ */
+public interface MetricsRegistry {
+
+    void increment(Metric metric);
+
+    void recordLatency(Metric metric, long nanos);
+
+    void close();
+
+}
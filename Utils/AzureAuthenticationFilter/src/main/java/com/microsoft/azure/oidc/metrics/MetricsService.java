@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.metrics;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+
+public interface MetricsService {
+
+    void initialise(FilterConfig filterConfig, String parameterName) throws ServletException;
+
+    long startTimer();
+
+    void stopTimer(Metric metric, long startTime);
+
+    void increment(Metric metric);
+
+    void shutdownNow();
+
+}
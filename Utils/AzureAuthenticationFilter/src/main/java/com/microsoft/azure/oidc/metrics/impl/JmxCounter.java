@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.metrics.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class JmxCounter implements JmxCounterMBean {
+    private final AtomicLong count = new AtomicLong();
+
+    void increment() {
+        count.incrementAndGet();
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public void reset() {
+        count.set(0L);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.metrics.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with one bucket per power of two nanoseconds. Percentiles report the upper bound of the bucket
+ * they fall in, which is accurate to within a factor of two and costs two atomic adds per sample.
+ */
+public final class JmxLatency implements JmxLatencyMBean {
+    private static final int BUCKETS = 64;
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(final long nanos) {
+        final long value = nanos < 0L ? 0L : nanos;
+        buckets.incrementAndGet(BUCKETS - 1 - Long.numberOfLeadingZeros(value | 1L));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        for (long current = max.get(); value > current; current = max.get()) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        final long samples = count.get();
+        return samples == 0L ? 0.0 : total.get() / NANOS_PER_MICRO / samples;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return max.get() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return getPercentileMicros(0.50);
+    }
+
+    @Override
+    public double getP90Micros() {
+        return getPercentileMicros(0.90);
+    }
+
+    @Override
+    public double getP99Micros() {
+        return getPercentileMicros(0.99);
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0L);
+        }
+        count.set(0L);
+        total.set(0L);
+        max.set(0L);
+    }
+
+    private double getPercentileMicros(final double percentile) {
+        long samples = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            samples += buckets.get(i);
+        }
+        if (samples == 0L) {
+            return 0.0;
+        }
+        final long rank = (long) Math.ceil(samples * percentile);
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                final long upperBound = i >= BUCKETS - 2 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                return Math.min(upperBound, max.get()) / NANOS_PER_MICRO;
+            }
+        }
+        return max.get() / NANOS_PER_MICRO;
+    }
+}
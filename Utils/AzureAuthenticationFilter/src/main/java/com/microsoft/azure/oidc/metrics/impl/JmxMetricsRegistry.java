@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.metrics.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.microsoft.azure.oidc.metrics.Metric;
+import com.microsoft.azure.oidc.metrics.MetricType;
+import com.microsoft.azure.oidc.metrics.MetricsRegistry;
+
+/**
+ * Default registry: one MBean per {@link Metric} under "com.microsoft.azure.oidc:type=Metrics,context=&lt;path&gt;",
+ * keyed by the context path so that every web application in the container has its own metrics.
+ */
+public final class JmxMetricsRegistry implements MetricsRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmxMetricsRegistry.class);
+    private static final String DOMAIN = "com.microsoft.azure.oidc";
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private final JmxCounter[] counters = new JmxCounter[Metric.values().length];
+    private final JmxLatency[] latencies = new JmxLatency[Metric.values().length];
+    private final List<ObjectName> registered = new ArrayList<ObjectName>();
+    private final String context;
+
+    public JmxMetricsRegistry() {
+        this("");
+    }
+
+    public JmxMetricsRegistry(final String contextPath) {
+        context = ObjectName.quote(contextPath == null || contextPath.isEmpty() ? "/" : contextPath);
+        for (final Metric metric : Metric.values()) {
+            if (metric.getType() == MetricType.COUNTER) {
+                counters[metric.ordinal()] = new JmxCounter();
+                register(metric, counters[metric.ordinal()]);
+            } else {
+                latencies[metric.ordinal()] = new JmxLatency();
+                register(metric, latencies[metric.ordinal()]);
+            }
+        }
+    }
+
+    @Override
+    public void increment(final Metric metric) {
+        final JmxCounter counter = counters[metric.ordinal()];
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    @Override
+    public void recordLatency(final Metric metric, final long nanos) {
+        final JmxLatency latency = latencies[metric.ordinal()];
+        if (latency != null) {
+            latency.record(nanos);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (registered) {
+            for (final ObjectName objectName : registered) {
+                try {
+                    mBeanServer.unregisterMBean(objectName);
+                } catch (InstanceNotFoundException e) {
+                    continue;
+                } catch (JMException e) {
+                    LOGGER.warn(e.getMessage(), e);
+                }
+            }
+            registered.clear();
+        }
+    }
+
+    private void register(final Metric metric, final Object mBean) {
+        try {
+            final ObjectName objectName = getObjectName(metric);
+            mBeanServer.registerMBean(mBean, objectName);
+            synchronized (registered) {
+                registered.add(objectName);
+            }
+        } catch (InstanceAlreadyExistsException e) {
+            // Another registry of this web application owns the name, it is left to unregister it
+            LOGGER.warn("Metric " + metric.getName() + " is already registered for context " + context);
+        } catch (JMException e) {
+            LOGGER.warn(e.getMessage(), e);
+        }
+    }
+
+    private ObjectName getObjectName(final Metric metric) throws JMException {
+        return new ObjectName(String.format("%s:type=Metrics,context=%s,name=%s", DOMAIN, context, metric.getName()));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.metrics.impl;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+
+import com.microsoft.azure.oidc.metrics.Metric;
+import com.microsoft.azure.oidc.metrics.MetricsRegistry;
+import com.microsoft.azure.oidc.metrics.MetricsService;
+
+/**
+ * Front for the configured {@link MetricsRegistry}. With metrics disabled the registry is null and every call is a
+ * single volatile read, so call sites do not need to check whether metrics are on.
+ */
+public final class SimpleMetricsService implements MetricsService {
+    private static final MetricsService INSTANCE = new SimpleMetricsService();
+    private static final long NO_TIMER = Long.MIN_VALUE;
+    private static final String JMX_REGISTRY = "jmx";
+    private static final String NO_REGISTRY = "none";
+
+    private volatile MetricsRegistry registry;
+
+    @Override
+    public void initialise(final FilterConfig filterConfig, final String parameterName) throws ServletException {
+        final String registryName = filterConfig.getInitParameter(parameterName);
+        final MetricsRegistry previous = registry;
+        // The previous registry gives up its MBean names before the new one registers them
+        registry = null;
+        if (previous != null) {
+            previous.close();
+        }
+        registry = createRegistry(filterConfig, registryName == null ? JMX_REGISTRY : registryName.trim());
+    }
+
+    @Override
+    public long startTimer() {
+        return registry == null ? NO_TIMER : System.nanoTime();
+    }
+
+    @Override
+    public void stopTimer(final Metric metric, final long startTime) {
+        final MetricsRegistry current = registry;
+        if (current == null || startTime == NO_TIMER) {
+            return;
+        }
+        current.recordLatency(metric, System.nanoTime() - startTime);
+    }
+
+    @Override
+    public void increment(final Metric metric) {
+        final MetricsRegistry current = registry;
+        if (current == null) {
+            return;
+        }
+        current.increment(metric);
+    }
+
+    @Override
+    public void shutdownNow() {
+        final MetricsRegistry current = registry;
+        registry = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private MetricsRegistry createRegistry(final FilterConfig filterConfig, final String registryName)
+            throws ServletException {
+        if (NO_REGISTRY.equalsIgnoreCase(registryName)) {
+            return null;
+        }
+        if (JMX_REGISTRY.equalsIgnoreCase(registryName)) {
+            final ServletContext servletContext = filterConfig.getServletContext();
+            return new JmxMetricsRegistry(servletContext == null ? null : servletContext.getContextPath());
+        }
+        // The registry class is in the web application, which the filter library may be loaded out of
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = SimpleMetricsService.class.getClassLoader();
+        }
+        try {
+            return (MetricsRegistry) Class.forName(registryName, true, classLoader).newInstance();
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+            throw new ServletException(e.getMessage(), e);
+        }
+    }
+
+    public static MetricsService getInstance() {
+        return INSTANCE;
+    }
+}
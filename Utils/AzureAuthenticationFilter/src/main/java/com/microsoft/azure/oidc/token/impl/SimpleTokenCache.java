@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.token.impl;
+
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
+import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.token.Token;
+import com.microsoft.azure.oidc.token.TokenCache;
+import com.microsoft.azure.oidc.token.TokenValidator;
+
+/**
+ * Tokens that already passed {@link TokenValidator#validateCommon(Token)}, keyed by their signature segment. A hit
+ * must match the whole token string, so a reused signature with a different header or body is never trusted.
+ */
+public final class SimpleTokenCache implements TokenCache {
+    private static final TokenCache INSTANCE = new SimpleTokenCache();
+    private static final String CACHE_NAME = "tokenCache";
+
+    private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
+
+    private final TokenValidator tokenValidator = SimpleTokenValidator.getInstance();
+
+    @Override
+    public Token load(final String tokenString) {
+        if (tokenString == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final ConcurrentCache<String, Token> cache = getCache();
+        final String key = getKey(tokenString);
+        if (cache == null || key == null) {
+            return null;
+        }
+        final Token entry = cache.get(key);
+        if (entry == null || !tokenString.equals(entry.getValue()) || !tokenValidator.validateExpiration(entry)) {
+            return null;
+        }
+        return entry;
+    }
+
+    @Override
+    public Boolean isVerified(final Token token) {
+        if (token == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final ConcurrentCache<String, Token> cache = getCache();
+        if (cache == null) {
+            return Boolean.FALSE;
+        }
+        return cache.get(token.getSignature().getValue()) == token;
+    }
+
+    @Override
+    public void add(final Token token) {
+        if (token == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final ConcurrentCache<String, Token> cache = getCache();
+        if (cache == null || !tokenValidator.validateExpiration(token)) {
+            return;
+        }
+        cache.putIfAbsent(token.getSignature().getValue(), token);
+    }
+
+    private ConcurrentCache<String, Token> getCache() {
+        return concurrentCacheService.getCache(Token.class, CACHE_NAME);
+    }
+
+    private String getKey(final String tokenString) {
+        final int index = tokenString.lastIndexOf('.');
+        if (index < 0 || index == tokenString.length() - 1) {
+            return null;
+        }
+        return tokenString.substring(index + 1);
+    }
+
+    public static TokenCache getInstance() {
+        return INSTANCE;
+    }
+}
@@ -5,15 +5,11 @@
 
 package com.microsoft.azure.oidc.token.impl;
 
-import java.math.BigInteger;
 import java.security.InvalidKeyException;
-import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.Signature;
 import java.security.SignatureException;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.RSAPublicKeySpec;
 
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
@@ -27,17 +23,22 @@ import com.microsoft.azure.oidc.common.timestamp.TimeStampFactory;
 import com.microsoft.azure.oidc.common.timestamp.impl.SimpleTimeStampFactory;
 import com.microsoft.azure.oidc.configuration.Configuration;
 import com.microsoft.azure.oidc.configuration.ConfigurationCache;
+import com.microsoft.azure.oidc.configuration.key.Key;
 import com.microsoft.azure.oidc.configuration.impl.SimpleConfigurationCache;
 import com.microsoft.azure.oidc.exception.GeneralException;
 import com.microsoft.azure.oidc.exception.PreconditionException;
 import com.microsoft.azure.oidc.filter.configuration.algorithm.AlgorithmConfigurationService;
 import com.microsoft.azure.oidc.filter.configuration.algorithm.impl.SimpleAlgorithmConfigurationService;
+import com.microsoft.azure.oidc.metrics.Metric;
+import com.microsoft.azure.oidc.metrics.MetricsService;
+import com.microsoft.azure.oidc.metrics.impl.SimpleMetricsService;
 import com.microsoft.azure.oidc.token.Token;
 import com.microsoft.azure.oidc.token.TokenValidator;
 
 public class SimpleTokenValidator implements TokenValidator {
     private static final TokenValidator INSTANCE = new SimpleTokenValidator();
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleTokenValidator.class);
+    private static final String HMAC_CLASS_NAME = "HMAC";
 
     private final ApplicationSettingsLoader applicationSettingsLoader = SimpleApplicationSettingsLoader.getInstance();
 
@@ -47,41 +48,14 @@ public class SimpleTokenValidator implements TokenValidator {
 
     private final AlgorithmConfigurationService algorithmConfigurationService = SimpleAlgorithmConfigurationService.getInstance();
 
+    private final MetricsService metricsService = SimpleMetricsService.getInstance();
+
     @Override
     public Boolean validateSignature(final Token token) {
         if (token == null) {
             throw new PreconditionException("Required parameter is null");
         }
-        if (algorithmConfigurationService.get().getAlgorithmClassMap().get(token.getAlgorithm().getName()).equals("HMAC")) {
-            return Boolean.FALSE;
-        }
-        final Configuration configuration = configurationCache.load();
-        if (configuration == null) {
-            throw new GeneralException("Error loading configuration");
-        }
-        try {
-            final TimeStamp now = timeStampFactory.createTimeStamp(System.currentTimeMillis() / 1000);
-            if (configuration.getKey(token.getKeyName()).getNotBefore().compareTo(now) > 0) {
-                return Boolean.FALSE;
-            }
-            final Base64 decoder = new Base64();
-            final BigInteger exponent = new BigInteger(1,
-                    decoder.decode(configuration.getKey(token.getKeyName()).getExponent().getValue()));
-            final BigInteger modulus = new BigInteger(1,
-                    decoder.decode(configuration.getKey(token.getKeyName()).getSecret().getValue()));
-            final RSAPublicKeySpec pubKeySpec = new RSAPublicKeySpec(modulus, exponent);
-            final KeyFactory keyFactory = KeyFactory
-                    .getInstance(algorithmConfigurationService.get().getAlgorithmClassMap().get(token.getAlgorithm().getName()));
-            final PublicKey pubKey = keyFactory.generatePublic(pubKeySpec);
-            final Signature sig = Signature
-                    .getInstance(algorithmConfigurationService.get().getAlgorithmMap().get(token.getAlgorithm().getName()));
-            sig.initVerify(pubKey);
-            sig.update(token.getPayload().getValue().getBytes());
-            return sig.verify(decoder.decode(token.getSignature().getValue()));
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException | SignatureException | InvalidKeyException e) {
-            LOGGER.error(e.getMessage(), e);
-            return Boolean.FALSE;
-        }
+        return validateSignature(token, loadConfiguration());
     }
 
     @Override
@@ -101,14 +75,7 @@ public class SimpleTokenValidator implements TokenValidator {
         if (token == null) {
             throw new PreconditionException("Required parameter is null");
         }
-        final Configuration configuration = configurationCache.load();
-        if (configuration == null) {
-            throw new GeneralException("Error loading configuration");
-        }
-        if (token.getIssuer().equals(configuration.getIssuer())) {
-            return Boolean.TRUE;
-        }
-        return Boolean.FALSE;
+        return validateIssuer(token, loadConfiguration());
     }
 
     @Override
@@ -155,7 +122,8 @@ public class SimpleTokenValidator implements TokenValidator {
         if (!validateAudience(token)) {
             return Boolean.FALSE;
         }
-        if (!validateIssuer(token)) {
+        final Configuration configuration = loadConfiguration();
+        if (!validateIssuer(token, configuration)) {
             return Boolean.FALSE;
         }
         if (!validateIssuedAt(token)) {
@@ -164,12 +132,79 @@ public class SimpleTokenValidator implements TokenValidator {
         if (!validateNotBefore(token)) {
             return Boolean.FALSE;
         }
-        if (!validateSignature(token)) {
+        if (!validateSignature(token, configuration)) {
             return Boolean.FALSE;
         }
         return Boolean.TRUE;
     }
 
+    private Boolean validateSignature(final Token token, final Configuration configuration) {
+        final String algorithmName = token.getAlgorithm().getName();
+        final String keyClassName = algorithmConfigurationService.get().getAlgorithmClassMap().get(algorithmName);
+        final String signatureName = algorithmConfigurationService.get().getAlgorithmMap().get(algorithmName);
+        if (keyClassName == null || signatureName == null || HMAC_CLASS_NAME.equals(keyClassName)) {
+            return Boolean.FALSE;
+        }
+        final Configuration keyConfiguration = getKeyConfiguration(token, configuration);
+        if (keyConfiguration == null) {
+            return Boolean.FALSE;
+        }
+        final Key key = keyConfiguration.getKey(token.getKeyName());
+        try {
+            final TimeStamp now = timeStampFactory.createTimeStamp(System.currentTimeMillis() / 1000);
+            if (key.getNotBefore().compareTo(now) > 0) {
+                return Boolean.FALSE;
+            }
+            final PublicKey pubKey = keyConfiguration.getKeyCache().getPublicKey(token.getKeyName(), keyClassName);
+            if (pubKey == null) {
+                return Boolean.FALSE;
+            }
+            final long startTime = metricsService.startTimer();
+            try {
+                final Base64 decoder = new Base64();
+                final Signature sig = keyConfiguration.getKeyCache().borrowSignature(signatureName);
+                try {
+                    sig.initVerify(pubKey);
+                    sig.update(token.getPayload().getValue().getBytes());
+                    return sig.verify(decoder.decode(token.getSignature().getValue()));
+                } finally {
+                    keyConfiguration.getKeyCache().releaseSignature(sig);
+                }
+            } finally {
+                metricsService.stopTimer(Metric.SIGNATURE_VERIFY, startTime);
+            }
+        } catch (NoSuchAlgorithmException | SignatureException | InvalidKeyException e) {
+            LOGGER.error(e.getMessage(), e);
+            return Boolean.FALSE;
+        }
+    }
+
+    private Configuration getKeyConfiguration(final Token token, final Configuration configuration) {
+        if (configuration.getKey(token.getKeyName()) != null) {
+            return configuration;
+        }
+        final Configuration refreshedConfiguration = configurationCache.refresh();
+        if (refreshedConfiguration == null || refreshedConfiguration.getKey(token.getKeyName()) == null) {
+            return null;
+        }
+        return refreshedConfiguration;
+    }
+
+    private Boolean validateIssuer(final Token token, final Configuration configuration) {
+        if (token.getIssuer().equals(configuration.getIssuer())) {
+            return Boolean.TRUE;
+        }
+        return Boolean.FALSE;
+    }
+
+    private Configuration loadConfiguration() {
+        final Configuration configuration = configurationCache.load();
+        if (configuration == null) {
+            throw new GeneralException("Error loading configuration");
+        }
+        return configuration;
+    }
+
     public static TokenValidator getInstance() {
         return INSTANCE;
     }
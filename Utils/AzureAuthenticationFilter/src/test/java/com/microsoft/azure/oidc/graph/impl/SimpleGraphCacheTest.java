@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.graph.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
+import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import com.microsoft.azure.oidc.graph.GraphService;
+
+public class SimpleGraphCacheTest {
+    private static final long TIMEOUT = 10000L;
+    private static final int THREADS = 8;
+    private static final String USER = "user";
+
+    private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
+    private RecordingGraphService graphService;
+    private SimpleGraphCache graphCache;
+
+    @Before
+    public void setUp() {
+        concurrentCacheService.createCache(Boolean.class, "roleCache", 30L, 1000L);
+        graphService = new RecordingGraphService();
+        graphCache = new SimpleGraphCache(graphService);
+    }
+
+    @After
+    public void tearDown() {
+        graphService.shutdownNow();
+        concurrentCacheService.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentLookupsShareOneGraphCall() throws InterruptedException {
+        final AtomicReferenceArray<Boolean> results = new AtomicReferenceArray<Boolean>(THREADS);
+        final List<Thread> threads = startLookups(Collections.singleton("admin"), results);
+
+        awaitWaiting(threads);
+        graphService.release();
+        join(threads);
+
+        assertEquals(1, graphService.getRequests().size());
+        for (int i = 0; i < THREADS; i++) {
+            assertEquals(Boolean.TRUE, results.get(i));
+        }
+    }
+
+    @Test
+    public void testMissedRolesAreOneGraphCall() {
+        graphService.release();
+
+        final Map<String, Boolean> result = graphCache.getUserRoles(USER, Arrays.asList("admin", "reader", "admin"));
+        graphCache.getUserRoles(USER, Arrays.asList("reader", "admin"));
+
+        assertEquals(Collections.singletonList(Arrays.asList("admin", "reader")), graphService.getRequests());
+        assertEquals(Boolean.TRUE, result.get("admin"));
+        assertEquals(Boolean.FALSE, result.get("reader"));
+    }
+
+    @Test
+    public void testBatchCompletesEveryWaitingFuture() throws InterruptedException {
+        final AtomicReferenceArray<Boolean> results = new AtomicReferenceArray<Boolean>(THREADS);
+        final List<Thread> threads = startLookups(Arrays.asList("admin", "reader"), results);
+
+        awaitWaiting(threads);
+        graphService.release();
+        join(threads);
+
+        for (int i = 0; i < THREADS; i++) {
+            assertEquals(Boolean.TRUE, results.get(i));
+        }
+        assertEquals(Boolean.FALSE, graphCache.isUserInRole(USER, "reader"));
+        // Lookups racing on the two roles may split them into two batches, but each role is requested once
+        final List<String> requestedRoles = new ArrayList<String>();
+        for (final List<String> request : graphService.getRequests()) {
+            requestedRoles.addAll(request);
+        }
+        Collections.sort(requestedRoles);
+        assertEquals(Arrays.asList("admin", "reader"), requestedRoles);
+    }
+
+    @Test
+    public void testFailedBatchFailsEveryWaitingFuture() throws InterruptedException {
+        graphService.failing = true;
+        final AtomicReferenceArray<Boolean> results = new AtomicReferenceArray<Boolean>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            results.set(i, Boolean.TRUE);
+        }
+        final List<Thread> threads = startLookups(Collections.singleton("admin"), results);
+
+        awaitWaiting(threads);
+        graphService.release();
+        join(threads);
+
+        for (int i = 0; i < THREADS; i++) {
+            assertNull(results.get(i));
+        }
+        assertEquals(1, graphService.getRequests().size());
+
+        // Nothing is cached or left pending, so the next lookup asks again
+        graphService.failing = false;
+        assertEquals(Boolean.TRUE, graphCache.isUserInRole(USER, "admin"));
+        assertEquals(2, graphService.getRequests().size());
+    }
+
+    private List<Thread> startLookups(final Collection<String> roles, final AtomicReferenceArray<Boolean> results) {
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREADS; i++) {
+            final int index = i;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    results.set(index, graphCache.getUserRoles(USER, roles).get("admin"));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    // Every lookup is either running the batch or waiting for it once its thread sleeps in the future helper
+    private static void awaitWaiting(final List<Thread> threads) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        for (final Thread thread : threads) {
+            while (thread.getState() != Thread.State.TIMED_WAITING) {
+                if (System.currentTimeMillis() > deadline) {
+                    fail("Lookup did not wait for the graph service");
+                }
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    private static void join(final List<Thread> threads) throws InterruptedException {
+        for (final Thread thread : threads) {
+            thread.join(TIMEOUT);
+            if (thread.isAlive()) {
+                fail("Lookup did not complete");
+            }
+        }
+    }
+
+    private static final class RecordingGraphService implements GraphService {
+        private final ExecutorService executorService = Executors.newCachedThreadPool();
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<List<String>>());
+        private volatile boolean failing;
+
+        @Override
+        public Future<Boolean> isUserInRoleAsync(final String userID, final String role) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Future<Map<String, Boolean>> getUserRolesAsync(final String userID, final Collection<String> roles) {
+            final List<String> request = new ArrayList<String>(roles);
+            requests.add(request);
+            return executorService.submit(new Callable<Map<String, Boolean>>() {
+                public Map<String, Boolean> call() throws Exception {
+                    released.await();
+                    if (failing) {
+                        throw new IllegalStateException("Graph service is unavailable");
+                    }
+                    final Map<String, Boolean> result = new HashMap<String, Boolean>();
+                    for (final String role : request) {
+                        result.put(role, "admin".equals(role));
+                    }
+                    return result;
+                }
+            });
+        }
+
+        @Override
+        public void shutdownNow() {
+            executorService.shutdownNow();
+        }
+
+        private void release() {
+            released.countDown();
+        }
+
+        private List<List<String>> getRequests() {
+            synchronized (requests) {
+                return new ArrayList<List<String>>(requests);
+            }
+        }
+    }
+}
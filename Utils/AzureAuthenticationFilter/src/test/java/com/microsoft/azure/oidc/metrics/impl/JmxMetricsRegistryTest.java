@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.metrics.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.oidc.metrics.Metric;
+
+public class JmxMetricsRegistryTest {
+    private static final double DELTA = 0.0001;
+    private static final String CONTEXT = "/app";
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private JmxMetricsRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new JmxMetricsRegistry(CONTEXT);
+    }
+
+    @After
+    public void tearDown() {
+        registry.close();
+    }
+
+    @Test
+    public void testEveryMetricIsRegistered() throws JMException {
+        for (final Metric metric : Metric.values()) {
+            assertTrue(metric.getName(), mBeanServer.isRegistered(getObjectName(metric)));
+        }
+    }
+
+    @Test
+    public void testIncrementCounter() throws JMException {
+        registry.increment(Metric.TOKEN_CACHE_HIT);
+        registry.increment(Metric.TOKEN_CACHE_HIT);
+        registry.increment(Metric.TOKEN_CACHE_MISS);
+
+        assertEquals(2L, mBeanServer.getAttribute(getObjectName(Metric.TOKEN_CACHE_HIT), "Count"));
+        assertEquals(1L, mBeanServer.getAttribute(getObjectName(Metric.TOKEN_CACHE_MISS), "Count"));
+    }
+
+    @Test
+    public void testRecordLatencyOfCounterIsIgnored() throws JMException {
+        registry.recordLatency(Metric.TOKEN_CACHE_HIT, 1000L);
+        registry.increment(Metric.TOKEN_PARSE);
+
+        assertEquals(0L, mBeanServer.getAttribute(getObjectName(Metric.TOKEN_CACHE_HIT), "Count"));
+        assertEquals(0L, mBeanServer.getAttribute(getObjectName(Metric.TOKEN_PARSE), "Count"));
+    }
+
+    @Test
+    public void testLatencyPercentiles() throws JMException {
+        // 90 fast samples of 1 microsecond and 10 slow ones of 1 millisecond
+        for (int i = 0; i < 90; i++) {
+            registry.recordLatency(Metric.SIGNATURE_VERIFY, 1000L);
+        }
+        for (int i = 0; i < 10; i++) {
+            registry.recordLatency(Metric.SIGNATURE_VERIFY, 1000000L);
+        }
+
+        final ObjectName name = getObjectName(Metric.SIGNATURE_VERIFY);
+        assertEquals(100L, mBeanServer.getAttribute(name, "Count"));
+        assertEquals(100.9, (Double) mBeanServer.getAttribute(name, "MeanMicros"), DELTA);
+        assertEquals(1000.0, (Double) mBeanServer.getAttribute(name, "MaxMicros"), DELTA);
+
+        // The percentiles are the upper bounds of their power of two buckets, capped by the max
+        assertEquals(1.023, (Double) mBeanServer.getAttribute(name, "P50Micros"), DELTA);
+        assertEquals(1.023, (Double) mBeanServer.getAttribute(name, "P90Micros"), DELTA);
+        assertEquals(1000.0, (Double) mBeanServer.getAttribute(name, "P99Micros"), DELTA);
+    }
+
+    @Test
+    public void testReset() throws JMException {
+        registry.recordLatency(Metric.TOKEN_PARSE, 5000L);
+        final ObjectName name = getObjectName(Metric.TOKEN_PARSE);
+
+        mBeanServer.invoke(name, "reset", new Object[0], new String[0]);
+
+        assertEquals(0L, mBeanServer.getAttribute(name, "Count"));
+        assertEquals(0.0, (Double) mBeanServer.getAttribute(name, "P99Micros"), DELTA);
+        assertEquals(0.0, (Double) mBeanServer.getAttribute(name, "MaxMicros"), DELTA);
+    }
+
+    @Test
+    public void testRegistriesOfOtherContextsAreSeparate() throws JMException {
+        final JmxMetricsRegistry other = new JmxMetricsRegistry("/other");
+        final JmxMetricsRegistry root = new JmxMetricsRegistry("");
+        try {
+            registry.increment(Metric.REQUEST_AUTHORISED);
+            other.increment(Metric.REQUEST_AUTHORISED);
+            other.increment(Metric.REQUEST_AUTHORISED);
+
+            assertEquals(1L, mBeanServer.getAttribute(getObjectName(CONTEXT, Metric.REQUEST_AUTHORISED), "Count"));
+            assertEquals(2L, mBeanServer.getAttribute(getObjectName("/other", Metric.REQUEST_AUTHORISED), "Count"));
+            assertEquals(0L, mBeanServer.getAttribute(getObjectName("/", Metric.REQUEST_AUTHORISED), "Count"));
+        } finally {
+            other.close();
+            root.close();
+        }
+
+        assertTrue(mBeanServer.isRegistered(getObjectName(Metric.REQUEST_AUTHORISED)));
+    }
+
+    @Test
+    public void testRegistryDoesNotTakeOverRegisteredMBeans() throws JMException {
+        registry.increment(Metric.REQUEST_AUTHORISED);
+
+        final JmxMetricsRegistry duplicate = new JmxMetricsRegistry(CONTEXT);
+        duplicate.increment(Metric.REQUEST_AUTHORISED);
+        duplicate.close();
+
+        assertTrue(mBeanServer.isRegistered(getObjectName(Metric.REQUEST_AUTHORISED)));
+        assertEquals(1L, mBeanServer.getAttribute(getObjectName(Metric.REQUEST_AUTHORISED), "Count"));
+    }
+
+    @Test
+    public void testCloseUnregistersMetrics() throws JMException {
+        registry.close();
+
+        for (final Metric metric : Metric.values()) {
+            assertFalse(metric.getName(), mBeanServer.isRegistered(getObjectName(metric)));
+        }
+    }
+
+    private static ObjectName getObjectName(final Metric metric) throws JMException {
+        return getObjectName(CONTEXT, metric);
+    }
+
+    static ObjectName getObjectName(final String context, final Metric metric) throws JMException {
+        return new ObjectName("com.microsoft.azure.oidc:type=Metrics,context=" + ObjectName.quote(context)
+                + ",name=" + metric.getName());
+    }
+}
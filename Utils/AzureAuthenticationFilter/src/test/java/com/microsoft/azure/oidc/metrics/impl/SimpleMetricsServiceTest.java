@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.oidc.metrics.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.oidc.metrics.Metric;
+import com.microsoft.azure.oidc.metrics.MetricsRegistry;
+
+public class SimpleMetricsServiceTest {
+    private static final String PARAMETER = "metricsRegistry";
+    private static final String CONTEXT_PATH = "/app";
+
+    // The registries created and what they recorded, shared by the registry classes of every class loader, so public
+    // to the registry class defined by another class loader
+    public static final List<MetricsRegistry> CREATED = Collections.synchronizedList(new ArrayList<MetricsRegistry>());
+    public static final List<String> EVENTS = Collections.synchronizedList(new ArrayList<String>());
+
+    private SimpleMetricsService service;
+
+    @Before
+    public void setUp() {
+        CREATED.clear();
+        EVENTS.clear();
+        service = new SimpleMetricsService();
+    }
+
+    @After
+    public void tearDown() {
+        service.shutdownNow();
+    }
+
+    @Test
+    public void testDefaultRegistryIsJmx() throws ServletException, JMException {
+        service.initialise(new TestFilterConfig(null), PARAMETER);
+
+        service.increment(Metric.REQUEST_EXCLUDED);
+        service.stopTimer(Metric.TOKEN_PARSE, service.startTimer());
+
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(
+                JmxMetricsRegistryTest.getObjectName(CONTEXT_PATH, Metric.REQUEST_EXCLUDED), "Count"));
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(
+                JmxMetricsRegistryTest.getObjectName(CONTEXT_PATH, Metric.TOKEN_PARSE), "Count"));
+    }
+
+    @Test
+    public void testNoRegistry() throws ServletException {
+        service.initialise(new TestFilterConfig(" None "), PARAMETER);
+
+        assertEquals(Long.MIN_VALUE, service.startTimer());
+        service.increment(Metric.REQUEST_EXCLUDED);
+        service.stopTimer(Metric.TOKEN_PARSE, 0L);
+        assertTrue(CREATED.isEmpty());
+    }
+
+    @Test
+    public void testCustomRegistry() throws ServletException {
+        service.initialise(new TestFilterConfig(RecordingMetricsRegistry.class.getName()), PARAMETER);
+
+        service.increment(Metric.TOKEN_CACHE_HIT);
+        service.stopTimer(Metric.SIGNATURE_VERIFY, service.startTimer());
+        service.shutdownNow();
+        service.increment(Metric.TOKEN_CACHE_HIT);
+
+        assertEquals(1, CREATED.size());
+        assertEquals(Arrays.asList("increment tokenCacheHit", "latency signatureVerify", "close"), EVENTS);
+    }
+
+    @Test
+    public void testInitialiseAgainClosesPreviousRegistry() throws ServletException {
+        service.initialise(new TestFilterConfig(RecordingMetricsRegistry.class.getName()), PARAMETER);
+        service.initialise(new TestFilterConfig(RecordingMetricsRegistry.class.getName()), PARAMETER);
+
+        assertEquals(2, CREATED.size());
+        assertEquals(Collections.singletonList("close"), EVENTS);
+    }
+
+    @Test
+    public void testCustomRegistryIsLoadedFromContextClassLoader() throws ServletException {
+        final String registryClassName = RecordingMetricsRegistry.class.getName();
+        final ClassLoader webAppClassLoader = new ChildFirstClassLoader(registryClassName,
+                SimpleMetricsServiceTest.class.getClassLoader());
+        final Thread thread = Thread.currentThread();
+        final ClassLoader previous = thread.getContextClassLoader();
+
+        thread.setContextClassLoader(webAppClassLoader);
+        try {
+            service.initialise(new TestFilterConfig(registryClassName), PARAMETER);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+
+        assertEquals(1, CREATED.size());
+        assertSame(webAppClassLoader, CREATED.get(0).getClass().getClassLoader());
+        assertNotSame(RecordingMetricsRegistry.class, CREATED.get(0).getClass());
+    }
+
+    @Test(expected = ServletException.class)
+    public void testUnknownRegistryClass() throws ServletException {
+        service.initialise(new TestFilterConfig("com.example.NoSuchRegistry"), PARAMETER);
+    }
+
+    @Test
+    public void testNotRegistryClass() {
+        try {
+            service.initialise(new TestFilterConfig(String.class.getName()), PARAMETER);
+        } catch (ServletException e) {
+            assertTrue(e.getCause() instanceof ClassCastException);
+            return;
+        }
+        fail("ServletException expected");
+    }
+
+    public static final class RecordingMetricsRegistry implements MetricsRegistry {
+        public RecordingMetricsRegistry() {
+            CREATED.add(this);
+        }
+
+        @Override
+        public void increment(final Metric metric) {
+            EVENTS.add("increment " + metric.getName());
+        }
+
+        @Override
+        public void recordLatency(final Metric metric, final long nanos) {
+            EVENTS.add("latency " + metric.getName());
+        }
+
+        @Override
+        public void close() {
+            EVENTS.add("close");
+        }
+    }
+
+    /**
+     * Defines the one class itself from the parent's class file, as a web application class loader does for the
+     * classes of the web application
+     */
+    private static final class ChildFirstClassLoader extends ClassLoader {
+        private final String className;
+
+        private ChildFirstClassLoader(final String className, final ClassLoader parent) {
+            super(parent);
+            this.className = className;
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            if (!className.equals(name)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                final Class<?> loaded = findLoadedClass(name);
+                if (loaded != null) {
+                    return loaded;
+                }
+                final byte[] classFile = readClassFile(name);
+                return defineClass(name, classFile, 0, classFile.length);
+            }
+        }
+
+        private byte[] readClassFile(final String name) throws ClassNotFoundException {
+            final InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+            if (in == null) {
+                throw new ClassNotFoundException(name);
+            }
+            try {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[4096];
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    out.write(buffer, 0, read);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            } finally {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static final class TestFilterConfig implements FilterConfig {
+        private final String registryName;
+
+        private TestFilterConfig(final String registryName) {
+            this.registryName = registryName;
+        }
+
+        @Override
+        public String getFilterName() {
+            return "authenticationFilter";
+        }
+
+        @Override
+        public ServletContext getServletContext() {
+            return (ServletContext) Proxy.newProxyInstance(ServletContext.class.getClassLoader(),
+                    new Class<?>[] { ServletContext.class }, new InvocationHandler() {
+                        @Override
+                        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                            if ("getContextPath".equals(method.getName())) {
+                                return CONTEXT_PATH;
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        @Override
+        public String getInitParameter(final String name) {
+            return PARAMETER.equals(name) ? registryName : null;
+        }
+
+        @Override
+        public Enumeration<String> getInitParameterNames() {
+            return Collections.enumeration(Collections.singletonList(PARAMETER));
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.BlobRequestOptions;
+import com.microsoft.azure.storage.blob.BlockEntry;
+import com.microsoft.azure.storage.blob.BlockListingFilter;
+import com.microsoft.azure.storage.blob.BlockSearchMode;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+import com.microsoft.azure.storage.core.Base64;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads a stream to a block blob with several blocks in flight at once.
+ *
+ * The stream is read sequentially into a fixed pool of buffers, so memory stays bounded by
+ * {@code (concurrency + 1) * blockSize} whatever the file length. Block IDs are derived from the block index and the
+ * MD5 of its content: when an earlier attempt left uncommitted blocks behind, the ones that match are committed as
+ * they are instead of being uploaded again.
+ */
+public class BlockBlobUploader {
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final long MAX_ADAPTIVE_BLOCK_SIZE = 4 * 1024 * 1024;
+    private static final long MAX_BLOCK_SIZE = 100 * 1024 * 1024;
+    private static final long MAX_BLOCK_COUNT = 50000;
+    private static final long TARGET_BLOCK_COUNT = 64;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 1000;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    @NotNull
+    private final CloudBlockBlob blob;
+    private final int concurrency;
+
+    public BlockBlobUploader(@NotNull CloudBlockBlob blob) {
+        this(blob, DEFAULT_CONCURRENCY);
+    }
+
+    public BlockBlobUploader(@NotNull CloudBlockBlob blob, int concurrency) {
+        this.blob = blob;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Uploads {@code length} bytes of {@code content} and commits them as the blob content.
+     *
+     * @param minBlockSize the smallest block to use; larger files get larger blocks, see {@link #chooseBlockSize}
+     * @param processBlock called on the calling thread with the number of bytes uploaded so far
+     */
+    public void upload(@NotNull InputStream content,
+                       long length,
+                       long minBlockSize,
+                       @Nullable CallableSingleArg<Void, Long> processBlock) throws Exception {
+        final int blockSize = (int) chooseBlockSize(length, minBlockSize);
+        final long blockCount = length == 0 ? 0 : (length + blockSize - 1) / blockSize;
+        final int workers = (int) Math.max(1, Math.min(concurrency, blockCount));
+        final Set<String> stagedBlockIds = getStagedBlockIds();
+
+        final BlockingQueue<byte[]> bufferPool = new ArrayBlockingQueue<>(workers + 1);
+        for (int i = 0; i < workers + 1 && i < blockCount; i++) {
+            bufferPool.add(new byte[blockSize]);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "BlockBlobUploader-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+        final List<BlockEntry> blockEntries = new ArrayList<>();
+        final MessageDigest md5 = createMD5Digest();
+
+        try {
+            long readBytes = 0;
+            long uploadedBytes = 0;
+            int pendingBlocks = 0;
+
+            for (int index = 0; readBytes < length; index++) {
+                final byte[] buffer = bufferPool.take();
+                final int size = (int) Math.min(blockSize, length - readBytes);
+                readFully(content, buffer, size);
+                readBytes += size;
+
+                md5.update(buffer, 0, size);
+                final String blockId = createBlockId(index, md5.digest());
+                blockEntries.add(new BlockEntry(blockId, BlockSearchMode.UNCOMMITTED));
+
+                if (stagedBlockIds.contains(blockId)) {
+                    bufferPool.add(buffer);
+                    uploadedBytes += size;
+                    reportProgress(processBlock, uploadedBytes);
+                    continue;
+                }
+
+                completionService.submit(() -> {
+                    try {
+                        uploadBlock(blockId, buffer, size);
+                        return size;
+                    } finally {
+                        bufferPool.add(buffer);
+                    }
+                });
+                pendingBlocks++;
+
+                for (Future<Integer> done = completionService.poll(); done != null; done = completionService.poll()) {
+                    pendingBlocks--;
+                    uploadedBytes += getUploadedSize(done);
+                    reportProgress(processBlock, uploadedBytes);
+                }
+            }
+
+            for (; pendingBlocks > 0; pendingBlocks--) {
+                uploadedBytes += getUploadedSize(completionService.take());
+                reportProgress(processBlock, uploadedBytes);
+            }
+
+            blob.commitBlockList(blockEntries);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Picks a block size that gives roughly {@value #TARGET_BLOCK_COUNT} blocks, between {@code minBlockSize} and
+     * 4 MB, and never more blocks than a block blob can hold.
+     */
+    public static long chooseBlockSize(long length, long minBlockSize) {
+        final long granularity = 256 * 1024;
+        long blockSize = (length / TARGET_BLOCK_COUNT + granularity - 1) / granularity * granularity;
+
+        blockSize = Math.min(blockSize, MAX_ADAPTIVE_BLOCK_SIZE);
+        blockSize = Math.max(blockSize, minBlockSize);
+        blockSize = Math.max(blockSize, (length + MAX_BLOCK_COUNT - 1) / MAX_BLOCK_COUNT);
+
+        return Math.max(1, Math.min(blockSize, MAX_BLOCK_SIZE));
+    }
+
+    private void uploadBlock(String blockId, byte[] buffer, int size) throws Exception {
+        final BlobRequestOptions options = new BlobRequestOptions();
+        options.setUseTransactionalContentMD5(true);
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                blob.uploadBlock(blockId, new ByteArrayInputStream(buffer, 0, size), size, null, options, null);
+                return;
+            } catch (StorageException | IOException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+
+                Thread.sleep(RETRY_BACKOFF_MS * attempt);
+            }
+        }
+    }
+
+    @NotNull
+    private Set<String> getStagedBlockIds() throws StorageException {
+        final Set<String> blockIds = new HashSet<>();
+
+        try {
+            for (BlockEntry entry : blob.downloadBlockList(BlockListingFilter.UNCOMMITTED, null, null, null)) {
+                blockIds.add(entry.getId());
+            }
+        } catch (StorageException e) {
+            if (e.getHttpStatusCode() != HttpURLConnection.HTTP_NOT_FOUND) {
+                throw e;
+            }
+        }
+
+        return blockIds;
+    }
+
+    private static int getUploadedSize(Future<Integer> done) throws Exception {
+        try {
+            return done.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    private static void reportProgress(@Nullable CallableSingleArg<Void, Long> processBlock,
+                                       long uploadedBytes) throws Exception {
+        if (processBlock != null) {
+            processBlock.call(uploadedBytes);
+        }
+    }
+
+    @NotNull
+    private static String createBlockId(int index, byte[] md5) {
+        // Every ID of a blob must have the same length: 8 digits, a dash and the 24 character Base64 MD5
+        final String id = String.format("%08d-%s", index, Base64.encode(md5));
+
+        return Base64.encode(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @NotNull
+    private static MessageDigest createMD5Digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void readFully(InputStream content, byte[] buffer, int size) throws IOException {
+        int offset = 0;
+
+        while (offset < size) {
+            final int read = content.read(buffer, offset, size - offset);
+            if (read < 0) {
+                throw new EOFException("The content is shorter than the declared length");
+            }
+
+            offset += read;
+        }
+    }
+}
@@ -10,13 +10,10 @@ import com.microsoft.azure.storage.CloudStorageAccount;
 import com.microsoft.azure.storage.blob.BlobContainerPermissions;
 import com.microsoft.azure.storage.blob.BlobContainerProperties;
 import com.microsoft.azure.storage.blob.BlobRequestOptions;
-import com.microsoft.azure.storage.blob.BlockEntry;
-import com.microsoft.azure.storage.blob.BlockSearchMode;
 import com.microsoft.azure.storage.blob.CloudBlobClient;
 import com.microsoft.azure.storage.blob.CloudBlobContainer;
 import com.microsoft.azure.storage.blob.CloudBlockBlob;
 import com.microsoft.azure.storage.blob.ContainerListingDetails;
-import com.microsoft.azure.storage.core.Base64;
 import com.microsoft.azure.storage.core.Utility;
 import com.microsoft.azuretools.azurecommons.helpers.AzureCmdException;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
@@ -34,7 +31,6 @@ import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
 
 public class StorageClientSDKManager {
     private static StorageClientSDKManager apiManager;
@@ -133,6 +129,12 @@ public class StorageClientSDKManager {
 
     }
 
+    /**
+     * Uploads {@code length} bytes of {@code content} as a block blob, several blocks at a time.
+     *
+     * {@code maxBlockSize} is the smallest block used; the actual block size grows with {@code length}. Blocks left
+     * uncommitted by a failed upload of the same content are reused. See {@link BlockBlobUploader}.
+     */
     public void uploadBlobFileContent(@NotNull String connectionString,
                                       @NotNull BlobContainer blobContainer,
                                       @NotNull String filePath,
@@ -147,32 +149,8 @@ public class StorageClientSDKManager {
 
             CloudBlobContainer container = client.getContainerReference(containerName);
             final CloudBlockBlob blob = container.getBlockBlobReference(filePath);
-            long uploadedBytes = 0;
-
-            ArrayList<BlockEntry> blockEntries = new ArrayList<BlockEntry>();
-
-            while (uploadedBytes < length) {
-                String blockId = Base64.encode(UUID.randomUUID().toString().getBytes());
-                BlockEntry entry = new BlockEntry(blockId, BlockSearchMode.UNCOMMITTED);
-
-                long blockSize = maxBlockSize;
-                if (length - uploadedBytes <= maxBlockSize) {
-                    blockSize = length - uploadedBytes;
-                }
-
-                if (processBlock != null) {
-                    processBlock.call(uploadedBytes);
-                }
-
-                entry.setSize(blockSize);
-
-                blockEntries.add(entry);
-                blob.uploadBlock(entry.getId(), content, blockSize);
-                uploadedBytes += blockSize;
-            }
-
-            blob.commitBlockList(blockEntries);
 
+            new BlockBlobUploader(blob).upload(content, length, maxBlockSize, processBlock);
         } catch (Throwable t) {
             throw new AzureCmdException("Error uploading the Blob File content", t);
         }
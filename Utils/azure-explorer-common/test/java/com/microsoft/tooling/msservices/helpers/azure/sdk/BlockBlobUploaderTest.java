@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.tooling.msservices.helpers.azure.sdk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.BlockEntry;
+import com.microsoft.azure.storage.blob.BlockListingFilter;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class BlockBlobUploaderTest {
+
+    private static final long KB = 1024;
+    private static final long MB = 1024 * KB;
+    private static final long GB = 1024 * MB;
+    private static final long MIN_BLOCK_SIZE = 256 * KB;
+    // 4 full blocks and a short last one
+    private static final int LENGTH = (int) (4 * MIN_BLOCK_SIZE + 100);
+
+    @Mock
+    private CloudBlockBlob blobMock;
+
+    // The uploaded block content by block ID
+    private final Map<String, byte[]> uploadedBlocks = new ConcurrentHashMap<>();
+    private final List<String> committedBlockIds = new ArrayList<>();
+    private byte[] content;
+
+    @Before
+    public void setUp() throws Exception {
+        content = new byte[LENGTH];
+        new Random(42).nextBytes(content);
+
+        doAnswer(invocation -> {
+            final InputStream block = invocation.getArgument(1);
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (int b = block.read(); b >= 0; b = block.read()) {
+                bytes.write(b);
+            }
+            assertEquals(invocation.<Long>getArgument(2).longValue(), bytes.size());
+            uploadedBlocks.put(invocation.getArgument(0), bytes.toByteArray());
+            return null;
+        }).when(blobMock).uploadBlock(anyString(), any(InputStream.class), anyLong(), any(), any(), any());
+
+        doAnswer(invocation -> {
+            final Iterable<BlockEntry> entries = invocation.getArgument(0);
+            committedBlockIds.clear();
+            entries.forEach(entry -> committedBlockIds.add(entry.getId()));
+            return null;
+        }).when(blobMock).commitBlockList(any());
+
+        stageBlocks(new ArrayList<>());
+    }
+
+    @Test
+    public void testChooseBlockSizeKeepsSmallFilesAtMinimum() {
+        assertEquals(MIN_BLOCK_SIZE, BlockBlobUploader.chooseBlockSize(LENGTH, MIN_BLOCK_SIZE));
+        assertEquals(MIN_BLOCK_SIZE, BlockBlobUploader.chooseBlockSize(0, MIN_BLOCK_SIZE));
+        assertEquals(MB, BlockBlobUploader.chooseBlockSize(LENGTH, MB));
+    }
+
+    @Test
+    public void testChooseBlockSizeGrowsWithLength() {
+        // About 64 blocks, rounded up to 256 KB
+        assertEquals(MB, BlockBlobUploader.chooseBlockSize(64 * MB, MIN_BLOCK_SIZE));
+        assertEquals(1792 * KB, BlockBlobUploader.chooseBlockSize(100 * MB, MIN_BLOCK_SIZE));
+
+        // But no larger than 4 MB
+        assertEquals(4 * MB, BlockBlobUploader.chooseBlockSize(GB, MIN_BLOCK_SIZE));
+    }
+
+    @Test
+    public void testChooseBlockSizeStaysWithinBlockCountLimit() {
+        final long length = 500 * GB;
+        final long blockSize = BlockBlobUploader.chooseBlockSize(length, MIN_BLOCK_SIZE);
+
+        assertTrue(blockSize > 4 * MB);
+        assertTrue((length + blockSize - 1) / blockSize <= 50000);
+    }
+
+    @Test
+    public void testUploadCommitsBlocksInOrder() throws Exception {
+        final List<Long> progress = new ArrayList<>();
+
+        new BlockBlobUploader(blobMock, 3).upload(new ByteArrayInputStream(content), LENGTH, MIN_BLOCK_SIZE,
+                recordProgress(progress));
+
+        assertEquals(5, uploadedBlocks.size());
+        assertEquals(5, committedBlockIds.size());
+        assertArrayEquals(content, committedContent());
+
+        assertEquals(5, progress.size());
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) > progress.get(i - 1));
+        }
+        assertEquals(LENGTH, (long) progress.get(progress.size() - 1));
+    }
+
+    @Test
+    public void testUploadAgainSkipsStagedBlocks() throws Exception {
+        new BlockBlobUploader(blobMock).upload(new ByteArrayInputStream(content), LENGTH, MIN_BLOCK_SIZE, null);
+        final List<String> firstBlockIds = new ArrayList<>(committedBlockIds);
+
+        stageBlocks(firstBlockIds);
+        new BlockBlobUploader(blobMock).upload(new ByteArrayInputStream(content), LENGTH, MIN_BLOCK_SIZE, null);
+
+        verify(blobMock, times(5)).uploadBlock(anyString(), any(InputStream.class), anyLong(), any(), any(), any());
+        verify(blobMock, times(2)).commitBlockList(any());
+        assertEquals(firstBlockIds, committedBlockIds);
+    }
+
+    @Test
+    public void testUploadResumesAfterStagedBlocks() throws Exception {
+        new BlockBlobUploader(blobMock).upload(new ByteArrayInputStream(content), LENGTH, MIN_BLOCK_SIZE, null);
+        final List<String> firstBlockIds = new ArrayList<>(committedBlockIds);
+        final Map<String, byte[]> staged = new ConcurrentHashMap<>(uploadedBlocks);
+
+        // The earlier attempt stopped after two blocks
+        stageBlocks(firstBlockIds.subList(0, 2));
+        uploadedBlocks.clear();
+        final List<Long> progress = new ArrayList<>();
+        new BlockBlobUploader(blobMock).upload(new ByteArrayInputStream(content), LENGTH, MIN_BLOCK_SIZE,
+                recordProgress(progress));
+
+        assertEquals(3, uploadedBlocks.size());
+        assertTrue(firstBlockIds.subList(2, 5).containsAll(uploadedBlocks.keySet()));
+        assertEquals(firstBlockIds, committedBlockIds);
+        assertEquals(LENGTH, (long) progress.get(progress.size() - 1));
+
+        uploadedBlocks.putAll(staged);
+        assertArrayEquals(content, committedContent());
+    }
+
+    @Test
+    public void testUploadAgainUploadsChangedBlocksOnly() throws Exception {
+        new BlockBlobUploader(blobMock).upload(new ByteArrayInputStream(content), LENGTH, MIN_BLOCK_SIZE, null);
+        final List<String> firstBlockIds = new ArrayList<>(committedBlockIds);
+        final Map<String, byte[]> staged = new ConcurrentHashMap<>(uploadedBlocks);
+
+        stageBlocks(firstBlockIds);
+        uploadedBlocks.clear();
+
+        // A byte of the third block changes
+        content[(int) (2 * MIN_BLOCK_SIZE)]++;
+        new BlockBlobUploader(blobMock).upload(new ByteArrayInputStream(content), LENGTH, MIN_BLOCK_SIZE, null);
+
+        assertEquals(1, uploadedBlocks.size());
+        assertEquals(committedBlockIds.get(2), uploadedBlocks.keySet().iterator().next());
+        assertFalse(firstBlockIds.contains(committedBlockIds.get(2)));
+
+        uploadedBlocks.putAll(staged);
+        assertArrayEquals(content, committedContent());
+    }
+
+    @Test
+    public void testUploadToNewBlob() throws Exception {
+        when(blobMock.downloadBlockList(any(BlockListingFilter.class), any(), any(), any()))
+                .thenThrow(new StorageException("BlobNotFound", "The blob does not exist", 404, null, null));
+
+        new BlockBlobUploader(blobMock).upload(new ByteArrayInputStream(content), LENGTH, MIN_BLOCK_SIZE, null);
+
+        assertEquals(5, uploadedBlocks.size());
+        assertArrayEquals(content, committedContent());
+    }
+
+    @Test
+    public void testUploadEmptyContent() throws Exception {
+        new BlockBlobUploader(blobMock).upload(new ByteArrayInputStream(new byte[0]), 0, MIN_BLOCK_SIZE, null);
+
+        verify(blobMock, never()).uploadBlock(anyString(), any(InputStream.class), anyLong(), any(), any(), any());
+        assertTrue(committedBlockIds.isEmpty());
+    }
+
+    private static CallableSingleArg<Void, Long> recordProgress(List<Long> progress) {
+        return new CallableSingleArg<Void, Long>() {
+            @Override
+            public Void call(Long uploaded) {
+                progress.add(uploaded);
+                return null;
+            }
+        };
+    }
+
+    private void stageBlocks(List<String> blockIds) throws Exception {
+        final ArrayList<BlockEntry> entries = new ArrayList<>();
+        blockIds.forEach(id -> entries.add(new BlockEntry(id)));
+
+        when(blobMock.downloadBlockList(any(BlockListingFilter.class), any(), any(), any())).thenReturn(entries);
+    }
+
+    private byte[] committedContent() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        committedBlockIds.forEach(id -> bytes.write(uploadedBlocks.get(id), 0, uploadedBlocks.get(id).length));
+
+        return bytes.toByteArray();
+    }
+}
@@ -5,16 +5,38 @@
 
 package com.microsoft.azuretools.core.mvp.model.container;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azuretools.core.mvp.model.container.pojo.Catalog;
+import com.microsoft.azuretools.core.mvp.model.container.pojo.RegistryCrawlResult;
+import com.microsoft.azuretools.core.mvp.model.container.pojo.Tag;
 import okhttp3.Credentials;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import rx.Observable;
+import rx.schedulers.Schedulers;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class ContainerExplorerMvpModel {
 
@@ -22,15 +44,47 @@ public class ContainerExplorerMvpModel {
     private static final String REPOSITORY_PATH = "v2/_catalog";
     private static final String TAG_PATH = "v2/%s/tags/list";
     private static final String HEADER_AUTH = "Authorization";
+    private static final String HEADER_WWW_AUTH = "WWW-Authenticate";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
     private static final String INVALID_URL = "The request URL is NULL.";
     private static final String BODY = "body";
     private static final String LINK_HEADER = "link";
+    private static final String KEY_PAGE_SIZE = "n";
+    private static final String CRAWL_PAGE_SIZE = "1000";
     private static final String RESPONSE_FAIL_MSG = "Unexpected response %s. please make sure the admin user is " +
             "enabled and try again";
+    private static final String TOKEN_FAIL_MSG = "Unexpected token response %s.";
 
-    private final OkHttpClient sharedClient = new OkHttpClient();
+    private static final int MAX_CONCURRENT_TAG_LISTS = 8;
+    private static final int MAX_REGISTRY_CLIENTS = 16;
+    private static final int MAX_CACHED_RESPONSES = 8192;
+    private static final long DEFAULT_TOKEN_EXPIRES_SECONDS = 60;
+    private static final long TOKEN_EXPIRY_MARGIN_SECONDS = 10;
+
+    private static final Pattern CHALLENGE_PARAM = Pattern.compile("(\\w+)=\"([^\"]*)\"");
+    private static final Pattern LINK_NEXT = Pattern.compile("<([^>]+)>\\s*;\\s*rel=\"?next\"?",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final OkHttpClient sharedClient;
+    private final String urlScheme;
+
+    // The clients by registry and credential, guarded by itself
+    private final Map<String, RegistryClient> registryClients = createLruMap(MAX_REGISTRY_CLIENTS);
+
+    // The responses with ETag by registry client and URL, guarded by itself
+    private final Map<String, CachedResponse> responseCache = createLruMap(MAX_CACHED_RESPONSES);
 
     private ContainerExplorerMvpModel() {
+        this(new OkHttpClient(), URL_PREFIX);
+    }
+
+    ContainerExplorerMvpModel(@Nonnull OkHttpClient sharedClient, @Nonnull String urlScheme) {
+        this.sharedClient = sharedClient;
+        this.urlScheme = urlScheme;
     }
 
     private static final class ContainerExplorerMvpModelHolder {
@@ -47,17 +101,9 @@ public class ContainerExplorerMvpModel {
     public Map<String, String> listRepositories(@Nonnull String serverUrl, @Nonnull String username,
                                                 @Nonnull String password, @Nullable Map<String, String> query)
             throws Exception {
-        OkHttpClient client = createRestClient(username, password);
-        HttpUrl.Builder urlBuilder = new HttpUrl.Builder()
-                .scheme(URL_PREFIX)
-                .host(serverUrl)
-                .addPathSegment(REPOSITORY_PATH);
-        if (query != null) {
-            for (String key : query.keySet()) {
-                urlBuilder.addQueryParameter(key, query.get(key));
-            }
-        }
-        return getResponse(client, urlBuilder.build());
+        final CachedResponse response = fetch(getRegistryClient(serverUrl, username, password),
+                buildUrl(serverUrl, REPOSITORY_PATH, query));
+        return toResponseMap(response);
     }
 
     /**
@@ -65,47 +111,323 @@ public class ContainerExplorerMvpModel {
      */
     public Map<String, String> listTags(@Nonnull String serverUrl, @Nonnull String username, @Nonnull String password,
                                         @Nonnull String repo, @Nullable Map<String, String> query) throws Exception {
-        OkHttpClient client = createRestClient(username, password);
-        HttpUrl.Builder urlBuilder = new HttpUrl.Builder()
-                .scheme(URL_PREFIX)
-                .host(serverUrl)
-                .addPathSegment(String.format(TAG_PATH, repo));
+        final CachedResponse response = fetch(getRegistryClient(serverUrl, username, password),
+                buildUrl(serverUrl, String.format(TAG_PATH, repo), query));
+        return toResponseMap(response);
+    }
+
+    /**
+     * list all repositories under the given private registry, following the pagination links.
+     */
+    @Nonnull
+    public List<String> listAllRepositories(@Nonnull String serverUrl, @Nonnull String username,
+                                            @Nonnull String password) throws Exception {
+        final RegistryClient client = getRegistryClient(serverUrl, username, password);
+        final List<String> repos = new ArrayList<>();
+        HttpUrl url = buildUrl(serverUrl, REPOSITORY_PATH, Collections.singletonMap(KEY_PAGE_SIZE, CRAWL_PAGE_SIZE));
+        while (url != null) {
+            final CachedResponse page = fetch(client, url);
+            final Catalog catalog = MAPPER.readValue(page.body, Catalog.class);
+            if (catalog.getRepositories() != null) {
+                repos.addAll(catalog.getRepositories());
+            }
+            url = getNextPageUrl(url, page.link);
+        }
+        return repos;
+    }
+
+    /**
+     * list all tags under the given repository, following the pagination links.
+     */
+    @Nonnull
+    public List<String> listAllTags(@Nonnull String serverUrl, @Nonnull String username, @Nonnull String password,
+                                    @Nonnull String repo) throws Exception {
+        final RegistryClient client = getRegistryClient(serverUrl, username, password);
+        final List<String> tags = new ArrayList<>();
+        HttpUrl url = buildUrl(serverUrl, String.format(TAG_PATH, repo),
+                Collections.singletonMap(KEY_PAGE_SIZE, CRAWL_PAGE_SIZE));
+        while (url != null) {
+            final CachedResponse page = fetch(client, url);
+            final Tag tag = MAPPER.readValue(page.body, Tag.class);
+            if (tag.getTags() != null) {
+                tags.addAll(tag.getTags());
+            }
+            url = getNextPageUrl(url, page.link);
+        }
+        return tags;
+    }
+
+    /**
+     * list all tags of the given repositories, with up to {@value #MAX_CONCURRENT_TAG_LISTS} repositories listed at a
+     * time. A repository failed to list doesn't stop the others, its failure is recorded in the result.
+     */
+    @Nonnull
+    public RegistryCrawlResult listAllTags(@Nonnull String serverUrl, @Nonnull String username,
+                                           @Nonnull String password, @Nonnull Collection<String> repos) {
+        final Map<String, SimpleImmutableEntry<List<String>, Exception>> listed = Observable.from(repos)
+                .flatMap(repo -> Observable.fromCallable(() -> listTagsOrFailure(serverUrl, username, password, repo))
+                        .map(tagsOrFailure -> new SimpleImmutableEntry<>(repo, tagsOrFailure))
+                        .subscribeOn(Schedulers.io()), MAX_CONCURRENT_TAG_LISTS)
+                .toMap(SimpleImmutableEntry::getKey, SimpleImmutableEntry::getValue)
+                .toBlocking()
+                .single();
+        final Map<String, List<String>> tags = new LinkedHashMap<>();
+        final Map<String, Exception> failures = new LinkedHashMap<>();
+        for (String repo : repos) {
+            final SimpleImmutableEntry<List<String>, Exception> tagsOrFailure = listed.get(repo);
+            if (tagsOrFailure.getValue() != null) {
+                failures.put(repo, tagsOrFailure.getValue());
+            } else {
+                tags.put(repo, tagsOrFailure.getKey());
+            }
+        }
+        return new RegistryCrawlResult(tags, failures);
+    }
+
+    /**
+     * list all repositories with their tags under the given private registry.
+     */
+    @Nonnull
+    public RegistryCrawlResult crawlRegistry(@Nonnull String serverUrl, @Nonnull String username,
+                                             @Nonnull String password) throws Exception {
+        return listAllTags(serverUrl, username, password, listAllRepositories(serverUrl, username, password));
+    }
+
+    @Nonnull
+    private SimpleImmutableEntry<List<String>, Exception> listTagsOrFailure(@Nonnull String serverUrl,
+                                                                            @Nonnull String username,
+                                                                            @Nonnull String password,
+                                                                            @Nonnull String repo) {
+        try {
+            return new SimpleImmutableEntry<>(listAllTags(serverUrl, username, password, repo), null);
+        } catch (Exception e) {
+            return new SimpleImmutableEntry<>(null, e);
+        }
+    }
+
+    @Nonnull
+    private HttpUrl buildUrl(@Nonnull String serverUrl, @Nonnull String path, @Nullable Map<String, String> query) {
+        final HttpUrl server = HttpUrl.parse(urlScheme + "://" + serverUrl);
+        if (server == null) {
+            throw new IllegalArgumentException(INVALID_URL);
+        }
+        HttpUrl.Builder urlBuilder = server.newBuilder()
+                .addPathSegments(path);
         if (query != null) {
             for (String key : query.keySet()) {
                 urlBuilder.addQueryParameter(key, query.get(key));
             }
         }
-        return getResponse(client, urlBuilder.build());
+        return urlBuilder.build();
+    }
+
+    @Nullable
+    private static HttpUrl getNextPageUrl(@Nonnull HttpUrl url, @Nullable String linkHeader) {
+        if (linkHeader == null) {
+            return null;
+        }
+        final Matcher matcher = LINK_NEXT.matcher(linkHeader);
+        return matcher.find() ? url.resolve(matcher.group(1)) : null;
     }
 
     @Nonnull
-    private Map<String, String> getResponse(@Nonnull OkHttpClient client, HttpUrl url) throws Exception {
+    private static Map<String, String> toResponseMap(@Nonnull CachedResponse response) {
+        Map<String, String> responseMap = new HashMap<>();
+        responseMap.put(BODY, response.body);
+        responseMap.put(LINK_HEADER, response.link);
+        return responseMap;
+    }
+
+    /**
+     * Get the response body, revalidated by the ETag of the cached one if any.
+     */
+    @Nonnull
+    private CachedResponse fetch(@Nonnull RegistryClient client, HttpUrl url) throws Exception {
         if (url == null) {
             throw new NullPointerException(INVALID_URL);
         }
-        Request request = new Request.Builder().url(url).get().build();
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful()) {
-                Map<String, String> responseMap = new HashMap<>();
-                responseMap.put(BODY, response.body().string());
-                responseMap.put(LINK_HEADER, response.header(LINK_HEADER));
-                return responseMap;
-            } else {
+        final String cacheKey = client.key + " " + url;
+        final CachedResponse cached;
+        synchronized (responseCache) {
+            cached = responseCache.get(cacheKey);
+        }
+        final Request.Builder requestBuilder = new Request.Builder().url(url).get();
+        if (cached != null) {
+            requestBuilder.header(HEADER_IF_NONE_MATCH, cached.etag);
+        }
+        try (Response response = client.client.newCall(requestBuilder.build()).execute()) {
+            if (cached != null && response.code() == 304) {
+                return cached;
+            }
+            if (!response.isSuccessful()) {
                 throw new Exception(String.format(RESPONSE_FAIL_MSG, response));
             }
+            final CachedResponse fresh = new CachedResponse(response.header(HEADER_ETAG), response.body().string(),
+                    response.header(LINK_HEADER));
+            synchronized (responseCache) {
+                if (fresh.etag != null) {
+                    responseCache.put(cacheKey, fresh);
+                } else {
+                    responseCache.remove(cacheKey);
+                }
+            }
+            return fresh;
         }
     }
 
     @Nonnull
-    private OkHttpClient createRestClient(@Nonnull String username, @Nonnull String password) {
-        return sharedClient.newBuilder()
-                .authenticator((route, response) -> {
-                    String credential = Credentials.basic(username, password);
-                    if (credential.equals(response.request().header(HEADER_AUTH))) {
-                        return null;
-                    }
-                    return response.request().newBuilder().header(HEADER_AUTH, credential).build();
-                })
-                .build();
+    private RegistryClient getRegistryClient(@Nonnull String serverUrl, @Nonnull String username,
+                                             @Nonnull String password) {
+        final String credential = Credentials.basic(username, password);
+        // Not to keep the credential in the keys of the clients and the cached responses
+        final String key = serverUrl + " " + sha256Hex(credential);
+        synchronized (registryClients) {
+            return registryClients.computeIfAbsent(key, ignore -> new RegistryClient(key, sharedClient, credential));
+        }
+    }
+
+    @Nonnull
+    private static String sha256Hex(@Nonnull String text) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required in all JREs
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <K, V> Map<K, V> createLruMap(final int maxEntries) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * The client of a registry, which sends the credential without waiting for the challenge. The registry asking
+     * for a bearer token gets the one of the request scope, which is cached until it expires.
+     */
+    private static final class RegistryClient {
+        private final String key;
+        private final String credential;
+        private final OkHttpClient tokenClient;
+        private final OkHttpClient client;
+        private final Map<String, BearerToken> tokens = new ConcurrentHashMap<>();
+
+        private RegistryClient(@Nonnull String key, @Nonnull OkHttpClient sharedClient, @Nonnull String credential) {
+            this.key = key;
+            this.credential = credential;
+            this.tokenClient = sharedClient;
+            this.client = sharedClient.newBuilder()
+                    .addInterceptor(chain -> chain.proceed(authorize(chain.request())))
+                    .authenticator((route, response) -> reauthorize(response))
+                    .build();
+        }
+
+        @Nonnull
+        private Request authorize(@Nonnull Request request) {
+            if (request.header(HEADER_AUTH) != null) {
+                return request;
+            }
+            final BearerToken token = tokens.get(getScope(request.url()));
+            final String auth = token != null && !token.isExpired() ? token.header : credential;
+            return request.newBuilder().header(HEADER_AUTH, auth).build();
+        }
+
+        @Nullable
+        private Request reauthorize(@Nonnull Response response) throws IOException {
+            final Request request = response.request();
+            final String sent = request.header(HEADER_AUTH);
+            final String challenge = response.header(HEADER_WWW_AUTH);
+            if (challenge != null && challenge.regionMatches(true, 0, "Bearer", 0, 6)) {
+                final BearerToken token = fetchToken(challenge);
+                if (token == null || token.header.equals(sent)) {
+                    return null;
+                }
+                tokens.put(getScope(request.url()), token);
+                return request.newBuilder().header(HEADER_AUTH, token.header).build();
+            }
+            if (credential.equals(sent)) {
+                return null;
+            }
+            return request.newBuilder().header(HEADER_AUTH, credential).build();
+        }
+
+        @Nullable
+        private BearerToken fetchToken(@Nonnull String challenge) throws IOException {
+            final Map<String, String> params = new HashMap<>();
+            final Matcher matcher = CHALLENGE_PARAM.matcher(challenge);
+            while (matcher.find()) {
+                params.put(matcher.group(1).toLowerCase(), matcher.group(2));
+            }
+            final HttpUrl realm = params.get("realm") == null ? null : HttpUrl.parse(params.get("realm"));
+            if (realm == null) {
+                return null;
+            }
+            final HttpUrl.Builder urlBuilder = realm.newBuilder();
+            for (String name : new String[]{"service", "scope"}) {
+                if (params.get(name) != null) {
+                    urlBuilder.addQueryParameter(name, params.get(name));
+                }
+            }
+            final Request request = new Request.Builder().url(urlBuilder.build()).get()
+                    .header(HEADER_AUTH, credential)
+                    .build();
+            try (Response response = tokenClient.newCall(request).execute()) {
+                if (!response.isSuccessful()) {
+                    throw new IOException(String.format(TOKEN_FAIL_MSG, response));
+                }
+                final JsonNode body = MAPPER.readTree(response.body().string());
+                final JsonNode token = body.has("access_token") ? body.get("access_token") : body.get("token");
+                if (token == null || token.asText().isEmpty()) {
+                    return null;
+                }
+                final long expiresIn = body.path("expires_in").asLong(DEFAULT_TOKEN_EXPIRES_SECONDS);
+                return new BearerToken(token.asText(), expiresIn);
+            }
+        }
+
+        // The token scopes of the registry API: the catalog, or the repository of the tags
+        @Nonnull
+        private static String getScope(@Nonnull HttpUrl url) {
+            final String path = url.encodedPath();
+            return path.endsWith("/tags/list") ? path.substring(0, path.length() - "/tags/list".length()) : path;
+        }
+    }
+
+    private static final class BearerToken {
+        private final String header;
+        private final long expiresAtNanos;
+
+        private BearerToken(@Nonnull String token, long expiresInSeconds) {
+            this.header = "Bearer " + token;
+            this.expiresAtNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(
+                    Math.max(0, expiresInSeconds - TOKEN_EXPIRY_MARGIN_SECONDS));
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos >= 0;
+        }
+    }
+
+    private static final class CachedResponse {
+        @Nullable
+        private final String etag;
+        private final String body;
+        @Nullable
+        private final String link;
+
+        private CachedResponse(@Nullable String etag, String body, @Nullable String link) {
+            this.etag = etag;
+            this.body = body;
+            this.link = link;
+        }
     }
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azuretools.core.mvp.model.container.pojo;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The tags listed of the repositories of a registry, and the failures of the repositories failed to list.
+ */
+@Getter
+public class RegistryCrawlResult {
+    // The tags by repository, in the order of the repositories listed
+    private final Map<String, List<String>> tags;
+    // The failures by repository
+    private final Map<String, Exception> failures;
+
+    public RegistryCrawlResult(Map<String, List<String>> tags, Map<String, Exception> failures) {
+        this.tags = Collections.unmodifiableMap(tags);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+}
@@ -5,29 +5,24 @@
 
 package com.microsoft.tooling.msservices.serviceexplorer.azure.container;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.toolkit.lib.common.model.Region;
 import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
-import com.microsoft.azure.toolkit.lib.common.utils.JsonUtils;
 import com.microsoft.azure.toolkit.lib.containerregistry.ContainerRegistry;
 import com.microsoft.azuretools.core.mvp.model.container.ContainerExplorerMvpModel;
 import com.microsoft.azuretools.core.mvp.model.container.ContainerRegistryMvpModel;
-import com.microsoft.azuretools.core.mvp.model.container.pojo.Catalog;
-import com.microsoft.azuretools.core.mvp.model.container.pojo.Tag;
 import com.microsoft.azuretools.core.mvp.model.webapp.PrivateRegistryImageSetting;
 import com.microsoft.azuretools.core.mvp.ui.base.MvpPresenter;
 import com.microsoft.azuretools.core.mvp.ui.containerregistry.ContainerRegistryProperty;
-import okhttp3.HttpUrl;
 import org.apache.commons.lang3.StringUtils;
 import rx.Observable;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryPropertyMvpView>
         extends MvpPresenter<V> {
@@ -38,25 +33,24 @@ public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryP
     private static final String CANNOT_GET_REPOS = "Cannot get repositories.";
     private static final String CANNOT_GET_TAGS = "Cannot get tags.";
 
-    private static final String BODY = "body";
-    private static final String PAGE_SIZE = "30";
-    private static final String KEY_LAST = "last";
-    private static final String KEY_PAGE_SIZE = "n";
-    private static final String HEADER_LINK = "link";
-    private static final String FAKE_URL = "http://a";
-    private final Stack<String> repoStack = new Stack<>();
-    private final Stack<String> tagStack = new Stack<>();
-    private String currentRepo;
-    private String currentTag;
-    private String nextRepo;
-    private String nextTag;
+    private static final int PAGE_SIZE = 30;
+    // The registries with more repositories get the tags of the repositories shown prefetched, instead of all
+    private static final int MAX_CRAWLED_REPOS = 300;
+
+    // The repositories of the registry and the tags of the current repository, listed in full and shown by pages
+    private volatile List<String> repos = null;
+    private volatile int repoPage = -1;
+    private volatile String tagsRepo = null;
+    private volatile List<String> tags = null;
+    private volatile int tagPage = -1;
+
+    // The tags prefetched by repository, for the repositories of the registry listed
+    private final Map<String, List<String>> prefetchedTags = new ConcurrentHashMap<>();
 
     /**
      * Constructor.
      */
     public ContainerRegistryPropertyViewPresenter() {
-        resetRepoStack();
-        resetTagStack();
     }
 
     /**
@@ -107,92 +101,138 @@ public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryP
      * Called when refreshing repositories in ACR Explorer
      */
     public void onRefreshRepositories(String sid, String id, boolean isNextPage) {
-        resetRepoStack();
+        repos = null;
+        repoPage = -1;
+        resetTags();
+        prefetchedTags.clear();
         onListRepositories(sid, id, isNextPage);
     }
 
     /**
-     * Called when listing repositories of ACR.
+     * Called when listing repositories of ACR. All repositories are listed at the first time, and shown by pages.
      */
     public void onListRepositories(String sid, String id, boolean isNextPage) {
         if (isSubscriptionIdAndResourceIdInValid(sid, id)) {
             return;
         }
-        resetTagStack();
+        resetTags();
         Observable.fromCallable(() -> {
-            ContainerRegistry registry = ContainerRegistryMvpModel.getInstance().getContainerRegistry(sid, id);
-            PrivateRegistryImageSetting setting = ContainerRegistryMvpModel.getInstance()
-                    .createImageSettingWithRegistry(registry);
-            Map<String, String> query = buildQueryMap(isNextPage, repoStack, nextRepo);
-            Map<String, String> responseMap = ContainerExplorerMvpModel.getInstance().listRepositories(registry
-                    .getLoginServerUrl(), setting.getUsername(), setting.getPassword(), query);
-            updatePaginationInfo(isNextPage, Type.REPO, responseMap.get(HEADER_LINK));
-            final Catalog catalog = JsonUtils.fromJson(responseMap.get(BODY), Catalog.class);
-            return catalog.getRepositories();
+            final PrivateRegistryImageSetting setting = getImageSetting(sid, id);
+            if (repos == null) {
+                repos = ContainerExplorerMvpModel.getInstance().listAllRepositories(setting.getServerUrl(),
+                        setting.getUsername(), setting.getPassword());
+                if (repos.size() <= MAX_CRAWLED_REPOS) {
+                    prefetchTags(setting, null);
+                }
+            }
+            repoPage = turnPage(repoPage, isNextPage, repos.size());
+            final List<String> page = getPage(repos, repoPage);
+            if (repos.size() > MAX_CRAWLED_REPOS) {
+                prefetchTags(setting, page);
+            }
+            return page;
         })
                 .subscribeOn(getSchedulerProvider().io())
-                .subscribe(repos -> AzureTaskManager.getInstance().runLater(() -> {
+                .subscribe(page -> AzureTaskManager.getInstance().runLater(() -> {
                     if (isViewDetached()) {
                         return;
                     }
-                    getMvpView().listRepo(repos);
+                    getMvpView().listRepo(page);
                 }), e -> errorHandler(CANNOT_GET_REPOS, (Exception) e));
     }
 
     /**
-     * Called when listing image tags for the given repository.
+     * Called when refreshing image tags for the given repository.
+     */
+    public void onRefreshTags(String sid, String id, String repo) {
+        resetTags();
+        prefetchedTags.remove(repo);
+        onListTags(sid, id, repo, true);
+    }
+
+    /**
+     * Called when listing image tags for the given repository. All tags are listed when another repository is
+     * selected, unless they are prefetched, and shown by pages.
      */
     public void onListTags(String sid, String id, String repo, boolean isNextPage) {
         if (isSubscriptionIdAndResourceIdInValid(sid, id)) {
             return;
         }
-        resetTagStack();
         Observable.fromCallable(() -> {
-            ContainerRegistry registry = ContainerRegistryMvpModel.getInstance().getContainerRegistry(sid, id);
-            PrivateRegistryImageSetting setting = ContainerRegistryMvpModel.getInstance()
-                    .createImageSettingWithRegistry(registry);
-            Map<String, String> query = buildQueryMap(isNextPage, tagStack, nextTag);
-            Map<String, String> responseMap = ContainerExplorerMvpModel.getInstance().listTags(registry
-                    .getLoginServerUrl(), setting.getUsername(), setting.getPassword(), repo, query);
-            updatePaginationInfo(isNextPage, Type.TAG, responseMap.get(HEADER_LINK));
-            Tag tag = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false).readValue(responseMap.get(BODY), Tag.class);
-            return tag.getTags();
+            if (!StringUtils.equals(repo, tagsRepo) || tags == null) {
+                List<String> repoTags = prefetchedTags.get(repo);
+                if (repoTags == null) {
+                    final PrivateRegistryImageSetting setting = getImageSetting(sid, id);
+                    repoTags = ContainerExplorerMvpModel.getInstance().listAllTags(setting.getServerUrl(),
+                            setting.getUsername(), setting.getPassword(), repo);
+                }
+                tagsRepo = repo;
+                tags = repoTags;
+                tagPage = -1;
+            }
+            tagPage = turnPage(tagPage, isNextPage, tags.size());
+            return getPage(tags, tagPage);
         })
                 .subscribeOn(getSchedulerProvider().io())
-                .subscribe(tags -> AzureTaskManager.getInstance().runLater(() -> {
+                .subscribe(page -> AzureTaskManager.getInstance().runLater(() -> {
                     if (isViewDetached()) {
                         return;
                     }
-                    getMvpView().listTag(tags);
+                    getMvpView().listTag(page);
                 }), e -> errorHandler(CANNOT_GET_TAGS, (Exception) e));
     }
 
     public boolean hasNextRepoPage() {
-        return nextRepo != null;
+        return repos == null || (repoPage + 1) * PAGE_SIZE < repos.size();
     }
 
     public boolean hasNextTagPage() {
-        return nextTag != null;
+        return tags == null || (tagPage + 1) * PAGE_SIZE < tags.size();
     }
 
     public boolean hasPreviousRepoPage() {
-        return repoStack.size() != 0;
+        return repoPage > 0;
     }
 
     public boolean hasPreviousTagPage() {
-        return tagStack.size() != 0;
+        return tagPage > 0;
+    }
+
+    private void resetTags() {
+        tagsRepo = null;
+        tags = null;
+        tagPage = -1;
+    }
+
+    private PrivateRegistryImageSetting getImageSetting(String sid, String id) throws Exception {
+        final ContainerRegistry registry = ContainerRegistryMvpModel.getInstance().getContainerRegistry(sid, id);
+        return ContainerRegistryMvpModel.getInstance().createImageSettingWithRegistry(registry);
+    }
+
+    /**
+     * Prefetch the tags in background, of all repositories of the registry if the repositories given is null. The
+     * repositories failed are left to be listed when they are selected.
+     */
+    private void prefetchTags(@Nonnull PrivateRegistryImageSetting setting, @Nullable List<String> pageRepos) {
+        Observable.fromCallable(() -> pageRepos == null
+                ? ContainerExplorerMvpModel.getInstance().crawlRegistry(setting.getServerUrl(),
+                        setting.getUsername(), setting.getPassword())
+                : ContainerExplorerMvpModel.getInstance().listAllTags(setting.getServerUrl(),
+                        setting.getUsername(), setting.getPassword(), pageRepos))
+                .subscribeOn(getSchedulerProvider().io())
+                .subscribe(result -> prefetchedTags.putAll(result.getTags()),
+                        e -> { /* The tags are listed when the repository is selected */ });
     }
 
-    private void resetRepoStack() {
-        repoStack.clear();
-        currentRepo = null;
-        nextRepo = "";
+    private static int turnPage(int page, boolean isNextPage, int total) {
+        final int lastPage = Math.max(0, (total - 1) / PAGE_SIZE);
+        return Math.max(0, Math.min(lastPage, isNextPage ? page + 1 : page - 1));
     }
 
-    private void resetTagStack() {
-        tagStack.clear();
-        currentTag = null;
-        nextTag = "";
+    @Nonnull
+    private static List<String> getPage(@Nonnull List<String> all, int page) {
+        final int from = Math.min(all.size(), page * PAGE_SIZE);
+        return new ArrayList<>(all.subList(from, Math.min(all.size(), from + PAGE_SIZE)));
     }
 
     private ContainerRegistryProperty getProperty(ContainerRegistry registry, String sid) {
@@ -222,79 +262,6 @@ public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryP
         return false;
     }
 
-    private Map<String, String> buildQueryMap(boolean isNextPage, @Nonnull Stack<String> stack, @Nullable String next) {
-        Map<String, String> query = new HashMap<>();
-        query.put(KEY_PAGE_SIZE, PAGE_SIZE);
-        if (isNextPage) {
-            if (next != null) {
-                query.put(KEY_LAST, next);
-            }
-        } else {
-            if (stack.size() > 0) {
-                query.put(KEY_LAST, stack.peek());
-            }
-        }
-        return query;
-    }
-
-    private void updatePaginationInfo(boolean isNextPage, @Nonnull Type type, @Nullable String linkHeader) {
-        if (isNextPage) {
-            switch (type) {
-                case REPO:
-                    if (this.currentRepo != null) {
-                        repoStack.push(this.currentRepo);
-                    }
-                    if (this.nextRepo != null) {
-                        this.currentRepo = this.nextRepo;
-                    }
-                    this.nextRepo = linkHeader == null ? null : parseLinkHeader(linkHeader);
-                    break;
-                case TAG:
-                    if (this.currentTag != null) {
-                        tagStack.push(this.currentTag);
-                    }
-                    if (this.nextTag != null) {
-                        this.currentTag = this.nextTag;
-                    }
-                    this.nextTag = linkHeader == null ? null : parseLinkHeader(linkHeader);
-                    break;
-                default:
-                    break;
-            }
-        } else {
-            switch (type) {
-                case REPO:
-                    if (repoStack.size() > 0) {
-                        this.nextRepo = this.currentRepo;
-                        this.currentRepo = repoStack.pop();
-                    }
-                    break;
-                case TAG:
-                    if (tagStack.size() > 0) {
-                        this.nextTag = this.currentTag;
-                        this.currentTag = tagStack.pop();
-                    }
-                    break;
-                default:
-                    break;
-            }
-        }
-    }
-
-    @Nullable
-    private String parseLinkHeader(@Nonnull String header) {
-        int start = header.indexOf("<") + 1;
-        int end = header.lastIndexOf(">");
-        if (start <= 0 || end < 0 || end >= header.length() || start >= end) {
-            return null;
-        }
-        HttpUrl url = HttpUrl.parse(FAKE_URL + header.substring(start, end));
-        if (url == null) {
-            return null;
-        }
-        return url.queryParameter(KEY_LAST);
-    }
-
     private void errorHandler(String msg, Exception e) {
         AzureTaskManager.getInstance().runLater(() -> {
             if (isViewDetached()) {
@@ -303,9 +270,4 @@ public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryP
             getMvpView().onErrorWithException(msg, e);
         });
     }
-
-    private enum Type {
-        REPO,
-        TAG
-    }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azuretools.core.mvp.model.container;
+
+import com.microsoft.azuretools.core.mvp.model.container.pojo.RegistryCrawlResult;
+import okhttp3.Credentials;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ContainerExplorerMvpModelTest {
+
+    private static final String USERNAME = "user";
+    private static final String PASSWORD = "password";
+    private static final String BASIC = Credentials.basic(USERNAME, PASSWORD);
+
+    private MockWebServer server;
+    private String serverUrl;
+    private ContainerExplorerMvpModel model;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        serverUrl = server.getHostName() + ":" + server.getPort();
+        model = new ContainerExplorerMvpModel(new OkHttpClient(), "http");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testListAllRepositoriesFollowsLinkPages() throws Exception {
+        server.enqueue(new MockResponse()
+                .setBody("{\"repositories\":[\"a\",\"b\"]}")
+                .setHeader("Link", "</v2/_catalog?last=b&n=1000>; rel=\"next\""));
+        server.enqueue(new MockResponse()
+                .setBody("{\"repositories\":[\"c\"]}"));
+
+        final List<String> repos = model.listAllRepositories(serverUrl, USERNAME, PASSWORD);
+
+        assertEquals(Arrays.asList("a", "b", "c"), repos);
+        assertEquals(2, server.getRequestCount());
+        assertEquals("/v2/_catalog?n=1000", server.takeRequest().getPath());
+        assertEquals("/v2/_catalog?last=b&n=1000", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void testBearerChallengeAndTokenCache() throws Exception {
+        final String realm = server.url("/oauth2/token").toString();
+        server.enqueue(new MockResponse()
+                .setResponseCode(401)
+                .setHeader("WWW-Authenticate", String.format(
+                        "Bearer realm=\"%s\",service=\"registry\",scope=\"repository:repo:pull\"", realm)));
+        server.enqueue(new MockResponse()
+                .setBody("{\"access_token\":\"token1\",\"expires_in\":300}"));
+        server.enqueue(new MockResponse()
+                .setBody("{\"name\":\"repo\",\"tags\":[\"v1\"]}"));
+        server.enqueue(new MockResponse()
+                .setBody("{\"name\":\"repo\",\"tags\":[\"v1\",\"v2\"]}"));
+
+        assertEquals(Collections.singletonList("v1"), model.listAllTags(serverUrl, USERNAME, PASSWORD, "repo"));
+        assertEquals(Arrays.asList("v1", "v2"), model.listAllTags(serverUrl, USERNAME, PASSWORD, "repo"));
+
+        // The credential is sent preemptively
+        final RecordedRequest challenged = server.takeRequest();
+        assertEquals(BASIC, challenged.getHeader("Authorization"));
+
+        // The token is requested with the credential for the challenged scope
+        final RecordedRequest tokenRequest = server.takeRequest();
+        assertEquals(BASIC, tokenRequest.getHeader("Authorization"));
+        assertEquals("registry", tokenRequest.getRequestUrl().queryParameter("service"));
+        assertEquals("repository:repo:pull", tokenRequest.getRequestUrl().queryParameter("scope"));
+
+        assertEquals("Bearer token1", server.takeRequest().getHeader("Authorization"));
+
+        // The cached token is sent without another challenge
+        assertEquals("Bearer token1", server.takeRequest().getHeader("Authorization"));
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void testEtagRevalidationReusesCachedBody() throws Exception {
+        server.enqueue(new MockResponse()
+                .setBody("{\"name\":\"repo\",\"tags\":[\"v1\"]}")
+                .setHeader("ETag", "\"etag1\""));
+        server.enqueue(new MockResponse()
+                .setResponseCode(304));
+
+        final Map<String, String> first = model.listTags(serverUrl, USERNAME, PASSWORD, "repo", null);
+        final Map<String, String> second = model.listTags(serverUrl, USERNAME, PASSWORD, "repo", null);
+
+        assertEquals(first.get("body"), second.get("body"));
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        assertEquals("\"etag1\"", server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void testEtagCacheIsPerCredential() throws Exception {
+        server.enqueue(new MockResponse()
+                .setBody("{\"name\":\"repo\",\"tags\":[\"v1\"]}")
+                .setHeader("ETag", "\"etag1\""));
+        server.enqueue(new MockResponse()
+                .setBody("{\"name\":\"repo\",\"tags\":[\"v1\"]}")
+                .setHeader("ETag", "\"etag1\""));
+
+        model.listTags(serverUrl, USERNAME, PASSWORD, "repo", null);
+        model.listTags(serverUrl, "another", PASSWORD, "repo", null);
+
+        server.takeRequest();
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void testListAllTagsRecordsFailuresByRepository() {
+        server.setDispatcher(new Dispatcher() {
+            @Nonnull
+            @Override
+            public MockResponse dispatch(@Nonnull RecordedRequest request) {
+                if (request.getPath().startsWith("/v2/bad/")) {
+                    return new MockResponse().setResponseCode(500);
+                }
+                return new MockResponse().setBody("{\"name\":\"good\",\"tags\":[\"latest\"]}");
+            }
+        });
+
+        final RegistryCrawlResult result = model.listAllTags(serverUrl, USERNAME, PASSWORD,
+                Arrays.asList("good", "bad", "good2"));
+
+        assertEquals(Arrays.asList("good", "good2"), Arrays.asList(result.getTags().keySet().toArray()));
+        assertEquals(Collections.singletonList("latest"), result.getTags().get("good"));
+        assertEquals(Collections.singleton("bad"), result.getFailures().keySet());
+        assertTrue(result.getFailures().get("bad").getMessage().contains("500"));
+    }
+
+    @Test
+    public void testCrawlRegistry() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Nonnull
+            @Override
+            public MockResponse dispatch(@Nonnull RecordedRequest request) {
+                if (request.getPath().startsWith("/v2/_catalog")) {
+                    return new MockResponse().setBody("{\"repositories\":[\"a\",\"b\"]}");
+                }
+                final String repo = request.getRequestUrl().pathSegments().get(1);
+                return new MockResponse().setBody(String.format("{\"name\":\"%s\",\"tags\":[\"%s-1\"]}", repo, repo));
+            }
+        });
+
+        final RegistryCrawlResult result = model.crawlRegistry(serverUrl, USERNAME, PASSWORD);
+
+        assertEquals(Collections.singletonList("a-1"), result.getTags().get("a"));
+        assertEquals(Collections.singletonList("b-1"), result.getTags().get("b"));
+        assertTrue(result.getFailures().isEmpty());
+    }
+}
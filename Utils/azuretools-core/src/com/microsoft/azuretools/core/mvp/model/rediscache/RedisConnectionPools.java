@@ -8,22 +8,41 @@ package com.microsoft.azuretools.core.mvp.model.rediscache;
 import com.microsoft.azure.management.redis.RedisCache;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
-
+import redis.clients.jedis.Protocol;
+
+/**
+ * The Jedis connection pools of the Redis Caches opened in the explorer.
+ *
+ * The pools of up to {@value #MAX_CACHES} caches are kept, the least recently used one is destroyed when another
+ * cache is opened, and the ones not used for {@value #IDLE_EVICT_MINUTES} minutes are destroyed too. Each database
+ * of a cache has its own pool, whose connections are selected to the database once when they are created, so the
+ * commands on a database don't need a SELECT first. The idle connections of a pool are closed by the pool evictor.
+ */
 public class RedisConnectionPools {
 
     private static final int TIMEOUT = 500;
-    private static final int MAX_CONNECTIONS = 1;
+    private static final int MAX_CACHES = 4;
+    private static final int MAX_CONNECTIONS_PER_DB = 4;
+    private static final long IDLE_EVICT_MINUTES = 10;
+    private static final long CONNECTION_IDLE_EVICT_SECONDS = 60;
     private static final String GANNOT_GET_RESID = "Cannot get Redis Cache from Azure.";
 
-    private LinkedHashMap<String, JedisPool> pools;
+    // The pools by resource id, in the access order
+    private final LinkedHashMap<String, CachePools> pools;
 
     private RedisConnectionPools() {
-        this.pools = new LinkedHashMap<String, JedisPool>(MAX_CONNECTIONS);
+        this.pools = new LinkedHashMap<String, CachePools>(MAX_CACHES, 0.75f, true);
     }
 
     private static final class RedisConnectionFactoryHolder {
@@ -35,7 +54,7 @@ public class RedisConnectionPools {
     }
 
     /**
-     * Get Jedis connection.
+     * Get Jedis connection of the default database.
      *
      * @param sid
      *            subscription id of Redis Cache
@@ -44,33 +63,91 @@ public class RedisConnectionPools {
      * @return jedis connection
      * @throws IOException Error getting the Redis Cache
      */
-    public synchronized Jedis getJedis(String sid, String id) throws Exception  {
-        if (pools.get(id) == null) {
-            if (pools.size() == MAX_CONNECTIONS) {
-                releasePool(pools.keySet().iterator().next());
-            }
-            connect(sid, id);
-        }
-        return pools.get(id).getResource();
+    public Jedis getJedis(String sid, String id) throws Exception {
+        return getJedis(sid, id, Protocol.DEFAULT_DATABASE);
     }
 
     /**
-     * Destroy the jedisPool.
+     * Get Jedis connection selected to the database.
      *
+     * @param sid
+     *            subscription id of Redis Cache
      * @param id
-     *            id of the jedisPool which needs to be destroyed
+     *            resource id of Redis Cache
+     * @param db
+     *            index of Redis Cache database
+     * @return jedis connection
+     * @throws IOException Error getting the Redis Cache
      */
-    public synchronized void releasePool(String id) {
-        if (pools.containsKey(id)) {
-            JedisPool jedisPool = pools.get(id);
-            if (jedisPool != null) {
-                jedisPool.destroy();
+    public Jedis getJedis(String sid, String id, int db) throws Exception {
+        return getPool(sid, id, db).getResource();
+    }
+
+    /**
+     * Destroy the jedisPools of a Redis Cache.
+     *
+     * @param id
+     *            id of the Redis Cache whose jedisPools need to be destroyed
+     */
+    public void releasePool(String id) {
+        final CachePools released;
+        synchronized (this) {
+            released = pools.remove(id);
+        }
+        if (released != null) {
+            released.destroy();
+        }
+    }
+
+    private JedisPool getPool(String sid, String id, int db) throws Exception {
+        final List<CachePools> evicted = new ArrayList<>();
+        try {
+            synchronized (this) {
+                evictIdle(id, evicted);
+                final CachePools cachePools = pools.get(id);
+                if (cachePools != null) {
+                    cachePools.lastUsedNanos = System.nanoTime();
+                    return cachePools.getPool(db);
+                }
             }
-            pools.remove(id);
+
+            // Getting the cache is a call to Azure, so it is made without blocking the pools of the other caches. The
+            // pools of a cache connected concurrently are kept, this one has no pool created yet to destroy
+            final CachePools connected = connect(sid, id);
+            synchronized (this) {
+                CachePools cachePools = pools.get(id);
+                if (cachePools == null) {
+                    cachePools = connected;
+                    pools.put(id, cachePools);
+                    if (pools.size() > MAX_CACHES) {
+                        final Iterator<CachePools> eldest = pools.values().iterator();
+                        evicted.add(eldest.next());
+                        eldest.remove();
+                    }
+                }
+                cachePools.lastUsedNanos = System.nanoTime();
+                return cachePools.getPool(db);
+            }
+        } finally {
+            // The connections borrowed from the evicted pools are closed when they are returned
+            evicted.forEach(CachePools::destroy);
         }
     }
 
-    private void connect(String sid, String id) throws Exception {
+    private void evictIdle(String id, List<CachePools> evicted) {
+        final long now = System.nanoTime();
+        final Iterator<Map.Entry<String, CachePools>> it = pools.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<String, CachePools> entry = it.next();
+            if (!entry.getKey().equals(id) && now - entry.getValue().lastUsedNanos
+                    > TimeUnit.MINUTES.toNanos(IDLE_EVICT_MINUTES)) {
+                evicted.add(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    private CachePools connect(String sid, String id) throws Exception {
         RedisCache redisCache = AzureRedisMvpModel.getInstance().getRedisCache(sid, id);
 
         if (redisCache == null) {
@@ -82,8 +159,40 @@ public class RedisConnectionPools {
         String password = redisCache.keys().primaryKey();
         int port = redisCache.sslPort();
 
+        return new CachePools(hostName, port, password);
+    }
+
+    private static JedisPool createPool(String hostName, int port, String password, int db) {
         // create connection pool according to redis setting
-        JedisPool pool = new JedisPool(new JedisPoolConfig(), hostName, port, TIMEOUT, password, true);
-        pools.put(id, pool);
+        JedisPoolConfig config = new JedisPoolConfig();
+        config.setMaxTotal(MAX_CONNECTIONS_PER_DB);
+        config.setMaxIdle(MAX_CONNECTIONS_PER_DB);
+        config.setMinEvictableIdleTimeMillis(TimeUnit.SECONDS.toMillis(CONNECTION_IDLE_EVICT_SECONDS));
+        return new JedisPool(config, hostName, port, TIMEOUT, password, db, true);
+    }
+
+    private static final class CachePools {
+        private final String hostName;
+        private final int port;
+        private final String password;
+
+        // The pools by database index, guarded by RedisConnectionPools
+        private final Map<Integer, JedisPool> dbPools = new HashMap<>();
+
+        private long lastUsedNanos = System.nanoTime();
+
+        private CachePools(String hostName, int port, String password) {
+            this.hostName = hostName;
+            this.port = port;
+            this.password = password;
+        }
+
+        private JedisPool getPool(int db) {
+            return dbPools.computeIfAbsent(db, ignore -> createPool(hostName, port, password, db));
+        }
+
+        private void destroy() {
+            dbPools.values().forEach(JedisPool::destroy);
+        }
     }
 }
@@ -5,11 +5,16 @@
 
 package com.microsoft.azuretools.core.mvp.model.rediscache;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.Tuple;
@@ -70,14 +75,13 @@ public class RedisExplorerMvpModel {
     }
 
     public boolean checkKeyExistance(String sid, String id, int db, String key) throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
+        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id, db)) {
             return jedis.exists(key);
         }
     }
 
     /**
-     * Scan the keys with count defined in DEFAULT_KEY_COUNT
+     * Scan a page of about DEFAULT_KEY_COUNT keys, with the COUNT of SCAN adapted to the keys matched
      *
      * @param sid
      *            subscription id of Redis Cache
@@ -89,15 +93,68 @@ public class RedisExplorerMvpModel {
      *            cursor for Redis Scan command
      * @param pattern
      *            pattern for Redis Scan Param
-     * @return Scan Result returned from Jedis
+     * @return Scan Result of the page keys and the cursor of the next page
      * @throws Exception
      *
      */
     public ScanResult<String> scanKeys(String sid, String id, int db, String cursor, String pattern) throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
-            return jedis.scan(cursor, new ScanParams().match(pattern).count(DEFAULT_KEY_COUNT));
+        return scanKeyPages(sid, id, db, cursor, pattern, DEFAULT_KEY_COUNT).next();
+    }
+
+    /**
+     * Scan the keys page by page, each page is scanned when it's iterated.
+     *
+     * @param sid
+     *            subscription id of Redis Cache
+     * @param id
+     *            resource id of Redis Cache
+     * @param db
+     *            index of Redis Cache database
+     * @param cursor
+     *            cursor for Redis Scan command to start from
+     * @param pattern
+     *            pattern for Redis Scan Param
+     * @param pageSize
+     *            the number of keys wanted in a page
+     * @return the scanner of the pages
+     */
+    public RedisKeyScanner scanKeyPages(String sid, String id, int db, String cursor, String pattern, int pageSize) {
+        return new RedisKeyScanner(sid, id, db, cursor, pattern, pageSize);
+    }
+
+    /**
+     * Get the types and TTLs of the keys, in one pipelined round trip.
+     *
+     * @param sid
+     *            subscription id of Redis Cache
+     * @param id
+     *            resource id of Redis Cache
+     * @param db
+     *            index of Redis Cache database
+     * @param keys
+     *            names of the keys, such as a scanned page
+     * @return the types and TTLs by key, in the order of the given keys
+     * @throws Exception
+     */
+    public Map<String, RedisKeyInfo> getKeyInfos(String sid, String id, int db, List<String> keys) throws Exception {
+        final Map<String, RedisKeyInfo> infos = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return infos;
         }
+        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id, db)) {
+            final Pipeline pipeline = jedis.pipelined();
+            final List<Response<String>> types = new ArrayList<>(keys.size());
+            final List<Response<Long>> ttls = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                types.add(pipeline.type(key));
+                ttls.add(pipeline.pttl(key));
+            }
+            pipeline.sync();
+            for (int i = 0; i < keys.size(); i++) {
+                infos.put(keys.get(i), new RedisKeyInfo(types.get(i).get(), ttls.get(i).get()));
+            }
+        }
+        return infos;
     }
 
     /**
@@ -115,8 +172,7 @@ public class RedisExplorerMvpModel {
      * @throws Exception
      */
     public String getKeyType(String sid, String id, int db, String key) throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
+        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id, db)) {
             return jedis.type(key);
         }
     }
@@ -136,8 +192,7 @@ public class RedisExplorerMvpModel {
      * @throws Exception
      */
     public String getStringValue(String sid, String id, int db, String key) throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
+        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id, db)) {
             return jedis.get(key);
         }
     }
@@ -157,8 +212,7 @@ public class RedisExplorerMvpModel {
      * @throws Exception
      */
     public List<String> getListValue(String sid, String id, int db, String key) throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
+        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id, db)) {
             long listLength = jedis.llen(key);
             return jedis.lrange(key, DEFAULT_RANGE_START,
                     listLength < DEFAULT_VAL_COUNT ? listLength : DEFAULT_VAL_COUNT);
@@ -182,8 +236,7 @@ public class RedisExplorerMvpModel {
      * @throws Exception
      */
     public ScanResult<String> getSetValue(String sid, String id, int db, String key, String cursor) throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
+        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id, db)) {
             return jedis.sscan(key, cursor, new ScanParams().count(DEFAULT_VAL_COUNT));
         }
     }
@@ -203,8 +256,7 @@ public class RedisExplorerMvpModel {
      * @throws Exception
      */
     public Set<Tuple> getZSetValue(String sid, String id, int db, String key) throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
+        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id, db)) {
             long zsetLength = jedis.zcard(key);
             return jedis.zrangeWithScores(key, DEFAULT_RANGE_START,
                     zsetLength < DEFAULT_VAL_COUNT ? zsetLength : DEFAULT_VAL_COUNT);
@@ -229,8 +281,7 @@ public class RedisExplorerMvpModel {
      */
     public ScanResult<Entry<String, String>> getHashValue(String sid, String id, int db, String key, String cursor)
             throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
+        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id, db)) {
             return jedis.hscan(key, cursor, new ScanParams().count(DEFAULT_VAL_COUNT));
         }
     }
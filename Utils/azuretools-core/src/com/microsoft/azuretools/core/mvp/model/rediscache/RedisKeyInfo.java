@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azuretools.core.mvp.model.rediscache;
+
+/**
+ * The type and TTL of a Redis key.
+ */
+public class RedisKeyInfo {
+
+    private final String type;
+    private final long ttlMillis;
+
+    public RedisKeyInfo(String type, long ttlMillis) {
+        this.type = type;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return the type of the key, "none" if the key doesn't exist
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the remaining time to live in milliseconds, -1 if the key never expires, -2 if the key doesn't exist
+     */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azuretools.core.mvp.model.rediscache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+/**
+ * Scans the keys of a Redis Cache database page by page.
+ *
+ * The COUNT of SCAN grows when the pattern matches few keys and shrinks when it matches many, so each page has about
+ * the page size keys without walking a huge keyspace in tiny steps. A page is returned early with the keys found so
+ * far once its time budget is used up, and the scan goes on from the cursor of the page.
+ */
+public final class RedisKeyScanner implements Iterator<ScanResult<String>> {
+
+    public static final int MIN_SCAN_COUNT = 50;
+    public static final int MAX_SCAN_COUNT = 10000;
+    private static final long PAGE_TIME_BUDGET_MILLIS = 500;
+
+    private final String sid;
+    private final String id;
+    private final int db;
+    private final ScanParams params;
+    private final int pageSize;
+
+    private String cursor;
+    private int count;
+    private boolean isFinished = false;
+
+    RedisKeyScanner(String sid, String id, int db, String cursor, String pattern, int pageSize) {
+        this.sid = sid;
+        this.id = id;
+        this.db = db;
+        this.cursor = cursor;
+        this.pageSize = pageSize;
+        this.count = Math.max(MIN_SCAN_COUNT, Math.min(MAX_SCAN_COUNT, pageSize));
+        this.params = new ScanParams().match(pattern);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !isFinished;
+    }
+
+    /**
+     * Scan the next page of keys.
+     *
+     * @return the keys of the page with the cursor to scan the next page, which is "0" after the last page
+     */
+    @Override
+    public ScanResult<String> next() {
+        if (isFinished) {
+            throw new NoSuchElementException();
+        }
+
+        final List<String> keys = new ArrayList<>();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PAGE_TIME_BUDGET_MILLIS);
+        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id, db)) {
+            do {
+                final ScanResult<String> result = jedis.scan(cursor, params.count(count));
+                keys.addAll(result.getResult());
+                cursor = result.getCursor();
+                isFinished = result.isCompleteIteration();
+                adaptCount(result.getResult().size());
+            } while (!isFinished && keys.size() < pageSize && System.nanoTime() - deadline < 0);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+
+        return new ScanResult<>(cursor, keys);
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    private void adaptCount(int found) {
+        if (found < pageSize / 2) {
+            count = Math.min(MAX_SCAN_COUNT, count * 2);
+        } else if (found > pageSize * 2) {
+            count = Math.max(MIN_SCAN_COUNT, count / 2);
+        }
+    }
+}
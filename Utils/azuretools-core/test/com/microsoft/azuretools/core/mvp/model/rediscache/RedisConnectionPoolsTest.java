@@ -5,11 +5,18 @@
 
 package com.microsoft.azuretools.core.mvp.model.rediscache;
 
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -90,4 +97,63 @@ public class RedisConnectionPoolsTest {
         RedisConnectionPools.getInstance().releasePool(MOCK_REDIS_ID);
         verify(jedisPoolMock, times(0)).destroy();
     }
+
+    @Test
+    public void testGetJedisOfDatabases() throws Exception {
+        RedisConnectionPools.getInstance().getJedis(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, 0);
+        RedisConnectionPools.getInstance().getJedis(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, 1);
+        RedisConnectionPools.getInstance().getJedis(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, 1);
+        PowerMockito.verifyNew(JedisPool.class, times(2)).withArguments(any(), anyString(), anyInt(), anyInt(),
+                anyString(), anyInt(), anyBoolean());
+        verify(jedisPoolMock, times(3)).getResource();
+        RedisConnectionPools.getInstance().releasePool(MOCK_REDIS_ID);
+        verify(jedisPoolMock, times(2)).destroy();
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsedCache() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            RedisConnectionPools.getInstance().getJedis(MOCK_SUBSCRIPTION, MOCK_REDIS_ID + i);
+        }
+        verify(jedisPoolMock, times(1)).destroy();
+        for (int i = 0; i < 5; i++) {
+            RedisConnectionPools.getInstance().releasePool(MOCK_REDIS_ID + i);
+        }
+        verify(jedisPoolMock, times(5)).destroy();
+    }
+
+    @Test(timeout = 10000)
+    public void testGetJedisWhileAnotherCacheConnects() throws Exception {
+        final String slowId = MOCK_REDIS_ID + "-slow";
+        final CountDownLatch connecting = new CountDownLatch(1);
+        final CountDownLatch connected = new CountDownLatch(1);
+        when(azureRedisMvpModelMock.getRedisCache(MOCK_SUBSCRIPTION, slowId)).thenAnswer(invocation -> {
+            connecting.countDown();
+            connected.await();
+            return redisCacheMock;
+        });
+        RedisConnectionPools.getInstance().getJedis(MOCK_SUBSCRIPTION, MOCK_REDIS_ID);
+
+        final Thread slow = new Thread(() -> {
+            try {
+                RedisConnectionPools.getInstance().getJedis(MOCK_SUBSCRIPTION, slowId);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        slow.start();
+        try {
+            assertTrue(connecting.await(5, TimeUnit.SECONDS));
+            // The open cache is not held up by the one getting its settings from Azure
+            RedisConnectionPools.getInstance().getJedis(MOCK_SUBSCRIPTION, MOCK_REDIS_ID);
+            verify(jedisPoolMock, times(2)).getResource();
+        } finally {
+            connected.countDown();
+            slow.join();
+        }
+        verify(jedisPoolMock, times(3)).getResource();
+        RedisConnectionPools.getInstance().releasePool(MOCK_REDIS_ID);
+        RedisConnectionPools.getInstance().releasePool(slowId);
+        verify(jedisPoolMock, times(2)).destroy();
+    }
 }
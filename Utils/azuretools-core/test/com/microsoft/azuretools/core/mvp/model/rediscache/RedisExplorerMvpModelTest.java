@@ -5,11 +5,20 @@
 
 package com.microsoft.azuretools.core.mvp.model.rediscache;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -21,7 +30,10 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({
@@ -50,6 +62,7 @@ public class RedisExplorerMvpModelTest {
         PowerMockito.mockStatic(RedisConnectionPools.class);
         when(RedisConnectionPools.getInstance()).thenReturn(redisConnectionPoolsMock);
         when(redisConnectionPoolsMock.getJedis(anyString(), anyString())).thenReturn(jedisMock);
+        when(redisConnectionPoolsMock.getJedis(anyString(), anyString(), anyInt())).thenReturn(jedisMock);
     }
 
     @After
@@ -66,22 +79,25 @@ public class RedisExplorerMvpModelTest {
 
     @Test
     public void testScanKeys() throws Exception {
+        when(jedisMock.scan(anyString(), Mockito.any(ScanParams.class)))
+                .thenReturn(new ScanResult<>(MOCK_CURSOR, Collections.singletonList(MOCK_KEY)));
+
         RedisExplorerMvpModel.getInstance().scanKeys(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_CURSOR, MOCK_PATTERN);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
+        verify(jedisMock, never()).select(anyInt());
         verify(jedisMock, times(1)).scan(Mockito.eq(MOCK_CURSOR), Mockito.any(ScanParams.class));
     }
 
     @Test
     public void testGetKeyType() throws Exception {
         RedisExplorerMvpModel.getInstance().getKeyType(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
+        verify(jedisMock, never()).select(anyInt());
         verify(jedisMock, times(1)).type(Mockito.eq(MOCK_KEY));
     }
 
     @Test
     public void testGetStringValue() throws Exception {
         RedisExplorerMvpModel.getInstance().getStringValue(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
+        verify(jedisMock, never()).select(anyInt());
         verify(jedisMock, times(1)).get(Mockito.eq(MOCK_KEY));
     }
 
@@ -90,14 +106,14 @@ public class RedisExplorerMvpModelTest {
         when(jedisMock.llen(anyString())).thenReturn(MOCK_LEN);
 
         RedisExplorerMvpModel.getInstance().getListValue(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
+        verify(jedisMock, never()).select(anyInt());
         verify(jedisMock, times(1)).lrange(Mockito.eq(MOCK_KEY), Mockito.eq(0L), Mockito.eq(MOCK_LEN));
     }
 
     @Test
     public void testGetSetValue() throws Exception {
         RedisExplorerMvpModel.getInstance().getSetValue(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY, MOCK_CURSOR);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
+        verify(jedisMock, never()).select(anyInt());
         verify(jedisMock, times(1)).sscan(Mockito.eq(MOCK_KEY), Mockito.eq(MOCK_CURSOR), Mockito.any(ScanParams.class));
     }
 
@@ -106,21 +122,62 @@ public class RedisExplorerMvpModelTest {
         when(jedisMock.zcard(anyString())).thenReturn(MOCK_LEN);
 
         RedisExplorerMvpModel.getInstance().getZSetValue(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
+        verify(jedisMock, never()).select(anyInt());
         verify(jedisMock, times(1)).zrangeWithScores(Mockito.eq(MOCK_KEY), Mockito.eq(0L), Mockito.eq(MOCK_LEN));
     }
 
     @Test
     public void testGetHashValue() throws Exception {
         RedisExplorerMvpModel.getInstance().getHashValue(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY, MOCK_CURSOR);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
+        verify(jedisMock, never()).select(anyInt());
         verify(jedisMock, times(1)).hscan(Mockito.eq(MOCK_KEY), Mockito.eq(MOCK_CURSOR), Mockito.any(ScanParams.class));
     }
 
     @Test
     public void testCheckKeyExistance() throws Exception {
         RedisExplorerMvpModel.getInstance().checkKeyExistance(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
+        verify(jedisMock, never()).select(anyInt());
         verify(jedisMock, times(1)).exists(Mockito.eq(MOCK_KEY));
     }
+
+    @Test
+    public void testScanKeysContinuesSparsePages() throws Exception {
+        when(jedisMock.scan(anyString(), Mockito.any(ScanParams.class)))
+                .thenReturn(new ScanResult<>("5", Collections.singletonList("key1")))
+                .thenReturn(new ScanResult<>("7", Collections.emptyList()))
+                .thenReturn(new ScanResult<>(MOCK_CURSOR, Collections.singletonList("key2")));
+
+        RedisKeyScanner scanner = RedisExplorerMvpModel.getInstance()
+                .scanKeyPages(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_CURSOR, MOCK_PATTERN, 100);
+        ScanResult<String> page = scanner.next();
+
+        assertEquals(Arrays.asList("key1", "key2"), page.getResult());
+        assertEquals(MOCK_CURSOR, page.getCursor());
+        assertFalse(scanner.hasNext());
+        assertTrue(scanner.getCount() > 100);
+        verify(jedisMock, times(3)).scan(anyString(), Mockito.any(ScanParams.class));
+        verify(jedisMock, times(1)).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetKeyInfos() throws Exception {
+        Pipeline pipelineMock = Mockito.mock(Pipeline.class);
+        Response<String> typeMock = Mockito.mock(Response.class);
+        Response<Long> ttlMock = Mockito.mock(Response.class);
+        when(jedisMock.pipelined()).thenReturn(pipelineMock);
+        when(pipelineMock.type(anyString())).thenReturn(typeMock);
+        when(pipelineMock.pttl(anyString())).thenReturn(ttlMock);
+        when(typeMock.get()).thenReturn("string");
+        when(ttlMock.get()).thenReturn(MOCK_LEN);
+
+        Map<String, RedisKeyInfo> infos = RedisExplorerMvpModel.getInstance().getKeyInfos(MOCK_SUBSCRIPTION,
+                MOCK_REDIS_ID, MOCK_DB, Arrays.asList("key1", "key2"));
+
+        assertEquals(Arrays.asList("key1", "key2"), Arrays.asList(infos.keySet().toArray()));
+        assertEquals("string", infos.get("key1").getType());
+        assertEquals(MOCK_LEN, infos.get("key2").getTtlMillis());
+        verify(pipelineMock, times(1)).sync();
+        verify(jedisMock, never()).type(anyString());
+    }
 }
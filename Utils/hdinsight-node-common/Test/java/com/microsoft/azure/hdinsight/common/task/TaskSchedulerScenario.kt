@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.microsoft.azure.hdinsight.common.task
+
+import com.google.common.util.concurrent.ListenableFuture
+import cucumber.api.java.Before
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import org.assertj.core.api.Assertions.assertThat
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class TaskSchedulerScenario {
+    private val runCount = AtomicInteger()
+    private val runningCount = AtomicInteger()
+    private val maxRunningCount = AtomicInteger()
+    private var release = CountDownLatch(1)
+    private var futures: List<ListenableFuture<String>> = emptyList()
+
+    inner class BlockedTask(private val cluster: String, private val dedupKey: String?) : Task<String>(null) {
+        override fun getClusterKey(): String = cluster
+
+        override fun getDedupKey(): String? = dedupKey
+
+        override fun call(): String {
+            runCount.incrementAndGet()
+            maxRunningCount.accumulateAndGet(runningCount.incrementAndGet()) { prev, current -> maxOf(prev, current) }
+
+            try {
+                release.await(10, TimeUnit.SECONDS)
+            } finally {
+                runningCount.decrementAndGet()
+            }
+
+            return "$cluster:$dedupKey"
+        }
+    }
+
+    @Before
+    fun setUp() {
+        runCount.set(0)
+        runningCount.set(0)
+        maxRunningCount.set(0)
+        release = CountDownLatch(1)
+    }
+
+    @Given("^submit (\\d+) tasks of cluster '(.+)' with dedup keys '(.*)' owned by '(.+)'$")
+    fun submitTasks(count: Int, cluster: String, dedupKey: String, owner: String) {
+        futures = futures + (1..count).map { index ->
+            val key = if (dedupKey.isEmpty()) "$cluster-$index-${System.nanoTime()}" else dedupKey
+
+            TaskExecutor.submit(BlockedTask(cluster, key), owner)
+        }
+    }
+
+    @Then("^at most (\\d+) tasks are running after (\\d+)ms$")
+    fun checkRunningTasks(max: Int, waitMs: Long) {
+        Thread.sleep(waitMs)
+
+        assertThat(runningCount.get()).isLessThanOrEqualTo(max)
+        assertThat(maxRunningCount.get()).isLessThanOrEqualTo(max)
+    }
+
+    @Then("^cancel the tasks owned by '(.+)'$")
+    fun cancelTasks(owner: String) {
+        TaskExecutor.cancel(owner)
+    }
+
+    @Then("^release the tasks, (\\d+) of them are run and (\\d+) futures are cancelled$")
+    fun releaseTasks(runs: Int, cancelled: Int) {
+        release.countDown()
+
+        futures.filter { !it.isCancelled }.forEach { it.get(10, TimeUnit.SECONDS) }
+
+        assertThat(runCount.get()).isEqualTo(runs)
+        assertThat(futures.count { it.isCancelled }).isEqualTo(cancelled)
+        futures = emptyList()
+    }
+}
@@ -26,6 +26,7 @@ import com.github.tomakehurst.wiremock.client.WireMock
 import com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo
 import com.microsoft.azure.hdinsight.sdk.common.errorresponse.BadRequestHttpErrorStatus
 import com.microsoft.azure.hdinsight.spark.common.MockHttpService
+import cucumber.api.java.After
 import cucumber.api.java.Before
 import cucumber.api.java.en.And
 import cucumber.api.java.en.Given
@@ -41,12 +42,19 @@ class SessionScenario {
     var code: String = ""
     var result: Map<String, String>? = null
     var userAgent: String? = null
+    var sessionPool: SessionPool? = null
 
     @Before
     fun setUp() {
         httpServerMock = MockHttpService()
     }
 
+    @After
+    fun tearDown() {
+        sessionPool?.close()
+        sessionPool = null
+    }
+
     @Given("^setup a mock livy interactive service for (.+) request '(.+)' to return '(.+)' with status code (\\d+)$")
     fun mockLivyInteractiveService(action: String, serviceUrl: String, response: String, statusCode: Int) {
         httpServerMock!!.stub(action, serviceUrl, statusCode, response)
@@ -116,12 +124,52 @@ class SessionScenario {
 
     }
 
+    @And("^submit the following codes in livy Spark interactive session (\\d+) times$")
+    fun submitStatementCodes(times: Int, codes: List<String>) {
+        code = codes.joinToString("\n")
+        val results = (1..times).map { sessionMock!!.submitCodes(code) }
+
+        results.forEach { result = it.toBlocking().single() }
+    }
+
     @Then("^check Spark interactive session statement run result stdout should be$")
     fun checkStatementRunResultOutput(outputExpect: List<String>) {
         assertThat(result!!["text/plain"]!!.split("\n"))
                 .containsExactlyElementsOf(outputExpect)
     }
 
+    @Given("^create a livy session pool with warm size (\\d+)$")
+    fun createSessionPool(warmSize: Int) {
+        sessionPool = SessionPool().apply { this.warmSize = warmSize }
+    }
+
+    @And("^lease a livy Spark interactive session with name '(.+)' from the pool and wait for it ready$")
+    fun leaseSparkSession(name: String) {
+        sessionMock = sessionPool!!.lease(SparkSession(name, URI.create(httpServerMock!!.completeUrl("/"))))
+                .flatMap { it.awaitReady() }
+                .toBlocking()
+                .single()
+    }
+
+    @And("^release the livy Spark interactive session to the pool$")
+    fun releaseSparkSession() {
+        sessionPool!!.release(sessionMock!!)
+    }
+
+    @Then("^check the livy session pool has (\\d+) leases, (\\d+) warm hits and (\\d+) idle sessions$")
+    fun checkSessionPoolStats(leases: Long, warmHits: Long, idle: Int) {
+        val stats = sessionPool!!.stats.single()
+
+        assertThat(stats.leaseCount).isEqualTo(leases)
+        assertThat(stats.warmHitCount).isEqualTo(warmHits)
+        assertThat(stats.idleCount).isEqualTo(idle)
+    }
+
+    @Then("^check the create session request sent to '(.*)' (\\d+) times?$")
+    fun checkCreateSessionRequests(urlExpect: String, times: Int) {
+        WireMock.verify(times, WireMock.postRequestedFor(urlEqualTo(urlExpect)))
+    }
+
     @Then("^those request headers UA fields are different$")
     fun checkHeaderUaBeDifferent() {
         val uas = httpServerMock!!.livyServerMock.allServeEvents
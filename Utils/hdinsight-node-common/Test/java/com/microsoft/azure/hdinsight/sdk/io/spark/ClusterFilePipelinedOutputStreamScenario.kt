@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.microsoft.azure.hdinsight.sdk.io.spark
+
+import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.Session
+import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.SparkSession
+import cucumber.api.java.Before
+import cucumber.api.java.en.And
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import org.apache.commons.codec.binary.Base64
+import org.apache.commons.codec.digest.DigestUtils
+import org.assertj.core.api.Assertions.assertThat
+import org.mockito.ArgumentCaptor
+import org.mockito.Mockito.*
+import rx.Observable
+import java.io.ByteArrayOutputStream
+import java.net.URI
+import java.util.*
+import java.util.zip.Inflater
+
+class ClusterFilePipelinedOutputStreamScenario {
+    var clusterFileOutputStream: ClusterFilePipelinedOutputStream? = null
+    var sessionMock: Session? = null
+    var runCodesArg: ArgumentCaptor<String>? = null
+    var uploaded: ByteArray = ByteArray(0)
+
+    private val writePagePattern = "writePage\\((\\d+), (true|false), \"([^\"]*)\"\\)".toRegex()
+    private val finishUploadPattern = "finishUpload\\((\\d+), \"([0-9a-f]+)\"\\)".toRegex()
+
+    @Before
+    fun setUp() {
+        runCodesArg = ArgumentCaptor.forClass(String::class.java)
+    }
+
+    @Given("^create a mocked Livy session for ClusterFilePipelinedOutputStream$")
+    fun mockLivySessionForClusterFilePipelinedOutputStream() {
+        sessionMock = mock(SparkSession::class.java)
+        doReturn(Observable.just(hashMapOf("text/plain" to ""))).`when`(sessionMock!!)
+                .runCodes(runCodesArg!!.capture())
+    }
+
+    @And("^create a Spark cluster file pipelined output stream '(.+)' with page size (\\d+)KB, (\\d+) pages per statement and (\\d+) statements in flight$")
+    fun createClusterFilePipelinedOutputStream(dest: String, pageSize: Int, pagesPerStatement: Int, inFlight: Int) {
+        clusterFileOutputStream = ClusterFilePipelinedOutputStream(
+                sessionMock!!, URI.create(dest), pageSize, pagesPerStatement, inFlight)
+    }
+
+    @Then("^uploading (\\d+) text bytes and (\\d+) random bytes$")
+    fun uploadBytes(textSize: Int, randomSize: Int) {
+        val text = "Hello, Spark! ".repeat(textSize / 14 + 1).toByteArray(Charsets.UTF_8).copyOf(textSize)
+        val random = ByteArray(randomSize).apply { Random(42).nextBytes(this) }
+        uploaded = text + random
+
+        clusterFileOutputStream.use {   // autoclose resource
+            it!!.write(uploaded[0].toInt())
+            it.write(uploaded, 1, uploaded.size - 1)
+        }
+    }
+
+    @Then("^check (\\d+) statements are sent to Livy session$")
+    fun checkStatementsCount(count: Int) {
+        verify(sessionMock!!, times(count)).runCodes(anyString())
+        verify(sessionMock!!, never()).close()
+    }
+
+    @Then("^check the preloaded statement writes to '(.+)'$")
+    fun checkPreloadedStatement(dest: String) {
+        assertThat(runCodesArg!!.allValues.first())
+                .contains("new org.apache.hadoop.fs.Path(\"$dest\")")
+                .contains("def writePage(index: Int, isDeflated: Boolean, encodedBase64: String)")
+                .contains("def finishUpload(pageCount: Int, sha256: String)")
+                .contains("map(\"%02x\".format(_))")
+    }
+
+    @Then("^check the pages decoded from the statements are the bytes uploaded, (\\d+) of them deflated$")
+    fun checkPagesDecoded(deflatedCount: Int) {
+        val pageStatements = runCodesArg!!.allValues.drop(1).dropLast(1)
+        val pages = pageStatements
+                .flatMap { writePagePattern.findAll(it).toList() }
+                .map { match ->
+                    val (index, isDeflated, encoded) = match.destructured
+                    val encodedBytes = Base64.decodeBase64(encoded)
+
+                    index.toInt() to Pair(isDeflated.toBoolean(),
+                                          if (isDeflated.toBoolean()) inflate(encodedBytes) else encodedBytes)
+                }
+                .toMap(TreeMap())
+
+        assertThat(pages.keys).containsExactlyElementsOf((0 until pages.size).toList())
+        assertThat(pages.values.count { it.first }).isEqualTo(deflatedCount)
+
+        val decoded = ByteArrayOutputStream()
+        pages.values.forEach { decoded.write(it.second) }
+        assertThat(decoded.toByteArray()).isEqualTo(uploaded)
+
+        val finish = finishUploadPattern.matchEntire(runCodesArg!!.allValues.last())
+        assertThat(finish).isNotNull
+        assertThat(finish!!.groupValues[1].toInt()).isEqualTo(pages.size)
+        assertThat(finish.groupValues[2]).isEqualTo(DigestUtils.sha256Hex(uploaded))
+    }
+
+    private fun inflate(deflated: ByteArray): ByteArray {
+        val inflater = Inflater()
+        val out = ByteArrayOutputStream()
+        val buf = ByteArray(4096)
+
+        inflater.setInput(deflated)
+        while (!inflater.finished()) {
+            out.write(buf, 0, inflater.inflate(buf))
+        }
+        inflater.end()
+
+        return out.toByteArray()
+    }
+}
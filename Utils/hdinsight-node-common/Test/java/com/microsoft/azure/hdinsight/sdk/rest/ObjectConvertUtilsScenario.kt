@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.rest
+
+import cucumber.api.java.Before
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import cucumber.api.java.en.When
+import org.apache.http.entity.BasicHttpEntity
+import org.apache.http.entity.ContentType
+import org.assertj.core.api.Assertions.assertThat
+import java.io.ByteArrayInputStream
+
+class ObjectConvertUtilsScenario {
+    private var contentType: String? = null
+    private var content: ByteArray? = null
+    private val contentStreams = mutableListOf<ClosingTrackedStream>()
+    private var converted: List<String> = emptyList()
+
+    @Before
+    fun setUp() {
+        contentType = null
+        content = null
+        contentStreams.clear()
+        converted = emptyList()
+    }
+
+    @Given("^an HTTP entity of content type '(.*)' with content '(.*)'$")
+    fun setEntity(type: String, text: String) {
+        contentType = type
+
+        // Encode the content as the charset of the content type says, to cover the non-UTF decoding
+        content = text.toByteArray(ContentType.parse(type).charset ?: Charsets.UTF_8)
+    }
+
+    @Given("^an HTTP entity without content as of 204 No Content$")
+    fun setNoContentEntity() {
+        contentType = null
+        content = null
+    }
+
+    @When("^convert the HTTP entity to an object (\\d+) times$")
+    fun convertToObject(times: Int) {
+        // Each conversion after the first gets the reader of the type from the cache
+        converted = (1..times).map {
+            ObjectConvertUtils.convertEntityToObject(newEntity(), Map::class.java)
+                    .map { it.toString() }
+                    .orElse("empty")
+        }
+    }
+
+    @When("^convert the HTTP entity to a list of strings$")
+    fun convertToList() {
+        converted = ObjectConvertUtils.convertEntityToList(newEntity(), String::class.java)
+                .map { it.joinToString(",") }
+                .map { listOf(it) }
+                .orElse(listOf("empty"))
+    }
+
+    @When("^stream the HTTP entity as strings$")
+    fun streamAll() {
+        converted = ObjectConvertUtils.convertEntityToObservable(newEntity(), String::class.java)
+                .toList()
+                .toBlocking()
+                .single()
+    }
+
+    @When("^stream the first (\\d+) strings of the HTTP entity$")
+    fun streamFirst(count: Int) {
+        converted = ObjectConvertUtils.convertEntityToObservable(newEntity(), String::class.java)
+                .take(count)
+                .toList()
+                .toBlocking()
+                .single()
+    }
+
+    @Then("^the HTTP entity should be converted to '(.*)'$")
+    fun checkConverted(expected: String) {
+        assertThat(converted).containsOnly(expected)
+    }
+
+    @Then("^the HTTP entity should be streamed to '(.*)'$")
+    fun checkStreamed(expected: String) {
+        assertThat(converted.joinToString(",")).isEqualTo(expected)
+    }
+
+    @Then("^the HTTP entity content should be closed$")
+    fun checkContentClosed() {
+        assertThat(contentStreams.map { it.isClosed }).containsOnly(true)
+    }
+
+    private fun newEntity(): BasicHttpEntity {
+        val entity = BasicHttpEntity()
+        val bytes = content
+
+        if (bytes == null) {
+            entity.contentLength = 0
+        } else {
+            val stream = ClosingTrackedStream(bytes)
+            contentStreams.add(stream)
+
+            entity.content = stream
+            entity.contentLength = bytes.size.toLong()
+            entity.setContentType(contentType)
+        }
+
+        return entity
+    }
+
+    private class ClosingTrackedStream(bytes: ByteArray) : ByteArrayInputStream(bytes) {
+        @Volatile
+        var isClosed = false
+            private set
+
+        override fun close() {
+            isClosed = true
+            super.close()
+        }
+    }
+}
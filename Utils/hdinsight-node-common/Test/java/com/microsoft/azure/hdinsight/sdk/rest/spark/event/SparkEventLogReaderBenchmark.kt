@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.rest.spark.event
+
+import java.io.BufferedOutputStream
+import java.io.File
+import java.io.FileInputStream
+
+/**
+ * The benchmark of SparkEventLogReader on a synthetic event log, which isn't run with the unit tests.
+ *
+ * Run the main function with the optional arguments: the log size in MB (1024 by default) and the log file path (a
+ * temporary file by default, deleted after the run).
+ */
+object SparkEventLogReaderBenchmark {
+    private const val jobStartLine = """{"Event":"SparkListenerJobStart","Job ID":%d,"Submission Time":1526889130470,"Stage Infos":[{"Stage ID":%d,"Stage Attempt ID":0,"Stage Name":"count at <console>:24","Number of Tasks":200,"RDD Info":[],"Parent IDs":[],"Details":"","Accumulables":[]}],"Stage IDs":[%d],"Properties":{"spark.rdd.scope.noOverride":"true"}}"""
+    private const val taskEndLine = """{"Event":"SparkListenerTaskEnd","Stage ID":%d,"Stage Attempt ID":0,"Task Type":"ResultTask","Task End Reason":{"Reason":"Success"},"Task Info":{"Task ID":%d,"Index":0,"Attempt":0,"Launch Time":1526889130520,"Executor ID":"1","Host":"wn0","Locality":"PROCESS_LOCAL","Speculative":false,"Getting Result Time":0,"Finish Time":1526889131244,"Failed":false,"Killed":false,"Accumulables":[]},"Task Metrics":{"Executor Deserialize Time":20,"Executor Run Time":612,"Result Size":1057,"JVM GC Time":0,"Input Metrics":{"Bytes Read":0,"Records Read":0},"Output Metrics":{"Bytes Written":0,"Records Written":0}}}"""
+    private const val blockUpdatedLine = """{"Event":"SparkListenerBlockUpdated","Block Updated Info":{"Block Manager ID":{"Executor ID":"1","Host":"wn0","Port":40000},"Block ID":"rdd_%d_0","Storage Level":{"Use Disk":false,"Use Memory":true,"Deserialized":true,"Replication":1},"Memory Size":1048576,"Disk Size":0}}"""
+
+    @JvmStatic
+    fun main(args: Array<String>) {
+        val sizeMB = args.getOrNull(0)?.toLong() ?: 1024
+        val logFile = args.getOrNull(1)?.let { File(it) } ?: File.createTempFile("sparkEventLog", ".log")
+
+        try {
+            if (logFile.length() < sizeMB * 1024 * 1024) {
+                generate(logFile, sizeMB * 1024 * 1024)
+            }
+
+            // Warm up once, then measure
+            for (round in 0..1) {
+                var jobs = 0L
+                var tasks = 0L
+                val reader = SparkEventLogReader()
+                        .on(JobStartEventLog.EVENT_NAME, JobStartEventLog::class.java) { jobs++ }
+                        .on(TaskEndEventLog.EVENT_NAME, TaskEndEventLog::class.java) { tasks++ }
+
+                System.gc()
+                val start = System.nanoTime()
+                FileInputStream(logFile).use { reader.read(it) }
+                val elapsedMs = (System.nanoTime() - start) / 1_000_000
+                val runtime = Runtime.getRuntime()
+
+                println(String.format("%s: %d MB, %d lines, %d job starts, %d task ends in %d ms (%.1f MB/s), heap used %d MB",
+                        if (round == 0) "warm up" else "measure",
+                        logFile.length() / 1024 / 1024, reader.lineCount, jobs, tasks, elapsedMs,
+                        logFile.length() / 1024.0 / 1024.0 * 1000 / Math.max(1, elapsedMs),
+                        (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024))
+            }
+        } finally {
+            if (args.size < 2) {
+                logFile.delete()
+            }
+        }
+    }
+
+    // One job start per 200 tasks, with a block update of each task which isn't registered to the reader
+    private fun generate(logFile: File, size: Long) {
+        BufferedOutputStream(logFile.outputStream(), 1024 * 1024).use { out ->
+            var written = 0L
+            var task = 0L
+
+            while (written < size) {
+                val line = when {
+                    task % 400 == 0L -> String.format(jobStartLine, task / 400, task / 400, task / 400)
+                    task % 2 == 0L -> String.format(taskEndLine, task / 400, task / 2)
+                    else -> String.format(blockUpdatedLine, task / 2)
+                } + "\n"
+
+                val bytes = line.toByteArray(Charsets.UTF_8)
+                out.write(bytes)
+                written += bytes.size
+                task++
+            }
+        }
+    }
+}
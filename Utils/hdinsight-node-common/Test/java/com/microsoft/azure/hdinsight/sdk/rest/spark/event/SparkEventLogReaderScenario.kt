@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.rest.spark.event
+
+import cucumber.api.java.Before
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import cucumber.api.java.en.When
+import org.assertj.core.api.Assertions.assertThat
+import java.io.ByteArrayInputStream
+import java.io.InputStream
+
+class SparkEventLogReaderScenario {
+    private var eventLog = ""
+    private var reader: SparkEventLogReader? = null
+    private val jobStartEvents = mutableListOf<JobStartEventLog>()
+    private val stageCompletedEvents = mutableListOf<StageCompletedEventLog>()
+    private val taskEndEvents = mutableListOf<TaskEndEventLog>()
+    private var jobViewEvents = SparkEventLogs()
+
+    @Before
+    fun setUp() {
+        eventLog = ""
+        jobStartEvents.clear()
+        stageCompletedEvents.clear()
+        taskEndEvents.clear()
+        jobViewEvents = SparkEventLogs()
+        reader = SparkEventLogReader()
+                .on(JobStartEventLog.EVENT_NAME, JobStartEventLog::class.java) { jobStartEvents.add(it) }
+                .on(StageCompletedEventLog.EVENT_NAME, StageCompletedEventLog::class.java) { stageCompletedEvents.add(it) }
+                .on(TaskEndEventLog.EVENT_NAME, TaskEndEventLog::class.java) { taskEndEvents.add(it) }
+    }
+
+    @Given("^a Spark event log$")
+    fun setEventLog(log: String) {
+        eventLog = log
+    }
+
+    @When("^read the Spark event log in slices of (\\d+) bytes$")
+    fun readEventLog(sliceSize: Int) {
+        // Cut the log at every slice end, to cover the event token split by the read buffer
+        val slicedStream = object : ByteArrayInputStream(eventLog.toByteArray(Charsets.UTF_8)) {
+            override fun read(b: ByteArray, off: Int, len: Int): Int = super.read(b, off, Math.min(len, sliceSize))
+        }
+
+        reader!!.read(slicedStream as InputStream)
+    }
+
+    @When("^read the Spark event log for the job view$")
+    fun readEventLogForJobView() {
+        jobViewEvents.newReader().read(ByteArrayInputStream(eventLog.toByteArray(Charsets.UTF_8)))
+    }
+
+    @Then("^the job view events should be of job IDs '(.*)', completed stage IDs '(.*)' and failed task IDs '(.*)'$")
+    fun checkJobViewEvents(jobIds: String, stageIds: String, failedTaskIds: String) {
+        assertThat(jobViewEvents.jobStartEvents.map { it.jobId }.joinToString(",")).isEqualTo(jobIds)
+        assertThat(jobViewEvents.stageCompletedEvents.map { it.stageInfo.stageId }.joinToString(",")).isEqualTo(stageIds)
+        assertThat(jobViewEvents.failedTaskEndEvents.map { it.taskInfo.taskId }.joinToString(",")).isEqualTo(failedTaskIds)
+    }
+
+    @Then("^the Spark event log reader should read (\\d+) lines and parse (\\d+) events$")
+    fun checkCounts(lines: Long, parsed: Long) {
+        assertThat(reader!!.lineCount).isEqualTo(lines)
+        assertThat(reader!!.parsedCount).isEqualTo(parsed)
+    }
+
+    @Then("^the job start events should be of job IDs '(.*)'$")
+    fun checkJobStartEvents(jobIds: String) {
+        assertThat(jobStartEvents.map { it.jobId }.joinToString(",")).isEqualTo(jobIds)
+    }
+
+    @Then("^the stage completed events should be of stage IDs '(.*)'$")
+    fun checkStageCompletedEvents(stageIds: String) {
+        assertThat(stageCompletedEvents.map { it.stageInfo.stageId }.joinToString(",")).isEqualTo(stageIds)
+    }
+
+    @Then("^the task end events should be of task IDs '(.*)' with reasons '(.*)'$")
+    fun checkTaskEndEvents(taskIds: String, reasons: String) {
+        assertThat(taskEndEvents.map { it.taskInfo.taskId }.joinToString(",")).isEqualTo(taskIds)
+        assertThat(taskEndEvents.map { it.taskEndReason["Reason"] }.joinToString(",")).isEqualTo(reasons)
+    }
+}
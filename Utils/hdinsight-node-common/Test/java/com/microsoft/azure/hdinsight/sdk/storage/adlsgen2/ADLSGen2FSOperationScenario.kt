@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.storage.adlsgen2
+
+import com.github.tomakehurst.wiremock.client.WireMock
+import com.github.tomakehurst.wiremock.client.WireMock.aResponse
+import com.github.tomakehurst.wiremock.client.WireMock.absent
+import com.github.tomakehurst.wiremock.client.WireMock.equalTo
+import com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor
+import com.github.tomakehurst.wiremock.client.WireMock.patchRequestedFor
+import com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo
+import com.github.tomakehurst.wiremock.stubbing.Scenario
+import com.microsoft.azure.hdinsight.sdk.common.HttpObservable
+import com.microsoft.azure.hdinsight.spark.common.MockHttpService
+import cucumber.api.java.After
+import cucumber.api.java.Before
+import cucumber.api.java.en.And
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import org.apache.http.client.HttpResponseException
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import java.io.ByteArrayOutputStream
+import java.io.File
+import kotlin.random.Random
+
+class ADLSGen2FSOperationScenario {
+    var httpServerMock: MockHttpService? = null
+    var artifact: File? = null
+    var artifactContent: ByteArray = ByteArray(0)
+
+    @Before
+    fun setUp() {
+        httpServerMock = MockHttpService()
+    }
+
+    @After
+    fun tearDown() {
+        artifact?.delete()
+    }
+
+    @Given("^setup a mock ADLS Gen2 service accepting appends and flush for file '(.+)'$")
+    fun mockADLSGen2Service(filePath: String) {
+        WireMock.configureFor(httpServerMock!!.port)
+        WireMock.stubFor(WireMock.patch(urlPathEqualTo(filePath))
+                .withQueryParam("action", equalTo("append"))
+                .willReturn(aResponse().withStatus(202)))
+        WireMock.stubFor(WireMock.patch(urlPathEqualTo(filePath))
+                .withQueryParam("action", equalTo("flush"))
+                .willReturn(aResponse().withStatus(200)))
+    }
+
+    @And("^the mock ADLS Gen2 service fails the append of file '(.+)' at position (\\d+) for (\\d+) times$")
+    fun mockFailedAppends(filePath: String, position: Long, failures: Int) {
+        mockFailedAppendsWithStatus(filePath, position, failures, 500)
+    }
+
+    @And("^the mock ADLS Gen2 service fails the append of file '(.+)' at position (\\d+) for (\\d+) times with status (\\d+)$")
+    fun mockFailedAppendsWithStatus(filePath: String, position: Long, failures: Int, status: Int) {
+        val scenarioName = "append-$filePath-$position"
+        (0 until failures).forEach { attempt ->
+            WireMock.stubFor(WireMock.patch(urlPathEqualTo(filePath))
+                    .withQueryParam("action", equalTo("append"))
+                    .withQueryParam("position", equalTo(position.toString()))
+                    .inScenario(scenarioName)
+                    .whenScenarioStateIs(if (attempt == 0) Scenario.STARTED else "failed-$attempt")
+                    .willSetStateTo("failed-${attempt + 1}")
+                    .willReturn(aResponse().withStatus(status)))
+        }
+    }
+
+    @And("^create a local artifact with (\\d+) bytes$")
+    fun createArtifact(length: Int) {
+        artifactContent = Random(length).nextBytes(length)
+        artifact = File.createTempFile("adlsgen2-upload-", ".jar").apply { writeBytes(artifactContent) }
+    }
+
+    @Then("^upload the artifact to '(.+)' in (\\d+) bytes chunks with parallelism (\\d+)$")
+    fun uploadArtifact(filePath: String, chunkSize: Int, parallelism: Int) {
+        val result = ADLSGen2FSOperation(HttpObservable())
+                .uploadData(httpServerMock!!.completeUrl(filePath), artifact, chunkSize, parallelism)
+                .toBlocking()
+                .single()
+
+        assertThat(result).isTrue()
+    }
+
+    @Then("^check the mock ADLS Gen2 service received appends of file '(.+)' at positions$")
+    fun checkAppendPositions(filePath: String, positionsExpect: List<Long>) {
+        val positions = WireMock.findAll(patchRequestedFor(urlPathEqualTo(filePath))
+                .withQueryParam("action", equalTo("append")))
+                .map { it.queryParameter("position").firstValue().toLong() }
+                .distinct()
+                .sorted()
+
+        assertThat(positions).containsExactlyElementsOf(positionsExpect)
+    }
+
+    @Then("^upload the artifact to '(.+)' in (\\d+) bytes chunks with parallelism (\\d+) and fail with status (\\d+)$")
+    fun uploadArtifactFailed(filePath: String, chunkSize: Int, parallelism: Int, status: Int) {
+        assertThatThrownBy {
+            ADLSGen2FSOperation(HttpObservable())
+                    .uploadData(httpServerMock!!.completeUrl(filePath), artifact, chunkSize, parallelism)
+                    .toBlocking()
+                    .single()
+        }.hasCauseInstanceOf(HttpResponseException::class.java)
+                .matches { (it.cause as HttpResponseException).statusCode == status }
+    }
+
+    @Then("^check the mock ADLS Gen2 service received no flush of file '(.+)'$")
+    fun checkNoFlush(filePath: String) {
+        WireMock.verify(0, patchRequestedFor(urlPathEqualTo(filePath))
+                .withQueryParam("action", equalTo("flush")))
+    }
+
+    @Then("^check the mock ADLS Gen2 service received the artifact content for file '(.+)'$")
+    fun checkAppendedContent(filePath: String) {
+        val content = ByteArrayOutputStream()
+        WireMock.findAll(patchRequestedFor(urlPathEqualTo(filePath))
+                .withQueryParam("action", equalTo("append")))
+                .associateBy { it.queryParameter("position").firstValue().toLong() }
+                .toSortedMap()
+                .forEach { (position, request) ->
+                    assertThat(position).isEqualTo(content.size().toLong())
+                    content.write(request.body)
+                }
+
+        assertThat(content.toByteArray()).isEqualTo(artifactContent)
+    }
+
+    @Then("^check the mock ADLS Gen2 service received (\\d+) appends? of file '(.+)' at position (\\d+)$")
+    fun checkAppendCount(count: Int, filePath: String, position: Long) {
+        WireMock.verify(count, patchRequestedFor(urlPathEqualTo(filePath))
+                .withQueryParam("action", equalTo("append"))
+                .withQueryParam("position", equalTo(position.toString())))
+    }
+
+    @Then("^check the mock ADLS Gen2 service received one flush of file '(.+)' at position (\\d+)$")
+    fun checkFlush(filePath: String, position: Long) {
+        WireMock.verify(1, patchRequestedFor(urlPathEqualTo(filePath))
+                .withQueryParam("action", equalTo("flush")))
+        WireMock.verify(1, patchRequestedFor(urlPathEqualTo(filePath))
+                .withQueryParam("action", equalTo("flush"))
+                .withQueryParam("position", equalTo(position.toString())))
+    }
+
+    @Given("^setup a mock ADLS Gen2 file system '(.+)' listing directory '(.+)' of (\\d+) entries in pages of (\\d+)$")
+    fun mockListPages(fileSystemPath: String, directory: String, count: Int, pageSize: Int) {
+        WireMock.configureFor(httpServerMock!!.port)
+        (0 until count step pageSize).forEach { start ->
+            val names = (start until minOf(start + pageSize, count)).map { "$directory/entry-$it" }
+            val body = names.joinToString(",", "{\"paths\":[", "]}") {
+                "{\"name\":\"$it\",\"isDirectory\":\"false\",\"contentLength\":\"1\"}"
+            }
+            val response = aResponse().withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(body)
+
+            if (start + pageSize < count) {
+                response.withHeader(ADLSGen2FSOperation.CONTINUATION_HEADER, "page-${start + pageSize}")
+            }
+
+            WireMock.stubFor(WireMock.get(urlPathEqualTo(fileSystemPath))
+                    .withQueryParam("resource", equalTo("filesystem"))
+                    .withQueryParam("directory", equalTo(directory))
+                    .withQueryParam("continuation", if (start == 0) absent() else equalTo("page-$start"))
+                    .willReturn(response))
+        }
+    }
+
+    @Then("^list the directory '(.+)' of file system '(.+)' and get (\\d+) entries in order$")
+    fun checkListedEntries(directory: String, fileSystemPath: String, count: Int) {
+        val names = ADLSGen2FSOperation(HttpObservable())
+                .list(httpServerMock!!.completeUrl(fileSystemPath), directory)
+                .map { it.name }
+                .toList()
+                .toBlocking()
+                .single()
+
+        assertThat(names).containsExactlyElementsOf((0 until count).map { "$directory/entry-$it" })
+    }
+
+    @Then("^check the mock ADLS Gen2 service received (\\d+) list requests? of file system '(.+)'$")
+    fun checkListRequestCount(count: Int, fileSystemPath: String) {
+        WireMock.verify(count, getRequestedFor(urlPathEqualTo(fileSystemPath))
+                .withQueryParam("resource", equalTo("filesystem")))
+    }
+}
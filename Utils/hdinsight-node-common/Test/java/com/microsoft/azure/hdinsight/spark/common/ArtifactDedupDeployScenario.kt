@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common
+
+import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail
+import com.microsoft.azure.hdinsight.sdk.common.HttpObservable
+import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine
+import cucumber.api.java.After
+import cucumber.api.java.Before
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import org.assertj.core.api.Assertions.assertThat
+import org.mockito.Mockito
+import rx.Observable
+import rx.Observer
+import rx.subjects.PublishSubject
+import java.io.File
+import java.nio.file.Files
+
+class ArtifactDedupDeployScenario {
+    /**
+     * A deployer which keeps the length of the files it deployed, as the storage would
+     */
+    class FakeDeploy(private val destinationRoot: String) : Deployable {
+        val remoteLengths = mutableMapOf<String, Long>()
+        var deployCount = 0
+
+        override fun deploy(src: File, logSubject: Observer<SparkLogLine>): Observable<String> {
+            deployCount++
+            val uploadedPath = "$destinationRoot/$deployCount/${src.name}"
+            remoteLengths[uploadedPath] = src.length()
+
+            return Observable.just(uploadedPath)
+        }
+
+        override fun getDestinationRoot(): String = destinationRoot
+
+        override fun isDeployed(uploadedPath: String, length: Long): Observable<Boolean> =
+                Observable.just(remoteLengths[uploadedPath] == length)
+    }
+
+    private var httpServerMock: MockHttpService? = null
+    private var artifact: File? = null
+    private var delegate = FakeDeploy("abfs://fs@account.dfs.core.windows.net/SparkSubmission")
+    private var dedupDeploy = ArtifactDedupDeploy(delegate, DeployedArtifactIndex())
+    private val uploadedPaths = mutableListOf<String>()
+
+    @Before
+    fun setUp() {
+        httpServerMock = MockHttpService()
+        artifact = Files.createTempFile("artifact", ".jar").toFile()
+    }
+
+    @After
+    fun cleanUp() {
+        httpServerMock!!.livyServerMock.stop()
+        artifact!!.delete()
+    }
+
+    @Given("^an artifact with content '(.*)'$")
+    fun writeArtifact(content: String) {
+        artifact!!.writeText(content)
+    }
+
+    @Given("^deploy the artifact with deduplication$")
+    fun deployArtifact() {
+        uploadedPaths.add(dedupDeploy.deploy(artifact!!, PublishSubject.create()).toBlocking().single())
+    }
+
+    @Given("^the deployed artifact is overwritten with (\\d+) bytes$")
+    fun overwriteDeployed(length: Long) {
+        delegate.remoteLengths[uploadedPaths.last()] = length
+    }
+
+    @Given("^the deployed artifact is deleted$")
+    fun deleteDeployed() {
+        delegate.remoteLengths.remove(uploadedPaths.last())
+    }
+
+    @Then("^the artifact should be uploaded (\\d+) times$")
+    fun checkDeployCount(expect: Int) {
+        assertThat(delegate.deployCount).isEqualTo(expect)
+    }
+
+    @Then("^the last two deployments should return the same path$")
+    fun checkSamePath() {
+        assertThat(uploadedPaths.last()).isEqualTo(uploadedPaths[uploadedPaths.size - 2])
+    }
+
+    @Then("^the last two deployments should return different paths$")
+    fun checkDifferentPath() {
+        assertThat(uploadedPaths.last()).isNotEqualTo(uploadedPaths[uploadedPaths.size - 2])
+    }
+
+    @Then("^the file length of GETFILESTATUS response '(.*)' should be (-?\\d+)$")
+    fun checkFileStatusLength(response: String, expect: Long) {
+        assertThat(WebHDFSDeploy.getFileStatusLength(response)).isEqualTo(expect)
+    }
+
+    @Given("^mock a http service in ArtifactDedupDeployScenario for (.+) request '(.+)' to return '(.*)' with status code (\\d+)$")
+    fun mockHttpService(method: String, url: String, response: String, responseCode: Int) {
+        httpServerMock!!.stub(method, url, responseCode, response)
+    }
+
+    @Then("^WebHDFS should check '(.+)' of (\\d+) bytes as (deployed|not deployed)$")
+    fun checkWebHdfsDeployed(uploadedPath: String, length: Long, expect: String) {
+        val webHdfsDeploy = WebHDFSDeploy(
+                Mockito.mock(IClusterDetail::class.java), HttpObservable(), httpServerMock!!.completeUrl("/webhdfs/v1/"))
+
+        val isDeployed = webHdfsDeploy.isDeployed(httpServerMock!!.completeUrl(uploadedPath), length)
+                .toBlocking()
+                .single()
+
+        assertThat(isDeployed).isEqualTo(expect == "deployed")
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common.log
+
+import com.microsoft.azure.hdinsight.spark.common.log.LogTailSource.PollResult
+import cucumber.api.java.After
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import cucumber.api.java.en.When
+import org.assertj.core.api.Assertions.assertThat
+import rx.observers.TestSubscriber
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class LogTailSchedulerScenario {
+    private val timeoutMs = 5000L
+
+    private var scheduler = LogTailScheduler(4, 2)
+    private val released = CountDownLatch(1)
+    private val inFlight = AtomicInteger()
+    private val maxInFlight = AtomicInteger()
+    private val polls = AtomicInteger()
+    private val pollNanos = ConcurrentLinkedQueue<Long>()
+    private val subscribers = mutableListOf<TestSubscriber<String>>()
+
+    @After
+    fun cleanUp() {
+        released.countDown()
+        subscribers.forEach { it.unsubscribe() }
+    }
+
+    @Given("^a log tail scheduler of (\\d+) poll threads? and (\\d+) polls? in flight per cluster$")
+    fun createScheduler(pollThreads: Int, maxInFlightPerCluster: Int) {
+        scheduler = LogTailScheduler(pollThreads, maxInFlightPerCluster)
+    }
+
+    @When("^tailing (\\d+) blocking log sources? of the cluster '(.+)'$")
+    fun tailBlockingSources(count: Int, cluster: String) {
+        repeat(count) {
+            subscribe(cluster, LogTailSource<String> { _ ->
+                val current = inFlight.incrementAndGet()
+                maxInFlight.accumulateAndGet(current) { a, b -> maxOf(a, b) }
+                try {
+                    released.await(timeoutMs, TimeUnit.MILLISECONDS)
+                } finally {
+                    inFlight.decrementAndGet()
+                }
+
+                PollResult.FINISHED
+            })
+        }
+    }
+
+    @When("^tailing an idle log source polled every (\\d+) to (\\d+) ms$")
+    fun tailIdleSource(minIntervalMs: Long, maxIntervalMs: Long) {
+        subscribe("cluster", LogTailSource<String> { _ ->
+            pollNanos.add(System.nanoTime())
+            polls.incrementAndGet()
+
+            PollResult.IDLE
+        }, minIntervalMs = minIntervalMs, maxIntervalMs = maxIntervalMs)
+    }
+
+    @When("^tailing a log source of a line every poll with (\\d+) lines? requested$")
+    fun tailLineSource(requested: Long) {
+        subscribe("cluster", LogTailSource<String> { emitter ->
+            emitter.call("line ${polls.incrementAndGet()}")
+
+            PollResult.RECEIVED
+        }, TestSubscriber(requested))
+    }
+
+    @When("^the blocked polls are released$")
+    fun releasePolls() {
+        released.countDown()
+    }
+
+    @When("^(\\d+) more lines? (?:is|are) requested$")
+    fun requestMore(count: Long) {
+        subscribers.last().requestMore(count)
+    }
+
+    @When("^the log tail is unsubscribed after (\\d+) polls$")
+    fun unsubscribeAfterPolls(count: Int) {
+        awaitUntil { polls.get() >= count }
+        subscribers.last().unsubscribe()
+    }
+
+    @Then("^the polls in flight should reach (\\d+) and stay there$")
+    fun checkInFlight(expect: Int) {
+        awaitUntil { inFlight.get() >= expect }
+        Thread.sleep(200)
+
+        assertThat(inFlight.get()).isEqualTo(expect)
+        assertThat(maxInFlight.get()).isEqualTo(expect)
+    }
+
+    @Then("^every log tail should complete$")
+    fun checkCompleted() {
+        subscribers.forEach {
+            it.awaitTerminalEvent(timeoutMs, TimeUnit.MILLISECONDS)
+            it.assertNoErrors()
+            it.assertCompleted()
+        }
+    }
+
+    @Then("^the idle polls should be at least '(.+)' ms apart$")
+    fun checkIdleIntervals(intervals: String) {
+        val expect = intervals.split(",").map { it.trim().toLong() }
+        awaitUntil { pollNanos.size > expect.size }
+
+        val gapsMs = pollNanos.toList().zipWithNext { prev, next -> TimeUnit.NANOSECONDS.toMillis(next - prev) }
+        expect.forEachIndexed { i, minGapMs -> assertThat(gapsMs[i]).isGreaterThanOrEqualTo(minGapMs) }
+    }
+
+    @Then("^(\\d+) lines? should be received from as many polls$")
+    fun checkReceivedLines(count: Int) {
+        val subscriber = subscribers.last()
+        assertThat(subscriber.awaitValueCount(count, timeoutMs, TimeUnit.MILLISECONDS)).isTrue()
+
+        // No more is polled than requested
+        Thread.sleep(200)
+        assertThat(subscriber.valueCount).isEqualTo(count)
+        assertThat(polls.get()).isEqualTo(count)
+    }
+
+    @Then("^the log source should not be polled anymore$")
+    fun checkNoMorePolls() {
+        // A poll running when unsubscribed may still finish
+        Thread.sleep(50)
+        val count = polls.get()
+        Thread.sleep(300)
+
+        assertThat(polls.get()).isEqualTo(count)
+    }
+
+    @Then("^a slow subscriber of a log tail should not hold up the other log tails$")
+    fun checkSlowSubscriber() {
+        val slowSubscriber = object : TestSubscriber<String>() {
+            override fun onNext(t: String) {
+                released.await(timeoutMs, TimeUnit.MILLISECONDS)
+                super.onNext(t)
+            }
+        }
+        subscribe("cluster-a", lineSource("slow"), slowSubscriber)
+        val subscriber = subscribe("cluster-b", lineSource("other"))
+
+        subscriber.awaitTerminalEvent(timeoutMs, TimeUnit.MILLISECONDS)
+        subscriber.assertValue("other")
+        subscriber.assertCompleted()
+        assertThat(subscriber.lastSeenThread.name).doesNotStartWith("LogTailScheduler-")
+
+        released.countDown()
+        slowSubscriber.awaitTerminalEvent(timeoutMs, TimeUnit.MILLISECONDS)
+        slowSubscriber.assertValue("slow")
+        slowSubscriber.assertCompleted()
+    }
+
+    private fun lineSource(line: String) = LogTailSource<String> { emitter ->
+        emitter.call(line)
+
+        PollResult.FINISHED
+    }
+
+    private fun subscribe(cluster: String,
+                          source: LogTailSource<String>,
+                          subscriber: TestSubscriber<String> = TestSubscriber(),
+                          minIntervalMs: Long = LogTailScheduler.DEFAULT_MIN_INTERVAL_MS,
+                          maxIntervalMs: Long = LogTailScheduler.DEFAULT_MAX_INTERVAL_MS): TestSubscriber<String> {
+        subscribers.add(subscriber)
+        scheduler.tail(cluster, source, minIntervalMs, maxIntervalMs, null).subscribe(subscriber)
+
+        return subscriber
+    }
+
+    private fun awaitUntil(condition: () -> Boolean) {
+        val deadline = System.currentTimeMillis() + timeoutMs
+
+        while (!condition()) {
+            assertThat(System.currentTimeMillis()).describedAs("Timed out waiting").isLessThan(deadline)
+            Thread.sleep(10)
+        }
+    }
+}
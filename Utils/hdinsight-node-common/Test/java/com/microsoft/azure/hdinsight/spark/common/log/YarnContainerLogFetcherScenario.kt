@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common.log
+
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import org.assertj.core.api.Assertions.assertThat
+import java.io.FilterReader
+import java.io.StringReader
+
+class YarnContainerLogFetcherScenario {
+    /**
+     * A reader which counts the characters read
+     */
+    class CountingReader(content: String) : FilterReader(StringReader(content)) {
+        var count = 0L
+
+        override fun read(): Int = super.read().also { if (it != -1) count++ }
+
+        override fun read(cbuf: CharArray, off: Int, len: Int): Int =
+                super.read(cbuf, off, len).also { if (it > 0) count += it }
+    }
+
+    private var page = ""
+
+    @Given("^a YARN container log page$")
+    fun setPage(content: String) {
+        page = content
+    }
+
+    @Then("^the extracted '(.+)' log should be$")
+    fun checkExtractedLog(type: String, expect: String) {
+        assertThat(YarnContainerLogFetcher.extractLog(StringReader(page), type)).isEqualTo(expect)
+    }
+
+    @Then("^the extracted '(.+)' log should be empty$")
+    fun checkExtractedLogEmpty(type: String) {
+        assertThat(YarnContainerLogFetcher.extractLog(StringReader(page), type)).isEmpty()
+    }
+
+    @Then("^extracting the '(.+)' log should not read the page past '(.+)'$")
+    fun checkReadStops(type: String, marker: String) {
+        val reader = CountingReader(page)
+
+        YarnContainerLogFetcher.extractLog(reader, type)
+
+        assertThat(page).contains(marker)
+        assertThat(reader.count).isLessThanOrEqualTo(page.indexOf(marker).toLong())
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs
+
+import com.google.common.base.Ticker
+import com.microsoft.azure.hdinsight.common.task.TaskPriority
+import com.microsoft.azure.hdinsight.common.task.TaskScheduler
+import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail
+import cucumber.api.DataTable
+import cucumber.api.java.After
+import cucumber.api.java.en.Given
+import cucumber.api.java.en.Then
+import cucumber.api.java.en.When
+import org.assertj.core.api.Assertions.assertThat
+import org.mockito.Mockito.`when`
+import org.mockito.Mockito.mock
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+class JobViewCacheScenario {
+    private val timeoutMs = 5000L
+
+    private val nanos = AtomicLong()
+    private val ticker = object : Ticker() {
+        override fun read(): Long = nanos.get()
+    }
+
+    private val loadCount = AtomicInteger()
+    private var loadThreadName = ""
+    private var cache: JobViewCache<String>? = null
+    private var key: ApplicationKey? = null
+    private var lastVersion = 0L
+    private var storeRoot: File? = null
+
+    @After
+    fun cleanUp() {
+        System.clearProperty(JobViewCache.STORE_MAX_AGE_DAYS_PROPERTY)
+        System.clearProperty(JobViewCache.STORE_MAX_MEGABYTES_PROPERTY)
+        storeRoot?.deleteRecursively()
+    }
+
+    @Given("^a job view cache of a (running|finished) application loading '(.+)'$")
+    fun createCache(state: String, contents: String) {
+        val loads = contents.split(",").map { it.trim() }
+
+        key = createKey("http://cluster", "application_1")
+        cache = JobViewCache<String>("test", null, {
+            loadThreadName = Thread.currentThread().name
+            loads[minOf(loadCount.getAndIncrement(), loads.size - 1)]
+        }, { state == "finished" }, { _, _ -> true }, ticker)
+    }
+
+    @When("^the job view cache value is got$")
+    fun getValue() {
+        cache!!.get(key!!)
+        lastVersion = cache!!.getEntryIfPresent(key!!)!!.version
+    }
+
+    @When("^the job view cache is got again after (\\d+) seconds$")
+    fun getValueLater(seconds: Long) {
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds))
+        cache!!.get(key!!)
+    }
+
+    @When("^the job view cache is reloaded in the background lane$")
+    fun reload() {
+        val backgroundCount = TaskScheduler.getInstance().stats.getCompletedCount(TaskPriority.BACKGROUND)
+        val loaded = loadCount.get()
+        val stale = cache!!.getEntryIfPresent(key!!)
+
+        getValueLater(11)
+
+        awaitUntil { cache!!.getEntryIfPresent(key!!) !== stale }
+        assertThat(loadCount.get()).isEqualTo(loaded + 1)
+        assertThat(loadThreadName).startsWith("TaskScheduler-")
+        awaitUntil {
+            TaskScheduler.getInstance().stats.getCompletedCount(TaskPriority.BACKGROUND) > backgroundCount
+        }
+    }
+
+    @Then("^the job view cache value should be '(.+)' with the version (kept|changed)$")
+    fun checkValue(expect: String, versionChange: String) {
+        val entry = cache!!.getEntryIfPresent(key!!)!!
+
+        assertThat(entry.value).isEqualTo(expect)
+        if (versionChange == "kept") {
+            assertThat(entry.version).isEqualTo(lastVersion)
+        } else {
+            assertThat(entry.version).isNotEqualTo(lastVersion)
+        }
+
+        lastVersion = entry.version
+    }
+
+    @Then("^the job view cache should be loaded (\\d+) times?$")
+    fun checkLoadCount(expect: Int) {
+        // No reload is running behind
+        Thread.sleep(200)
+
+        assertThat(loadCount.get()).isEqualTo(expect)
+    }
+
+    @Given("^a job view cache store of the applications$")
+    fun createStore(apps: DataTable) {
+        storeRoot = Files.createTempDirectory("JobViewCache").toFile()
+
+        apps.asMaps(String::class.java, String::class.java).forEach {
+            val appDir = File(storeRoot, it["application"]!!)
+            appDir.mkdirs()
+            File(appDir, "jobs.json").writeBytes(ByteArray(it["size KB"]!!.toInt() * 1024))
+            appDir.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(it["days since read"]!!.toLong()))
+        }
+    }
+
+    @When("^the job view cache store is pruned to (\\d+) days and (\\d+) MB keeping '(.+)'$")
+    fun pruneStore(maxAgeDays: Int, maxMegabytes: Int, kept: String) {
+        System.setProperty(JobViewCache.STORE_MAX_AGE_DAYS_PROPERTY, maxAgeDays.toString())
+        System.setProperty(JobViewCache.STORE_MAX_MEGABYTES_PROPERTY, maxMegabytes.toString())
+
+        JobViewCache<String>("test", null, { "" }, { true }, { _, _ -> true }).pruneStore(storeRoot!!, File(storeRoot, kept))
+    }
+
+    @Then("^the job view cache store should have the applications '(.+)'$")
+    fun checkStore(expect: String) {
+        val apps = storeRoot!!.listFiles()!!
+                .flatMap { clusterDir -> clusterDir.listFiles()!!.map { "${clusterDir.name}/${it.name}" } }
+
+        assertThat(apps).containsExactlyInAnyOrderElementsOf(expect.split(",").map { it.trim() })
+    }
+
+    @Then("^the job view cache store should have the clusters '(.+)'$")
+    fun checkStoreClusters(expect: String) {
+        assertThat(storeRoot!!.list()!!.toList()).containsExactlyInAnyOrderElementsOf(expect.split(",").map { it.trim() })
+    }
+
+    @Then("^the application keys of '([^']+)' '([^']+)' and '([^']+)' '([^']+)' should (be|not be) equal$")
+    fun checkKeysEqual(cluster: String, appId: String, otherCluster: String, otherAppId: String, equality: String) {
+        val one = createKey(cluster, appId)
+        val other = createKey(otherCluster, otherAppId)
+
+        if (equality == "be") {
+            assertThat(one).isEqualTo(other)
+            assertThat(one.hashCode()).isEqualTo(other.hashCode())
+        } else {
+            assertThat(one).isNotEqualTo(other)
+        }
+    }
+
+    private fun createKey(connectionUrl: String, appId: String): ApplicationKey {
+        val cluster = mock(IClusterDetail::class.java)
+        `when`(cluster.name).thenReturn("cluster")
+        `when`(cluster.connectionUrl).thenReturn(connectionUrl)
+
+        return ApplicationKey(cluster, appId)
+    }
+
+    private fun awaitUntil(condition: () -> Boolean) {
+        val deadline = System.currentTimeMillis() + timeoutMs
+
+        while (!condition()) {
+            assertThat(System.currentTimeMillis()).describedAs("Timed out waiting").isLessThan(deadline)
+            Thread.sleep(10)
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azure.hdinsight.spark.jobs
+
+import com.github.tomakehurst.wiremock.client.WireMock
+import com.github.tomakehurst.wiremock.client.WireMock.aResponse
+import com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor
+import com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo
+import com.github.tomakehurst.wiremock.client.WireMock.urlMatching
+import com.microsoft.azure.hdinsight.common.JobViewManager
+import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail
+import com.microsoft.azure.hdinsight.spark.common.MockHttpService
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.After
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito.`when`
+import org.mockito.Mockito.mock
+import java.net.HttpURLConnection
+import java.net.URL
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.zip.GZIPInputStream
+
+/**
+ * The load test of the job view server, with many job view tabs polling at the same time. It isn't run with the unit
+ * tests, enable it by the system property jobView.loadTest=true.
+ *
+ * The real job view server and handlers serve the stage summaries and the Yarn applications of a mock cluster, whose
+ * REST API answers with a simulated latency and the same content on every reload. Each tab polls its application as
+ * the job view page does, with the browser's Accept-Encoding and If-None-Match headers.
+ *
+ * The tab count, the polls per tab, the poll interval and the REST latency can be set by the system properties
+ * jobView.loadTest.tabs (50), jobView.loadTest.polls (40), jobView.loadTest.intervalMs (250) and
+ * jobView.loadTest.latencyMs (300).
+ */
+class JobViewHttpServerLoadTest {
+    companion object {
+        private const val CLUSTER_NAME = "loadTestCluster"
+        private const val APPS = 10
+        private const val STAGES_PER_APP = 200
+        // The job view caches reload a running application every 10 seconds
+        private const val REFRESH_MS = 10_000L
+    }
+
+    private val tabs = Integer.getInteger("jobView.loadTest.tabs", 50)
+    private val pollsPerTab = Integer.getInteger("jobView.loadTest.polls", 40)
+    private val pollIntervalMs = java.lang.Long.getLong("jobView.loadTest.intervalMs", 250)
+    private val restLatencyMs = Integer.getInteger("jobView.loadTest.latencyMs", 300)
+
+    private var httpServerMock: MockHttpService? = null
+
+    @Before
+    fun setUp() {
+        assumeTrue("The job view load test is enabled by -DjobView.loadTest=true",
+                   java.lang.Boolean.getBoolean("jobView.loadTest"))
+
+        httpServerMock = MockHttpService()
+        WireMock.configureFor(httpServerMock!!.port)
+
+        val apps = (0 until APPS).joinToString(",", "[", "]") {
+            """{"id":"application_$it","name":"load$it","attempts":[{"attemptId":"1","sparkUser":"spark"}]}"""
+        }
+        stubRest("/sparkhistory/api/v1/applications/", apps)
+
+        (0 until APPS).forEach { app ->
+            val stages = (0 until STAGES_PER_APP).joinToString(",", "[", "]") {
+                """{"status":"COMPLETE","stageId":$it,"attemptId":0,"numCompleteTasks":200,"name":"count at <console>:24"}"""
+            }
+            stubRest("/sparkhistory/api/v1/applications/application_$app/1/stages", stages)
+            stubRest("/yarnui/ws/v1/cluster/apps/application_$app",
+                     """{"app":{"id":"application_$app","name":"load$app","state":"RUNNING","finalStatus":"UNDEFINED","logAggregationStatus":"NOT_START"}}""")
+        }
+
+        val cluster = mock(IClusterDetail::class.java)
+        `when`(cluster.name).thenReturn(CLUSTER_NAME)
+        `when`(cluster.connectionUrl).thenReturn("http://localhost:${httpServerMock!!.port}")
+        `when`(cluster.httpUserName).thenReturn("admin")
+        `when`(cluster.httpPassword).thenReturn("password")
+        JobViewManager.registerJovViewNode(CLUSTER_NAME, cluster)
+
+        JobViewHttpServer.initialize()
+    }
+
+    @After
+    fun tearDown() {
+        if (httpServerMock == null) {
+            return
+        }
+
+        JobViewHttpServer.close()
+        JobViewManager.unRegisterJobView(CLUSTER_NAME)
+        httpServerMock!!.livyServerMock.stop()
+    }
+
+    @Test
+    fun pollJobViewsConcurrently() {
+        val statusCounts = ConcurrentHashMap<Int, AtomicLong>()
+        val plainStages = AtomicLong()
+        val latenciesMs = Collections.synchronizedList(mutableListOf<Long>())
+        val errors = Collections.synchronizedList(mutableListOf<Throwable>())
+        val done = CountDownLatch(tabs)
+        val start = System.nanoTime()
+
+        (0 until tabs).forEach { tab ->
+            Thread {
+                val query = "?cluster-name=$CLUSTER_NAME&appId=application_${tab % APPS}"
+                val etags = mutableMapOf<String, String>()
+
+                try {
+                    repeat(pollsPerTab) {
+                        poll("/applications/stages_summary$query&http-type=spark", etags) { status, conn ->
+                            if (status == 200 && conn.contentEncoding != "gzip") {
+                                plainStages.incrementAndGet()
+                            }
+                            statusCounts.computeIfAbsent(status) { AtomicLong() }.incrementAndGet()
+                        }.let { latenciesMs.add(it) }
+
+                        poll("/apps/app$query&http-type=yarn", etags) { status, _ ->
+                            statusCounts.computeIfAbsent(status) { AtomicLong() }.incrementAndGet()
+                        }.let { latenciesMs.add(it) }
+
+                        Thread.sleep(pollIntervalMs)
+                    }
+                } catch (ex: Throwable) {
+                    errors.add(ex)
+                } finally {
+                    done.countDown()
+                }
+            }.start()
+        }
+
+        assertThat(done.await(10, TimeUnit.MINUTES)).isTrue()
+        val elapsedMs = (System.nanoTime() - start) / 1_000_000
+        val stagesLoads = WireMock.findAll(getRequestedFor(urlMatching(".*/stages"))).size
+        val yarnAppLoads = WireMock.findAll(getRequestedFor(urlMatching("/yarnui/ws/v1/cluster/apps/.*"))).size
+        val requests = statusCounts.values.map { it.get() }.sum()
+        val notModified = statusCounts[304]?.get() ?: 0
+        val sorted = latenciesMs.sorted()
+
+        println(String.format("%d tabs x %d polls in %d ms: statuses %s, %d stages and %d Yarn app remote loads, " +
+                              "latency p50 %d ms, p99 %d ms, max %d ms",
+                tabs, pollsPerTab, elapsedMs, statusCounts, stagesLoads, yarnAppLoads,
+                sorted[sorted.size / 2], sorted[sorted.size * 99 / 100], sorted.last()))
+
+        assertThat(errors).isEmpty()
+        assertThat(requests).isEqualTo(2L * tabs * pollsPerTab)
+        assertThat(statusCounts.keys).containsOnly(200, 304)
+
+        // Only the first poll of a tab gets the body, the reloads with the same content keep the ETag
+        assertThat(notModified.toDouble() / requests).isGreaterThanOrEqualTo((pollsPerTab - 1.0) / pollsPerTab - 0.01)
+
+        // The stage summaries of 200 stages are big enough to be compressed
+        assertThat(plainStages.get()).isZero()
+
+        // Each application is loaded once and reloaded at most once a refresh period, however many tabs poll it
+        val maxLoadsPerApp = 2 + elapsedMs / REFRESH_MS
+        assertThat(stagesLoads.toLong()).isBetween(APPS.toLong(), APPS * maxLoadsPerApp)
+        assertThat(yarnAppLoads.toLong()).isBetween(APPS.toLong(), APPS * maxLoadsPerApp)
+    }
+
+    private fun stubRest(path: String, body: String) {
+        WireMock.stubFor(WireMock.get(urlEqualTo(path))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withFixedDelay(restLatencyMs)
+                        .withBody(body)))
+    }
+
+    /**
+     * Poll the job view server as the job view page, keeping the ETag got by the path
+     *
+     * @return the latency in ms
+     */
+    private fun poll(pathAndQuery: String,
+                     etags: MutableMap<String, String>,
+                     onResponse: (Int, HttpURLConnection) -> Unit): Long {
+        val path = pathAndQuery.substringBefore('?')
+        val conn = URL("http://localhost:${JobViewHttpServer.getPort()}$pathAndQuery").openConnection()
+                as HttpURLConnection
+        conn.setRequestProperty("Accept-Encoding", "gzip")
+        etags[path]?.let { conn.setRequestProperty("If-None-Match", it) }
+
+        val requestStart = System.nanoTime()
+        try {
+            val status = conn.responseCode
+            if (status == 200) {
+                conn.getHeaderField("ETag")?.let { etags[path] = it }
+                val body = if (conn.contentEncoding == "gzip") GZIPInputStream(conn.inputStream) else conn.inputStream
+                body.use { it.readBytes() }
+            }
+            onResponse(status, conn)
+        } finally {
+            conn.disconnect()
+        }
+
+        return (System.nanoTime() - requestStart) / 1_000_000
+    }
+}
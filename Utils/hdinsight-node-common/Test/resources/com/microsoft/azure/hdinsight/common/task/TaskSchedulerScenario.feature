@@ -0,0 +1,16 @@
+Feature: TaskScheduler tests
+
+  Scenario: The tasks of a cluster are bounded in concurrency
+    Given submit 10 tasks of cluster 'bounded' with dedup keys '' owned by 'view1'
+    Then at most 4 tasks are running after 200ms
+    Then release the tasks, 10 of them are run and 0 futures are cancelled
+
+  Scenario: The identical tasks in flight run once
+    Given submit 5 tasks of cluster 'dedup' with dedup keys 'same' owned by 'view2'
+    Then release the tasks, 1 of them are run and 0 futures are cancelled
+
+  Scenario: Cancelling a view keeps the shared task for other views
+    Given submit 1 tasks of cluster 'shared' with dedup keys 'shared' owned by 'view3'
+    Given submit 1 tasks of cluster 'shared' with dedup keys 'shared' owned by 'view4'
+    Then cancel the tasks owned by 'view3'
+    Then release the tasks, 1 of them are run and 1 futures are cancelled
@@ -45,6 +45,36 @@ Feature: Livy Interactive Session Tests
     Then check Spark interactive session statement run result stdout should be
       | Hello World! |
 
+  Scenario: Session.submitCodes() IT positive case with mocked http server
+    Given setup a mock livy interactive service for POST request '/sessions' to return '{"id":6,"appId":null,"owner":null,"proxyUser":null,"state":"starting","kind":"spark","appInfo":{"driverLogUrl":null,"sparkUiUrl":null},"log":[]}' with status code 200
+    And setup a mock livy interactive service for GET request '/sessions/6' to return '{"id":6,"appId":"application_1517029729598_0086","owner":null,"proxyUser":null,"state":"idle","kind":"spark","appInfo":{"driverLogUrl":"https://zhwe-spkdbg.azurehdinsight.net/yarnui/10.0.0.8/node/containerlogs/container_e04_1517029729598_0086_01_000001/livy","sparkUiUrl":"https://zhwe-spkdbg.azurehdinsight.net/yarnui/hn/proxy/application_1517029729598_0086/"},"log":[]}' with status code 200
+    And create a livy Spark interactive session instance with name 'testSparkREPL'
+    And create the Spark interactive session, and save the response
+    Then check the returned livy interactive session after creating should be
+      | id        | 6 |
+    Given setup a mock livy interactive service for POST request '/sessions/6/statements' to return '{"id":0,"state":"waiting","output":null}' with status code 200
+    And setup a mock livy interactive service for GET request '/sessions/6/statements/0' to return '{"id":0,"state":"available","output":{"status":"ok","execution_count":0,"data":{"text/plain":"Hello World!"}}}' with status code 200
+    And submit the following codes in livy Spark interactive session 6 times
+      | println("Hello World!") |
+    Then check Spark interactive session statement run result stdout should be
+      | Hello World! |
+
+  Scenario: SessionPool.lease() takes over the warm session released with mocked http server
+    Given setup a mock livy interactive service for POST request '/sessions' to return '{"id":6,"appId":null,"owner":null,"proxyUser":null,"state":"starting","kind":"spark","appInfo":{"driverLogUrl":null,"sparkUiUrl":null},"log":[]}' with status code 200
+    And setup a mock livy interactive service for GET request '/sessions/6' to return '{"id":6,"appId":"application_1517029729598_0086","owner":null,"proxyUser":null,"state":"idle","kind":"spark","appInfo":{"driverLogUrl":"https://zhwe-spkdbg.azurehdinsight.net/yarnui/10.0.0.8/node/containerlogs/container_e04_1517029729598_0086_01_000001/livy","sparkUiUrl":"https://zhwe-spkdbg.azurehdinsight.net/yarnui/hn/proxy/application_1517029729598_0086/"},"log":[]}' with status code 200
+    And setup a mock livy interactive service for POST request '/sessions/6/statements' to return '{"id":0,"state":"waiting","output":null}' with status code 200
+    And setup a mock livy interactive service for GET request '/sessions/6/statements/0' to return '{"id":0,"state":"available","output":{"status":"ok","execution_count":0,"data":{"text/plain":"res0: Int = 1"}}}' with status code 200
+    And create a livy session pool with warm size 1
+    And lease a livy Spark interactive session with name 'testHelper1' from the pool and wait for it ready
+    Then check the livy session pool has 1 leases, 0 warm hits and 0 idle sessions
+    And release the livy Spark interactive session to the pool
+    Then check the livy session pool has 1 leases, 0 warm hits and 1 idle sessions
+    And lease a livy Spark interactive session with name 'testHelper2' from the pool and wait for it ready
+    Then check the returned livy interactive session after creating should be
+      | id        | 6 |
+    Then check the livy session pool has 2 leases, 1 warm hits and 0 idle sessions
+    Then check the create session request sent to '/sessions' 1 time
+
   Scenario: Session.create() UA with random UUID IT positive case with mocked http server
     Given setup a mock livy interactive service for POST request '/sessions' to return '{"id":6,"appId":null,"owner":null,"proxyUser":null,"state":"starting","kind":"spark","appInfo":{"driverLogUrl":null,"sparkUiUrl":null},"log":[]}' with status code 200
     And create a livy Spark interactive session instance with name 'testSparkREPL1'
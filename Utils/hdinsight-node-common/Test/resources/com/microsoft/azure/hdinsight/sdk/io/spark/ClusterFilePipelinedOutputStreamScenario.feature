@@ -0,0 +1,9 @@
+Feature: ClusterFilePipelinedOutputStream tests
+
+  Scenario: Unit tests with mocked Livy session
+    Given create a mocked Livy session for ClusterFilePipelinedOutputStream
+    And create a Spark cluster file pipelined output stream '/tmp/test.jar' with page size 1KB, 2 pages per statement and 2 statements in flight
+    Then uploading 3072 text bytes and 2500 random bytes
+    Then check 5 statements are sent to Livy session
+    Then check the preloaded statement writes to '/tmp/test.jar'
+    Then check the pages decoded from the statements are the bytes uploaded, 3 of them deflated
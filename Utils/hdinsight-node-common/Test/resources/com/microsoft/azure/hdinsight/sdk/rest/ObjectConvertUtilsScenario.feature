@@ -0,0 +1,50 @@
+Feature: ObjectConvertUtils tests
+
+  Scenario Outline: Convert the HTTP entity to an object with the cached reader of the type
+    Given an HTTP entity of content type '<contentType>' with content '<content>'
+    When convert the HTTP entity to an object 3 times
+    Then the HTTP entity should be converted to '<object>'
+    And the HTTP entity content should be closed
+
+    Examples:
+      | contentType                          | content                             | object         |
+      | application/json                     | {"id":1,"name":"a"}                 | {id=1, name=a} |
+      | Application/JSON; charset=UTF-8      | {"id":1,"name":"a"}                 | {id=1, name=a} |
+      | application/json; charset=ISO-8859-1 | {"id":1,"name":"é"}                 | {id=1, name=é} |
+      | application/xml; charset=UTF-8       | <app><id>1</id><name>a</name></app> | {id=1, name=a} |
+      | text/html                            | <html></html>                       | empty          |
+
+  Scenario: Convert the HTTP entity to a list with the cached reader of the type
+    Given an HTTP entity of content type 'application/json' with content '["a","b","c"]'
+    When convert the HTTP entity to a list of strings
+    Then the HTTP entity should be converted to 'a,b,c'
+    And the HTTP entity content should be closed
+
+  Scenario: Convert the HTTP entity without content
+    Given an HTTP entity without content as of 204 No Content
+    When convert the HTTP entity to an object 1 times
+    Then the HTTP entity should be converted to 'empty'
+
+  Scenario Outline: Stream the JSON array entity
+    Given an HTTP entity of content type '<contentType>' with content '<content>'
+    When stream the HTTP entity as strings
+    Then the HTTP entity should be streamed to '<strings>'
+    And the HTTP entity content should be closed
+
+    Examples:
+      | contentType                     | content       | strings |
+      | application/json                | ["a","b","c"] | a,b,c   |
+      | application/json; charset=UTF-8 | []            |         |
+      | text/plain                      | a,b,c         |         |
+      | text/html                       | <html></html> |         |
+
+  Scenario: Stream the HTTP entity without content
+    Given an HTTP entity without content as of 204 No Content
+    When stream the HTTP entity as strings
+    Then the HTTP entity should be streamed to ''
+
+  Scenario: Stop streaming the JSON array entity early
+    Given an HTTP entity of content type 'application/json' with content '["a","b","c"]'
+    When stream the first 1 strings of the HTTP entity
+    Then the HTTP entity should be streamed to 'a'
+    And the HTTP entity content should be closed
@@ -0,0 +1,33 @@
+Feature: SparkEventLogReader tests
+
+  Background:
+    Given a Spark event log
+      """
+      {"Event":"SparkListenerLogStart","Spark Version":"2.3.0"}
+      {"Event":"SparkListenerJobStart","Job ID":0,"Submission Time":1526889130470,"Stage Infos":[{"Stage ID":0,"Stage Attempt ID":0,"Stage Name":"count at <console>:24","Number of Tasks":2,"RDD Info":[],"Parent IDs":[],"Details":"","Accumulables":[]}],"Stage IDs":[0],"Properties":{"spark.rdd.scope.noOverride":"true"}}
+      {"Event":"SparkListenerTaskEnd","Stage ID":0,"Stage Attempt ID":0,"Task Type":"ResultTask","Task End Reason":{"Reason":"Success"},"Task Info":{"Task ID":0,"Index":0,"Attempt":0,"Launch Time":1526889130520,"Executor ID":"1","Host":"wn0","Locality":"PROCESS_LOCAL","Speculative":false,"Getting Result Time":0,"Finish Time":1526889131244,"Failed":false,"Killed":false,"Accumulables":[]},"Task Metrics":{"Executor Run Time":612}}
+      {"Event":"SparkListenerTaskEnd","Stage ID":0,"Stage Attempt ID":0,"Task Type":"ResultTask","Task End Reason":{"Reason":"ExceptionFailure","Class Name":"java.lang.RuntimeException"},"Task Info":{"Task ID":1,"Index":1,"Attempt":0,"Failed":true,"Killed":false}}
+      {"Event":"SparkListenerStageCompleted","Stage Info":{"Stage ID":0,"Stage Attempt ID":0,"Stage Name":"count at <console>:24","Number of Tasks":2,"RDD Info":[],"Parent IDs":[],"Details":"","Submission Time":1526889130480,"Completion Time":1526889131250,"Accumulables":[{"ID":1,"Name":"internal.metrics.executorRunTime","Value":612}]}}
+      {"Event":"SparkListenerJobEnd","Job ID":0,"Completion Time":1526889131260,"Job Result":{"Result":"JobSucceeded"}}
+      {"Event" : "sparklistenerjobstart", "Job ID":1,"Stage IDs":[1]}
+      {"Event":"SparkListenerJobStart","Job ID":
+      {"Event":"SparkListenerJobStart","Job ID":2,"Stage IDs":[2]}
+      """
+
+  Scenario: Read the Spark event log in one slice
+    When read the Spark event log in slices of 65536 bytes
+    Then the Spark event log reader should read 9 lines and parse 6 events
+    And the job start events should be of job IDs '0,1,2'
+    And the stage completed events should be of stage IDs '0'
+    And the task end events should be of task IDs '0,1' with reasons 'Success,ExceptionFailure'
+
+  Scenario: Read the Spark event log split in the middle of event tokens
+    When read the Spark event log in slices of 3 bytes
+    Then the Spark event log reader should read 9 lines and parse 6 events
+    And the job start events should be of job IDs '0,1,2'
+    And the stage completed events should be of stage IDs '0'
+    And the task end events should be of task IDs '0,1' with reasons 'Success,ExceptionFailure'
+
+  Scenario: Read the events of the job view, only the failed task ends are kept
+    When read the Spark event log for the job view
+    Then the job view events should be of job IDs '0,1,2', completed stage IDs '0' and failed task IDs '1'
@@ -0,0 +1,57 @@
+Feature: ADLS Gen2 file system operation
+
+  Scenario: Upload an artifact in parallel chunks and flush once at the total length
+    Given setup a mock ADLS Gen2 service accepting appends and flush for file '/fs/SparkSubmission/test.jar'
+    And create a local artifact with 10000 bytes
+    Then upload the artifact to '/fs/SparkSubmission/test.jar' in 4096 bytes chunks with parallelism 2
+    Then check the mock ADLS Gen2 service received appends of file '/fs/SparkSubmission/test.jar' at positions
+      | 0    |
+      | 4096 |
+      | 8192 |
+    Then check the mock ADLS Gen2 service received the artifact content for file '/fs/SparkSubmission/test.jar'
+    Then check the mock ADLS Gen2 service received one flush of file '/fs/SparkSubmission/test.jar' at position 10000
+
+  Scenario: Retry only the failed chunk
+    Given setup a mock ADLS Gen2 service accepting appends and flush for file '/fs/SparkSubmission/retry.jar'
+    And the mock ADLS Gen2 service fails the append of file '/fs/SparkSubmission/retry.jar' at position 4096 for 2 times
+    And create a local artifact with 10000 bytes
+    Then upload the artifact to '/fs/SparkSubmission/retry.jar' in 4096 bytes chunks with parallelism 3
+    Then check the mock ADLS Gen2 service received 3 appends of file '/fs/SparkSubmission/retry.jar' at position 4096
+    Then check the mock ADLS Gen2 service received 1 append of file '/fs/SparkSubmission/retry.jar' at position 0
+    Then check the mock ADLS Gen2 service received the artifact content for file '/fs/SparkSubmission/retry.jar'
+    Then check the mock ADLS Gen2 service received one flush of file '/fs/SparkSubmission/retry.jar' at position 10000
+
+  Scenario: Retry the throttled chunk
+    Given setup a mock ADLS Gen2 service accepting appends and flush for file '/fs/SparkSubmission/throttled.jar'
+    And the mock ADLS Gen2 service fails the append of file '/fs/SparkSubmission/throttled.jar' at position 0 for 1 times with status 429
+    And create a local artifact with 5000 bytes
+    Then upload the artifact to '/fs/SparkSubmission/throttled.jar' in 4096 bytes chunks with parallelism 2
+    Then check the mock ADLS Gen2 service received 2 appends of file '/fs/SparkSubmission/throttled.jar' at position 0
+    Then check the mock ADLS Gen2 service received the artifact content for file '/fs/SparkSubmission/throttled.jar'
+    Then check the mock ADLS Gen2 service received one flush of file '/fs/SparkSubmission/throttled.jar' at position 5000
+
+  Scenario: Not retry the chunk failed with a client error
+    Given setup a mock ADLS Gen2 service accepting appends and flush for file '/fs/SparkSubmission/forbidden.jar'
+    And the mock ADLS Gen2 service fails the append of file '/fs/SparkSubmission/forbidden.jar' at position 4096 for 1 times with status 403
+    And create a local artifact with 5000 bytes
+    Then upload the artifact to '/fs/SparkSubmission/forbidden.jar' in 4096 bytes chunks with parallelism 1 and fail with status 403
+    Then check the mock ADLS Gen2 service received 1 append of file '/fs/SparkSubmission/forbidden.jar' at position 4096
+    Then check the mock ADLS Gen2 service received no flush of file '/fs/SparkSubmission/forbidden.jar'
+
+  Scenario: Give up the chunk failed more than the retries
+    Given setup a mock ADLS Gen2 service accepting appends and flush for file '/fs/SparkSubmission/unavailable.jar'
+    And the mock ADLS Gen2 service fails the append of file '/fs/SparkSubmission/unavailable.jar' at position 0 for 4 times with status 503
+    And create a local artifact with 1000 bytes
+    Then upload the artifact to '/fs/SparkSubmission/unavailable.jar' in 4096 bytes chunks with parallelism 1 and fail with status 503
+    Then check the mock ADLS Gen2 service received 4 appends of file '/fs/SparkSubmission/unavailable.jar' at position 0
+    Then check the mock ADLS Gen2 service received no flush of file '/fs/SparkSubmission/unavailable.jar'
+
+  Scenario: List a directory of more entries than a page by following the continuation
+    Given setup a mock ADLS Gen2 file system '/fs' listing directory 'sub/big' of 7 entries in pages of 3
+    Then list the directory 'sub/big' of file system '/fs' and get 7 entries in order
+    Then check the mock ADLS Gen2 service received 3 list requests of file system '/fs'
+
+  Scenario: List a directory of one page
+    Given setup a mock ADLS Gen2 file system '/fs2' listing directory 'small' of 2 entries in pages of 5
+    Then list the directory 'small' of file system '/fs2' and get 2 entries in order
+    Then check the mock ADLS Gen2 service received 1 list request of file system '/fs2'
@@ -0,0 +1,47 @@
+Feature: ArtifactDedupDeploy tests
+
+  Scenario: An unchanged artifact is deployed once
+    Given an artifact with content 'println("Hello")'
+    And deploy the artifact with deduplication
+    And deploy the artifact with deduplication
+    Then the artifact should be uploaded 1 times
+    And the last two deployments should return the same path
+
+  Scenario: A changed artifact is deployed again
+    Given an artifact with content 'println("Hello")'
+    And deploy the artifact with deduplication
+    And an artifact with content 'println("World")'
+    And deploy the artifact with deduplication
+    Then the artifact should be uploaded 2 times
+    And the last two deployments should return different paths
+
+  Scenario: An overwritten deployed artifact is deployed again
+    Given an artifact with content 'println("Hello")'
+    And deploy the artifact with deduplication
+    And the deployed artifact is overwritten with 3 bytes
+    And deploy the artifact with deduplication
+    Then the artifact should be uploaded 2 times
+    And the last two deployments should return different paths
+    And deploy the artifact with deduplication
+    Then the artifact should be uploaded 2 times
+    And the last two deployments should return the same path
+
+  Scenario: A deleted deployed artifact is deployed again
+    Given an artifact with content 'println("Hello")'
+    And deploy the artifact with deduplication
+    And the deployed artifact is deleted
+    And deploy the artifact with deduplication
+    Then the artifact should be uploaded 2 times
+    And the last two deployments should return different paths
+
+  Scenario: The file length is read from the GETFILESTATUS response
+    Then the file length of GETFILESTATUS response '{"FileStatus":{"length":1024,"type":"FILE"}}' should be 1024
+    Then the file length of GETFILESTATUS response '{"RemoteException":{"exception":"FileNotFoundException"}}' should be -1
+    Then the file length of GETFILESTATUS response 'not json' should be -1
+
+  Scenario: WebHDFS checks the length of the deployed artifact
+    Given mock a http service in ArtifactDedupDeployScenario for GET request '/webhdfs/v1/SparkSubmission/a.jar?op=GETFILESTATUS' to return '{"FileStatus":{"length":16,"type":"FILE"}}' with status code 200
+    And mock a http service in ArtifactDedupDeployScenario for GET request '/webhdfs/v1/SparkSubmission/b.jar?op=GETFILESTATUS' to return '{"RemoteException":{"exception":"FileNotFoundException"}}' with status code 404
+    Then WebHDFS should check '/webhdfs/v1/SparkSubmission/a.jar?op=OPEN' of 16 bytes as deployed
+    And WebHDFS should check '/webhdfs/v1/SparkSubmission/a.jar?op=OPEN' of 15 bytes as not deployed
+    And WebHDFS should check '/webhdfs/v1/SparkSubmission/b.jar?op=OPEN' of 16 bytes as not deployed
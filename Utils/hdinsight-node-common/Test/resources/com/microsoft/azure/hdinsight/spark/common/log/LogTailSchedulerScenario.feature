@@ -0,0 +1,29 @@
+Feature: LogTailScheduler tests
+
+  Scenario: The polls in flight to one cluster are capped
+    Given a log tail scheduler of 4 poll threads and 2 polls in flight per cluster
+    When tailing 3 blocking log sources of the cluster 'cluster-a'
+    Then the polls in flight should reach 2 and stay there
+    When tailing 1 blocking log source of the cluster 'cluster-b'
+    Then the polls in flight should reach 3 and stay there
+    When the blocked polls are released
+    Then every log tail should complete
+
+  Scenario: An idle log source is polled less and less often
+    When tailing an idle log source polled every 50 to 200 ms
+    Then the idle polls should be at least '50,100,200,200' ms apart
+
+  Scenario: A log source is polled only for the lines requested
+    When tailing a log source of a line every poll with 3 lines requested
+    Then 3 lines should be received from as many polls
+    When 2 more lines are requested
+    Then 5 lines should be received from as many polls
+
+  Scenario: A log source is not polled after the tail is unsubscribed
+    When tailing an idle log source polled every 10 to 10 ms
+    And the log tail is unsubscribed after 3 polls
+    Then the log source should not be polled anymore
+
+  Scenario: The log is delivered off the poll threads
+    Given a log tail scheduler of 1 poll thread and 2 polls in flight per cluster
+    Then a slow subscriber of a log tail should not hold up the other log tails
@@ -0,0 +1,73 @@
+Feature: YarnContainerLogFetcher tests
+
+  Background:
+    Given a YARN container log page
+      """
+      <!DOCTYPE html>
+      <html>
+      <head>
+      <script type="text/javascript">var s = "<pre>not a log</pre>";</script>
+      <style>p > pre { color: red; }</style>
+      </head>
+      <body>
+      <!-- <p>Log Type: stdout</p><pre>commented out</pre> -->
+      <p>Log Type: directory.info</p>
+      <p>Log Upload Time: Tue Oct 13 10:00:00 +0000 2026</p>
+      <p>Log Length: 13</p>
+      <pre>ls -l
+      total 0</pre>
+      <p class="log-type">Log Type: stderr</p>
+      <p>Log Length: 67</p>
+      <pre>Exception in thread "main" java.lang.IllegalStateException: &lt;init&gt; &amp; failed</pre>
+      <p>Log Type: stdout</p>
+      <p>Log Length: 13</p>
+      <pre>Hello, World!</pre>
+      </body>
+      </html>
+      """
+
+  Scenario: The log of each type is extracted from the history server page
+    Then the extracted 'directory.info' log should be
+      """
+      ls -l
+      total 0
+      """
+    And the extracted 'stderr' log should be
+      """
+      Exception in thread "main" java.lang.IllegalStateException: <init> & failed
+      """
+    And the extracted 'stdout' log should be
+      """
+      Hello, World!
+      """
+
+  Scenario: The last log is extracted for a type not in the page
+    Then the extracted 'syslog' log should be
+      """
+      Hello, World!
+      """
+
+  Scenario: The page is read till the log of the type only
+    Then extracting the 'stderr' log should not read the page past '<p>Log Type: stdout</p>'
+
+  Scenario: The only log of a running container is extracted for any type
+    Given a YARN container log page
+      """
+      <html><body>
+      <table><tr><td>Showing 4096 bytes.</td></tr></table>
+      <pre>20/10/13 10:00:00 INFO SparkContext: Running Spark version 2.4.0
+      20/10/13 10:00:01 INFO Executor: Starting executor ID 1</pre>
+      </body></html>
+      """
+    Then the extracted 'stderr' log should be
+      """
+      20/10/13 10:00:00 INFO SparkContext: Running Spark version 2.4.0
+      20/10/13 10:00:01 INFO Executor: Starting executor ID 1
+      """
+
+  Scenario: No log is extracted from a page without logs
+    Given a YARN container log page
+      """
+      <html><body><p>No logs available for container container_1_0001_01_000001</p></body></html>
+      """
+    Then the extracted 'stdout' log should be empty
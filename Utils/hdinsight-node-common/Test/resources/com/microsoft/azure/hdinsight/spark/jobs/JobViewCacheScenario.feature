@@ -0,0 +1,47 @@
+Feature: JobViewCache tests
+
+  Scenario: A running application is reloaded in the background, keeping the version of the same content
+    Given a job view cache of a running application loading 'same,same,changed'
+    When the job view cache value is got
+    And the job view cache is reloaded in the background lane
+    Then the job view cache value should be 'same' with the version kept
+    When the job view cache is reloaded in the background lane
+    Then the job view cache value should be 'changed' with the version changed
+    And the job view cache should be loaded 3 times
+
+  Scenario: A finished application isn't reloaded
+    Given a job view cache of a finished application loading 'finished,changed'
+    When the job view cache value is got
+    And the job view cache is got again after 11 seconds
+    Then the job view cache value should be 'finished' with the version kept
+    And the job view cache should be loaded 1 time
+
+  Scenario: The saved applications not read for long or over the size are deleted
+    Given a job view cache store of the applications
+      | application   | size KB | days since read |
+      | cluster1/app1 | 1       | 40              |
+      | cluster1/app2 | 600     | 0               |
+      | cluster2/app3 | 600     | 1               |
+      | cluster2/app4 | 1       | 50              |
+      | cluster3/app5 | 1       | 2               |
+      | cluster3/app6 | 1       | 31              |
+    When the job view cache store is pruned to 30 days and 1 MB keeping 'cluster2/app4'
+    Then the job view cache store should have the applications 'cluster1/app2,cluster2/app4,cluster3/app5'
+
+  Scenario: The cluster folder is deleted with its last saved application
+    Given a job view cache store of the applications
+      | application   | size KB | days since read |
+      | cluster1/app1 | 1       | 1               |
+      | cluster2/app2 | 1       | 40              |
+    When the job view cache store is pruned to 30 days and 1 MB keeping 'cluster1/app1'
+    Then the job view cache store should have the clusters 'cluster1'
+
+  Scenario Outline: Application keys are equal by the cluster and the application ID, ignoring the case
+    Then the application keys of '<cluster>' '<appId>' and '<otherCluster>' '<otherAppId>' should <equality> equal
+
+    Examples:
+      | cluster   | appId         | otherCluster | otherAppId    | equality |
+      | http://c1 | application_1 | HTTP://C1    | APPLICATION_1 | be       |
+      | http://c1 | application_1 | http://c1    | application_2 | not be   |
+      | http://c1 | application_1 | http://c2    | application_1 | not be   |
+      | http://c1 | http://c1     | http://c1    | application_2 | not be   |
@@ -372,12 +372,40 @@ function setToolTipForStage(stageId) {
                 + "<hr class='jobview-hr'/>"
                 + "Complete Tasks: {0}<br>".format(selectedStage['numCompleteTasks'])
                 + "Failed Tasks: {0}<br>".format(selectedStage['numFailedTasks'])
+                + getFormattedFailuresForStage(parseInt(stageId))
                 + "</p>";
         }
 
     }
 }
 
+function getFormattedFailuresForStage(stageId) {
+    var tips = '';
+    var escapeHtml = function(text) {
+        return $('<div/>').text(text).html();
+    };
+
+    (spark.stageCompletedEvents || []).forEach(function(event) {
+        var stageInfo = event['Stage Info'];
+        if (stageInfo['Stage ID'] === stageId && stageInfo['Failure Reason']) {
+            tips += "Failure Reason: {0}<br>".format(escapeHtml(stageInfo['Failure Reason'].split('\n')[0]));
+        }
+    });
+
+    // The reasons of the first failed tasks
+    (spark.failedTaskEndEvents || []).filter(function(event) {
+        return event['Stage ID'] === stageId;
+    }).slice(0, 3).forEach(function(event) {
+        var reason = event['Task End Reason'];
+        tips += "Task {0} {1}: {2}<br>".format(
+            event['Task Info']['Task ID'],
+            escapeHtml(reason['Reason']),
+            escapeHtml(reason['Description'] || reason['Class Name'] || ''));
+    });
+
+    return tips ? "<hr class='jobview-hr'/>" + tips : '';
+}
+
 function calculateVirtualBox(graph) {
     var minX = document.jobGraphView.minX
      - Math.min(
@@ -332,6 +332,8 @@ function renderApplicationGraph() {
         spark.jobStartEvents = yarnAppWithJobs.startEventLogs.sort(function(left, right) {
             return left['Job ID'] > right['Job ID'];
         });
+        spark.stageCompletedEvents = yarnAppWithJobs.stageCompletedEventLogs || [];
+        spark.failedTaskEndEvents = yarnAppWithJobs.failedTaskEndEventLogs || [];
 
         initJobViewContext();
         renderJobGraphOnApplicationLevel(spark.currentSelectedJobs);
@@ -5,6 +5,7 @@
 
 package com.microsoft.azure.hdinsight.common;
 
+import com.microsoft.azure.hdinsight.common.task.TaskExecutor;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.Application;
 import com.microsoft.azure.hdinsight.spark.jobs.ApplicationKey;
@@ -47,5 +48,8 @@ public class JobViewManager {
 
     public static void unRegisterJobView(@NotNull String clusterName) {
         jobViewPanelMap.remove(clusterName);
+
+        // Nobody waits for the tasks of the closed job view
+        TaskExecutor.cancel(clusterName);
     }
 }
@@ -9,6 +9,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.common.HDIException;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.auth.AuthScope;
@@ -39,6 +40,18 @@ public class LivyTask extends Task<String> {
         }
     }
 
+    @NotNull
+    @Override
+    public String getClusterKey() {
+        return clusterDetail.getName();
+    }
+
+    @Nullable
+    @Override
+    public String getDedupKey() {
+        return getClass().getName() + " " + getClusterKey() + " " + path;
+    }
+
     @Override
     public String call() throws Exception {
         CloseableHttpClient httpclient = HttpClients.custom()
@@ -10,6 +10,7 @@ import com.microsoft.azure.hdinsight.common.HttpResponseWithoutHeader;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.common.HDIException;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
@@ -39,6 +40,18 @@ public class MultiRestTask extends Task<List<String>> {
         }
     }
 
+    @NotNull
+    @Override
+    public String getClusterKey() {
+        return clusterDetail.getName();
+    }
+
+    @Nullable
+    @Override
+    public String getDedupKey() {
+        return getClass().getName() + " " + getClusterKey() + " " + String.join(" ", paths);
+    }
+
     @Override
     public List<String> call() throws Exception {
         CloseableHttpClient httpclient = HttpClients.custom()
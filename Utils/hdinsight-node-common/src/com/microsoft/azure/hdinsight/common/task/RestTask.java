@@ -11,6 +11,7 @@ import com.microsoft.azure.hdinsight.sdk.common.HDIException;
 import com.microsoft.azure.hdinsight.sdk.common.HttpResponse;
 import com.microsoft.azure.hdinsight.common.HttpResponseWithoutHeader;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.http.HttpEntity;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
@@ -43,6 +44,18 @@ public class RestTask extends Task<String> {
         }
     }
 
+    @NotNull
+    @Override
+    public String getClusterKey() {
+        return clusterDetail.getName();
+    }
+
+    @Nullable
+    @Override
+    public String getDedupKey() {
+        return getClass().getName() + " " + getClusterKey() + " " + path;
+    }
+
     @Override
     public String call() throws Exception {
         CloseableHttpClient httpclient = HttpClients.custom()
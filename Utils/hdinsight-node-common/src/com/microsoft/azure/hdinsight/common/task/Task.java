@@ -6,6 +6,7 @@
 package com.microsoft.azure.hdinsight.common.task;
 
 import com.google.common.util.concurrent.FutureCallback;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 
 import java.util.concurrent.Callable;
@@ -21,6 +22,28 @@ public abstract class Task<V> implements Callable<V> {
             this.callback = callback;
     }
 
+    /**
+     * @return the key of the target cluster, the tasks of the same key are bounded in concurrency by {@link TaskScheduler}
+     */
+    @NotNull
+    public String getClusterKey() {
+        return "";
+    }
+
+    @NotNull
+    public TaskPriority getPriority() {
+        return TaskPriority.INTERACTIVE;
+    }
+
+    /**
+     * @return the key of identical requests, the task shares the result of an unfinished one of the same key,
+     *         or null to always run
+     */
+    @Nullable
+    public String getDedupKey() {
+        return null;
+    }
+
     public static final FutureCallback<Object> EMPTY_CALLBACK = new FutureCallback<Object>() {
         @Override
         public void onSuccess(Object o) {
@@ -7,18 +7,36 @@ package com.microsoft.azure.hdinsight.common.task;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
-
-import java.util.concurrent.Executors;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 
 public class TaskExecutor {
-    private static ListeningExecutorService executors = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
-
     public static <T> ListenableFuture<T> submit(@NotNull Task<T> task) {
-        final ListenableFuture<T> listenableFuture = executors.submit(task);
-        Futures.addCallback(listenableFuture, task.callback, MoreExecutors.directExecutor());
+        return submit(task, null);
+    }
+
+    /**
+     * Submit the task to {@link TaskScheduler}
+     *
+     * @param task the task to run
+     * @param owner the requester, such as a job view, to cancel the task by {@link #cancel(Object)}, null for none
+     * @return the future of the task result, whose result is also sent to the task callback
+     */
+    public static <T> ListenableFuture<T> submit(@NotNull Task<T> task, @Nullable Object owner) {
+        final ListenableFuture<T> listenableFuture = TaskScheduler.getInstance().submit(task, owner);
+
+        if (task.callback != null) {
+            Futures.addCallback(listenableFuture, task.callback, MoreExecutors.directExecutor());
+        }
+
         return listenableFuture;
     }
+
+    /**
+     * Cancel the unfinished tasks submitted by the owner
+     */
+    public static void cancel(@NotNull Object owner) {
+        TaskScheduler.getInstance().cancel(owner);
+    }
 }
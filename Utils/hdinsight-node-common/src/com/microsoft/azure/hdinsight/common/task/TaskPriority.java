@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.common.task;
+
+/**
+ * The scheduling lanes of the tasks, a queued task of a higher lane always runs first
+ */
+public enum TaskPriority {
+    // The fetches a user is waiting for, such as the job view pages
+    INTERACTIVE,
+
+    // The refreshes nobody is waiting for, which are rejected when too many are queued
+    BACKGROUND
+}
@@ -0,0 +1,517 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.common.task;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the tasks on a bounded pool of threads.
+ *
+ * The tasks are queued by their target cluster, and at most {@value #MAX_CONCURRENT_PER_CLUSTER} tasks of a cluster
+ * run at a time. The queued tasks run by their {@link TaskPriority} lanes, then in the submitted order. The background
+ * tasks are rejected when more than {@value #MAX_QUEUED_BACKGROUND} of them are waiting.
+ *
+ * The task of the same dedup key as an unfinished one isn't run again, it shares the result of the unfinished one,
+ * which is cancelled only after all its waiters cancelled. The waiters can be tied to an owner, such as a job view, to
+ * be cancelled together.
+ */
+public final class TaskScheduler {
+    private static final int MAX_THREADS = 16;
+    private static final int MAX_CONCURRENT_PER_CLUSTER = 4;
+    private static final int MAX_QUEUED_BACKGROUND = 64;
+
+    private static final TaskScheduler instance = new TaskScheduler();
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    // The dispatched tasks, ordered by the priority lanes across clusters
+    @NotNull
+    private final ThreadPoolExecutor workers;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    // The tasks waiting and running, by cluster key, guarded by this
+    private final Map<String, ClusterLane> clusterLanes = new HashMap<>();
+
+    // The unfinished tasks, by dedup key, guarded by this
+    private final Map<String, SharedTask<?>> inFlight = new HashMap<>();
+
+    // The count of background tasks waiting in the cluster lanes, guarded by this
+    private int queuedBackgroundCount = 0;
+
+    // The waiter futures, by owner, guarded by itself
+    private final Map<Object, Set<Future<?>>> ownedWaiters = new HashMap<>();
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong deduplicatedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    private final Map<TaskPriority, LatencyRecorder> latencies = new EnumMap<>(TaskPriority.class);
+
+    private TaskScheduler() {
+        workers = new ThreadPoolExecutor(
+                MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), runnable -> {
+                    final Thread thread = new Thread(runnable, "TaskScheduler-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        workers.allowCoreThreadTimeOut(true);
+
+        for (final TaskPriority priority : TaskPriority.values()) {
+            latencies.put(priority, new LatencyRecorder());
+        }
+    }
+
+    @NotNull
+    public static TaskScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Submit a task to run
+     *
+     * @param task the task, whose cluster key, priority and dedup key are used to schedule it
+     * @param owner the owner to cancel the task by {@link #cancel(Object)}, null for none
+     * @return the future of the task result, cancelling it doesn't affect other waiters of the same dedup key
+     * @throws RejectedExecutionException if the task is of background and there are too many background tasks waiting
+     */
+    @NotNull
+    public <T> ListenableFuture<T> submit(@NotNull final Task<T> task, @Nullable final Object owner) {
+        return submit(task.getClusterKey(), task.getPriority(), task.getDedupKey(), task, owner);
+    }
+
+    /**
+     * Get an executor running the commands in a lane
+     *
+     * @param clusterKey the lane key bounding the commands in concurrency
+     * @param priority the priority of the commands
+     * @return the executor, which throws {@link RejectedExecutionException} when the background lanes are full
+     */
+    @NotNull
+    public Executor getExecutor(@NotNull final String clusterKey, @NotNull final TaskPriority priority) {
+        return command -> submit(clusterKey, priority, null, Executors.callable(command), null);
+    }
+
+    /**
+     * Cancel the unfinished tasks submitted with the owner
+     *
+     * @return the count of the tasks cancelled
+     */
+    public int cancel(@NotNull final Object owner) {
+        final List<Future<?>> waiters;
+
+        synchronized (ownedWaiters) {
+            final Set<Future<?>> owned = ownedWaiters.remove(owner);
+            waiters = owned == null ? Collections.emptyList() : new ArrayList<>(owned);
+        }
+
+        int count = 0;
+        for (final Future<?> waiter : waiters) {
+            if (waiter.cancel(true)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    @NotNull
+    public synchronized Stats getStats() {
+        final Map<TaskPriority, Integer> queued = new EnumMap<>(TaskPriority.class);
+        for (final TaskPriority priority : TaskPriority.values()) {
+            queued.put(priority, 0);
+        }
+
+        clusterLanes.values().forEach(lane -> lane.waiting.forEach(job -> queued.merge(job.priority, 1, Integer::sum)));
+        workers.getQueue().forEach(runnable -> queued.merge(((Job) runnable).priority, 1, Integer::sum));
+
+        return new Stats(this, queued);
+    }
+
+    @NotNull
+    private <T> ListenableFuture<T> submit(@NotNull final String clusterKey,
+                                           @NotNull final TaskPriority priority,
+                                           @Nullable final String dedupKey,
+                                           @NotNull final Callable<T> callable,
+                                           @Nullable final Object owner) {
+        submittedCount.incrementAndGet();
+
+        final SharedTask<T> shared;
+
+        synchronized (this) {
+            @SuppressWarnings("unchecked")
+            final SharedTask<T> existing = dedupKey == null ? null : (SharedTask<T>) inFlight.get(dedupKey);
+
+            if (existing != null && !existing.job.future.isDone()) {
+                deduplicatedCount.incrementAndGet();
+                promote(existing.job, priority);
+                shared = existing;
+            } else {
+                final Job job = new Job(clusterKey, priority, ListenableFutureTask.create(callable));
+                enqueue(job);
+
+                shared = new SharedTask<>(job);
+                if (dedupKey != null) {
+                    inFlight.put(dedupKey, shared);
+                    job.future.addListener(() -> removeInFlight(dedupKey, shared), MoreExecutors.directExecutor());
+                }
+            }
+
+            shared.waiterCount++;
+        }
+
+        return newWaiter(shared, owner);
+    }
+
+    @NotNull
+    private <T> ListenableFuture<T> newWaiter(@NotNull final SharedTask<T> shared, @Nullable final Object owner) {
+        @SuppressWarnings("unchecked")
+        final ListenableFuture<T> sharedFuture = (ListenableFuture<T>) shared.job.future;
+        final SettableFuture<T> waiter = SettableFuture.create();
+
+        // Not SettableFuture.setFuture(), which cancels the shared future with any waiter
+        Futures.addCallback(sharedFuture, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(@Nullable final T result) {
+                waiter.set(result);
+            }
+
+            @Override
+            public void onFailure(@NotNull final Throwable err) {
+                if (err instanceof CancellationException) {
+                    waiter.cancel(false);
+                } else {
+                    waiter.setException(err);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+
+        waiter.addListener(() -> {
+            if (waiter.isCancelled()) {
+                releaseWaiter(shared);
+            }
+        }, MoreExecutors.directExecutor());
+
+        if (owner != null) {
+            synchronized (ownedWaiters) {
+                ownedWaiters.computeIfAbsent(owner, key -> new HashSet<>()).add(waiter);
+            }
+
+            waiter.addListener(() -> {
+                synchronized (ownedWaiters) {
+                    final Set<Future<?>> owned = ownedWaiters.get(owner);
+
+                    if (owned != null && owned.remove(waiter) && owned.isEmpty()) {
+                        ownedWaiters.remove(owner);
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        return waiter;
+    }
+
+    private synchronized void releaseWaiter(@NotNull final SharedTask<?> shared) {
+        if (--shared.waiterCount == 0 && shared.job.future.cancel(true)) {
+            cancelledCount.incrementAndGet();
+        }
+    }
+
+    private synchronized void removeInFlight(@NotNull final String dedupKey, @NotNull final SharedTask<?> shared) {
+        inFlight.remove(dedupKey, shared);
+    }
+
+    // Holding the lock
+    private void enqueue(@NotNull final Job job) {
+        if (job.priority == TaskPriority.BACKGROUND) {
+            if (queuedBackgroundCount >= MAX_QUEUED_BACKGROUND) {
+                rejectedCount.incrementAndGet();
+
+                throw new RejectedExecutionException(
+                        "Too many background tasks waiting, reject the task of " + job.clusterKey);
+            }
+
+            queuedBackgroundCount++;
+        }
+
+        final ClusterLane lane = clusterLanes.computeIfAbsent(job.clusterKey, key -> new ClusterLane());
+        lane.waiting.add(job);
+
+        // Leave the lane as soon as cancelled, not to hold a seat till dispatched
+        job.future.addListener(() -> {
+            if (job.future.isCancelled()) {
+                dequeueCancelled(job);
+            }
+        }, MoreExecutors.directExecutor());
+
+        dispatch(job.clusterKey, lane);
+    }
+
+    // Holding the lock
+    private void promote(@NotNull final Job job, @NotNull final TaskPriority priority) {
+        if (priority.compareTo(job.priority) >= 0) {
+            return;
+        }
+
+        final ClusterLane lane = clusterLanes.get(job.clusterKey);
+
+        // The dispatched job keeps its place in the workers queue
+        if (lane != null && lane.waiting.remove(job)) {
+            if (job.priority == TaskPriority.BACKGROUND) {
+                queuedBackgroundCount--;
+            }
+
+            job.priority = priority;
+            lane.waiting.add(job);
+        }
+    }
+
+    private synchronized void dequeueCancelled(@NotNull final Job job) {
+        final ClusterLane lane = clusterLanes.get(job.clusterKey);
+
+        if (lane != null && lane.waiting.remove(job)) {
+            if (job.priority == TaskPriority.BACKGROUND) {
+                queuedBackgroundCount--;
+            }
+
+            removeIfIdle(job.clusterKey, lane);
+        }
+    }
+
+    // Holding the lock
+    private void dispatch(@NotNull final String clusterKey, @NotNull final ClusterLane lane) {
+        while (lane.runningCount < MAX_CONCURRENT_PER_CLUSTER && !lane.waiting.isEmpty()) {
+            final Job job = lane.waiting.poll();
+
+            if (job.priority == TaskPriority.BACKGROUND) {
+                queuedBackgroundCount--;
+            }
+
+            lane.runningCount++;
+            workers.execute(job);
+        }
+
+        removeIfIdle(clusterKey, lane);
+    }
+
+    // Holding the lock
+    private void removeIfIdle(@NotNull final String clusterKey, @NotNull final ClusterLane lane) {
+        if (lane.runningCount == 0 && lane.waiting.isEmpty()) {
+            clusterLanes.remove(clusterKey, lane);
+        }
+    }
+
+    private synchronized void onJobDone(@NotNull final Job job) {
+        final ClusterLane lane = clusterLanes.get(job.clusterKey);
+
+        if (lane != null) {
+            lane.runningCount--;
+            dispatch(job.clusterKey, lane);
+        }
+    }
+
+    private final class Job implements Runnable, Comparable<Job> {
+        @NotNull
+        private final String clusterKey;
+
+        // Only raised while waiting in the cluster lane, guarded by the scheduler
+        @NotNull
+        private TaskPriority priority;
+
+        @NotNull
+        private final ListenableFutureTask<?> future;
+
+        private final long seq = sequence.incrementAndGet();
+
+        private final long enqueuedNanos = System.nanoTime();
+
+        private Job(@NotNull final String clusterKey,
+                    @NotNull final TaskPriority priority,
+                    @NotNull final ListenableFutureTask<?> future) {
+            this.clusterKey = clusterKey;
+            this.priority = priority;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            final long startNanos = System.nanoTime();
+
+            try {
+                if (!future.isDone()) {
+                    final LatencyRecorder latency = latencies.get(priority);
+
+                    latency.recordWait(startNanos - enqueuedNanos);
+                    future.run();
+                    latency.recordRun(System.nanoTime() - startNanos);
+                }
+            } finally {
+                onJobDone(this);
+            }
+        }
+
+        @Override
+        public int compareTo(@NotNull final Job other) {
+            final int byPriority = priority.compareTo(other.priority);
+
+            return byPriority != 0 ? byPriority : Long.compare(seq, other.seq);
+        }
+    }
+
+    private static final class ClusterLane {
+        private final PriorityQueue<Job> waiting = new PriorityQueue<>();
+
+        private int runningCount = 0;
+    }
+
+    private static final class SharedTask<T> {
+        @NotNull
+        private final Job job;
+
+        // The waiters not cancelled, guarded by the scheduler
+        private int waiterCount = 0;
+
+        private SharedTask(@NotNull final Job job) {
+            this.job = job;
+        }
+    }
+
+    private static final class LatencyRecorder {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong totalRunNanos = new AtomicLong();
+
+        private void recordWait(final long nanos) {
+            totalWaitNanos.addAndGet(nanos);
+            maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private void recordRun(final long nanos) {
+            count.incrementAndGet();
+            totalRunNanos.addAndGet(nanos);
+        }
+    }
+
+    /**
+     * The snapshot of the queue depths and the latencies
+     */
+    public static final class Stats {
+        @NotNull
+        private final Map<TaskPriority, Integer> queuedCounts;
+
+        private final int runningCount;
+        private final long submittedCount;
+        private final long deduplicatedCount;
+        private final long rejectedCount;
+        private final long cancelledCount;
+
+        private final Map<TaskPriority, long[]> latencies = new EnumMap<>(TaskPriority.class);
+
+        private Stats(@NotNull final TaskScheduler scheduler, @NotNull final Map<TaskPriority, Integer> queuedCounts) {
+            this.queuedCounts = queuedCounts;
+            this.runningCount = scheduler.workers.getActiveCount();
+            this.submittedCount = scheduler.submittedCount.get();
+            this.deduplicatedCount = scheduler.deduplicatedCount.get();
+            this.rejectedCount = scheduler.rejectedCount.get();
+            this.cancelledCount = scheduler.cancelledCount.get();
+
+            scheduler.latencies.forEach((priority, recorder) -> latencies.put(priority, new long[] {
+                    recorder.count.get(),
+                    recorder.totalWaitNanos.get(),
+                    recorder.maxWaitNanos.get(),
+                    recorder.totalRunNanos.get() }));
+        }
+
+        /**
+         * @return the count of tasks waiting for a thread, in both the cluster lanes and the workers queue
+         */
+        public int getQueuedCount(@NotNull final TaskPriority priority) {
+            return queuedCounts.get(priority);
+        }
+
+        public int getRunningCount() {
+            return runningCount;
+        }
+
+        public long getSubmittedCount() {
+            return submittedCount;
+        }
+
+        /**
+         * @return the count of tasks sharing the result of an unfinished one
+         */
+        public long getDeduplicatedCount() {
+            return deduplicatedCount;
+        }
+
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        public long getCancelledCount() {
+            return cancelledCount;
+        }
+
+        public long getCompletedCount(@NotNull final TaskPriority priority) {
+            return latencies.get(priority)[0];
+        }
+
+        public double getAverageWaitMillis(@NotNull final TaskPriority priority) {
+            return averageMillis(latencies.get(priority)[1], getCompletedCount(priority));
+        }
+
+        public double getMaxWaitMillis(@NotNull final TaskPriority priority) {
+            return latencies.get(priority)[2] / 1_000_000.0;
+        }
+
+        public double getAverageRunMillis(@NotNull final TaskPriority priority) {
+            return averageMillis(latencies.get(priority)[3], getCompletedCount(priority));
+        }
+
+        private static double averageMillis(final long totalNanos, final long count) {
+            return count == 0 ? 0 : totalNanos / 1_000_000.0 / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("TaskScheduler{queued=%s, running=%d, submitted=%d, deduplicated=%d, rejected=%d, "
+                                         + "cancelled=%d, interactiveWaitMs=%.1f, backgroundWaitMs=%.1f}",
+                                 queuedCounts, runningCount, submittedCount, deduplicatedCount, rejectedCount,
+                                 cancelledCount, getAverageWaitMillis(TaskPriority.INTERACTIVE),
+                                 getAverageWaitMillis(TaskPriority.BACKGROUND));
+        }
+    }
+}
@@ -13,6 +13,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.common.HDIException;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
@@ -36,6 +37,18 @@ public class YarnHistoryTask extends Task<String> {
         }
     }
 
+    @NotNull
+    @Override
+    public String getClusterKey() {
+        return clusterDetail.getName();
+    }
+
+    @Nullable
+    @Override
+    public String getDedupKey() {
+        return getClass().getName() + " " + getClusterKey() + " " + path;
+    }
+
     @Override
     public String call() throws Exception {
         WEB_CLIENT.setCredentialsProvider(credentialsProvider);
@@ -34,19 +34,27 @@ public class AzureDataLakeHttpObservable extends AzureHttpObservable {
     @Override
     public Observable<HttpResponse> requestWithHttpResponse(HttpRequestBase httpRequest, HttpEntity entity, List<NameValuePair> parameters, List<Header> addOrReplaceHeaders) {
         return super.requestWithHttpResponse(httpRequest, entity, parameters, addOrReplaceHeaders)
-                .onErrorResumeNext(err -> {
-                    if (err instanceof HttpErrorStatus) {
-                        HttpErrorStatus status = (HttpErrorStatus) err;
-                        return Observable.error(
-                                new SparkAzureDataLakePoolServiceException(
-                                        status.getStatusCode(),
-                                        err.getMessage(),
-                                        getRequestIdFromHeaders(status.getHeaders()),
-                                        httpRequest.getURI()));
-                    } else {
-                        return Observable.error(err);
-                    }
-                });
+                .onErrorResumeNext(err -> Observable.error(convertHttpError(err, httpRequest)));
+    }
+
+    @Override
+    public <T> Observable<T> requestWithObject(HttpRequestBase httpRequest, HttpEntity entity, List<NameValuePair> parameters, List<Header> addOrReplaceHeaders, Class<T> clazz) {
+        return super.requestWithObject(httpRequest, entity, parameters, addOrReplaceHeaders, clazz)
+                .onErrorResumeNext(err -> Observable.error(convertHttpError(err, httpRequest)));
+    }
+
+    @NotNull
+    private Throwable convertHttpError(@NotNull Throwable err, @NotNull HttpRequestBase httpRequest) {
+        if (err instanceof HttpErrorStatus) {
+            HttpErrorStatus status = (HttpErrorStatus) err;
+            return new SparkAzureDataLakePoolServiceException(
+                    status.getStatusCode(),
+                    err.getMessage(),
+                    getRequestIdFromHeaders(status.getHeaders()),
+                    httpRequest.getURI());
+        }
+
+        return err;
     }
 
     @NotNull
@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.common;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.azuretools.service.ServiceManager;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.TrustStrategy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The process-wide HTTP connection pools shared by all {@link HttpObservable} instances.
+ *
+ * There is one pool for each combination of the TLS settings and the system proxy settings, and the pool keeps the
+ * connections by route. The HTTP clients built by {@link #newHttpClientBuilder(boolean)} resolve the pool at each
+ * request, so when the proxy settings are changed, the new requests of the long-lived clients go to a new pool too,
+ * and the old pool is shut down once it's retired long enough and all its connections are returned. The expired and
+ * long idle connections of all pools are closed by one background thread.
+ *
+ * The limits can be set by the system properties {@value #MAX_TOTAL_PROPERTY}, {@value #MAX_PER_ROUTE_PROPERTY},
+ * {@value #IDLE_TIMEOUT_PROPERTY} and {@value #KEEP_ALIVE_PROPERTY}, or by the setters at runtime.
+ */
+public final class HttpConnectionPools implements ILogger {
+    public static final String MAX_TOTAL_PROPERTY = "hdinsight.http.pool.maxTotal";
+    public static final String MAX_PER_ROUTE_PROPERTY = "hdinsight.http.pool.maxPerRoute";
+    public static final String IDLE_TIMEOUT_PROPERTY = "hdinsight.http.pool.idleTimeoutSeconds";
+    public static final String KEEP_ALIVE_PROPERTY = "hdinsight.http.pool.keepAliveSeconds";
+
+    private static final int DEFAULT_MAX_TOTAL = 200;
+    private static final int DEFAULT_MAX_PER_ROUTE = 20;
+    private static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 60;
+    private static final int DEFAULT_KEEP_ALIVE_SECONDS = 30;
+    private static final int EVICTION_INTERVAL_SECONDS = 5;
+    // For the requests which have just resolved a pool before it's retired to lease the connections
+    private static final int RETIRED_SHUTDOWN_DELAY_SECONDS = 60;
+
+    private static final String SYSTEM_TLS = "system";
+
+    private static final String[] PROXY_PROPERTIES = {
+            "http.proxyHost", "http.proxyPort", "https.proxyHost", "https.proxyPort",
+            "http.nonProxyHosts", "java.net.useSystemProxies" };
+
+    private static final HttpConnectionPools instance = new HttpConnectionPools();
+
+    // The pools by TLS settings and proxy settings, guarded by this
+    private final Map<String, PoolingHttpClientConnectionManager> pools = new HashMap<>();
+
+    // The pools of the outdated settings with their retired time, waiting for the leased connections to be returned,
+    // guarded by this
+    private final Map<PoolingHttpClientConnectionManager, Long> retiredPools = new LinkedHashMap<>();
+
+    private volatile int maxTotal = Integer.getInteger(MAX_TOTAL_PROPERTY, DEFAULT_MAX_TOTAL);
+    private volatile int maxPerRoute = Integer.getInteger(MAX_PER_ROUTE_PROPERTY, DEFAULT_MAX_PER_ROUTE);
+    private volatile int idleTimeoutSeconds = Integer.getInteger(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT_SECONDS);
+    private volatile int keepAliveSeconds = Integer.getInteger(KEEP_ALIVE_PROPERTY, DEFAULT_KEEP_ALIVE_SECONDS);
+
+    // Keep the connections as long as the server allows, or the default seconds if the server doesn't tell
+    @NotNull
+    private final ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+        final long serverKeepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+
+        return serverKeepAliveMs > 0 ? serverKeepAliveMs : TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+    };
+
+    private HttpConnectionPools() {
+        final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "HttpConnectionPoolsEvictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        evictor.scheduleWithFixedDelay(
+                this::evict, EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @NotNull
+    public static HttpConnectionPools getInstance() {
+        return instance;
+    }
+
+    /**
+     * Create an HTTP client builder with the shared connection pools, the pool for the current settings is resolved at
+     * each request. Closing the client built doesn't close the pools.
+     *
+     * @param isToolkitTls true to use the toolkit's TLS settings, refer to {@link HttpObservable#createSSLSocketFactory()},
+     *                     false for the JVM default one
+     * @return the HTTP client builder which uses system properties
+     */
+    @NotNull
+    public HttpClientBuilder newHttpClientBuilder(final boolean isToolkitTls) {
+        return HttpClients.custom()
+                .useSystemProperties()
+                .setConnectionManager(new SettingsConnectionManager(isToolkitTls))
+                .setConnectionManagerShared(true)
+                .setKeepAliveStrategy(keepAliveStrategy);
+    }
+
+    /**
+     * Get the connection pool for the current TLS and proxy settings
+     */
+    @NotNull
+    public PoolingHttpClientConnectionManager getConnectionManager(final boolean isToolkitTls) {
+        final boolean hasToolkitTrust = isToolkitTls && ServiceManager.getServiceProvider(TrustStrategy.class) != null;
+        final String tls = !hasToolkitTrust
+                ? SYSTEM_TLS
+                : (HttpObservable.isSSLCertificateValidationDisabled() ? "toolkit-noverify" : "toolkit");
+        final String poolKey = tls + "|" + getProxySettings();
+
+        synchronized (this) {
+            PoolingHttpClientConnectionManager pool = pools.get(poolKey);
+            if (pool != null) {
+                return pool;
+            }
+
+            // Retire the pool of the same TLS settings with the outdated proxy settings
+            final Iterator<Map.Entry<String, PoolingHttpClientConnectionManager>> it = pools.entrySet().iterator();
+            while (it.hasNext()) {
+                final Map.Entry<String, PoolingHttpClientConnectionManager> entry = it.next();
+
+                if (entry.getKey().startsWith(tls + "|")) {
+                    retiredPools.put(entry.getValue(), System.nanoTime());
+                    it.remove();
+                }
+            }
+
+            pool = createPool(hasToolkitTrust ? HttpObservable.createSSLSocketFactory() : null);
+            pools.put(poolKey, pool);
+
+            return pool;
+        }
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public synchronized void setMaxTotal(final int maxTotal) {
+        this.maxTotal = maxTotal;
+        pools.values().forEach(pool -> pool.setMaxTotal(maxTotal));
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public synchronized void setMaxPerRoute(final int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+        pools.values().forEach(pool -> pool.setDefaultMaxPerRoute(maxPerRoute));
+    }
+
+    public int getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds;
+    }
+
+    public void setIdleTimeoutSeconds(final int idleTimeoutSeconds) {
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(final int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    /**
+     * Get the statistics of the connections leased, available and the requests pending for a connection
+     *
+     * @return the total statistics by pool key, which is made of the TLS settings and the proxy settings
+     */
+    @NotNull
+    public synchronized Map<String, PoolStats> getTotalStats() {
+        final Map<String, PoolStats> stats = new LinkedHashMap<>();
+        pools.forEach((key, pool) -> stats.put(key, pool.getTotalStats()));
+
+        return stats;
+    }
+
+    /**
+     * Get the statistics of the connections by route, of all pools
+     */
+    @NotNull
+    public synchronized Map<HttpRoute, PoolStats> getRouteStats() {
+        final Map<HttpRoute, PoolStats> stats = new LinkedHashMap<>();
+        pools.values().forEach(pool -> pool.getRoutes().forEach(route -> stats.put(route, pool.getStats(route))));
+
+        return stats;
+    }
+
+    @NotNull
+    private PoolingHttpClientConnectionManager createPool(@Nullable final SSLConnectionSocketFactory sslSocketFactory) {
+        final PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", sslSocketFactory != null
+                                ? sslSocketFactory
+                                : SSLConnectionSocketFactory.getSystemSocketFactory())
+                        .build());
+        pool.setMaxTotal(maxTotal);
+        pool.setDefaultMaxPerRoute(maxPerRoute);
+
+        return pool;
+    }
+
+    @NotNull
+    private static String getProxySettings() {
+        final StringBuilder settings = new StringBuilder();
+
+        for (final String property : PROXY_PROPERTIES) {
+            settings.append(System.getProperty(property, "")).append(';');
+        }
+
+        return settings.toString();
+    }
+
+    private void evict() {
+        try {
+            final List<PoolingHttpClientConnectionManager> openPools;
+
+            synchronized (this) {
+                openPools = new ArrayList<>(pools.values());
+
+                final long now = System.nanoTime();
+                final Iterator<Map.Entry<PoolingHttpClientConnectionManager, Long>> it =
+                        retiredPools.entrySet().iterator();
+                while (it.hasNext()) {
+                    final Map.Entry<PoolingHttpClientConnectionManager, Long> retired = it.next();
+                    final PoolingHttpClientConnectionManager pool = retired.getKey();
+
+                    if (now - retired.getValue() > TimeUnit.SECONDS.toNanos(RETIRED_SHUTDOWN_DELAY_SECONDS)
+                            && pool.getTotalStats().getLeased() == 0
+                            && pool.getTotalStats().getPending() == 0) {
+                        pool.shutdown();
+                        it.remove();
+                    }
+                }
+
+                // The idle connections of the retired pools are closed too, not to keep the old proxy connections
+                openPools.addAll(retiredPools.keySet());
+            }
+
+            for (final PoolingHttpClientConnectionManager pool : openPools) {
+                pool.closeExpiredConnections();
+                pool.closeIdleConnections(idleTimeoutSeconds, TimeUnit.SECONDS);
+            }
+        } catch (final RuntimeException ex) {
+            // Keep the eviction scheduled
+            log().warn("Failed to evict HTTP connections", ex);
+        }
+    }
+
+    /**
+     * The connection manager of an HTTP client, which leases the connections from the pool for the current settings,
+     * and returns them to the pool they are leased from
+     */
+    private static final class SettingsConnectionManager implements HttpClientConnectionManager {
+        private final boolean isToolkitTls;
+
+        // The pools of the connections leased
+        private final Map<HttpClientConnection, HttpClientConnectionManager> leasedFrom = new ConcurrentHashMap<>();
+
+        private SettingsConnectionManager(final boolean isToolkitTls) {
+            this.isToolkitTls = isToolkitTls;
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(final HttpRoute route, final Object state) {
+            final PoolingHttpClientConnectionManager pool = getInstance().getConnectionManager(isToolkitTls);
+            final ConnectionRequest request = pool.requestConnection(route, state);
+
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(final long timeout, final TimeUnit timeUnit)
+                        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    final HttpClientConnection connection = request.get(timeout, timeUnit);
+                    leasedFrom.put(connection, pool);
+
+                    return connection;
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+
+        @Override
+        public void releaseConnection(final HttpClientConnection connection,
+                                      final Object newState,
+                                      final long validDuration,
+                                      final TimeUnit timeUnit) {
+            getPool(connection, true).releaseConnection(connection, newState, validDuration, timeUnit);
+        }
+
+        @Override
+        public void connect(final HttpClientConnection connection,
+                            final HttpRoute route,
+                            final int connectTimeout,
+                            final HttpContext context) throws IOException {
+            getPool(connection, false).connect(connection, route, connectTimeout, context);
+        }
+
+        @Override
+        public void upgrade(final HttpClientConnection connection,
+                            final HttpRoute route,
+                            final HttpContext context) throws IOException {
+            getPool(connection, false).upgrade(connection, route, context);
+        }
+
+        @Override
+        public void routeComplete(final HttpClientConnection connection,
+                                  final HttpRoute route,
+                                  final HttpContext context) throws IOException {
+            getPool(connection, false).routeComplete(connection, route, context);
+        }
+
+        // The pools are closed by HttpConnectionPools, the client closing does nothing
+        @Override
+        public void closeIdleConnections(final long idleTime, final TimeUnit timeUnit) {
+        }
+
+        @Override
+        public void closeExpiredConnections() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @NotNull
+        private HttpClientConnectionManager getPool(@NotNull final HttpClientConnection connection,
+                                                    final boolean isReleased) {
+            final HttpClientConnectionManager pool = isReleased
+                    ? leasedFrom.remove(connection)
+                    : leasedFrom.get(connection);
+
+            if (pool == null) {
+                throw new IllegalStateException("The connection isn't leased by this connection manager");
+            }
+
+            return pool;
+        }
+    }
+}
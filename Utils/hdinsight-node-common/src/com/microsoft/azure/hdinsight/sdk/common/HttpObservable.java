@@ -24,13 +24,13 @@ import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.HeaderGroup;
 import org.apache.http.protocol.BasicHttpContext;
@@ -38,11 +38,13 @@ import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.ssl.TrustStrategy;
 import org.apache.http.util.EntityUtils;
+import org.slf4j.LoggerFactory;
 import rx.Observable;
 import rx.exceptions.Exceptions;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.UnknownServiceException;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
@@ -108,11 +110,10 @@ public class HttpObservable implements ILogger {
                 .setProxyPreferredAuthSchemes(Collections.singletonList(AuthSchemes.BASIC))
                 .build();
 
-        this.httpClient = HttpClients.custom()
-                .useSystemProperties()
+        // The connections are pooled and shared by all instances, the cookies are kept by instance
+        this.httpClient = HttpConnectionPools.getInstance().newHttpClientBuilder(true)
                 .setDefaultCookieStore(getCookieStore())
                 .setDefaultRequestConfig(getDefaultRequestConfig())
-                .setSSLSocketFactory(createSSLSocketFactory())
                 .build();
     }
 
@@ -131,13 +132,6 @@ public class HttpObservable implements ILogger {
             setDefaultHeader(new BasicHeader(
                     HttpHeaders.AUTHORIZATION, String.format("%s %s", "Basic", new String(encodedAuth))));
         }
-
-        this.httpClient = HttpClients.custom()
-                .useSystemProperties()
-                .setDefaultCookieStore(getCookieStore())
-                .setDefaultRequestConfig(getDefaultRequestConfig())
-                .setSSLSocketFactory(createSSLSocketFactory())
-                .build();
     }
 
     /*
@@ -243,7 +237,8 @@ public class HttpObservable implements ILogger {
         }
     }
 
-    private SSLConnectionSocketFactory createSSLSocketFactory() {
+    @Nullable
+    public static SSLConnectionSocketFactory createSSLSocketFactory() {
         TrustStrategy ts = ServiceManager.getServiceProvider(TrustStrategy.class);
         SSLConnectionSocketFactory sslSocketFactory = null;
 
@@ -258,7 +253,8 @@ public class HttpObservable implements ILogger {
                                 ? NoopHostnameVerifier.INSTANCE
                                 : new DefaultHostnameVerifier());
             } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException e) {
-                log().error("Prepare SSL Context for HTTPS failure. " + ExceptionUtils.getStackTrace(e));
+                LoggerFactory.getLogger(HttpObservable.class)
+                        .error("Prepare SSL Context for HTTPS failure. " + ExceptionUtils.getStackTrace(e));
             }
         }
         return sslSocketFactory;
@@ -326,6 +322,58 @@ public class HttpObservable implements ILogger {
                 });
     }
 
+    /**
+     * Helper to parse the closeable stream good Http response (2xx) from JSON to the specified type, without reading
+     * the response as String. If the response is bad, propagate a HttpResponseException
+     *
+     * @param closeableHttpResponse the source closeable stream
+     * @param clazz the target type to convert
+     * @param <T> the target type
+     * @return the specified type class instance
+     */
+    public static <T> Observable<T> toObjectOnlyOkResponse(CloseableHttpResponse closeableHttpResponse,
+                                                           @NotNull final Class<T> clazz) {
+        return Observable.using(
+                // Resource factory
+                () -> closeableHttpResponse,
+                // Observable factory
+                streamResp -> {
+                    try {
+                        StatusLine status = streamResp.getStatusLine();
+
+                        if (status.getStatusCode() >= 300) {
+                            return Observable.error(classifyHttpError(streamResp));
+                        }
+
+                        final HttpEntity entity = streamResp.getEntity();
+                        if (entity == null) {
+                            return Observable.error(new HDIException("Unknown HTTP server response: empty"));
+                        }
+
+                        try (InputStream content = entity.getContent()) {
+                            final Optional<T> result = ObjectConvertUtils.convertJsonStreamToObject(content, clazz);
+
+                            if (!result.isPresent()) {
+                                return Observable.error(new HDIException("Unknown HTTP server response: null"));
+                            }
+
+                            return Observable.just(result.get());
+                        }
+                    } catch (IOException e) {
+                        return Observable.error(e);
+                    }
+                },
+                // Resource dispose
+                streamResp -> {
+                    try {
+                        streamResp.close();
+                    } catch (IOException ignore) {
+                        // The connection will be closed automatically after timeout,
+                        // the exception in closing can be ignored.
+                    }
+                });
+    }
+
     /**
      * Helper to convert the http response to a specified type
      *
@@ -392,6 +440,18 @@ public class HttpObservable implements ILogger {
                 .flatMap(HttpObservable::toStringOnlyOkResponse);
     }
 
+    /*
+     * RESTful API operations with the JSON response parsed from the stream to the specified type
+     */
+    public <T> Observable<T> requestWithObject(@NotNull final HttpRequestBase httpRequest,
+                                               @Nullable final HttpEntity entity,
+                                               final List<NameValuePair> parameters,
+                                               final List<Header> addOrReplaceHeaders,
+                                               @NotNull final Class<T> clazz) {
+        return request(httpRequest, entity, parameters, addOrReplaceHeaders)
+                .flatMap(resp -> toObjectOnlyOkResponse(resp, clazz));
+    }
+
     public Observable<HttpResponse> head(@NotNull final String uri,
                                          @NotNull final List<NameValuePair> parameters,
                                          @NotNull final List<Header> addOrReplaceHeaders) {
@@ -402,8 +462,7 @@ public class HttpObservable implements ILogger {
                                  final List<NameValuePair> parameters,
                                  final List<Header> addOrReplaceHeaders,
                                  @NotNull final Class<T> clazz) {
-        return requestWithHttpResponse(new HttpGet(uri), null, parameters, addOrReplaceHeaders)
-                .map(resp -> this.convertJsonResponseToObject(resp, clazz));
+        return requestWithObject(new HttpGet(uri), null, parameters, addOrReplaceHeaders, clazz);
     }
 
     public <T> Observable<T> put(@NotNull final String uri,
@@ -448,9 +507,12 @@ public class HttpObservable implements ILogger {
                 .doOnNext(resp -> {
                     int statusCode = resp.getStatusLine().getStatusCode();
                     if (statusCode != validStatueCode) {
-                        Exceptions.propagate(new UnknownServiceException(
-                                String.format("Exceute request with unexpected code %s and resp %s", statusCode, resp)
-                        ));
+                        final String message = String.format(
+                                "Exceute request with unexpected code %s and resp %s", statusCode, resp);
+
+                        // The response doesn't reach the subscriber, release its connection here
+                        HttpClientUtils.closeQuietly(resp);
+                        Exceptions.propagate(new UnknownServiceException(message));
                     }
                 });
     }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.common.livy.interactive;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import rx.Observable;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The delays between the polls of a Livy resource state, which are short at first and grow up to the maximum.
+ *
+ * A quick statement is got soon after it's done, instead of a whole second later, while a long running statement or a
+ * starting session doesn't flood the Livy server with requests. Livy has no long polling API to wait for a state
+ * change on the server side, so the polls are always sent by the client.
+ */
+public final class AdaptivePoller {
+    private final long initialDelayMs;
+    private final long maxDelayMs;
+    private final double backoffFactor;
+
+    /**
+     * @param initialDelayMs the delay before the second poll, the first one is sent immediately
+     * @param maxDelayMs the maximum delay between polls
+     * @param backoffFactor the factor to grow the delay after each poll
+     */
+    public AdaptivePoller(final long initialDelayMs, final long maxDelayMs, final double backoffFactor) {
+        if (initialDelayMs <= 0 || maxDelayMs < initialDelayMs || backoffFactor < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Bad polling delays: initial %dms, maximum %dms, backoff factor %f",
+                    initialDelayMs, maxDelayMs, backoffFactor));
+        }
+
+        this.initialDelayMs = initialDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.backoffFactor = backoffFactor;
+    }
+
+    /**
+     * Get the delay after the polls already sent
+     *
+     * @param polls the count of polls sent without getting the state waited for
+     * @return the delay in milliseconds before the next poll
+     */
+    public long getDelayMs(final int polls) {
+        if (polls <= 0) {
+            return initialDelayMs;
+        }
+
+        return (long) Math.min(maxDelayMs, initialDelayMs * Math.pow(backoffFactor, polls));
+    }
+
+    /**
+     * The notification handler of {@link Observable#repeatWhen(Func1)} to poll again after the growing delays.
+     * The polls are resubscribed on the IO scheduler, since they are blocking HTTP requests.
+     */
+    @NotNull
+    public Func1<Observable<? extends Void>, Observable<?>> delays() {
+        return completions -> {
+            final AtomicInteger polls = new AtomicInteger();
+
+            return completions.concatMap(any -> Observable.timer(
+                    getDelayMs(polls.getAndIncrement()), TimeUnit.MILLISECONDS, Schedulers.io()));
+        };
+    }
+
+    /**
+     * The notification handler of {@link Observable#repeatWhen(Func1, rx.Scheduler)} to sleep for the growing delays
+     * on the scheduler specified, which keeps the scheduler busy while waiting.
+     */
+    @NotNull
+    public Func1<Observable<? extends Void>, Observable<?>> sleeps() {
+        return completions -> {
+            final AtomicInteger polls = new AtomicInteger();
+
+            return completions.doOnNext(any -> {
+                try {
+                    Thread.sleep(getDelayMs(polls.getAndIncrement()));
+                } catch (final InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        };
+    }
+}
@@ -17,6 +17,7 @@ import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.exceptions.Sess
 import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.exceptions.StatementExecutionError;
 import com.microsoft.azure.hdinsight.sdk.rest.livy.interactive.SessionKind;
 import com.microsoft.azure.hdinsight.sdk.rest.livy.interactive.SessionState;
+import com.microsoft.azure.hdinsight.sdk.rest.livy.interactive.StatementOutput;
 import com.microsoft.azure.hdinsight.sdk.rest.livy.interactive.api.PostSessions;
 import com.microsoft.azure.hdinsight.spark.common.Deployable;
 import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine;
@@ -39,6 +40,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -46,12 +48,17 @@ import static com.microsoft.azure.hdinsight.common.MessageInfoType.Debug;
 import static com.microsoft.azure.hdinsight.common.MessageInfoType.Info;
 import static com.microsoft.azure.hdinsight.common.MessageInfoType.Warning;
 import static com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine.TOOL;
-import static java.lang.Thread.sleep;
 import static rx.exceptions.Exceptions.propagate;
 
 public abstract class Session implements AutoCloseable, Closeable, ILogger {
     private static final String REST_SEGMENT_SESSION = "sessions";
 
+    // The statements waiting or running in Livy at a time, submitted by submitStatement()
+    private static final int MAX_STATEMENTS_IN_FLIGHT = 4;
+
+    // A session takes tens of seconds to start, but its state is got again soon after a statement submitted
+    private static final AdaptivePoller poller = new AdaptivePoller(250, 2000, 1.5);
+
     // @NotNull annotation is removed since Not Null is by default,
     // refer to https://checkerframework.org/manual/#null-defaults
     private final URI baseUrl;            // Session base URL
@@ -74,6 +81,13 @@ public abstract class Session implements AutoCloseable, Closeable, ILogger {
 
     private final List<String> artifactsToDeploy = new ArrayList<>(); // Artifacts to deploy
 
+    @Nullable
+    private StatementPipeline statementPipeline = null; // Statements submitted without waiting, created on demand
+
+    private final AtomicInteger statementCount = new AtomicInteger(); // Statements submitted to the session
+
+    private volatile int inheritedStatementCount = 0; // Statements run before the session was taken over
+
     public static class CreateParameters {
         public static final String DRIVER_MEMORY = "driverMemory";
         public static final String DRIVER_MEMORY_DEFAULT_VALUE = "4G";
@@ -366,7 +380,7 @@ public abstract class Session implements AutoCloseable, Closeable, ILogger {
         return appId != null ?
                Observable.just(appId) :
                this.get()
-                   .repeatWhen(ob -> ob.delay(1, TimeUnit.SECONDS))
+                   .repeatWhen(poller.delays())
                    .takeUntil(session -> session.appId != null)
                    .filter(session -> session.appId != null)
                    .timeout(3, TimeUnit.MINUTES)
@@ -427,11 +441,49 @@ public abstract class Session implements AutoCloseable, Closeable, ILogger {
         return ctrlSubject;
     }
 
+    public int getStatementCount() {
+        return statementCount.get();
+    }
+
+    /**
+     * Get the count of statements run in the server side session before this instance took it over, such as the health
+     * checks of {@link SessionPool}. The statements submitted by this instance start from the ID of this count.
+     */
+    public int getInheritedStatementCount() {
+        return inheritedStatementCount;
+    }
+
+    void countStatement() {
+        statementCount.incrementAndGet();
+    }
+
+    /**
+     * To take over the server side session of another instance, which mustn't be used any more, such as an idle
+     * session of {@link SessionPool}.
+     *
+     * @param other the session instance to take over
+     */
+    void takeOver(final Session other) {
+        // Set before the state, for the readers waiting for a runnable state to get the statement ID to start from
+        inheritedStatementCount = other.getStatementCount();
+        setId(other.getId());
+        setAppId(other.appId);
+        setLastState(other.getLastState());
+        setLastLogs(other.getLastLogs());
+        statementCount.set(other.getStatementCount());
+    }
+
     /*
      * Overrides
      */
     @Override
     public void close() {
+        synchronized (this) {
+            if (statementPipeline != null) {
+                statementPipeline.close();
+            }
+        }
+
         kill().toBlocking().subscribe(session -> {
                                       },
                                       err -> log().warn("Kill session failed. " + ExceptionUtils.getStackTrace(err)));
@@ -600,28 +652,46 @@ public abstract class Session implements AutoCloseable, Closeable, ILogger {
         return awaitReady()
                 .flatMap(session -> statement
                         .run()
-                        .map(result -> {
-                            if (!"ok".equalsIgnoreCase(result.getStatus())) {
-                                throw propagate(new StatementExecutionError(
-                                        result.getEname(), result.getEvalue(), result.getTraceback()));
-                            }
+                        .map(Session::getResultData));
+    }
+
+    /**
+     * To submit a statement to run after the statements submitted before, without waiting for them done. Several
+     * statements are waiting or running in Livy at a time, to save the round trips between them.
+     *
+     * @param statement the statement to submit
+     * @return the statement result data Observable, which is emitted after the results of the statements submitted
+     *         before, even if it's done earlier
+     */
+    public Observable<Map<String, String>> submitStatement(final Statement statement) {
+        final StatementPipeline pipeline;
 
-                            return result.getData();
-                        }));
+        synchronized (this) {
+            if (statementPipeline == null) {
+                statementPipeline = new StatementPipeline(this, MAX_STATEMENTS_IN_FLIGHT);
+            }
+
+            pipeline = statementPipeline;
+        }
+
+        return pipeline.enqueue(statement);
+    }
+
+    static Map<String, String> getResultData(final StatementOutput result) {
+        if (!"ok".equalsIgnoreCase(result.getStatus())) {
+            throw propagate(new StatementExecutionError(result.getEname(), result.getEvalue(), result.getTraceback()));
+        }
+
+        return result.getData();
     }
 
     public Observable<Session> awaitReady(final @Nullable Scheduler scheduler) {
         return get()
-                .repeatWhen(ob -> scheduler != null ?
-                                  // Use specified scheduler to delay
-                                  ob.doOnNext(any -> {
-                                      try {
-                                          sleep(1000);
-                                      } catch (InterruptedException ignored) {
-                                      }
-                                  }) :
-                                  // Use the default delay scheduler if scheduler not specified
-                                  ob.delay(1, TimeUnit.SECONDS),
+                .repeatWhen(scheduler != null ?
+                            // Use specified scheduler to delay
+                            poller.sleeps() :
+                            // Use the IO scheduler to delay if scheduler not specified
+                            poller.delays(),
                             scheduler != null ? scheduler : Schedulers.trampoline())
                 .takeUntil(Session::isStatementRunnable)
                 .reduce(new ImmutablePair<>(this, getLastLogs()), (sesLogsPair, ses) -> {
@@ -654,6 +724,13 @@ public abstract class Session implements AutoCloseable, Closeable, ILogger {
         return runStatement(new Statement(this, new ByteArrayInputStream(codes.getBytes(StandardCharsets.UTF_8))));
     }
 
+    /**
+     * To submit the codes to run after the codes submitted before, refer to {@link #submitStatement(Statement)}
+     */
+    public Observable<Map<String, String>> submitCodes(final String codes) {
+        return submitStatement(new Statement(this, new ByteArrayInputStream(codes.getBytes(StandardCharsets.UTF_8))));
+    }
+
     public Observable<String> getLog() {
         throw new UnsupportedOperationException();
     }
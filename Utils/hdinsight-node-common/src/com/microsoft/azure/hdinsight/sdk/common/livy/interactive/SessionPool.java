@@ -0,0 +1,643 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.common.livy.interactive;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
+import com.microsoft.azure.hdinsight.sdk.rest.livy.interactive.SessionKind;
+import com.microsoft.azure.hdinsight.sdk.rest.livy.interactive.SessionState;
+import com.microsoft.azure.hdinsight.sdk.rest.livy.interactive.api.PostSessions;
+import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.microsoft.azure.hdinsight.common.MessageInfoType.Info;
+import static com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine.TOOL;
+
+/**
+ * The pool of warm Livy interactive sessions, to save the minutes of YARN container allocation of a new session.
+ *
+ * The sessions are pooled by the Livy URL, the HTTP identity, the session class, kind, the creation parameters except
+ * the name and the usage, so the sessions leased for a usage, such as the consoles, never take over the ones used for
+ * others, and a session is never leased with the credential of another user. Once
+ * a kind of sessions is leased, the pool keeps the warm size of idle sessions of it, until it's not leased for the max
+ * idle time. An idle session is health checked with a trivial statement before it's leased, and it's recycled after
+ * idle for the max idle time or running the max statements.
+ *
+ * The limits can be set by the system properties {@value #WARM_SIZE_PROPERTY}, {@value #MAX_IDLE_MINUTES_PROPERTY}
+ * and {@value #MAX_STATEMENTS_PROPERTY}, or by the setters at runtime. Since each warm session holds YARN containers of
+ * the cluster, refer to {@link #getStats()} to tune the warm size against the cluster cost.
+ */
+public final class SessionPool implements ILogger {
+    public static final String WARM_SIZE_PROPERTY = "hdinsight.livy.sessionPool.warmSize";
+    public static final String MAX_IDLE_MINUTES_PROPERTY = "hdinsight.livy.sessionPool.maxIdleMinutes";
+    public static final String MAX_STATEMENTS_PROPERTY = "hdinsight.livy.sessionPool.maxStatements";
+
+    private static final int DEFAULT_WARM_SIZE = 1;
+    private static final int DEFAULT_MAX_IDLE_MINUTES = 10;
+    private static final int DEFAULT_MAX_STATEMENTS = 200;
+
+    private static final int MAINTENANCE_INTERVAL_SECONDS = 30;
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 30;
+    private static final int WARM_UP_TIMEOUT_MINUTES = 10;
+    private static final int WARM_UP_RETRY_DELAY_MINUTES = 5;
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    // A statement valid in all session kinds
+    private static final String HEALTH_CHECK_CODES = "1";
+
+    /**
+     * The usage of the sessions leased without one, such as running the helper statements
+     */
+    public static final String DEFAULT_USAGE = "default";
+
+    private static final SessionPool instance = new SessionPool();
+
+    // The pools by session key, guarded by this
+    private final Map<String, KeyPool> keyPools = new HashMap<>();
+
+    private volatile int warmSize = Integer.getInteger(WARM_SIZE_PROPERTY, DEFAULT_WARM_SIZE);
+    private volatile int maxIdleMinutes = Integer.getInteger(MAX_IDLE_MINUTES_PROPERTY, DEFAULT_MAX_IDLE_MINUTES);
+    private volatile int maxStatements = Integer.getInteger(MAX_STATEMENTS_PROPERTY, DEFAULT_MAX_STATEMENTS);
+
+    @NotNull
+    private final ScheduledExecutorService maintainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "LivySessionPoolMaintainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @NotNull
+    private final Thread shutdownHook = new Thread(this::closeIdleSessions, "LivySessionPoolShutdown");
+
+    SessionPool() {
+        maintainer.scheduleWithFixedDelay(
+                this::maintain, MAINTENANCE_INTERVAL_SECONDS, MAINTENANCE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        // The idle sessions would hold the cluster resources until Livy times them out
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @NotNull
+    public static SessionPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Lease a session of the same kind as the session specified, which takes over a warm idle session if any, or
+     * creates a new one otherwise. Call {@link Session#awaitReady()} before running statements, since the new session
+     * is still starting.
+     *
+     * @param session the session to lease, not created yet
+     * @return the session leased, which should be released by {@link #release(Session)}, or discarded by
+     *         {@link #discard(Session)} if it's not reusable
+     */
+    @NotNull
+    public Observable<Session> lease(@NotNull final Session session) {
+        return lease(session, DEFAULT_USAGE);
+    }
+
+    /**
+     * Lease a session like {@link #lease(Session)}, but only from the sessions of the usage specified. The statements
+     * run before the lease, such as the health checks, are counted by {@link Session#getInheritedStatementCount()}.
+     *
+     * @param session the session to lease, not created yet
+     * @param usage the usage of the session, the sessions of a usage aren't leased for the others
+     * @return the session leased, which should be released by {@link #release(Session)}, or discarded by
+     *         {@link #discard(Session)} if it's not reusable
+     */
+    @NotNull
+    public Observable<Session> lease(@NotNull final Session session, @NotNull final String usage) {
+        return Observable.defer(() -> {
+            final long startNanos = System.nanoTime();
+            final KeyPool keyPool;
+
+            synchronized (this) {
+                keyPool = keyPools.computeIfAbsent(getKey(session, usage), key -> new KeyPool(session));
+                keyPool.template = session;
+                keyPool.lastLeaseMs = System.currentTimeMillis();
+            }
+
+            return takeHealthyIdle(keyPool)
+                    .map(idle -> {
+                        session.takeOver(idle);
+                        session.getCtrlSubject().onNext(new SparkLogLine(
+                                TOOL, Info, "Leased the warm Livy session " + idle.getId() + " of " + idle.getName()));
+
+                        return true;
+                    })
+                    .switchIfEmpty(Observable.defer(session::create).map(created -> false))
+                    .map(isWarm -> {
+                        synchronized (this) {
+                            keyPool.leased.add(session);
+                            keyPool.leaseCount++;
+                            keyPool.warmHitCount += isWarm ? 1 : 0;
+
+                            final long waitNanos = System.nanoTime() - startNanos;
+                            keyPool.totalLeaseWaitNanos += waitNanos;
+                            keyPool.maxLeaseWaitNanos = Math.max(keyPool.maxLeaseWaitNanos, waitNanos);
+                        }
+
+                        return session;
+                    });
+        });
+    }
+
+    /**
+     * Return the leased session to the pool to be leased again, or close it if it's not needed or not reusable
+     *
+     * @param session the session leased by {@link #lease(Session)}
+     */
+    public void release(@NotNull final Session session) {
+        boolean isKept = false;
+
+        synchronized (this) {
+            for (final KeyPool keyPool : keyPools.values()) {
+                if (keyPool.leased.remove(session)) {
+                    isKept = session.isStatementRunnable()
+                            && session.getStatementCount() < maxStatements
+                            && keyPool.idle.size() < warmSize;
+
+                    if (isKept) {
+                        keyPool.idle.addLast(new IdleSession(session));
+                    }
+
+                    break;
+                }
+            }
+        }
+
+        if (!isKept) {
+            closeQuietly(session);
+        }
+    }
+
+    /**
+     * Close the leased session which isn't reusable, such as a console session with the user's states in it
+     *
+     * @param session the session leased by {@link #lease(Session)}
+     */
+    public void discard(@NotNull final Session session) {
+        synchronized (this) {
+            keyPools.values().forEach(keyPool -> keyPool.leased.remove(session));
+        }
+
+        session.close();
+    }
+
+    /**
+     * Stop maintaining the pool and kill its idle sessions, the sessions leased are left to their holders. It's for
+     * the pools other than the shared instance, such as the ones of tests, not to leak their threads and shutdown hooks.
+     */
+    void close() {
+        if (maintainer.isShutdown()) {
+            return;
+        }
+
+        maintainer.shutdownNow();
+
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (final IllegalStateException ignore) {
+            // The JVM is shutting down, the hook kills the idle sessions
+            return;
+        }
+
+        closeIdleSessions();
+    }
+
+    public int getWarmSize() {
+        return warmSize;
+    }
+
+    /**
+     * Set the count of idle sessions to keep warm for each kind of sessions, 0 to keep the released sessions only
+     */
+    public void setWarmSize(final int warmSize) {
+        this.warmSize = warmSize;
+    }
+
+    public int getMaxIdleMinutes() {
+        return maxIdleMinutes;
+    }
+
+    public void setMaxIdleMinutes(final int maxIdleMinutes) {
+        this.maxIdleMinutes = maxIdleMinutes;
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    public void setMaxStatements(final int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * Get the occupancy and lease statistics of the sessions pooled, by kind of sessions
+     */
+    @NotNull
+    public synchronized List<Stats> getStats() {
+        final List<Stats> stats = new ArrayList<>();
+        keyPools.values().forEach(keyPool -> stats.add(new Stats(keyPool)));
+
+        return stats;
+    }
+
+    @NotNull
+    private static String getKey(@NotNull final Session session, @NotNull final String usage) {
+        final PostSessions postBody = session.getCreateParameters().build();
+        // The pooled sessions are leased for different names
+        postBody.setName(null);
+
+        return String.join("|",
+                           session.getBaseUrl().toString(),
+                           getHttpIdentity(session.getHttp()),
+                           session.getClass().getName(),
+                           session.getKind().toString(),
+                           postBody.convertToJson().orElse(""),
+                           usage);
+    }
+
+    // The hash of the HTTP client class and its credential headers, not to keep the credentials in the keys
+    @NotNull
+    private static String getHttpIdentity(@NotNull final HttpObservable http) {
+        final StringBuilder identity = new StringBuilder(http.getClass().getName());
+
+        try {
+            for (final Header header : http.getDefaultHeaders()) {
+                if (HttpHeaders.AUTHORIZATION.equalsIgnoreCase(header.getName())) {
+                    identity.append('|').append(header.getValue());
+                }
+            }
+        } catch (final IOException ex) {
+            // No credential to compare, only the same HTTP client is the same identity
+            identity.append('@').append(System.identityHashCode(http));
+        }
+
+        return DigestUtils.sha256Hex(identity.toString());
+    }
+
+    @NotNull
+    private Observable<Session> takeHealthyIdle(@NotNull final KeyPool keyPool) {
+        return Observable.defer(() -> {
+            final IdleSession idle;
+
+            synchronized (this) {
+                // Take the latest one, so the others get idle long enough to be recycled
+                idle = keyPool.idle.pollLast();
+            }
+
+            if (idle == null) {
+                return Observable.empty();
+            }
+
+            return idle.session.runCodes(HEALTH_CHECK_CODES)
+                    .timeout(HEALTH_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .last()
+                    .map(result -> idle.session)
+                    .onErrorResumeNext(err -> {
+                        log().warn("The idle Livy session " + idle.session.getId() + " failed the health check: " + err);
+
+                        synchronized (this) {
+                            keyPool.healthCheckFailureCount++;
+                        }
+
+                        closeQuietly(idle.session);
+
+                        return takeHealthyIdle(keyPool);
+                    });
+        });
+    }
+
+    private void maintain() {
+        try {
+            final List<Session> recycled = new ArrayList<>();
+            final List<KeyPool> toWarmUp = new ArrayList<>();
+            final long now = System.currentTimeMillis();
+            final long maxIdleMs = TimeUnit.MINUTES.toMillis(maxIdleMinutes);
+
+            synchronized (this) {
+                final Iterator<KeyPool> it = keyPools.values().iterator();
+                while (it.hasNext()) {
+                    final KeyPool keyPool = it.next();
+
+                    // The oldest idle sessions are at the head
+                    final Iterator<IdleSession> idleIt = keyPool.idle.iterator();
+                    while (idleIt.hasNext()) {
+                        final IdleSession idle = idleIt.next();
+
+                        if (now - idle.idleSinceMs > maxIdleMs
+                                || idle.session.getStatementCount() >= maxStatements
+                                || keyPool.idle.size() > warmSize) {
+                            idleIt.remove();
+                            recycled.add(idle.session);
+                            keyPool.recycledCount++;
+                        }
+                    }
+
+                    final boolean isInUse = now - keyPool.lastLeaseMs < maxIdleMs;
+                    final boolean isWarmUpAllowed =
+                            now - keyPool.lastWarmUpFailureMs > TimeUnit.MINUTES.toMillis(WARM_UP_RETRY_DELAY_MINUTES);
+
+                    if (isInUse && isWarmUpAllowed) {
+                        for (int i = keyPool.idle.size() + keyPool.creatingCount; i < warmSize; i++) {
+                            keyPool.creatingCount++;
+                            toWarmUp.add(keyPool);
+                        }
+                    } else if (!isInUse && keyPool.isEmpty()) {
+                        it.remove();
+                    }
+                }
+            }
+
+            recycled.forEach(this::closeQuietly);
+            toWarmUp.forEach(this::warmUp);
+        } catch (final RuntimeException ex) {
+            // Keep the maintenance scheduled
+            log().warn("Failed to maintain Livy session pool", ex);
+        }
+    }
+
+    private void warmUp(@NotNull final KeyPool keyPool) {
+        final Session session = new WarmSession(keyPool.template);
+
+        session.create()
+                .flatMap(created -> created.awaitReady())
+                .timeout(WARM_UP_TIMEOUT_MINUTES, TimeUnit.MINUTES)
+                .last()
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        ready -> {
+                            final boolean isKept;
+
+                            synchronized (this) {
+                                keyPool.creatingCount--;
+                                keyPool.createdCount++;
+                                isKept = keyPool.idle.size() < warmSize;
+
+                                if (isKept) {
+                                    keyPool.idle.addLast(new IdleSession(session));
+                                }
+                            }
+
+                            if (!isKept) {
+                                closeQuietly(session);
+                            }
+                        },
+                        err -> {
+                            log().warn("Failed to warm up Livy session of " + keyPool.livyUrl + ": " + err);
+
+                            synchronized (this) {
+                                keyPool.creatingCount--;
+                                keyPool.lastWarmUpFailureMs = System.currentTimeMillis();
+                            }
+
+                            closeQuietly(session);
+                        });
+    }
+
+    private void closeQuietly(@NotNull final Session session) {
+        // Not created, nothing to kill in Livy
+        if (session.getLastState() == SessionState.NOT_STARTED) {
+            return;
+        }
+
+        Observable.fromCallable(() -> {
+                    session.close();
+                    return session;
+                })
+                .subscribeOn(Schedulers.io())
+                .subscribe(closed -> {},
+                           err -> log().warn("Failed to close Livy session " + session.getId() + ": " + err));
+    }
+
+    private void closeIdleSessions() {
+        final List<Session> idleSessions = new ArrayList<>();
+
+        synchronized (this) {
+            keyPools.values().forEach(keyPool -> {
+                keyPool.idle.forEach(idle -> idleSessions.add(idle.session));
+                keyPool.idle.clear();
+            });
+        }
+
+        Observable.from(idleSessions)
+                .flatMap(session -> session.kill()
+                        .subscribeOn(Schedulers.io())
+                        .onErrorResumeNext(Observable.empty()))
+                .timeout(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .onErrorResumeNext(Observable.empty())
+                .toList()
+                .toBlocking()
+                .single();
+    }
+
+    /**
+     * The session created by the pool in the background, with the HTTP connection and parameters of a leased one
+     */
+    private static final class WarmSession extends Session {
+        @NotNull
+        private final Session template;
+
+        private WarmSession(@NotNull final Session template) {
+            super(template.getName(), template.getBaseUrl(), template.getCreateParameters(), null, null);
+
+            this.template = template;
+        }
+
+        @Override
+        public SessionKind getKind() {
+            return template.getKind();
+        }
+
+        @Override
+        public HttpObservable getHttp() {
+            return template.getHttp();
+        }
+    }
+
+    private static final class IdleSession {
+        @NotNull
+        private final Session session;
+
+        private final long idleSinceMs = System.currentTimeMillis();
+
+        private IdleSession(@NotNull final Session session) {
+            this.session = session;
+        }
+    }
+
+    /**
+     * The sessions of a key, guarded by the pool
+     */
+    private static final class KeyPool {
+        @NotNull
+        private final URI livyUrl;
+
+        @NotNull
+        private final SessionKind kind;
+
+        // The latest session leased, to create the warm sessions like it
+        @NotNull
+        private Session template;
+
+        // The idle sessions, the oldest first
+        private final Deque<IdleSession> idle = new ArrayDeque<>();
+
+        private final Set<Session> leased = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private int creatingCount = 0;
+        private long lastLeaseMs = 0;
+        private long lastWarmUpFailureMs = 0;
+
+        private long leaseCount = 0;
+        private long warmHitCount = 0;
+        private long totalLeaseWaitNanos = 0;
+        private long maxLeaseWaitNanos = 0;
+        private long createdCount = 0;
+        private long recycledCount = 0;
+        private long healthCheckFailureCount = 0;
+
+        private KeyPool(@NotNull final Session template) {
+            this.livyUrl = template.getBaseUrl();
+            this.kind = template.getKind();
+            this.template = template;
+        }
+
+        private boolean isEmpty() {
+            return idle.isEmpty() && leased.isEmpty() && creatingCount == 0;
+        }
+    }
+
+    /**
+     * The snapshot of a kind of sessions pooled
+     */
+    public static final class Stats {
+        @NotNull
+        private final URI livyUrl;
+
+        @NotNull
+        private final SessionKind kind;
+
+        private final int idleCount;
+        private final int leasedCount;
+        private final int creatingCount;
+        private final long leaseCount;
+        private final long warmHitCount;
+        private final long totalLeaseWaitNanos;
+        private final long maxLeaseWaitNanos;
+        private final long createdCount;
+        private final long recycledCount;
+        private final long healthCheckFailureCount;
+
+        private Stats(@NotNull final KeyPool keyPool) {
+            this.livyUrl = keyPool.livyUrl;
+            this.kind = keyPool.kind;
+            this.idleCount = keyPool.idle.size();
+            this.leasedCount = keyPool.leased.size();
+            this.creatingCount = keyPool.creatingCount;
+            this.leaseCount = keyPool.leaseCount;
+            this.warmHitCount = keyPool.warmHitCount;
+            this.totalLeaseWaitNanos = keyPool.totalLeaseWaitNanos;
+            this.maxLeaseWaitNanos = keyPool.maxLeaseWaitNanos;
+            this.createdCount = keyPool.createdCount;
+            this.recycledCount = keyPool.recycledCount;
+            this.healthCheckFailureCount = keyPool.healthCheckFailureCount;
+        }
+
+        @NotNull
+        public URI getLivyUrl() {
+            return livyUrl;
+        }
+
+        @NotNull
+        public SessionKind getKind() {
+            return kind;
+        }
+
+        public int getIdleCount() {
+            return idleCount;
+        }
+
+        public int getLeasedCount() {
+            return leasedCount;
+        }
+
+        /**
+         * @return the count of warm sessions being created
+         */
+        public int getCreatingCount() {
+            return creatingCount;
+        }
+
+        public long getLeaseCount() {
+            return leaseCount;
+        }
+
+        /**
+         * @return the count of leases which took over a warm idle session
+         */
+        public long getWarmHitCount() {
+            return warmHitCount;
+        }
+
+        public long getAverageLeaseWaitMillis() {
+            return leaseCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLeaseWaitNanos / leaseCount);
+        }
+
+        public long getMaxLeaseWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxLeaseWaitNanos);
+        }
+
+        /**
+         * @return the count of warm sessions created
+         */
+        public long getCreatedCount() {
+            return createdCount;
+        }
+
+        /**
+         * @return the count of idle sessions closed for the idle time, the statement count or a smaller warm size
+         */
+        public long getRecycledCount() {
+            return recycledCount;
+        }
+
+        public long getHealthCheckFailureCount() {
+            return healthCheckFailureCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s: %d idle, %d leased, %d creating; %d leases, %d warm hits, lease wait avg %dms "
+                                         + "max %dms; %d created, %d recycled, %d health check failures",
+                                 kind, livyUrl, idleCount, leasedCount, creatingCount, leaseCount, warmHitCount,
+                                 getAverageLeaseWaitMillis(), getMaxLeaseWaitMillis(), createdCount, recycledCount,
+                                 healthCheckFailureCount);
+        }
+    }
+}
@@ -22,11 +22,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.TimeUnit;
 
 public class Statement implements ILogger {
     public static final String REST_SEGMENT_STATEMENTS = "statements";
 
+    // Most console statements are done in tens of milliseconds, poll them fast at first
+    private static final AdaptivePoller poller = new AdaptivePoller(50, 1000, 1.5);
+
     @NotNull
     private Session session;            // Statement owner session
 
@@ -116,14 +118,32 @@ public class Statement implements ILogger {
      */
 
     public Observable<StatementOutput> run() {
+        return submit()
+                .flatMap(Statement::awaitOutput);
+    }
+
+    /**
+     * To post the statement codes to run, without waiting for the statement done.
+     *
+     * @return the updated Statement instance Observable
+     */
+    public Observable<Statement> submit() {
         return runStatementRequest()
                 .map(this::updateWithResponse)
-                .flatMap(statement -> statement.get()                    // Get statement result
-                        .repeatWhen(ob -> ob.delay(1, TimeUnit.SECONDS)) // The unmet state won't trigger retries,
-                                                                         // which is handled by repeatWhen()
-                        .takeUntil(Statement::isDone)
-                        .filter(Statement::isDone)
-                )
+                .doOnNext(statement -> getSession().countStatement());
+    }
+
+    /**
+     * To poll the submitted statement until it's done, fast at first and slower as it runs longer.
+     *
+     * @return the statement output Observable
+     */
+    public Observable<StatementOutput> awaitOutput() {
+        return get()                                                    // Get statement result
+                .repeatWhen(poller.delays())                            // The unmet state won't trigger retries,
+                                                                        // which is handled by repeatWhen()
+                .takeUntil(Statement::isDone)
+                .filter(Statement::isDone)
                 .map(Statement::getOutput);
     }
 
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.common.livy.interactive;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.exceptions.SessionNotStartException;
+import com.microsoft.azure.hdinsight.sdk.rest.livy.interactive.StatementOutput;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import rx.Observable;
+import rx.schedulers.Schedulers;
+import rx.subjects.AsyncSubject;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The statements queued to run in a Livy session, without waiting for the statements before them done.
+ *
+ * Livy runs the statements of a session one by one in the order they are posted, so the statements are posted in the
+ * queued order, and up to {@code maxInFlight} of them are waiting or running in Livy at a time. The outputs are polled
+ * concurrently but emitted in the queued order, so the results come as if the statements were run one by one, without
+ * a round trip between them.
+ */
+final class StatementPipeline implements ILogger {
+    @NotNull
+    private final Session session;
+
+    // The permits of the statements posted and not done yet
+    @NotNull
+    private final Semaphore inFlight;
+
+    @NotNull
+    private final Subject<PendingStatement, PendingStatement> queue = PublishSubject.<PendingStatement>create()
+            .toSerialized();
+
+    private boolean isClosed = false;
+
+    StatementPipeline(@NotNull final Session session, final int maxInFlight) {
+        this.session = session;
+        this.inFlight = new Semaphore(maxInFlight);
+        queue
+                .onBackpressureBuffer()
+                // The posts block the pipeline thread until a statement in flight is done
+                .observeOn(Schedulers.io())
+                .map(this::post)
+                .concatMapEager(this::awaitOutput, maxInFlight, maxInFlight)
+                .subscribe(PendingStatement::complete,
+                           err -> log().warn("The statement pipeline of session " + session.getName() + " stopped", err));
+    }
+
+    /**
+     * Queue the statement to run after the statements queued before
+     *
+     * @return the Observable of the statement result data, emitted after the results of the statements queued before
+     */
+    @NotNull
+    synchronized Observable<Map<String, String>> enqueue(@NotNull final Statement statement) {
+        if (isClosed) {
+            return Observable.error(new SessionNotStartException("The session " + session.getName() + " is closed"));
+        }
+
+        final PendingStatement pending = new PendingStatement(statement);
+        queue.onNext(pending);
+
+        return pending.result.asObservable();
+    }
+
+    /**
+     * Stop taking statements, the statements queued are still run
+     */
+    synchronized void close() {
+        isClosed = true;
+        queue.onCompleted();
+    }
+
+    @NotNull
+    private PendingStatement post(@NotNull final PendingStatement pending) {
+        try {
+            inFlight.acquire();
+        } catch (final InterruptedException ex) {
+            pending.error = ex;
+
+            return pending;
+        }
+
+        try {
+            (session.isStatementRunnable() ? Observable.just(session) : session.awaitReady())
+                    .flatMap(ses -> pending.statement.submit())
+                    .toBlocking()
+                    .single();
+
+            pending.isPosted = true;
+        } catch (final RuntimeException ex) {
+            pending.error = ex;
+            inFlight.release();
+        }
+
+        return pending;
+    }
+
+    @NotNull
+    private Observable<PendingStatement> awaitOutput(@NotNull final PendingStatement pending) {
+        if (!pending.isPosted) {
+            return Observable.just(pending);
+        }
+
+        return pending.statement.awaitOutput()
+                .subscribeOn(Schedulers.io())
+                .map(output -> {
+                    pending.output = output;
+                    return pending;
+                })
+                .onErrorReturn(err -> {
+                    pending.error = err;
+                    return pending;
+                })
+                .defaultIfEmpty(pending)
+                .doOnTerminate(inFlight::release);
+    }
+
+    private static final class PendingStatement {
+        @NotNull
+        private final Statement statement;
+
+        @NotNull
+        private final AsyncSubject<Map<String, String>> result = AsyncSubject.create();
+
+        // The fields are set by one pipeline stage before the pending statement is passed to the next one
+        private volatile boolean isPosted = false;
+
+        @Nullable
+        private volatile StatementOutput output;
+
+        @Nullable
+        private volatile Throwable error;
+
+        private PendingStatement(@NotNull final Statement statement) {
+            this.statement = statement;
+        }
+
+        private void complete() {
+            final Throwable err = error;
+            if (err != null) {
+                result.onError(err);
+
+                return;
+            }
+
+            final StatementOutput done = output;
+            if (done != null) {
+                try {
+                    result.onNext(Session.getResultData(done));
+                } catch (final RuntimeException ex) {
+                    result.onError(ex);
+
+                    return;
+                }
+            }
+
+            result.onCompleted();
+        }
+    }
+}
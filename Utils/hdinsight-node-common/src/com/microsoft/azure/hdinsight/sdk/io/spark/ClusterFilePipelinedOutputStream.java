@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.io.spark;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.Session;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import rx.schedulers.Schedulers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+
+/**
+ * Uploads a binary file to the cluster storage through a Livy session, for the clusters without direct storage access.
+ *
+ * The file is cut into pages, and each page is deflated and BASE64 encoded into a {@code writePage(index, ...)} call.
+ * Several pages are sent in one statement, and several statements are in flight at a time. The preloaded decoder
+ * writes the pages by index, so the statements can be finished in any order. When the stream is closed, a final
+ * statement verifies the page count and the SHA-256 checksum of the file written.
+ *
+ * Unlike {@link ClusterFileBase64BufferedOutputStream}, the stream takes the raw bytes, not the BASE64 text, and the
+ * session isn't closed with the stream, so it can be released to the
+ * {@link com.microsoft.azure.hdinsight.sdk.common.livy.interactive.SessionPool} for the next upload.
+ */
+public class ClusterFilePipelinedOutputStream extends OutputStream implements ILogger {
+    private static final int DEFAULT_PAGE_SIZE_KB = 32;
+    private static final int DEFAULT_PAGES_PER_STATEMENT = 8;
+    private static final int DEFAULT_MAX_STATEMENTS_IN_FLIGHT = 3;
+
+    // The encoded page is a Scala string literal, which must be shorter than 64KB in the class file
+    private static final int MAX_PAGE_SIZE_KB = 46;
+
+    private static final String PRELOADED_CODES = String.join("\n",
+            "import java.io._",
+            "import java.security.MessageDigest",
+            "import java.util.Base64",
+            "import java.util.zip.Inflater",
+            "",
+            "val uploadPath = new org.apache.hadoop.fs.Path(\"%s\")",
+            "val uploadFs = uploadPath.getFileSystem(sc.hadoopConfiguration)",
+            "val uploadOut = new BufferedOutputStream(uploadFs.create(uploadPath, true))",
+            "val uploadDigest = MessageDigest.getInstance(\"SHA-256\")",
+            "val uploadPendingPages = scala.collection.mutable.HashMap[Int, Array[Byte]]()",
+            "var uploadNextPage = 0",
+            "",
+            "def inflatePage(deflated: Array[Byte]): Array[Byte] = {",
+            "    val inflater = new Inflater()",
+            "    val pageOut = new ByteArrayOutputStream(deflated.length * 2)",
+            "    val buf = new Array[Byte](64 * 1024)",
+            "",
+            "    try {",
+            "        inflater.setInput(deflated)",
+            "        while (!inflater.finished()) {",
+            "            val len = inflater.inflate(buf)",
+            "            if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {",
+            "                throw new IOException(\"Truncated page\")",
+            "            }",
+            "            pageOut.write(buf, 0, len)",
+            "        }",
+            "    } finally {",
+            "        inflater.end()",
+            "    }",
+            "",
+            "    pageOut.toByteArray",
+            "}",
+            "",
+            "def writePage(index: Int, isDeflated: Boolean, encodedBase64: String): Unit = uploadPendingPages.synchronized {",
+            "    val encoded = Base64.getDecoder.decode(encodedBase64)",
+            "    uploadPendingPages(index) = if (isDeflated) inflatePage(encoded) else encoded",
+            "",
+            "    while (uploadPendingPages.contains(uploadNextPage)) {",
+            "        val pageBytes = uploadPendingPages.remove(uploadNextPage).get",
+            "        uploadOut.write(pageBytes, 0, pageBytes.length)",
+            "        uploadDigest.update(pageBytes)",
+            "        uploadNextPage += 1",
+            "    }",
+            "}",
+            "",
+            "def finishUpload(pageCount: Int, sha256: String): Unit = uploadPendingPages.synchronized {",
+            "    uploadOut.close()",
+            "",
+            "    val actual = uploadDigest.digest().map(\"%%02x\".format(_)).mkString",
+            "    if (uploadNextPage != pageCount || uploadPendingPages.nonEmpty || actual != sha256) {",
+            "        uploadFs.delete(uploadPath, false)",
+            "        throw new IOException(s\"Broken upload of $uploadPath: got $uploadNextPage of $pageCount pages, \" +",
+            "                              s\"checksum $actual, expected $sha256\")",
+            "    }",
+            "}");
+
+    @NotNull
+    private final Session session;
+
+    @NotNull
+    private final byte[] page;
+
+    private int pagePos = 0;
+
+    private final int pagesPerStatement;
+
+    private final int maxStatementsInFlight;
+
+    // The writePage() calls to send in the next statement
+    @NotNull
+    private final StringBuilder statementCodes = new StringBuilder();
+
+    private int statementPageCount = 0;
+
+    private int pageCount = 0;
+
+    @NotNull
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    @NotNull
+    private final byte[] deflateBuf;
+
+    @NotNull
+    private final MessageDigest digest = DigestUtils.getSha256Digest();
+
+    // The permits of the statements in flight
+    @NotNull
+    private final Semaphore inFlight;
+
+    // The first statement failure, to be thrown by the following writes
+    @NotNull
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private boolean isClosed = false;
+
+    public ClusterFilePipelinedOutputStream(@NotNull final Session session,
+                                            @NotNull final URI destination,
+                                            final int pageSizeKB,
+                                            final int pagesPerStatement,
+                                            final int maxStatementsInFlight) {
+        if (pageSizeKB <= 0 || pageSizeKB > MAX_PAGE_SIZE_KB) {
+            throw new IllegalArgumentException(
+                    "The page size should be 1KB to " + MAX_PAGE_SIZE_KB + "KB, but got " + pageSizeKB + "KB");
+        }
+
+        if (pagesPerStatement <= 0 || maxStatementsInFlight <= 0) {
+            throw new IllegalArgumentException("The pages per statement and statements in flight should be positive");
+        }
+
+        this.session = session;
+        this.page = new byte[pageSizeKB * 1024];
+        // Deflating the uncompressible data makes it a little bigger, which is sent as it is
+        this.deflateBuf = new byte[page.length];
+        this.pagesPerStatement = pagesPerStatement;
+        this.maxStatementsInFlight = maxStatementsInFlight;
+        this.inFlight = new Semaphore(maxStatementsInFlight);
+
+        // Pre-load
+        session.runCodes(String.format(PRELOADED_CODES, destination.toString()))
+                .toBlocking()
+                .singleOrDefault(null);
+    }
+
+    public ClusterFilePipelinedOutputStream(@NotNull final Session session, @NotNull final URI destination) {
+        this(session, destination,
+             DEFAULT_PAGE_SIZE_KB, DEFAULT_PAGES_PER_STATEMENT, DEFAULT_MAX_STATEMENTS_IN_FLIGHT);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        page[pagePos++] = (byte) b;
+
+        if (pagePos == page.length) {
+            sealPage();
+        }
+    }
+
+    @Override
+    public void write(@NotNull final byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        while (len > 0) {
+            final int copied = Math.min(len, page.length - pagePos);
+            System.arraycopy(b, off, page, pagePos, copied);
+            pagePos += copied;
+            off += copied;
+            len -= copied;
+
+            if (pagePos == page.length) {
+                sealPage();
+            }
+        }
+    }
+
+    /**
+     * Send the bytes written so far and wait for all statements in flight
+     */
+    @Override
+    public void flush() throws IOException {
+        checkFailure();
+
+        if (pagePos > 0) {
+            sealPage();
+        }
+
+        sendStatement();
+        awaitInFlight();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+
+        isClosed = true;
+
+        try {
+            flush();
+
+            runStatement(String.format("finishUpload(%d, \"%s\")", pageCount, Hex.encodeHexString(digest.digest())));
+        } finally {
+            deflater.end();
+            super.close();
+        }
+    }
+
+    private void sealPage() throws IOException {
+        digest.update(page, 0, pagePos);
+
+        deflater.reset();
+        deflater.setInput(page, 0, pagePos);
+        deflater.finish();
+
+        final int deflatedLen = deflater.deflate(deflateBuf);
+        final boolean isDeflated = deflater.finished() && deflatedLen < pagePos;
+        final String encoded = isDeflated
+                ? Base64.encodeBase64String(Arrays.copyOf(deflateBuf, deflatedLen))
+                : Base64.encodeBase64String(Arrays.copyOf(page, pagePos));
+
+        statementCodes.append(String.format("writePage(%d, %s, \"%s\")\n", pageCount, isDeflated, encoded));
+        pageCount++;
+        statementPageCount++;
+        pagePos = 0;
+
+        if (statementPageCount == pagesPerStatement) {
+            sendStatement();
+        }
+    }
+
+    private void sendStatement() throws IOException {
+        if (statementPageCount == 0) {
+            return;
+        }
+
+        checkFailure();
+
+        try {
+            inFlight.acquire();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the uploading statements");
+        }
+
+        final String codes = statementCodes.toString();
+        statementCodes.setLength(0);
+        statementPageCount = 0;
+
+        session.runCodes(codes)
+                .subscribeOn(Schedulers.io())
+                .subscribe(data -> {},
+                           err -> {
+                               if (!failure.compareAndSet(null, err)) {
+                                   log().warn("Uploading statement failed after another failure", err);
+                               }
+
+                               inFlight.release();
+                           },
+                           inFlight::release);
+    }
+
+    private void awaitInFlight() throws IOException {
+        try {
+            inFlight.acquire(maxStatementsInFlight);
+            inFlight.release(maxStatementsInFlight);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the uploading statements");
+        }
+
+        checkFailure();
+    }
+
+    private void runStatement(@NotNull final String codes) throws IOException {
+        try {
+            session.runCodes(codes)
+                    .toBlocking()
+                    .singleOrDefault(null);
+        } catch (final RuntimeException ex) {
+            throw new IOException("Failed to upload file through Livy session", ex.getCause() != null ? ex.getCause() : ex);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        final Throwable err = failure.get();
+
+        if (err != null) {
+            throw new IOException("Failed to upload file through Livy session", err);
+        }
+    }
+}
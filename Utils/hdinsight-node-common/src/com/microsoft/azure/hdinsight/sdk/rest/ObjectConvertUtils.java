@@ -8,17 +8,28 @@ package com.microsoft.azure.hdinsight.sdk.rest;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.util.EntityUtils;
+import rx.Observable;
+import rx.exceptions.Exceptions;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public final class ObjectConvertUtils {
@@ -26,6 +37,10 @@ public final class ObjectConvertUtils {
     private static ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
     private static XmlMapper xmlMapper = new XmlMapper();
 
+    // The readers are immutable and thread-safe, cached to skip the deserializer lookup of each response
+    private static final Map<JavaType, ObjectReader> jsonReaders = new ConcurrentHashMap<>();
+    private static final Map<JavaType, ObjectReader> xmlReaders = new ConcurrentHashMap<>();
+
     public static <T> Optional<T> convertJsonToObject(@NotNull String jsonString, @NotNull Class<T> clazz) throws IOException {
         return Optional.ofNullable(objectMapper.readValue(jsonString, clazz));
     }
@@ -40,37 +55,125 @@ public final class ObjectConvertUtils {
     }
 
     public static <T> Optional<T> convertEntityToObject(@NotNull HttpEntity entity, @NotNull Class<T> clazz) throws IOException {
-        // To handle complex response Content-Type value.
-        // Ref to: https://developer.mozilla.org/en-US/docs/Web/HTTP/Headers/Content-Type
-        // Like --
-        //   Content-Type: application/xml; charset=UTF-8
-        final String type = entity.getContentType().getValue().toLowerCase().split(";")[0].trim();
+        return Optional.ofNullable(readEntity(entity, TypeFactory.defaultInstance().constructType(clazz)));
+    }
+
+    public static <T> Optional<List<T>> convertEntityToList(@NotNull HttpEntity entity, @NotNull Class<T> clazz) throws IOException {
+        return Optional.ofNullable(readEntity(
+                entity, TypeFactory.defaultInstance().constructCollectionType(List.class, clazz)));
+    }
+
+    /**
+     * Convert the JSON array entity to an Observable, which emits each element as soon as it's parsed from the
+     * entity content, without holding the whole array. The entity content is closed when the Observable terminates
+     * or is unsubscribed.
+     *
+     * @param entity the HTTP entity of a JSON array
+     * @param clazz the element type
+     * @param <T> the element type
+     * @return the Observable of the array elements, empty if the entity has no content or the content type isn't JSON
+     */
+    @NotNull
+    public static <T> Observable<T> convertEntityToObservable(@NotNull HttpEntity entity, @NotNull Class<T> clazz) {
+        if (!"application/json".equals(getMimeType(entity))) {
+            EntityUtils.consumeQuietly(entity);
+            return Observable.empty();
+        }
+
+        return Observable.using(
+                () -> {
+                    try {
+                        final ObjectReader reader = getJsonReader(TypeFactory.defaultInstance().constructType(clazz));
+
+                        return reader.<T>readValues(openContent(entity));
+                    } catch (IOException ex) {
+                        throw Exceptions.propagate(ex);
+                    }
+                },
+                elements -> Observable.from(() -> elements),
+                elements -> {
+                    try {
+                        elements.close();
+                    } catch (IOException ignore) {
+                        // The connection will be closed automatically after timeout
+                    }
+                });
+    }
+
+    /**
+     * Parse the JSON content stream to an object
+     *
+     * @param content the JSON content, not closed by the method
+     * @param clazz the target type
+     * @return the object parsed, empty for the JSON null
+     */
+    public static <T> Optional<T> convertJsonStreamToObject(@NotNull InputStream content, @NotNull Class<T> clazz) throws IOException {
+        return Optional.ofNullable(getJsonReader(TypeFactory.defaultInstance().constructType(clazz)).readValue(content));
+    }
 
-        switch (type) {
+    /**
+     * Parse the entity content with the cached reader of the target type, the entity content is closed after reading
+     *
+     * @return the parsed value, null if the entity has no content or the content type isn't JSON or XML
+     */
+    @Nullable
+    private static <T> T readEntity(@NotNull HttpEntity entity, @NotNull JavaType type) throws IOException {
+        final String mimeType = getMimeType(entity);
+        final ObjectReader reader;
+
+        switch (mimeType == null ? "" : mimeType) {
             case "application/json" :
-                return convertJsonToObject(EntityUtils.toString(entity), clazz);
+                reader = getJsonReader(type);
+                break;
             case "application/xml" :
-                return convertXmlToObject(EntityUtils.toString(entity), clazz);
+                reader = xmlReaders.computeIfAbsent(type, xmlMapper::readerFor);
+                break;
             default:
+                EntityUtils.consumeQuietly(entity);
+                return null;
+        }
+
+        try (InputStream content = openContent(entity)) {
+            final Charset charset = ContentType.getLenientOrDefault(entity).getCharset();
+
+            // The parser detects the Unicode encodings from the bytes itself, which saves a decoding copy
+            if (charset == null || charset.name().toUpperCase().startsWith("UTF-")) {
+                return reader.readValue(content);
+            }
+
+            return reader.readValue(new InputStreamReader(content, charset));
         }
-        return Optional.empty();
     }
 
-    public static <T> Optional<List<T>> convertEntityToList(@NotNull HttpEntity entity, @NotNull Class<T> clazz) throws IOException {
+    /**
+     * Get the MIME type of the entity content
+     *
+     * @return the lower case MIME type without parameters, null if the entity has no content or no content type
+     */
+    @Nullable
+    private static String getMimeType(@NotNull HttpEntity entity) {
+        // No content to parse, like the body of 204 No Content
+        if (entity.getContentLength() == 0 || entity.getContentType() == null) {
+            return null;
+        }
+
         // To handle complex response Content-Type value.
         // Ref to: https://developer.mozilla.org/en-US/docs/Web/HTTP/Headers/Content-Type
         // Like --
         //   Content-Type: application/xml; charset=UTF-8
-        final String type = entity.getContentType().getValue().toLowerCase().split(";")[0].trim();
+        return entity.getContentType().getValue().toLowerCase().split(";")[0].trim();
+    }
 
-        switch (type) {
-            case "application/json" :
-                return convertJsonToList(EntityUtils.toString(entity), clazz);
-            case "application/xml" :
-                return convertXmlToList(EntityUtils.toString(entity), clazz);
-            default:
-        }
-        return Optional.empty();
+    @NotNull
+    private static ObjectReader getJsonReader(@NotNull JavaType type) {
+        return jsonReaders.computeIfAbsent(type, objectMapper::readerFor);
+    }
+
+    @NotNull
+    private static InputStream openContent(@NotNull HttpEntity entity) throws IOException {
+        final InputStream content = entity.getContent();
+
+        return content == null ? new ByteArrayInputStream(new byte[0]) : content;
     }
 
     public static <T> Optional<List<T>> convertJsonToList(@NotNull String jsonString, Class<T> clazz) throws IOException {
@@ -6,6 +6,9 @@
 package com.microsoft.azure.hdinsight.sdk.rest.spark;
 
 import com.microsoft.azure.hdinsight.sdk.rest.spark.event.JobStartEventLog;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.SparkEventLogs;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.StageCompletedEventLog;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.TaskEndEventLog;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.job.Job;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.App;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
@@ -16,6 +19,8 @@ public class YarnAppWithJobs {
     private App app;
     private List<Job> jobs;
     private List<JobStartEventLog> startEventLogs;
+    private List<StageCompletedEventLog> stageCompletedEventLogs;
+    private List<TaskEndEventLog> failedTaskEndEventLogs;
 
     public YarnAppWithJobs() {
     }
@@ -26,6 +31,12 @@ public class YarnAppWithJobs {
         this.startEventLogs = startEventLogs;
     }
 
+    public YarnAppWithJobs(@NotNull App app, @NotNull List<Job> jobs, @NotNull SparkEventLogs eventLogs) {
+        this(app, jobs, eventLogs.getJobStartEvents());
+        this.stageCompletedEventLogs = eventLogs.getStageCompletedEvents();
+        this.failedTaskEndEventLogs = eventLogs.getFailedTaskEndEvents();
+    }
+
     public App getApp() {
         return app;
     }
@@ -50,4 +61,20 @@ public class YarnAppWithJobs {
         this.startEventLogs = startEventLogs;
     }
 
+    public List<StageCompletedEventLog> getStageCompletedEventLogs() {
+        return stageCompletedEventLogs;
+    }
+
+    public void setStageCompletedEventLogs(List<StageCompletedEventLog> stageCompletedEventLogs) {
+        this.stageCompletedEventLogs = stageCompletedEventLogs;
+    }
+
+    public List<TaskEndEventLog> getFailedTaskEndEventLogs() {
+        return failedTaskEndEventLogs;
+    }
+
+    public void setFailedTaskEndEventLogs(List<TaskEndEventLog> failedTaskEndEventLogs) {
+        this.failedTaskEndEventLogs = failedTaskEndEventLogs;
+    }
+
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.rest.spark.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// The accumulables of a completed stage are objects with the accumulated values, not names
+@JsonIgnoreProperties(value = { "Accumulables" }, ignoreUnknown = true)
+public class CompletedStageInfo extends StageInfo {
+    @JsonProperty("Submission Time")
+    private long submissionTime;
+
+    @JsonProperty("Completion Time")
+    private long completionTime;
+
+    @JsonProperty("Failure Reason")
+    private String failureReason;
+
+    public long getSubmissionTime() {
+        return submissionTime;
+    }
+
+    public void setSubmissionTime(long submissionTime) {
+        this.submissionTime = submissionTime;
+    }
+
+    public long getCompletionTime() {
+        return completionTime;
+    }
+
+    public void setCompletionTime(long completionTime) {
+        this.completionTime = completionTime;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+}
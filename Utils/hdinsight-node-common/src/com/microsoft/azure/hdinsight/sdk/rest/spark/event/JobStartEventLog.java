@@ -12,6 +12,8 @@ import java.util.Map;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class JobStartEventLog {
+    public static final String EVENT_NAME = "SparkListenerJobStart";
+
     @JsonProperty("Event")
     private String event;
 
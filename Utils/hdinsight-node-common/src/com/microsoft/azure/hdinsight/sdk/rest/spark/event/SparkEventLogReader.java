@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.rest.spark.event;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Reads a Spark event log, one JSON event per line, as a stream.
+ *
+ * The event name of each line is picked up by a byte scan for the {@code "Event":"<name>"} token. The lines of the
+ * events not registered are skipped without being buffered or parsed, and the others are parsed once into their
+ * registered types. So the memory used is bounded by the longest registered event line, not by the log size.
+ */
+public class SparkEventLogReader implements ILogger {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] EVENT_KEY = "\"Event\"".getBytes(StandardCharsets.US_ASCII);
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final ObjectMapper objectMapper = new ObjectMapper(jsonFactory)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // Event names are matched case-insensitively
+    private final Map<String, EventHandler<?>> handlers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private long lineCount = 0;
+    private long parsedCount = 0;
+
+    /**
+     * Register the handler of an event
+     *
+     * @param eventName the event name, such as SparkListenerJobStart
+     * @param clazz the class to parse the event line into
+     * @param consumer to get the parsed events
+     * @return this reader to chain the registrations
+     */
+    @NotNull
+    public <T> SparkEventLogReader on(@NotNull final String eventName,
+                                      @NotNull final Class<T> clazz,
+                                      @NotNull final Consumer<? super T> consumer) {
+        handlers.put(eventName, new EventHandler<>(objectMapper.readerFor(clazz), consumer));
+
+        return this;
+    }
+
+    /**
+     * Read the event log till the end of stream, the stream isn't closed
+     *
+     * @param eventLog the event log stream
+     * @throws IOException for the stream reading failure, the broken event lines are skipped with a warning
+     */
+    public void read(@NotNull final InputStream eventLog) throws IOException {
+        final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+        final LineState line = new LineState();
+        int len;
+
+        while ((len = eventLog.read(readBuffer)) != -1) {
+            int pos = 0;
+
+            while (pos < len) {
+                final int eol = indexOf(readBuffer, pos, len, (byte) '\n');
+                final int end = eol < 0 ? len : eol;
+
+                if (!line.isSkipping) {
+                    line.append(readBuffer, pos, end - pos);
+
+                    if (line.handler == null) {
+                        resolveHandler(line);
+                    }
+                }
+
+                if (eol < 0) {
+                    break;
+                }
+
+                endLine(line);
+                pos = eol + 1;
+            }
+        }
+
+        if (line.length > 0 || line.isSkipping) {
+            // The last line without the line break
+            endLine(line);
+        }
+    }
+
+    /**
+     * @return the count of lines read
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the count of event lines parsed
+     */
+    public long getParsedCount() {
+        return parsedCount;
+    }
+
+    private void resolveHandler(@NotNull final LineState line) {
+        final int keyStart = indexOf(line.bytes, line.scanFrom, line.length, EVENT_KEY);
+        if (keyStart < 0) {
+            // The key may be cut by the read buffer end, scan its head again with the following bytes
+            line.scanFrom = Math.max(line.scanFrom, line.length - EVENT_KEY.length + 1);
+
+            return;
+        }
+
+        // Rescan from the key till the whole name is read
+        line.scanFrom = keyStart;
+
+        int pos = skipSpaces(line.bytes, keyStart + EVENT_KEY.length, line.length);
+        if (pos >= line.length) {
+            return;
+        }
+
+        if (line.bytes[pos] != ':') {
+            // Not the key, but a string value "Event"
+            line.scanFrom = keyStart + 1;
+            resolveHandler(line);
+
+            return;
+        }
+
+        pos = skipSpaces(line.bytes, pos + 1, line.length);
+        if (pos >= line.length) {
+            return;
+        }
+
+        if (line.bytes[pos] != '"') {
+            line.skip();
+
+            return;
+        }
+
+        final int nameEnd = indexOf(line.bytes, pos + 1, line.length, (byte) '"');
+        if (nameEnd < 0) {
+            return;
+        }
+
+        final String eventName = new String(line.bytes, pos + 1, nameEnd - pos - 1, StandardCharsets.UTF_8);
+        final EventHandler<?> handler = handlers.get(eventName);
+
+        if (handler == null) {
+            line.skip();
+        } else {
+            line.handler = handler;
+        }
+    }
+
+    private void endLine(@NotNull final LineState line) {
+        lineCount++;
+
+        if (line.handler != null) {
+            try {
+                line.handler.handle(line.bytes, line.length);
+                parsedCount++;
+            } catch (final IOException ex) {
+                log().warn("Skip the broken Spark event log line " + lineCount, ex);
+            }
+        }
+
+        line.reset();
+    }
+
+    private static int skipSpaces(@NotNull final byte[] bytes, int from, final int to) {
+        while (from < to && (bytes[from] == ' ' || bytes[from] == '\t')) {
+            from++;
+        }
+
+        return from;
+    }
+
+    private static int indexOf(@NotNull final byte[] bytes, final int from, final int to, final byte target) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == target) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int indexOf(@NotNull final byte[] bytes, final int from, final int to, @NotNull final byte[] target) {
+        final int last = to - target.length;
+
+        outer:
+        for (int i = Math.max(0, from); i <= last; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (bytes[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+
+            return i;
+        }
+
+        return -1;
+    }
+
+    private static final class EventHandler<T> {
+        @NotNull
+        private final ObjectReader reader;
+
+        @NotNull
+        private final Consumer<? super T> consumer;
+
+        private EventHandler(@NotNull final ObjectReader reader, @NotNull final Consumer<? super T> consumer) {
+            this.reader = reader;
+            this.consumer = consumer;
+        }
+
+        private void handle(@NotNull final byte[] bytes, final int length) throws IOException {
+            try (final JsonParser parser = jsonFactory.createParser(bytes, 0, length)) {
+                final T event = reader.readValue(parser);
+
+                if (event != null) {
+                    consumer.accept(event);
+                }
+            }
+        }
+    }
+
+    /**
+     * The bytes of the current line, kept only till its event is known to be not registered
+     */
+    private static final class LineState {
+        @NotNull
+        private byte[] bytes = new byte[1024];
+
+        private int length = 0;
+
+        // Where to look for the event key
+        private int scanFrom = 0;
+
+        private boolean isSkipping = false;
+
+        @Nullable
+        private EventHandler<?> handler;
+
+        private void append(@NotNull final byte[] src, final int offset, final int len) {
+            if (length + len > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + len));
+            }
+
+            System.arraycopy(src, offset, bytes, length, len);
+            length += len;
+        }
+
+        private void skip() {
+            isSkipping = true;
+            length = 0;
+        }
+
+        private void reset() {
+            length = 0;
+            scanFrom = 0;
+            isSkipping = false;
+            handler = null;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.rest.spark.event;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Spark events shown in the job view: the job starts, the stage completions and the failed task ends.
+ *
+ * The successful task ends are not kept, since the job view gets the tasks from the REST API and a long application
+ * has millions of them; the failed ones carry the failure reasons which the REST API doesn't.
+ */
+public class SparkEventLogs {
+    private static final String TASK_END_SUCCESS = "Success";
+
+    private List<JobStartEventLog> jobStartEvents = new ArrayList<>();
+    private List<StageCompletedEventLog> stageCompletedEvents = new ArrayList<>();
+    private List<TaskEndEventLog> failedTaskEndEvents = new ArrayList<>();
+
+    /**
+     * Create an event log reader which collects the events into this
+     */
+    @NotNull
+    public SparkEventLogReader newReader() {
+        return new SparkEventLogReader()
+                .on(JobStartEventLog.EVENT_NAME, JobStartEventLog.class, jobStartEvents::add)
+                .on(StageCompletedEventLog.EVENT_NAME, StageCompletedEventLog.class, stageCompletedEvents::add)
+                .on(TaskEndEventLog.EVENT_NAME, TaskEndEventLog.class, this::onTaskEnd);
+    }
+
+    private void onTaskEnd(@NotNull final TaskEndEventLog taskEnd) {
+        final Map<String, Object> reason = taskEnd.getTaskEndReason();
+
+        if (reason != null && !TASK_END_SUCCESS.equals(reason.get("Reason"))) {
+            failedTaskEndEvents.add(taskEnd);
+        }
+    }
+
+    public List<JobStartEventLog> getJobStartEvents() {
+        return jobStartEvents;
+    }
+
+    public void setJobStartEvents(List<JobStartEventLog> jobStartEvents) {
+        this.jobStartEvents = jobStartEvents;
+    }
+
+    public List<StageCompletedEventLog> getStageCompletedEvents() {
+        return stageCompletedEvents;
+    }
+
+    public void setStageCompletedEvents(List<StageCompletedEventLog> stageCompletedEvents) {
+        this.stageCompletedEvents = stageCompletedEvents;
+    }
+
+    public List<TaskEndEventLog> getFailedTaskEndEvents() {
+        return failedTaskEndEvents;
+    }
+
+    public void setFailedTaskEndEvents(List<TaskEndEventLog> failedTaskEndEvents) {
+        this.failedTaskEndEvents = failedTaskEndEvents;
+    }
+}
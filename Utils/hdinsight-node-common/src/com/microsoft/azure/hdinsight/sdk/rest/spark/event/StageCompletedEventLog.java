@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.rest.spark.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class StageCompletedEventLog {
+    public static final String EVENT_NAME = "SparkListenerStageCompleted";
+
+    @JsonProperty("Event")
+    private String event;
+
+    @JsonProperty("Stage Info")
+    private CompletedStageInfo stageInfo;
+
+    public String getEvent() {
+        return event;
+    }
+
+    public void setEvent(String event) {
+        this.event = event;
+    }
+
+    public CompletedStageInfo getStageInfo() {
+        return stageInfo;
+    }
+
+    public void setStageInfo(CompletedStageInfo stageInfo) {
+        this.stageInfo = stageInfo;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.rest.spark.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TaskEndEventLog {
+    public static final String EVENT_NAME = "SparkListenerTaskEnd";
+
+    @JsonProperty("Event")
+    private String event;
+
+    @JsonProperty("Stage ID")
+    private int stageId;
+
+    @JsonProperty("Stage Attempt ID")
+    private int stageAttemptId;
+
+    @JsonProperty("Task Type")
+    private String taskType;
+
+    @JsonProperty("Task End Reason")
+    private Map<String, Object> taskEndReason;
+
+    @JsonProperty("Task Info")
+    private TaskInfo taskInfo;
+
+    @JsonProperty("Task Metrics")
+    private Map<String, Object> taskMetrics;
+
+    public String getEvent() {
+        return event;
+    }
+
+    public void setEvent(String event) {
+        this.event = event;
+    }
+
+    public int getStageId() {
+        return stageId;
+    }
+
+    public void setStageId(int stageId) {
+        this.stageId = stageId;
+    }
+
+    public int getStageAttemptId() {
+        return stageAttemptId;
+    }
+
+    public void setStageAttemptId(int stageAttemptId) {
+        this.stageAttemptId = stageAttemptId;
+    }
+
+    public String getTaskType() {
+        return taskType;
+    }
+
+    public void setTaskType(String taskType) {
+        this.taskType = taskType;
+    }
+
+    public Map<String, Object> getTaskEndReason() {
+        return taskEndReason;
+    }
+
+    public void setTaskEndReason(Map<String, Object> taskEndReason) {
+        this.taskEndReason = taskEndReason;
+    }
+
+    public TaskInfo getTaskInfo() {
+        return taskInfo;
+    }
+
+    public void setTaskInfo(TaskInfo taskInfo) {
+        this.taskInfo = taskInfo;
+    }
+
+    public Map<String, Object> getTaskMetrics() {
+        return taskMetrics;
+    }
+
+    public void setTaskMetrics(Map<String, Object> taskMetrics) {
+        this.taskMetrics = taskMetrics;
+    }
+}
@@ -7,6 +7,7 @@ package com.microsoft.azure.hdinsight.sdk.rest.yarn.rm;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.microsoft.azure.hdinsight.sdk.rest.IConvertible;
+import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -343,6 +344,28 @@ public class App implements IConvertible {
         this.queueUsagePercentage = queueUsagePercentage;
     }
 
+    /**
+     * Check if the log aggregation is done, successfully or not, so the logs are read from the aggregated ones.
+     *
+     * @return true for done.
+     */
+    public boolean isLogAggregationDone() {
+        final String status = StringUtils.upperCase(this.getLogAggregationStatus());
+
+        return "SUCCEEDED".equals(status) || "FAILED".equals(status) || "TIME_OUT".equals(status);
+    }
+
+    /**
+     * Check if the log aggregation is still to be done, unlike being done or disabled.
+     *
+     * @return true for not started or running.
+     */
+    public boolean isLogAggregationPending() {
+        final String status = StringUtils.upperCase(this.getLogAggregationStatus());
+
+        return "NOT_START".equals(status) || "RUNNING".equals(status) || "RUNNING_WITH_FAILURE".equals(status);
+    }
+
     /**
      * Check if the Yarn job finish or not.
      *
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.storage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.common.task.TaskPriority;
+import com.microsoft.azure.hdinsight.common.task.TaskScheduler;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import org.apache.commons.lang3.StringUtils;
+import rx.Observable;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The directory listings of a remote storage, cached by the directory URI for the storage browsers.
+ *
+ * A listing is reloaded when it's older than the TTL. The uploads through the toolkit invalidate the listings of the
+ * uploaded path and its ancestors, so they show up at once, while the changes by others show up after the TTL. The
+ * listings of the directories the user is likely to open next can be prefetched in the background lane of the storage
+ * account by {@link TaskScheduler}, and the user opening one being prefetched waits for that load instead of sending
+ * another request.
+ *
+ * @param <T> the listed entry type
+ */
+public final class StorageListingCache<T> implements ILogger {
+    private static final long MAXIMUM_SIZE = 500;
+
+    @FunctionalInterface
+    public interface Lister<T> {
+        /**
+         * @return the Observable of all entries of the directory, in pages or not
+         */
+        @NotNull
+        Observable<T> list(@NotNull String dirUri);
+    }
+
+    @NotNull
+    private final String name;
+
+    @NotNull
+    private final Cache<String, List<T>> cache;
+
+    /**
+     * @param name the storage type name for logs
+     * @param ttlSeconds the seconds a listing is served after it's loaded
+     */
+    public StorageListingCache(@NotNull final String name, final long ttlSeconds) {
+        this.name = name;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the directory listing, loaded by the lister if it isn't cached or is being loaded by a prefetch
+     *
+     * @param dirUri the directory URI, with or without the ending slash
+     * @throws ExecutionException if the lister fails
+     */
+    @NotNull
+    public List<T> get(@NotNull final String dirUri, @NotNull final Lister<T> lister) throws ExecutionException {
+        final String key = normalize(dirUri);
+
+        return cache.get(key, () -> ImmutableList.copyOf(lister.list(key).toList().toBlocking().single()));
+    }
+
+    /**
+     * Load the directory listing in background if it isn't cached, the prefetch is dropped when the background lane of
+     * the storage account is full
+     */
+    public void prefetch(@NotNull final String dirUri, @NotNull final Lister<T> lister) {
+        final String key = normalize(dirUri);
+        if (cache.getIfPresent(key) != null) {
+            return;
+        }
+
+        try {
+            TaskScheduler.getInstance()
+                    .getExecutor(getLaneKey(key), TaskPriority.BACKGROUND)
+                    .execute(() -> {
+                        try {
+                            get(key, lister);
+                        } catch (final ExecutionException | RuntimeException ex) {
+                            log().debug("Failed to prefetch the " + name + " listing of " + key, ex);
+                        }
+                    });
+        } catch (final RejectedExecutionException ignored) {
+            // Too many prefetches queued, the listing is loaded when it's opened
+        }
+    }
+
+    /**
+     * Invalidate the listings of the path and its ancestors, for the path was created or changed
+     */
+    public void invalidate(@NotNull final String path) {
+        String key = normalize(path);
+        final int rootEnd = key.indexOf("://") + 3;
+
+        while (key.lastIndexOf('/') >= rootEnd) {
+            cache.invalidate(key);
+            key = StringUtils.substringBeforeLast(key, "/");
+        }
+
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @NotNull
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    @NotNull
+    private static String normalize(@NotNull final String dirUri) {
+        return StringUtils.stripEnd(dirUri, "/");
+    }
+
+    // The listings of a storage account share the background lane
+    @NotNull
+    private static String getLaneKey(@NotNull final String key) {
+        try {
+            final String host = URI.create(key).getHost();
+
+            return host == null ? key : host;
+        } catch (final IllegalArgumentException ex) {
+            return key;
+        }
+    }
+}
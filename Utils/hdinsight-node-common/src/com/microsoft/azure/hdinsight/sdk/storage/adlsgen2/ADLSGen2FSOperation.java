@@ -6,33 +6,57 @@
 package com.microsoft.azure.hdinsight.sdk.storage.adlsgen2;
 
 import com.google.common.collect.ImmutableList;
+import com.microsoft.azure.hdinsight.common.AbfsUri;
+import com.microsoft.azure.hdinsight.common.AzureStorageUri;
 import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
 import com.microsoft.azure.hdinsight.sdk.rest.azure.storageaccounts.RemoteFile;
 import com.microsoft.azure.hdinsight.sdk.rest.azure.storageaccounts.api.GetRemoteFilesResponse;
+import com.microsoft.azure.hdinsight.sdk.storage.StorageListingCache;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
+import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.client.utils.HttpClientUtils;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.message.BasicHeader;
 import rx.Observable;
+import rx.schedulers.Schedulers;
 
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class ADLSGen2FSOperation {
     public static final String DEFAULT_UMASK = "0000";
     public static final String PERMISSIONS_HEADER = "x-ms-permissions";
     public static final String UMASK_HEADER = "x-ms-umask";
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int CHUNK_RETRIES_MAX = 3;
+    public static final long CHUNK_RETRY_BASE_DELAY_MS = 500;
+    public static final String CONTINUATION_HEADER = "x-ms-continuation";
+    public static final int LIST_PAGE_SIZE = 5000;
+    public static final long LISTING_TTL_SECONDS = 60;
+
+    // The listings shared by the storage browsers, invalidated by the writes through any operation instance
+    private static final StorageListingCache<RemoteFile> listingCache =
+            new StorageListingCache<>("ADLS Gen2", LISTING_TTL_SECONDS);
 
     private HttpObservable http;
 
@@ -42,12 +66,6 @@ public class ADLSGen2FSOperation {
     @NotNull
     private List<NameValuePair> createFileReqParams;
 
-    @NotNull
-    private List<NameValuePair> appendReqParams;
-
-    @NotNull
-    private ADLSGen2ParamsBuilder listReqBuilder;
-
     @NotNull
     private ADLSGen2ParamsBuilder flushReqParamsBuilder;
 
@@ -61,11 +79,6 @@ public class ADLSGen2FSOperation {
                 .setResource("file")
                 .build();
 
-        this.appendReqParams = new ADLSGen2ParamsBuilder()
-                .setAction("append")
-                .setPosition(0)
-                .build();
-
         this.flushReqParamsBuilder = new ADLSGen2ParamsBuilder()
                 .setAction("flush");
     }
@@ -87,6 +100,7 @@ public class ADLSGen2FSOperation {
                                                         new BasicHeader(UMASK_HEADER, uMask))
                                      : Collections.emptyList();
         return http.executeReqAndCheckStatus(req, null, this.createDirReqParams, headers, 201)
+                   .doOnNext(ignore -> invalidateListing(dirPath))
                    .map(ignore -> true);
     }
 
@@ -107,48 +121,223 @@ public class ADLSGen2FSOperation {
                                                         new BasicHeader(UMASK_HEADER, uMask))
                                      : Collections.emptyList();
         return http.executeReqAndCheckStatus(req, null, this.createFileReqParams, headers, 201)
+                .doOnNext(ignore -> invalidateListing(filePath))
                 .map(ignore -> true);
     }
 
     public Observable<Boolean> uploadData(String destFilePath, File src) {
-        return appendData(destFilePath, src)
-                .flatMap(len -> flushData(destFilePath, len));
+        return uploadData(destFilePath, src, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM);
     }
 
+    /**
+     * Upload the file as a series of appends of at most chunkSize bytes, with up to parallelism appends in flight,
+     * then flush once at the total length. Only the chunks being sent are held in memory, and a chunk failed with an
+     * I/O error, a server error or throttling is retried on its own with exponential backoff.
+     */
+    public Observable<Boolean> uploadData(String destFilePath, File src, int chunkSize, int parallelism) {
+        return Observable.using(
+                () -> openChannel(src),
+                channel -> appendData(destFilePath, channel, chunkSize, parallelism)
+                        .flatMap(len -> flushData(destFilePath, len))
+                        .doOnNext(ignore -> invalidateListing(destFilePath)),
+                channel -> {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                    }
+                });
+    }
+
+    /**
+     * List the directory entries page by page, following the continuation token until the last page. The next page
+     * is fetched while the entries of the current one are consumed.
+     *
+     * @param rootPath the file system root path, such as https://accountName.dfs.core.windows.net/fileSystem/
+     * @param relativePath the directory path relative to the file system root, such as sub/path/to
+     */
     public Observable<RemoteFile> list(String rootPath, String relativePath) {
-        this.listReqBuilder = new ADLSGen2ParamsBuilder()
+        return listPages(StringUtils.stripEnd(rootPath, "/"), relativePath, null)
+                // Keep a page ahead of the consumer
+                .observeOn(Schedulers.computation(), 2)
+                .concatMap(page -> Observable.from(page.remoteFiles));
+    }
+
+    /**
+     * List the directory entries with the cache shared by the storage browsers
+     *
+     * @see #list(String, String)
+     */
+    public List<RemoteFile> listCached(String rootPath, String relativePath) throws ExecutionException {
+        return listingCache.get(getListingKey(rootPath, relativePath), ignore -> list(rootPath, relativePath));
+    }
+
+    /**
+     * Load the directory entries into the cache in background, for the directory is likely to be opened soon
+     */
+    public void prefetchList(String rootPath, String relativePath) {
+        listingCache.prefetch(getListingKey(rootPath, relativePath), ignore -> list(rootPath, relativePath));
+    }
+
+    /**
+     * Invalidate the cached listings of the path and its ancestors
+     *
+     * @param path the path URL, such as https://accountName.dfs.core.windows.net/fileSystem/sub/path/to/file
+     */
+    public static void invalidateListing(String path) {
+        if (AbfsUri.isType(path)) {
+            listingCache.invalidate(AbfsUri.parse(path).getUrl().toString());
+        }
+    }
+
+    @NotNull
+    public static StorageListingCache<RemoteFile> getListingCache() {
+        return listingCache;
+    }
+
+    // The directory URL with the path encoded, as the paths written
+    private static String getListingKey(String rootPath, String relativePath) {
+        final String dir = StringUtils.strip(relativePath, "/");
+        final String key = StringUtils.stripEnd(rootPath, "/")
+                + (dir.isEmpty() ? "" : "/" + AzureStorageUri.encodeAndNormalizePath(dir));
+
+        return AbfsUri.isType(key) ? AbfsUri.parse(key).getUrl().toString() : key;
+    }
+
+    private Observable<ListPage> listPages(String rootPath, String relativePath, @Nullable String continuation) {
+        return listPage(rootPath, relativePath, continuation)
+                .concatMap(page -> page.continuation == null
+                                   ? Observable.just(page)
+                                   : Observable.just(page).concatWith(
+                                           listPages(rootPath, relativePath, page.continuation)));
+    }
+
+    private Observable<ListPage> listPage(String rootPath, String relativePath, @Nullable String continuation) {
+        final ADLSGen2ParamsBuilder listReqBuilder = new ADLSGen2ParamsBuilder()
                 .enableRecursive(false)
-                .setResource("filesystem");
+                .setResource("filesystem")
+                .setDirectory(relativePath)
+                .setMaxResults(LIST_PAGE_SIZE);
+
+        if (continuation != null) {
+            listReqBuilder.setContinuation(continuation);
+        }
+
+        return http.request(new HttpGet(rootPath), null, listReqBuilder.build(), Collections.emptyList())
+                .flatMap(resp -> {
+                    final Header continuationHeader = resp.getFirstHeader(CONTINUATION_HEADER);
+                    final String nextContinuation = continuationHeader == null
+                                                    ? null
+                                                    : StringUtils.trimToNull(continuationHeader.getValue());
 
-        return http.get(
-                StringUtils.stripEnd(rootPath, "/"),
-                listReqBuilder.setDirectory(relativePath).build(),
-                null,
-                GetRemoteFilesResponse.class)
-                .flatMap(pathList -> Observable.from(pathList.getRemoteFiles()));
+                    return HttpObservable.toObjectOnlyOkResponse(resp, GetRemoteFilesResponse.class)
+                            .map(pathList -> new ListPage(pathList.getRemoteFiles(), nextContinuation));
+                })
+                .subscribeOn(Schedulers.io());
     }
 
-    private Observable<Long> appendData(String filePath, File src) {
+    private FileChannel openChannel(File src) {
         try {
-            InputStreamEntity reqEntity = new InputStreamEntity(
-                    new FileInputStream(src),
-                    -1,
-                    ContentType.APPLICATION_OCTET_STREAM);
-            BufferedHttpEntity entity = new BufferedHttpEntity(reqEntity);
-            long len = entity.getContentLength();
-
-            HttpPatch req = new HttpPatch(filePath);
-            http.setContentType("application/octet-stream");
-
-            return http.executeReqAndCheckStatus(req, entity, this.appendReqParams, Collections.emptyList(), 202)
-                    .map(ignore -> len);
-        } catch (FileNotFoundException e) {
+            return FileChannel.open(src.toPath(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
             throw new RuntimeException(new IllegalArgumentException("Can not find the aritifact"));
         } catch (IOException e) {
             throw new RuntimeException(new IllegalArgumentException("Can not read the aritfact"));
         }
     }
 
+    private Observable<Long> appendData(String filePath, FileChannel channel, int chunkSize, int parallelism) {
+        final long len;
+        try {
+            len = channel.size();
+        } catch (IOException e) {
+            return Observable.error(new IllegalArgumentException("Can not read the aritfact"));
+        }
+
+        final int chunkCount = (int) ((len + chunkSize - 1) / chunkSize);
+        http.setContentType("application/octet-stream");
+
+        return Observable.range(0, chunkCount)
+                .flatMap(index -> {
+                    final long position = (long) index * chunkSize;
+                    final int size = (int) Math.min(chunkSize, len - position);
+
+                    return appendChunk(filePath, channel, position, size)
+                            .retryWhen(ADLSGen2FSOperation::backoffChunkRetries)
+                            .subscribeOn(Schedulers.io());
+                }, Math.max(1, parallelism))
+                .reduce(0L, (appended, size) -> appended + size)
+                .map(ignore -> len);
+    }
+
+    private Observable<Integer> appendChunk(String filePath, FileChannel channel, long position, int size) {
+        return Observable.defer(() -> {
+            final ByteBuffer buffer = ByteBuffer.allocate(size);
+            try {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new EOFException("The artifact was truncated during uploading");
+                    }
+                }
+            } catch (IOException e) {
+                return Observable.error(e);
+            }
+
+            final ByteArrayEntity entity = new ByteArrayEntity(buffer.array(), ContentType.APPLICATION_OCTET_STREAM);
+            final List<NameValuePair> appendReqParams = new ADLSGen2ParamsBuilder()
+                    .setAction("append")
+                    .setPosition(position)
+                    .build();
+
+            return http.request(new HttpPatch(filePath), entity, appendReqParams, Collections.emptyList())
+                    .flatMap(resp -> {
+                        HttpClientUtils.closeQuietly(resp);
+
+                        final int statusCode = resp.getStatusLine().getStatusCode();
+
+                        // Keep the status for the retry decision
+                        return statusCode == HttpStatus.SC_ACCEPTED
+                               ? Observable.just(size)
+                               : Observable.<Integer>error(new HttpResponseException(statusCode, String.format(
+                                       "Failed to append %d bytes at position %d: %s",
+                                       size, position, resp.getStatusLine().getReasonPhrase())));
+                    });
+        });
+    }
+
+    /**
+     * Retry the failed chunk up to {@value #CHUNK_RETRIES_MAX} times, with the delay doubled from
+     * {@value #CHUNK_RETRY_BASE_DELAY_MS} ms each time. Only the transient failures are retried: the I/O errors, the
+     * server errors (5xx) and the throttling (429).
+     */
+    private static Observable<Long> backoffChunkRetries(Observable<? extends Throwable> errors) {
+        return errors.zipWith(Observable.range(1, CHUNK_RETRIES_MAX + 1),
+                        (err, attempt) -> new SimpleImmutableEntry<Throwable, Integer>(err, attempt))
+                .flatMap(errAttempt -> {
+                    final Throwable err = errAttempt.getKey();
+                    final int attempt = errAttempt.getValue();
+
+                    if (attempt > CHUNK_RETRIES_MAX || !isChunkRetriable(err)) {
+                        return Observable.<Long>error(err);
+                    }
+
+                    // Resubscribe the chunk on the IO scheduler, as the blocking append is
+                    return Observable.timer(CHUNK_RETRY_BASE_DELAY_MS << (attempt - 1),
+                                            TimeUnit.MILLISECONDS,
+                                            Schedulers.io());
+                });
+    }
+
+    private static boolean isChunkRetriable(Throwable err) {
+        if (err instanceof HttpResponseException) {
+            final int statusCode = ((HttpResponseException) err).getStatusCode();
+
+            return statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR || statusCode == 429;
+        }
+
+        // Not to retry the artifact truncated
+        return err instanceof IOException && !(err instanceof EOFException);
+    }
+
     private Observable<Boolean> flushData(String filePath, long flushLen) {
         HttpPatch req = new HttpPatch(filePath);
         List<NameValuePair> flushReqParams = this.flushReqParamsBuilder.setPosition(flushLen).build();
@@ -157,4 +346,17 @@ public class ADLSGen2FSOperation {
         return http.executeReqAndCheckStatus(req, null, flushReqParams, Collections.emptyList(), 200)
                 .map(ignore -> true);
     }
+
+    private static final class ListPage {
+        @NotNull
+        private final List<RemoteFile> remoteFiles;
+
+        @Nullable
+        private final String continuation;
+
+        private ListPage(@Nullable List<RemoteFile> remoteFiles, @Nullable String continuation) {
+            this.remoteFiles = remoteFiles == null ? Collections.emptyList() : remoteFiles;
+            this.continuation = continuation;
+        }
+    }
 }
@@ -15,13 +15,18 @@ import com.microsoft.azure.hdinsight.spark.jobs.JobUtils;
 import com.microsoft.azure.toolkit.lib.Azure;
 import com.microsoft.azure.toolkit.lib.auth.AzureAccount;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.utils.HttpClientUtils;
 import rx.Observable;
 import rx.Observer;
 import rx.exceptions.Exceptions;
 
 import java.io.File;
 import java.net.URI;
+import java.util.Collections;
 
 public class ADLSGen2Deploy implements Deployable, ILogger {
     @NotNull
@@ -45,8 +50,8 @@ public class ADLSGen2Deploy implements Deployable, ILogger {
         // four steps to upload via adls gen2 rest api
         // 1.put request to create new dir
         // 2.put request to create new file(artifact) which is empty
-        // 3.patch request to append data to file
-        // 4.patch request to flush data to file
+        // 3.patch requests to append data to file, in fixed-size chunks sent in parallel
+        // 4.patch request to flush data to file at the total length
 
         final URI destURI = getUploadDir();
 
@@ -76,11 +81,40 @@ public class ADLSGen2Deploy implements Deployable, ILogger {
                  })
                  .doOnNext(ignore -> log().info(String.format("Create filesystem %s successfully.", dirPath)))
                  .flatMap(ignore -> op.createFile(filePath, "0755"))
-                 .flatMap(ignore -> op.uploadData(filePath, src))
+                 .flatMap(ignore -> op.uploadData(filePath,
+                                                  src,
+                                                  ADLSGen2FSOperation.DEFAULT_CHUNK_SIZE,
+                                                  ADLSGen2FSOperation.DEFAULT_PARALLELISM))
                  .doOnNext(ignore -> log().info(String.format("Append data to file %s successfully.", filePath)))
                  .map(ignored -> AbfsUri.parse(filePath).getUri().toString());
     }
 
+    @Override
+    public String getDestinationRoot() {
+        return destinationRootPath;
+    }
+
+    @Override
+    public Observable<Boolean> isDeployed(String uploadedPath, long length) {
+        if (!AbfsUri.isType(uploadedPath)) {
+            return Observable.just(false);
+        }
+
+        final HttpHead req = new HttpHead(AbfsUri.parse(uploadedPath).getUrl().toString());
+        return http.request(req, null, Collections.emptyList(), Collections.emptyList())
+                   .map(resp -> {
+                       try {
+                           final Header contentLength = resp.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+
+                           return resp.getStatusLine().getStatusCode() == HttpStatus.SC_OK
+                                   && contentLength != null
+                                   && String.valueOf(length).equals(contentLength.getValue());
+                       } finally {
+                           HttpClientUtils.closeQuietly(resp);
+                       }
+                   });
+    }
+
     public static String getForbiddenErrorHints(String fileSystemRootPath) {
         final String signInUserEmail = Azure.az(AzureAccount.class).account().getUsername();
         return " Please verify if\n"
@@ -5,6 +5,7 @@
 
 package com.microsoft.azure.hdinsight.spark.common;
 
+import com.microsoft.azure.datalake.store.ADLStoreClient;
 import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine;
 import com.microsoft.azure.hdinsight.spark.jobs.JobUtils;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
@@ -12,6 +13,7 @@ import rx.Observable;
 import rx.Observer;
 
 import java.io.File;
+import java.net.URI;
 
 // for cluster with adls gen1 account to deploy using ADLS storage account type
 public class AdlsDeploy implements Deployable {
@@ -31,4 +33,19 @@ public class AdlsDeploy implements Deployable {
     public Observable<String> deploy(File src, Observer<SparkLogLine> logSubject) {
         return JobUtils.deployArtifactToADLS(src.getAbsolutePath(), adlsRootPath, accessToken);
     }
+
+    @Override
+    public String getDestinationRoot() {
+        return adlsRootPath;
+    }
+
+    @Override
+    public Observable<Boolean> isDeployed(String uploadedPath, long length) {
+        return Observable.fromCallable(() -> {
+            final URI remote = URI.create(uploadedPath);
+            final ADLStoreClient client = ADLStoreClient.createClient(remote.getHost(), accessToken);
+
+            return client.checkExists(remote.getPath()) && client.getDirectoryEntry(remote.getPath()).length == length;
+        });
+    }
 }
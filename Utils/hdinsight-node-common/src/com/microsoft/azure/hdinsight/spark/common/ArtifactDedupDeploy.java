@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import rx.Observable;
+import rx.Observer;
+import rx.schedulers.Schedulers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import static com.microsoft.azure.hdinsight.common.MessageInfoType.Info;
+import static com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine.TOOL;
+
+/**
+ * Skips uploading an artifact whose content was already deployed into the same storage root.
+ *
+ * The artifact is identified by its SHA-256. When the index has an upload path for it and the delegate confirms the
+ * remote file still exists with the same length, so an overwritten or partly uploaded file is not reused, that path is
+ * returned instead of deploying again. Delegates which don't provide a destination root always deploy.
+ */
+public class ArtifactDedupDeploy implements Deployable, ILogger {
+    @NotNull
+    private final Deployable delegate;
+
+    @NotNull
+    private final DeployedArtifactIndex index;
+
+    public ArtifactDedupDeploy(@NotNull final Deployable delegate) {
+        this(delegate, DeployedArtifactIndex.getInstance());
+    }
+
+    public ArtifactDedupDeploy(@NotNull final Deployable delegate, @NotNull final DeployedArtifactIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    @NotNull
+    public Deployable getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Observable<String> deploy(final File src, final Observer<SparkLogLine> logSubject) {
+        final String destinationRoot = delegate.getDestinationRoot();
+        if (destinationRoot == null) {
+            return delegate.deploy(src, logSubject);
+        }
+
+        return Observable.fromCallable(() -> sha256Hex(src))
+                .subscribeOn(Schedulers.io())
+                .flatMap(sha256 -> findDeployed(destinationRoot, sha256, src.length())
+                        .doOnNext(uploadedPath -> logSubject.onNext(new SparkLogLine(TOOL, Info, String.format(
+                                "Artifact %s is unchanged, reuse the deployed %s.", src.getName(), uploadedPath))))
+                        .switchIfEmpty(Observable.defer(() -> delegate.deploy(src, logSubject)
+                                .doOnNext(uploadedPath -> index.put(destinationRoot, sha256, uploadedPath)))));
+    }
+
+    @Nullable
+    @Override
+    public String getDestinationRoot() {
+        return delegate.getDestinationRoot();
+    }
+
+    @Override
+    public Observable<Boolean> isDeployed(final String uploadedPath, final long length) {
+        return delegate.isDeployed(uploadedPath, length);
+    }
+
+    private Observable<String> findDeployed(@NotNull final String destinationRoot,
+                                            @NotNull final String sha256,
+                                            final long length) {
+        final String uploadedPath = index.get(destinationRoot, sha256);
+        if (uploadedPath == null) {
+            return Observable.empty();
+        }
+
+        return delegate.isDeployed(uploadedPath, length)
+                .onErrorReturn(err -> {
+                    log().warn("Failed to check the deployed artifact " + uploadedPath, err);
+                    return false;
+                })
+                .firstOrDefault(false)
+                .flatMap(isDeployed -> {
+                    if (isDeployed) {
+                        return Observable.just(uploadedPath);
+                    }
+
+                    index.remove(destinationRoot, sha256);
+                    return Observable.empty();
+                });
+    }
+
+    @NotNull
+    private static String sha256Hex(@NotNull final File src) throws Exception {
+        try (final InputStream input = new FileInputStream(src)) {
+            return DigestUtils.sha256Hex(input);
+        }
+    }
+}
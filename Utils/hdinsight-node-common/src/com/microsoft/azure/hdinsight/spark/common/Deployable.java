@@ -6,6 +6,7 @@
 package com.microsoft.azure.hdinsight.spark.common;
 
 import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import rx.Observable;
 import rx.Observer;
 
@@ -21,4 +22,25 @@ public interface Deployable {
      * Observable Error: IOException;
      */
     Observable<String> deploy(File src, Observer<SparkLogLine> logSubject);
+
+    /**
+     * Get the storage root the artifacts are deployed into, which scopes the reuse of deployed artifacts
+     *
+     * @return the storage root, or null if deployed artifacts can't be checked and reused
+     */
+    @Nullable
+    default String getDestinationRoot() {
+        return null;
+    }
+
+    /**
+     * Check whether an artifact deployed before is still available and complete
+     *
+     * @param uploadedPath the upload path returned by deploy
+     * @param length the length of the local artifact
+     * @return Observable: true if the artifact still exists at the upload path with the same length
+     */
+    default Observable<Boolean> isDeployed(String uploadedPath, long length) {
+        return Observable.just(false);
+    }
 }
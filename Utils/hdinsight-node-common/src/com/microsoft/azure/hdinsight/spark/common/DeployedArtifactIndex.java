@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.microsoft.azure.hdinsight.common.CommonConst;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.tooling.msservices.components.DefaultLoader;
+import com.microsoft.tooling.msservices.helpers.IDEHelper;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The local index of deployed artifacts, from the storage root and the artifact SHA-256 to the upload path.
+ * The most recently used entries are kept and saved into the IDE application properties.
+ */
+public class DeployedArtifactIndex implements ILogger {
+    private static final int MAX_ENTRIES = 256;
+
+    private static final DeployedArtifactIndex instance = new DeployedArtifactIndex();
+
+    private final Map<String, String> entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private boolean isLoaded = false;
+
+    @NotNull
+    public static DeployedArtifactIndex getInstance() {
+        return instance;
+    }
+
+    @Nullable
+    public synchronized String get(@NotNull final String destinationRoot, @NotNull final String sha256) {
+        load();
+
+        return entries.get(getKey(destinationRoot, sha256));
+    }
+
+    public synchronized void put(@NotNull final String destinationRoot,
+                                 @NotNull final String sha256,
+                                 @NotNull final String uploadedPath) {
+        load();
+
+        entries.put(getKey(destinationRoot, sha256), uploadedPath);
+        save();
+    }
+
+    public synchronized void remove(@NotNull final String destinationRoot, @NotNull final String sha256) {
+        load();
+
+        if (entries.remove(getKey(destinationRoot, sha256)) != null) {
+            save();
+        }
+    }
+
+    @NotNull
+    private String getKey(@NotNull final String destinationRoot, @NotNull final String sha256) {
+        return StringUtils.appendIfMissing(destinationRoot, "/") + "#" + sha256;
+    }
+
+    private void load() {
+        if (isLoaded) {
+            return;
+        }
+
+        isLoaded = true;
+
+        final IDEHelper ideHelper = DefaultLoader.getIdeHelper();
+        final String json = ideHelper == null ? null : ideHelper.getApplicationProperty(CommonConst.DEPLOYED_ARTIFACTS);
+        if (StringUtils.isBlank(json)) {
+            return;
+        }
+
+        try {
+            final Map<String, String> saved =
+                    new Gson().fromJson(json, new TypeToken<LinkedHashMap<String, String>>() {}.getType());
+            if (saved != null) {
+                entries.putAll(saved);
+            }
+        } catch (final JsonSyntaxException ex) {
+            log().warn("Ignore the broken index of deployed artifacts", ex);
+        }
+    }
+
+    private void save() {
+        final IDEHelper ideHelper = DefaultLoader.getIdeHelper();
+        if (ideHelper != null) {
+            ideHelper.setApplicationProperty(CommonConst.DEPLOYED_ARTIFACTS, new Gson().toJson(entries));
+        }
+    }
+}
@@ -5,7 +5,6 @@
 
 package com.microsoft.azure.hdinsight.spark.common;
 
-import com.gargoylesoftware.htmlunit.Cache;
 import com.microsoft.azure.hdinsight.common.ClusterManagerEx;
 import com.microsoft.azure.hdinsight.common.logger.ILogger;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
@@ -20,6 +19,8 @@ import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.AppAttempt;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.AppAttemptsResponse;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.AppResponse;
 import com.microsoft.azure.hdinsight.sdk.storage.IHDIStorageAccount;
+import com.microsoft.azure.hdinsight.spark.common.log.LogTailScheduler;
+import com.microsoft.azure.hdinsight.spark.common.log.LogTailSource;
 import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine;
 import com.microsoft.azure.hdinsight.spark.jobs.JobUtils;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
@@ -131,11 +132,6 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
      */
     private int delaySeconds = 10;
 
-    /**
-     * The global cache for fetched Yarn UI page by browser
-     */
-    private final Cache globalCache = JobUtils.getGlobalCache();
-
     /**
      * The driver log conversion mode
      */
@@ -802,55 +798,59 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
                 "stderr:",
                 "yarn diagnostics:"));
 
-        return Observable.create(ob -> {
+        final int maxLinesPerGet = 128;
+        final URI connectUri = getConnectUri();
+
+        final LogTailSource<SparkLogLine> livyLogSource = emitter -> {
             try {
-                final int maxLinesPerGet = 128;
-                int linesGot;
-                boolean isFetching = true;
-
-                while (isFetching) {
-                    final int start = nextLivyLogOffset;
-                    final boolean isAppIdAllocated = !this.getSparkJobApplicationIdObservable().isEmpty().toBlocking()
-                            .lastOrDefault(true);
-                    final String logUrl = String.format("%s/%d/log?from=%d&size=%d",
-                                                        this.getConnectUri().toString(), batchId, start, maxLinesPerGet);
-
-                    final HttpResponse httpResponse = this.getSubmission().getHttpResponseViaGet(logUrl);
-
-                    final SparkJobLog sparkJobLog = ObjectConvertUtils.convertJsonToObject(httpResponse.getMessage(),
-                                                                                           SparkJobLog.class)
-                                                                      .orElseThrow(() -> new UnknownServiceException(
-                                    "Bad spark log response: " + httpResponse.getMessage()));
-
-                    synchronized (livyLogOffsetLock) {
-                        if (start != nextLivyLogOffset) {
-                            // The offset is moved by another fetching thread, re-do it with new offset
-                            continue;
-                        }
+                final int start = nextLivyLogOffset;
+                final String logUrl = String.format("%s/%d/log?from=%d&size=%d",
+                                                    connectUri.toString(), batchId, start, maxLinesPerGet);
+
+                final HttpResponse httpResponse = this.getSubmission().getHttpResponseViaGet(logUrl);
 
-                        // To subscriber
-                        sparkJobLog.getLog().stream()
-                                .filter(line -> !ignoredEmptyLines.contains(line.trim().toLowerCase()))
-                                .forEach(line -> ob.onNext(new SparkLogLine(LIVY, Log, line)));
+                final SparkJobLog sparkJobLog = ObjectConvertUtils.convertJsonToObject(httpResponse.getMessage(),
+                                                                                       SparkJobLog.class)
+                                                                  .orElseThrow(() -> new UnknownServiceException(
+                                "Bad spark log response: " + httpResponse.getMessage()));
 
-                        linesGot = sparkJobLog.getLog().size();
-                        nextLivyLogOffset += linesGot;
+                synchronized (livyLogOffsetLock) {
+                    if (start != nextLivyLogOffset) {
+                        // The offset is moved by another fetching thread, re-do it with new offset
+                        return LogTailSource.PollResult.RECEIVED;
                     }
 
-                    // Retry interval
-                    if (linesGot == 0) {
-                        isFetching = "starting".equals(this.getState()) && !isAppIdAllocated;
+                    // To subscriber
+                    sparkJobLog.getLog().stream()
+                            .filter(line -> !ignoredEmptyLines.contains(line.trim().toLowerCase()))
+                            .forEach(line -> emitter.call(new SparkLogLine(LIVY, Log, line)));
 
-                        sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
-                    }
+                    nextLivyLogOffset += sparkJobLog.getLog().size();
                 }
+
+                if (!sparkJobLog.getLog().isEmpty()) {
+                    return LogTailSource.PollResult.RECEIVED;
+                }
+
+                final boolean isAppIdAllocated = !this.getSparkJobApplicationIdObservable().isEmpty().toBlocking()
+                        .lastOrDefault(true);
+
+                // Keep polling with backoff only while the job is starting
+                return "starting".equals(this.getState()) && !isAppIdAllocated
+                        ? LogTailSource.PollResult.IDLE
+                        : LogTailSource.PollResult.FINISHED;
             } catch (final IOException ex) {
-                ob.onNext(new SparkLogLine(TOOL, Error, ex.getMessage()));
-            } catch (final InterruptedException ignored) {
-            } finally {
-                ob.onCompleted();
+                emitter.call(new SparkLogLine(TOOL, Error, ex.getMessage()));
+
+                return LogTailSource.PollResult.FINISHED;
             }
-        });
+        };
+
+        return LogTailScheduler.getInstance().tail(LogTailScheduler.getClusterKey(connectUri.toString()),
+                                                   livyLogSource,
+                                                   LogTailScheduler.DEFAULT_MIN_INTERVAL_MS,
+                                                   TimeUnit.SECONDS.toMillis(this.getDelaySeconds()),
+                                                   null);
     }
 
     public boolean isActive() throws IOException {
@@ -8,6 +8,7 @@ package com.microsoft.azure.hdinsight.spark.common;
 import com.microsoft.azure.hdinsight.common.logger.ILogger;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
+import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
 import com.microsoft.azure.hdinsight.sdk.storage.webhdfs.WebHdfsParamsBuilder;
 import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine;
 import com.microsoft.azure.hdinsight.spark.jobs.JobUtils;
@@ -16,12 +17,15 @@ import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.util.EntityUtils;
 import rx.Observable;
 import rx.Observer;
 import rx.exceptions.Exceptions;
@@ -33,6 +37,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownServiceException;
 import java.util.List;
+import java.util.Map;
 
 public class WebHDFSDeploy implements Deployable, ILogger {
     @NotNull
@@ -119,6 +124,53 @@ public class WebHDFSDeploy implements Deployable, ILogger {
                 });
     }
 
+    @Override
+    public String getDestinationRoot() {
+        return destinationRootPath;
+    }
+
+    @Override
+    public Observable<Boolean> isDeployed(String uploadedPath, long length) {
+        final HttpGet req;
+        try {
+            req = new HttpGet(getFileStatusPath(uploadedPath));
+        } catch (final URISyntaxException ex) {
+            return Observable.just(false);
+        }
+
+        return http.request(req, null, new WebHdfsParamsBuilder("GETFILESTATUS").build(), null)
+                .map(resp -> {
+                    try {
+                        return resp.getStatusLine().getStatusCode() == 200
+                                && getFileStatusLength(EntityUtils.toString(resp.getEntity())) == length;
+                    } catch (final IOException ex) {
+                        throw Exceptions.propagate(ex);
+                    } finally {
+                        HttpClientUtils.closeQuietly(resp);
+                    }
+                });
+    }
+
+    /**
+     * Get the file length of a GETFILESTATUS response, or -1 if it's not a file status
+     */
+    static long getFileStatusLength(@NotNull String fileStatusJson) {
+        return ObjectConvertUtils.<String, Object>convertJsonToMap(fileStatusJson)
+                .map(response -> response.get("FileStatus"))
+                .filter(Map.class::isInstance)
+                .map(fileStatus -> ((Map<?, ?>) fileStatus).get("length"))
+                .filter(Number.class::isInstance)
+                .map(fileLength -> ((Number) fileLength).longValue())
+                .orElse(-1L);
+    }
+
+    /**
+     * Convert the path returned by getArtifactUploadedPath back to its webHDFS path
+     */
+    public String getFileStatusPath(String uploadedPath) throws URISyntaxException {
+        return new URIBuilder(uploadedPath).removeQuery().build().toString();
+    }
+
     @Nullable
     public String getArtifactUploadedPath(String rootPath) throws URISyntaxException {
         final List<NameValuePair> params = new WebHdfsParamsBuilder("OPEN").build();
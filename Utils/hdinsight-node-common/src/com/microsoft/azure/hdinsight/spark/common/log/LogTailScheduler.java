@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common.log;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.spark.common.log.LogTailSource.PollResult;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import rx.Observable;
+import rx.Producer;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Polls all active log tails, such as the Livy submission logs and the YARN container logs, on a few shared threads.
+ *
+ * A tail is polled again right away after it got new log, and backs off exponentially while its source is idle. The
+ * polls to one cluster in flight at the same time are capped, and a tail only polls while its subscriber has requested
+ * more items than it has received. The log got is delivered to the subscriber on the delivery scheduler, so a slow
+ * subscriber holds up its own tail only, not the poll threads.
+ */
+public class LogTailScheduler implements ILogger {
+    public static final long DEFAULT_MIN_INTERVAL_MS = 1000;
+    public static final long DEFAULT_MAX_INTERVAL_MS = 5000;
+
+    private static final int POLL_THREADS = 4;
+    private static final int MAX_IN_FLIGHT_PER_CLUSTER = 2;
+
+    private static final LogTailScheduler instance = new LogTailScheduler(POLL_THREADS, MAX_IN_FLIGHT_PER_CLUSTER);
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    @NotNull
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final int maxInFlightPerCluster;
+
+    @NotNull
+    private final Scheduler deliveryScheduler;
+
+    // The polls in flight and the tails waiting for a slot, by cluster, guarded by itself
+    private final Map<String, ClusterSlots> slotsByCluster = new HashMap<>();
+
+    public LogTailScheduler(final int pollThreads, final int maxInFlightPerCluster) {
+        this(pollThreads, maxInFlightPerCluster, Schedulers.io());
+    }
+
+    public LogTailScheduler(final int pollThreads,
+                            final int maxInFlightPerCluster,
+                            @NotNull final Scheduler deliveryScheduler) {
+        this.executor = new ScheduledThreadPoolExecutor(pollThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "LogTailScheduler-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.maxInFlightPerCluster = Math.max(1, maxInFlightPerCluster);
+        this.deliveryScheduler = deliveryScheduler;
+    }
+
+    @NotNull
+    public static LogTailScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the cluster key of a log URL to cap the polls in flight with
+     *
+     * @param url the log URL
+     * @return the URL host, or the URL itself if it can't be parsed
+     */
+    @NotNull
+    public static String getClusterKey(@NotNull final String url) {
+        try {
+            final String host = URI.create(url).getHost();
+
+            return host == null ? url : host;
+        } catch (final IllegalArgumentException ignored) {
+            return url;
+        }
+    }
+
+    /**
+     * Tail the log source with the default poll intervals
+     *
+     * @see #tail(String, LogTailSource, long, long, Observable)
+     */
+    @NotNull
+    public <T> Observable<T> tail(@NotNull final String cluster, @NotNull final LogTailSource<T> source) {
+        return tail(cluster, source, DEFAULT_MIN_INTERVAL_MS, DEFAULT_MAX_INTERVAL_MS, null);
+    }
+
+    /**
+     * Create an Observable polling the log source, till the source is finished, the subscriber unsubscribes or the
+     * stop Observable emits. When stopped, the source is drained before the tail completes.
+     *
+     * @param cluster the cluster key to cap the polls in flight, refer to {@link #getClusterKey(String)}
+     * @param source the log source to poll
+     * @param minIntervalMs the delay after the first idle poll, doubled by each following idle poll
+     * @param maxIntervalMs the maximum delay between polls
+     * @param stop the stop observable to drain and complete the tail, refer to Observable.window() operation
+     * @return the log Observable
+     */
+    @NotNull
+    public <T> Observable<T> tail(@NotNull final String cluster,
+                                  @NotNull final LogTailSource<T> source,
+                                  final long minIntervalMs,
+                                  final long maxIntervalMs,
+                                  @Nullable final Observable<?> stop) {
+        return Observable.create((Observable.OnSubscribe<T>) subscriber -> {
+            final Scheduler.Worker deliveryWorker = deliveryScheduler.createWorker();
+            subscriber.add(deliveryWorker);
+
+            final Tail<T> tail = new Tail<>(cluster,
+                                            source,
+                                            subscriber,
+                                            deliveryWorker,
+                                            Math.max(0, Math.min(minIntervalMs, maxIntervalMs)),
+                                            Math.max(0, maxIntervalMs));
+
+            subscriber.add(Subscriptions.create(tail::cancel));
+
+            if (stop != null) {
+                subscriber.add(stop.subscribe(any -> tail.stop(),
+                                              err -> log().warn("Got error from the log tail stop signal", err)));
+            }
+
+            subscriber.setProducer(tail);
+        });
+    }
+
+    private boolean tryAcquireSlot(@NotNull final Tail<?> tail) {
+        synchronized (slotsByCluster) {
+            final ClusterSlots slots = slotsByCluster.computeIfAbsent(tail.cluster, key -> new ClusterSlots());
+
+            if (slots.inFlight >= maxInFlightPerCluster) {
+                slots.waiting.add(tail);
+
+                return false;
+            }
+
+            slots.inFlight++;
+
+            return true;
+        }
+    }
+
+    private void releaseSlot(@NotNull final String cluster) {
+        final Tail<?> next;
+
+        synchronized (slotsByCluster) {
+            final ClusterSlots slots = slotsByCluster.get(cluster);
+            if (slots == null) {
+                return;
+            }
+
+            next = slots.waiting.poll();
+            if (next == null) {
+                slots.inFlight--;
+
+                if (slots.inFlight <= 0) {
+                    slotsByCluster.remove(cluster);
+                }
+            }
+        }
+
+        // The slot is handed over to the next waiting tail
+        if (next != null) {
+            executor.execute(next::poll);
+        }
+    }
+
+    private static final class ClusterSlots {
+        private int inFlight = 0;
+
+        @NotNull
+        private final Queue<Tail<?>> waiting = new ArrayDeque<>();
+    }
+
+    private final class Tail<T> implements Producer {
+        @NotNull
+        private final String cluster;
+
+        @NotNull
+        private final LogTailSource<T> source;
+
+        @NotNull
+        private final Subscriber<? super T> child;
+
+        @NotNull
+        private final Scheduler.Worker deliveryWorker;
+
+        private final long minIntervalMs;
+        private final long maxIntervalMs;
+
+        private final Queue<T> received = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger drainWip = new AtomicInteger();
+
+        // Scheduled, waiting for a cluster slot or running, guarded by this
+        private boolean isPollPending = false;
+        private boolean isStopping = false;
+        private boolean isCancelled = false;
+        private long intervalMs = 0;
+
+        @Nullable
+        private ScheduledFuture<?> scheduledPoll;
+
+        private volatile boolean isDone = false;
+
+        @Nullable
+        private volatile Throwable error;
+
+        private Tail(@NotNull final String cluster,
+                     @NotNull final LogTailSource<T> source,
+                     @NotNull final Subscriber<? super T> child,
+                     @NotNull final Scheduler.Worker deliveryWorker,
+                     final long minIntervalMs,
+                     final long maxIntervalMs) {
+            this.cluster = cluster;
+            this.source = source;
+            this.child = child;
+            this.deliveryWorker = deliveryWorker;
+            this.minIntervalMs = minIntervalMs;
+            this.maxIntervalMs = maxIntervalMs;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                return;
+            }
+
+            requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            drain();
+        }
+
+        private void stop() {
+            synchronized (this) {
+                isStopping = true;
+
+                // Don't wait for the backoff delay
+                if (scheduledPoll != null && scheduledPoll.cancel(false)) {
+                    scheduledPoll = null;
+                    isPollPending = false;
+                }
+            }
+
+            schedulePoll();
+        }
+
+        private synchronized void cancel() {
+            isCancelled = true;
+
+            if (scheduledPoll != null) {
+                scheduledPoll.cancel(false);
+            }
+        }
+
+        private void drain() {
+            if (drainWip.getAndIncrement() != 0) {
+                return;
+            }
+
+            do {
+                final long requestedCount = requested.get();
+                long emitted = 0;
+
+                while (emitted != requestedCount && !child.isUnsubscribed()) {
+                    final T item = received.poll();
+                    if (item == null) {
+                        break;
+                    }
+
+                    child.onNext(item);
+                    emitted++;
+                }
+
+                if (emitted > 0 && requestedCount != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+
+                if (child.isUnsubscribed()) {
+                    return;
+                }
+
+                if (isDone && received.isEmpty()) {
+                    // Leave drainWip non-zero, no more events after the terminal one
+                    final Throwable err = error;
+                    if (err != null) {
+                        child.onError(err);
+                    } else {
+                        child.onCompleted();
+                    }
+
+                    return;
+                }
+
+                schedulePoll();
+            } while (drainWip.decrementAndGet() != 0);
+        }
+
+        private synchronized void schedulePoll() {
+            if (isCancelled || isDone || isPollPending) {
+                return;
+            }
+
+            if (!isStopping && (requested.get() == 0 || !received.isEmpty())) {
+                // Wait for the subscriber to take the received log
+                return;
+            }
+
+            isPollPending = true;
+            scheduledPoll = executor.schedule(() -> {
+                if (tryAcquireSlot(this)) {
+                    poll();
+                }
+            }, isStopping ? 0 : intervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void poll() {
+            try {
+                final boolean isStopped;
+
+                synchronized (this) {
+                    scheduledPoll = null;
+
+                    if (isCancelled) {
+                        return;
+                    }
+
+                    isStopped = isStopping;
+                }
+
+                if (isStopped) {
+                    source.drain(received::add);
+                    isDone = true;
+
+                    return;
+                }
+
+                final PollResult result = source.poll(received::add);
+
+                synchronized (this) {
+                    switch (result) {
+                        case RECEIVED:
+                            intervalMs = 0;
+                            break;
+                        case IDLE:
+                            intervalMs = intervalMs == 0 ? minIntervalMs : Math.min(intervalMs * 2, maxIntervalMs);
+                            break;
+                        case FINISHED:
+                        default:
+                            isDone = true;
+                    }
+                }
+            } catch (final Throwable err) {
+                Exceptions.throwIfFatal(err);
+
+                error = err;
+                isDone = true;
+            } finally {
+                releaseSlot(cluster);
+
+                synchronized (this) {
+                    isPollPending = false;
+                }
+
+                // Off the poll thread, which the other tails share
+                deliveryWorker.schedule(this::drain);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common.log;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import rx.functions.Action1;
+
+/**
+ * A growing log polled by {@link LogTailScheduler}. The scheduler never calls a source concurrently, so the source
+ * can keep its offset in plain fields.
+ *
+ * @param <T> the log item type
+ */
+@FunctionalInterface
+public interface LogTailSource<T> {
+    enum PollResult {
+        /**
+         * New log is got, poll again right away
+         */
+        RECEIVED,
+
+        /**
+         * Nothing new yet, back off before the next poll
+         */
+        IDLE,
+
+        /**
+         * The log won't grow anymore, complete the tail
+         */
+        FINISHED
+    }
+
+    /**
+     * Fetch the log produced since the last poll
+     *
+     * @param emitter to send the log items got to the subscriber
+     * @return how the tail should go on
+     * @throws Exception to fail the tail
+     */
+    @NotNull
+    PollResult poll(@NotNull Action1<T> emitter) throws Exception;
+
+    /**
+     * Fetch the rest log once the tail is stopped, nothing to do by default
+     *
+     * @param emitter to send the log items got to the subscriber
+     * @throws Exception to fail the tail
+     */
+    default void drain(@NotNull Action1<T> emitter) throws Exception {
+    }
+}
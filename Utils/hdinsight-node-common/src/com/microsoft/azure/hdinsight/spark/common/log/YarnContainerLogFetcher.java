@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common.log;
+
+import com.microsoft.azure.hdinsight.sdk.common.HttpConnectionPools;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.jsoup.parser.Parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.apache.http.HttpHeaders.AUTHORIZATION;
+
+/**
+ * Fetches a range of a YARN container log from the NodeManager or JobHistory log page.
+ *
+ * The pages are read through the shared HTTP connection pools, and the HTML is scanned as a stream of
+ * tags: only the text of {@code <p>} and {@code <pre>} elements is kept, and the read stops as soon as the requested
+ * log type is found.
+ */
+public class YarnContainerLogFetcher {
+    private static final int CONNECT_TIMEOUT_MS = 30 * 1000;
+    private static final int SOCKET_TIMEOUT_MS = 90 * 1000;
+
+    private static final Pattern LOG_TYPE_PATTERN = Pattern.compile("Log Type:\\s+(\\S+)");
+
+    private static final YarnContainerLogFetcher instance = new YarnContainerLogFetcher();
+
+    @Nullable
+    private CloseableHttpClient httpClient;
+
+    @NotNull
+    public static YarnContainerLogFetcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the log of the specified type
+     *
+     * @param authCode the authCode in request's Authorization header
+     * @param baseUrl the container log URL
+     * @param type the log type, such as stderr and stdout
+     * @param start the start offset of the log
+     * @param size the size to fetch, the value 0 or negative for the rest of the log
+     * @return the log got, or the last untyped log block in page if the type isn't found
+     * @throws HttpResponseException if the log page responded an error status
+     */
+    @NotNull
+    public String fetch(@Nullable final String authCode,
+                        @NotNull final String baseUrl,
+                        @NotNull final String type,
+                        final long start,
+                        final int size) throws IOException, URISyntaxException {
+        final HttpGet request = new HttpGet(getLogUri(baseUrl, type, start, size));
+        if (authCode != null) {
+            request.setHeader(AUTHORIZATION, authCode);
+        }
+
+        // Cookies are only kept for one fetch, including its redirects
+        final HttpClientContext context = HttpClientContext.create();
+        context.setCookieStore(new BasicCookieStore());
+
+        try (final CloseableHttpResponse response = getHttpClient().execute(request, context)) {
+            final int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode >= HttpStatus.SC_MULTIPLE_CHOICES) {
+                throw new HttpResponseException(statusCode, response.getStatusLine().getReasonPhrase());
+            }
+
+            final HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                return "";
+            }
+
+            final Charset charset = ContentType.getLenientOrDefault(entity).getCharset();
+            try (final Reader reader = new BufferedReader(new InputStreamReader(
+                    entity.getContent(), charset == null ? StandardCharsets.UTF_8 : charset))) {
+                return extractLog(reader, type);
+            }
+        }
+    }
+
+    @NotNull
+    static URI getLogUri(@NotNull final String baseUrl,
+                         @NotNull final String type,
+                         final long start,
+                         final int size) throws URISyntaxException {
+        return new URI(baseUrl + "/").resolve(
+                String.format("%s?start=%d", type, start) +
+                        (size <= 0 ? "" : String.format("&&end=%d", start + size)));
+    }
+
+    /**
+     * Scan the log page for the log of the specified type
+     *
+     * In the history server, each log block is led by a {@code <p>Log Type: xxx</p>} paragraph; for the running
+     * container, there is only one {@code <pre>} block without the log type paragraph.
+     */
+    @NotNull
+    static String extractLog(@NotNull final Reader html, @NotNull final String type) throws IOException {
+        final HtmlTagScanner scanner = new HtmlTagScanner(html);
+        String logType = null;
+        String logs = "";
+
+        for (String tag = scanner.nextTag(); tag != null; tag = scanner.nextTag()) {
+            if (tag.equals("p")) {
+                final Matcher matcher = LOG_TYPE_PATTERN.matcher(scanner.readText().trim());
+                if (matcher.matches()) {
+                    logType = matcher.group(1);
+                }
+            } else if (tag.equals("pre")) {
+                logs = scanner.readText();
+
+                if (logType != null) {
+                    if (logType.equals(type)) {
+                        return logs;
+                    }
+
+                    // Only the first <pre>...</pre> belongs to the log type
+                    logType = null;
+                }
+            }
+        }
+
+        return logs;
+    }
+
+    @NotNull
+    private synchronized CloseableHttpClient getHttpClient() {
+        // The pool for the current TLS and proxy settings is resolved at each request
+        if (httpClient == null) {
+            httpClient = HttpConnectionPools.getInstance().newHttpClientBuilder(true)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setCookieSpec(CookieSpecs.DEFAULT)
+                            .setConnectTimeout(CONNECT_TIMEOUT_MS)
+                            .setSocketTimeout(SOCKET_TIMEOUT_MS)
+                            .build())
+                    .build();
+        }
+
+        return httpClient;
+    }
+
+    /**
+     * A forward only HTML tag scanner, which doesn't build any node but reports the tag names and the text following
+     * them.
+     */
+    private static final class HtmlTagScanner {
+        @NotNull
+        private final Reader reader;
+
+        // The '<' of the next tag has been consumed by readText()
+        private boolean isTagOpened = false;
+
+        private HtmlTagScanner(@NotNull final Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return the lower case name of the next start tag, with a leading '/' for an end tag, null for the end
+         */
+        @Nullable
+        String nextTag() throws IOException {
+            while (isTagOpened || skipTo('<')) {
+                isTagOpened = false;
+
+                final String tag = readTag();
+                if (tag != null) {
+                    return tag;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * @return the unescaped text till the next tag
+         */
+        @NotNull
+        String readText() throws IOException {
+            final StringBuilder text = new StringBuilder();
+            int ch;
+
+            while ((ch = reader.read()) != -1) {
+                if (ch == '<') {
+                    isTagOpened = true;
+                    break;
+                }
+
+                text.append((char) ch);
+            }
+
+            return Parser.unescapeEntities(text.toString(), false);
+        }
+
+        private boolean skipTo(final char target) throws IOException {
+            int ch;
+
+            while ((ch = reader.read()) != -1) {
+                if (ch == target) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private void skipPast(@NotNull final String target) throws IOException {
+            final StringBuilder window = new StringBuilder();
+            int ch;
+
+            while ((ch = reader.read()) != -1) {
+                window.append(Character.toLowerCase((char) ch));
+                if (window.length() > target.length()) {
+                    window.deleteCharAt(0);
+                }
+
+                if (window.length() == target.length() && window.toString().equals(target)) {
+                    return;
+                }
+            }
+        }
+
+        @Nullable
+        private String readTag() throws IOException {
+            final StringBuilder tag = new StringBuilder();
+            int quote = 0;
+            int ch;
+
+            while ((ch = reader.read()) != -1) {
+                if (quote != 0) {
+                    if (ch == quote) {
+                        quote = 0;
+                    }
+                } else if (ch == '"' || ch == '\'') {
+                    quote = ch;
+                } else if (ch == '>') {
+                    break;
+                }
+
+                tag.append((char) ch);
+
+                if (tag.length() == 3 && tag.toString().equals("!--")) {
+                    skipPast("-->");
+                    return null;
+                }
+            }
+
+            final boolean isEndTag = tag.length() > 0 && tag.charAt(0) == '/';
+            int nameEnd = isEndTag ? 1 : 0;
+            while (nameEnd < tag.length() && Character.isLetterOrDigit(tag.charAt(nameEnd))) {
+                nameEnd++;
+            }
+
+            final String name = tag.substring(isEndTag ? 1 : 0, nameEnd).toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                // <!DOCTYPE ...> or a stray '<'
+                return null;
+            }
+
+            if (!isEndTag && (name.equals("script") || name.equals("style"))) {
+                // Raw text elements, whose content may contain '<'
+                skipPast("</" + name);
+                skipTo('>');
+                return null;
+            }
+
+            return isEndTag ? "/" + name : name;
+        }
+    }
+}
@@ -5,6 +5,10 @@
 
 package com.microsoft.azure.hdinsight.spark.jobs;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.Application;
 import com.microsoft.azure.hdinsight.spark.jobs.framework.JobRequestDetails;
 
@@ -13,7 +17,6 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
-import java.util.concurrent.ExecutionException;
 
 public class ActionHttpHandler implements HttpHandler {
 
@@ -27,14 +30,27 @@ public class ActionHttpHandler implements HttpHandler {
         if (path.contains("yarnui")) {
             JobUtils.openYarnUIHistory(clusterConnectString, requestDetail.getAppId());
         } else if (path.contains("sparkui")) {
-            try {
-                Application application = JobViewCacheManager.getSingleSparkApplication(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
-                JobUtils.openSparkUIHistory(clusterConnectString, requestDetail.getAppId(), application.getLastAttemptId());
-                JobUtils.setResponse(httpExchange, "open browser successfully");
-            } catch (ExecutionException e) {
-                JobUtils.setResponse(httpExchange, "open browser error", 500);
-                DefaultLoader.getUIHelper().showError(e.getMessage(), "open browser error");
-            }
+            ListenableFuture<Application> application = JobViewCacheManager.getSingleSparkApplicationAsync(
+                    new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
+
+            Futures.addCallback(application, new FutureCallback<Application>() {
+                @Override
+                public void onSuccess(Application app) {
+                    if (app == null) {
+                        onFailure(new IllegalArgumentException("No application " + requestDetail.getAppId()));
+                        return;
+                    }
+
+                    JobUtils.openSparkUIHistory(clusterConnectString, requestDetail.getAppId(), app.getLastAttemptId());
+                    JobUtils.setResponse(httpExchange, "open browser successfully");
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    JobUtils.setResponse(httpExchange, "open browser error", 500);
+                    DefaultLoader.getUIHelper().showError(t.getMessage(), "open browser error");
+                }
+            }, MoreExecutors.directExecutor());
         }
     }
 }
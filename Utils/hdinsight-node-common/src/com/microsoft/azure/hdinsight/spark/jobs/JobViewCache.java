@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.microsoft.azure.hdinsight.common.HDInsightLoader;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.common.task.TaskPriority;
+import com.microsoft.azure.hdinsight.common.task.TaskScheduler;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One kind of job view data cached by {@link ApplicationKey}.
+ *
+ * The data of a running application is reloaded in background after {@value #REFRESH_AFTER_WRITE_SECONDS} seconds
+ * while the stale one is still served. The data loaded after the application finished, and found complete, never
+ * changes: it isn't reloaded any more, and it is saved under the plugin root to be read back after the IDE restarts.
+ * The finished state is taken before loading, so the data loaded while the application was finishing isn't frozen.
+ *
+ * The saved data of an application not read for {@value #STORE_MAX_AGE_DAYS_PROPERTY} days is deleted, and so is the
+ * least recently read one when all saved data is over {@value #STORE_MAX_MEGABYTES_PROPERTY} megabytes.
+ *
+ * Each loaded value has a version, which is kept by a reload getting the same content, for the job view server to tell
+ * the browser its copy is still up to date.
+ *
+ * @param <V> the cached value type
+ */
+class JobViewCache<V> implements ILogger {
+    private static final long MAXIMUM_SIZE = 100;
+    private static final long REFRESH_AFTER_WRITE_SECONDS = 10;
+    private static final long EXPIRE_AFTER_ACCESS_MINUTES = 30;
+    private static final String STORE_DIR = "JobViewCache";
+
+    static final String STORE_MAX_AGE_DAYS_PROPERTY = "hdinsight.jobView.store.maxAgeDays";
+    static final String STORE_MAX_MEGABYTES_PROPERTY = "hdinsight.jobView.store.maxMegabytes";
+    private static final int DEFAULT_STORE_MAX_AGE_DAYS = 30;
+    private static final int DEFAULT_STORE_MAX_MEGABYTES = 200;
+    private static final long STORE_PRUNE_INTERVAL_MINUTES = 60;
+
+    // The last time the store was pruned, 0 to prune at the first write
+    private static final AtomicLong lastStorePruneMs = new AtomicLong();
+
+    private static final ObjectMapper storeMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final AtomicLong versionCounter = new AtomicLong();
+
+    @FunctionalInterface
+    interface Loader<V> {
+        V load(@NotNull ApplicationKey key) throws Exception;
+    }
+
+    /**
+     * To tell if the application is finished, checked before loading
+     */
+    @FunctionalInterface
+    interface FinishedChecker {
+        boolean isFinished(@NotNull ApplicationKey key);
+    }
+
+    /**
+     * To tell if the value loaded after the application finished is complete and won't change, such as the logs
+     * loaded after the log aggregation is done
+     */
+    @FunctionalInterface
+    interface CompleteChecker<V> {
+        boolean isComplete(@NotNull ApplicationKey key, @NotNull V loaded);
+    }
+
+    @NotNull
+    private final String name;
+
+    @Nullable
+    private final JavaType storeType;
+
+    @NotNull
+    private final Loader<V> loader;
+
+    @NotNull
+    private final FinishedChecker finishedChecker;
+
+    @NotNull
+    private final CompleteChecker<V> completeChecker;
+
+    @NotNull
+    private final LoadingCache<ApplicationKey, Entry<V>> cache;
+
+    private final AtomicLong storeHitCount = new AtomicLong();
+
+    JobViewCache(@NotNull final String name,
+                 @Nullable final JavaType storeType,
+                 @NotNull final Loader<V> loader,
+                 @NotNull final FinishedChecker finishedChecker,
+                 @NotNull final CompleteChecker<V> completeChecker) {
+        this(name, storeType, loader, finishedChecker, completeChecker, Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker the time source of the refresh and the expiry, for tests to move the time on
+     */
+    JobViewCache(@NotNull final String name,
+                 @Nullable final JavaType storeType,
+                 @NotNull final Loader<V> loader,
+                 @NotNull final FinishedChecker finishedChecker,
+                 @NotNull final CompleteChecker<V> completeChecker,
+                 @NotNull final Ticker ticker) {
+        this.name = name;
+        this.storeType = storeType;
+        this.loader = loader;
+        this.finishedChecker = finishedChecker;
+        this.completeChecker = completeChecker;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .initialCapacity(20)
+                .refreshAfterWrite(REFRESH_AFTER_WRITE_SECONDS, TimeUnit.SECONDS)
+                .expireAfterAccess(EXPIRE_AFTER_ACCESS_MINUTES, TimeUnit.MINUTES)
+                .ticker(ticker)
+                .recordStats()
+                .build(new CacheLoader<ApplicationKey, Entry<V>>() {
+                    @Override
+                    public Entry<V> load(@NotNull final ApplicationKey key) throws Exception {
+                        final V stored = readStore(key);
+                        if (stored != null) {
+                            storeHitCount.incrementAndGet();
+
+                            return new Entry<>(stored, true, versionCounter.incrementAndGet(), null);
+                        }
+
+                        return loadRemote(key, null);
+                    }
+
+                    @Override
+                    public ListenableFuture<Entry<V>> reload(@NotNull final ApplicationKey key,
+                                                             @NotNull final Entry<V> oldEntry) {
+                        if (oldEntry.isFinished) {
+                            return Futures.immediateFuture(oldEntry);
+                        }
+
+                        final ListenableFutureTask<Entry<V>> task = ListenableFutureTask.create(() -> loadRemote(key, oldEntry));
+                        try {
+                            // Behind the fetches a user is waiting for, in the background lane of the cluster
+                            TaskScheduler.getInstance()
+                                    .getExecutor(key.getClusterDetails().getName(), TaskPriority.BACKGROUND)
+                                    .execute(task);
+                        } catch (final RejectedExecutionException ignored) {
+                            // Too many reloads queued, serve the stale value till the next refresh
+                            return Futures.immediateFuture(oldEntry);
+                        }
+
+                        return task;
+                    }
+                });
+    }
+
+    static <T> JavaType listOf(@NotNull final Class<T> clazz) {
+        return TypeFactory.defaultInstance().constructCollectionType(List.class, clazz);
+    }
+
+    static <T> JavaType typeOf(@NotNull final Class<T> clazz) {
+        return TypeFactory.defaultInstance().constructType(clazz);
+    }
+
+    V get(@NotNull final ApplicationKey key) throws ExecutionException {
+        return cache.get(key).value;
+    }
+
+    /**
+     * Get the value with its version without blocking, the missing value is loaded in the interactive lane of the
+     * cluster by {@link TaskScheduler}
+     */
+    @NotNull
+    ListenableFuture<Entry<V>> getAsync(@NotNull final ApplicationKey key) {
+        final Entry<V> present = cache.getIfPresent(key);
+        if (present != null) {
+            return Futures.immediateFuture(present);
+        }
+
+        final ListenableFutureTask<Entry<V>> task = ListenableFutureTask.create(() -> cache.get(key));
+        TaskScheduler.getInstance()
+                .getExecutor(key.getClusterDetails().getName(), TaskPriority.INTERACTIVE)
+                .execute(task);
+
+        return task;
+    }
+
+    @Nullable
+    V getIfPresent(@NotNull final ApplicationKey key) {
+        final Entry<V> entry = cache.getIfPresent(key);
+
+        return entry == null ? null : entry.value;
+    }
+
+    @Nullable
+    Entry<V> getEntryIfPresent(@NotNull final ApplicationKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    @NotNull
+    String getName() {
+        return name;
+    }
+
+    @NotNull
+    CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return the count of loads served by the on-disk store, which are also counted as misses by {@link #getStats()}
+     */
+    long getStoreHitCount() {
+        return storeHitCount.get();
+    }
+
+    @NotNull
+    private Entry<V> loadRemote(@NotNull final ApplicationKey key, @Nullable final Entry<V> oldEntry) throws Exception {
+        // Taken before loading, the data loaded before the application finished may be changed after
+        final boolean wasFinished = finishedChecker.isFinished(key);
+        final V loaded = loader.load(key);
+        final boolean isFinished = wasFinished && loaded != null && completeChecker.isComplete(key, loaded);
+
+        if (isFinished) {
+            writeStore(key, loaded);
+        }
+
+        final byte[] digest = digestOf(loaded);
+        final long version = oldEntry != null && digest != null && Arrays.equals(digest, oldEntry.digest)
+                ? oldEntry.version
+                : versionCounter.incrementAndGet();
+
+        return new Entry<>(loaded, isFinished, version, digest);
+    }
+
+    @Nullable
+    private static byte[] digestOf(@Nullable final Object value) {
+        try {
+            return DigestUtils.md5(storeMapper.writeValueAsBytes(value));
+        } catch (final IOException ignored) {
+            // Take it as changed
+            return null;
+        }
+    }
+
+    @Nullable
+    private File getStoreFile(@NotNull final ApplicationKey key) {
+        if (storeType == null) {
+            return null;
+        }
+
+        final String pluginRoot;
+        try {
+            pluginRoot = HDInsightLoader.getHDInsightHelper().getPluginRootPath();
+        } catch (final Exception ignored) {
+            // No plugin environment, such as in unit tests
+            return null;
+        }
+
+        if (pluginRoot == null) {
+            return null;
+        }
+
+        final String clusterDir = DigestUtils.md5Hex(key.getClusterConnString().toLowerCase());
+
+        return new File(String.format("%s/%s/%s/%s/%s.json",
+                                      pluginRoot, STORE_DIR, clusterDir, key.getAppId().toLowerCase(), name));
+    }
+
+    @Nullable
+    private V readStore(@NotNull final ApplicationKey key) {
+        final File storeFile = getStoreFile(key);
+        if (storeFile == null || !storeFile.isFile()) {
+            return null;
+        }
+
+        try {
+            final V stored = storeMapper.readValue(storeFile, storeType);
+
+            // The application folder modified time is the last read time for pruning the store
+            if (!storeFile.getParentFile().setLastModified(System.currentTimeMillis())) {
+                log().debug("Can't touch the job view cache folder " + storeFile.getParent());
+            }
+
+            return stored;
+        } catch (final IOException ex) {
+            log().warn("Ignore the broken job view cache file " + storeFile, ex);
+
+            if (!storeFile.delete()) {
+                storeFile.deleteOnExit();
+            }
+
+            return null;
+        }
+    }
+
+    private void writeStore(@NotNull final ApplicationKey key, @NotNull final V value) {
+        final File storeFile = getStoreFile(key);
+        if (storeFile == null) {
+            return;
+        }
+
+        try {
+            final File parent = storeFile.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Can't create the folder " + parent);
+            }
+
+            // Write to a temporary file first, not to leave a partial file to read back
+            final File tempFile = new File(parent, storeFile.getName() + ".tmp");
+            storeMapper.writeValue(tempFile, value);
+
+            if (!tempFile.renameTo(storeFile) && !(storeFile.delete() && tempFile.renameTo(storeFile))) {
+                throw new IOException("Can't save " + storeFile);
+            }
+        } catch (final IOException ex) {
+            log().warn("Failed to save the job view cache of " + key.getAppId(), ex);
+        }
+
+        final long now = System.currentTimeMillis();
+        final long lastPruneMs = lastStorePruneMs.get();
+        if (now - lastPruneMs > TimeUnit.MINUTES.toMillis(STORE_PRUNE_INTERVAL_MINUTES)
+                && lastStorePruneMs.compareAndSet(lastPruneMs, now)) {
+            // <pluginRoot>/JobViewCache/<cluster>/<application>/<name>.json
+            pruneStore(storeFile.getParentFile().getParentFile().getParentFile(), storeFile.getParentFile());
+        }
+    }
+
+    /**
+     * Delete the saved data of the applications not read for the max age, and the least recently read ones over the
+     * max size
+     *
+     * @param storeRoot the root folder of the store
+     * @param kept the application folder just written, never deleted
+     */
+    void pruneStore(@NotNull final File storeRoot, @NotNull final File kept) {
+        final long maxAgeMs = TimeUnit.DAYS.toMillis(
+                Integer.getInteger(STORE_MAX_AGE_DAYS_PROPERTY, DEFAULT_STORE_MAX_AGE_DAYS));
+        final long maxBytes = Integer.getInteger(STORE_MAX_MEGABYTES_PROPERTY, DEFAULT_STORE_MAX_MEGABYTES)
+                * 1024L * 1024L;
+        final long now = System.currentTimeMillis();
+
+        final List<File> appDirs = new ArrayList<>();
+        for (final File clusterDir : listFiles(storeRoot)) {
+            appDirs.addAll(listFiles(clusterDir));
+        }
+
+        // The most recently read first
+        appDirs.sort(Comparator.comparingLong(File::lastModified).reversed());
+
+        long totalBytes = 0;
+        for (final File appDir : appDirs) {
+            final long appBytes = listFiles(appDir).stream().mapToLong(File::length).sum();
+            totalBytes += appBytes;
+
+            if (!appDir.equals(kept) && (now - appDir.lastModified() > maxAgeMs || totalBytes > maxBytes)) {
+                listFiles(appDir).forEach(File::delete);
+
+                if (!appDir.delete()) {
+                    log().warn("Can't delete the job view cache folder " + appDir);
+                }
+
+                totalBytes -= appBytes;
+            }
+        }
+
+        for (final File clusterDir : listFiles(storeRoot)) {
+            if (listFiles(clusterDir).isEmpty() && !clusterDir.delete()) {
+                log().debug("Can't delete the empty job view cache folder " + clusterDir);
+            }
+        }
+    }
+
+    @NotNull
+    private static List<File> listFiles(@NotNull final File dir) {
+        final File[] files = dir.listFiles();
+
+        return files == null ? Collections.emptyList() : Arrays.asList(files);
+    }
+
+    static final class Entry<V> {
+        private final V value;
+
+        private final boolean isFinished;
+
+        private final long version;
+
+        // The content digest to tell if a reload changed the value, null if unknown
+        @Nullable
+        private final byte[] digest;
+
+        private Entry(final V value, final boolean isFinished, final long version, @Nullable final byte[] digest) {
+            this.value = value;
+            this.isFinished = isFinished;
+            this.version = version;
+            this.digest = digest;
+        }
+
+        V getValue() {
+            return value;
+        }
+
+        long getVersion() {
+            return version;
+        }
+    }
+}
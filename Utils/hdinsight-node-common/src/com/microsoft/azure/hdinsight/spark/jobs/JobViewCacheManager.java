@@ -7,11 +7,18 @@ package com.microsoft.azure.hdinsight.spark.jobs;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import com.microsoft.azure.hdinsight.common.JobViewManager;
+import com.microsoft.azure.hdinsight.common.task.TaskPriority;
+import com.microsoft.azure.hdinsight.common.task.TaskScheduler;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.Application;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.event.JobStartEventLog;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.SparkEventLogs;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.executor.Executor;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.job.Job;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.stage.Stage;
@@ -19,102 +26,154 @@ import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.App;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.ApplicationMasterLogs;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import rx.Observable;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import static com.microsoft.azure.hdinsight.spark.jobs.JobViewCache.listOf;
+import static com.microsoft.azure.hdinsight.spark.jobs.JobViewCache.typeOf;
+
+/**
+ * The caches of the job view data, refer to {@link JobViewCache} for how running and finished applications are cached.
+ *
+ * The caches are refreshed in the background lane of the application cluster, behind the fetches a user is waiting
+ * for. The refresh is skipped and the stale value is kept when the lane is full.
+ */
 public class JobViewCacheManager {
-    private static final LoadingCache<ApplicationKey, List<Job>> sparkJobLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Job>>() {
-                @Override
-                public List<Job> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getLastAttemptJobsFromApp(key);
-                }
-            });
+    // The application state tells by itself, kept reloading till the log aggregation state is final too
+    private static final JobViewCache<App> yarnApplicationLocalCache = new JobViewCache<>(
+            "yarnApp", typeOf(App.class), YarnRestUtil::getApp, key -> true,
+            (key, app) -> app.isFinished() && !app.isLogAggregationPending());
 
-    private static final LoadingCache<ApplicationKey, List<Stage>> sparkStageLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Stage>>() {
-                @Override
-                public List<Stage> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getAllStageFromApp(key);
-                }
-            });
+    private static final JobViewCache<List<Job>> sparkJobLocalCache = new JobViewCache<>(
+            "jobs", listOf(Job.class), SparkRestUtil::getLastAttemptJobsFromApp,
+            JobViewCacheManager::isYarnAppFinished, (key, loaded) -> true);
 
-    private static final LoadingCache<ApplicationKey, List<Executor>> sparkExecutorLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Executor>>() {
-                @Override
-                public List<Executor> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getAllExecutorFromApp(key);
-                }
-            });
+    private static final JobViewCache<List<Stage>> sparkStageLocalCache = new JobViewCache<>(
+            "stages", listOf(Stage.class), SparkRestUtil::getAllStageFromApp,
+            JobViewCacheManager::isYarnAppFinished, (key, loaded) -> true);
+
+    private static final JobViewCache<List<Executor>> sparkExecutorLocalCache = new JobViewCache<>(
+            "executors", listOf(Executor.class), SparkRestUtil::getAllExecutorFromApp,
+            JobViewCacheManager::isYarnAppFinished, (key, loaded) -> true);
+
+    private static final JobViewCache<List<Task>> sparkTasksSummaryLocalCache = new JobViewCache<>(
+            "tasks", listOf(Task.class),
+            key -> StageTasksFetcher.getInstance().fetchAll(key, sparkStageLocalCache.get(key)),
+            JobViewCacheManager::isYarnAppFinished, (key, loaded) -> true);
+
+    // The logs are complete once aggregated, before that they are read from the node manager, which may be gone
+    private static final JobViewCache<ApplicationMasterLogs> yarnAppLogLocalCache = new JobViewCache<>(
+            "yarnLogs", typeOf(ApplicationMasterLogs.class), JobUtils::getYarnLogs,
+            JobViewCacheManager::isYarnAppLogAggregated, (key, loaded) -> true);
+
+    private static final JobViewCache<SparkEventLogs> sparkEventLogCache = new JobViewCache<>(
+            "eventLogs", typeOf(SparkEventLogs.class), SparkRestUtil::getSparkEventLogs,
+            JobViewCacheManager::isYarnAppFinished, (key, loaded) -> true);
 
+    private static final List<JobViewCache<?>> applicationCaches = Arrays.asList(
+            yarnApplicationLocalCache,
+            sparkJobLocalCache,
+            sparkStageLocalCache,
+            sparkExecutorLocalCache,
+            sparkTasksSummaryLocalCache,
+            yarnAppLogLocalCache,
+            sparkEventLogCache);
+
+    // The application list of a cluster keeps changing, always refreshed
     private static final LoadingCache<String, List<Application>> sparkApplicationsLocalCache = CacheBuilder.newBuilder()
             .maximumSize(100)
             .initialCapacity(20)
+            .refreshAfterWrite(10, TimeUnit.SECONDS)
+            .recordStats()
             .build(new CacheLoader<String, List<Application>>() {
                 @Override
                 public List<Application> load(String key) throws Exception {
                     return SparkRestUtil.getSparkApplications(JobViewManager.getCluster(key));
                 }
-            });
 
-    private static final LoadingCache<ApplicationKey, List<Task>> sparkTasksSummaryLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Task>>() {
                 @Override
-                public List<Task> load(ApplicationKey key) throws Exception {
-                    List<Task> allTasks = new ArrayList<>();
-                    List<Stage> stages = sparkStageLocalCache.get(key);
-                    for (Stage stage: stages) {
-                        int stageId = stage.getStageId();
-                        int attemptedId = stage.getAttemptId();
-                        List<Task> tasks = SparkRestUtil.getSparkTasks(key, stageId, attemptedId);
-                        allTasks.addAll(tasks);
+                public ListenableFuture<List<Application>> reload(String key, List<Application> oldValue) {
+                    final ListenableFutureTask<List<Application>> task = ListenableFutureTask.create(() -> load(key));
+                    try {
+                        TaskScheduler.getInstance().getExecutor(key, TaskPriority.BACKGROUND).execute(task);
+                    } catch (RejectedExecutionException ignored) {
+                        // Too many refreshes queued, serve the stale list till the next refresh
+                        return Futures.immediateFuture(oldValue);
                     }
-                    return allTasks;
-                }
-            });
 
-    private static final LoadingCache<ApplicationKey, ApplicationMasterLogs> yarnAppLogLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, ApplicationMasterLogs>() {
-                @Override
-                public ApplicationMasterLogs load(ApplicationKey key) throws Exception {
-                    return JobUtils.getYarnLogs(key);
+                    return task;
                 }
             });
 
-    private static final LoadingCache<ApplicationKey, App> yarnApplicationLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, App>() {
-                @Override
-                public App load(ApplicationKey key) throws Exception {
-                    return YarnRestUtil.getApp(key);
-                }
-            });
+    /**
+     * Check the Yarn application state, the data loaded after the application finished won't change
+     */
+    private static boolean isYarnAppFinished(@NotNull ApplicationKey key) {
+        final App app = getYarnAppOrNull(key);
 
-    private static final LoadingCache<ApplicationKey, List<JobStartEventLog>> sparkJobStartEventLogCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<JobStartEventLog>>() {
-                @Override
-                public List<JobStartEventLog> load(ApplicationKey key) throws Exception {
-                    return SparkRestUtil.getSparkEventLogs(key);
-                }
-            });
+        return app != null && app.isFinished();
+    }
+
+    /**
+     * Check the Yarn application log aggregation state, the logs loaded after the aggregation done won't change
+     */
+    private static boolean isYarnAppLogAggregated(@NotNull ApplicationKey key) {
+        final App app = getYarnAppOrNull(key);
+
+        return app != null && app.isFinished() && app.isLogAggregationDone();
+    }
+
+    /**
+     * Get the Yarn application, loaded if not cached yet, such as when the jobs are the first view opened
+     */
+    @Nullable
+    private static App getYarnAppOrNull(@NotNull ApplicationKey key) {
+        try {
+            return yarnApplicationLocalCache.get(key);
+        } catch (ExecutionException | RuntimeException ignored) {
+            // Take it as running, the data loaded is just not kept
+            return null;
+        }
+    }
+
+    /**
+     * Get the statistics of all job view caches, by cache name
+     *
+     * The loads served by the on-disk store of finished applications are counted as misses with short load time.
+     */
+    @NotNull
+    public static Map<String, CacheStats> getStats() {
+        final Map<String, CacheStats> stats = new LinkedHashMap<>();
+
+        stats.put("sparkApplications", sparkApplicationsLocalCache.stats());
+        applicationCaches.forEach(cache -> stats.put(cache.getName(), cache.getStats()));
+
+        return stats;
+    }
+
+    /**
+     * Get the count of loads served by the on-disk store of finished applications, by cache name
+     */
+    @NotNull
+    public static Map<String, Long> getStoreHitCounts() {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+
+        applicationCaches.forEach(cache -> counts.put(cache.getName(), cache.getStoreHitCount()));
+
+        return counts;
+    }
 
     public static List<JobStartEventLog> getJobStartEventLogs(@NotNull ApplicationKey key) throws ExecutionException {
-        return sparkJobStartEventLogCache.get(key);
+        return sparkEventLogCache.get(key).getJobStartEvents();
     }
 
     public static ApplicationMasterLogs getYarnLogs(@NotNull ApplicationKey key) throws ExecutionException {
@@ -151,7 +210,84 @@ public class JobViewCacheManager {
         return sparkTasksSummaryLocalCache.get(key);
     }
 
+    /**
+     * Get the tasks of all stages in pages as soon as they are got, unsubscribe to cancel the rest fetches
+     *
+     * The tasks of a finished application are served at once from the cache, which saves them for the next time.
+     * Otherwise only the unfinished and new stages are fetched, the tasks of the finished stages are memoized.
+     */
+    public static Observable<List<Task>> getTasksInPages(@NotNull ApplicationKey key) {
+        return Observable.defer(() -> {
+            final List<Task> cached = sparkTasksSummaryLocalCache.getIfPresent(key);
+            if (cached != null) {
+                return Observable.just(cached);
+            }
+
+            try {
+                if (isYarnAppFinished(key)) {
+                    return Observable.just(sparkTasksSummaryLocalCache.get(key));
+                }
+
+                return StageTasksFetcher.getInstance().fetch(key, sparkStageLocalCache.get(key));
+            } catch (ExecutionException ex) {
+                return Observable.error(ex);
+            }
+        });
+    }
+
     public static List<Stage> getStages(@NotNull ApplicationKey key) throws ExecutionException {
         return sparkStageLocalCache.get(key);
     }
+
+    /*
+     * The non-blocking getters for the job view server, the cached values come with their versions
+     */
+
+    static ListenableFuture<JobViewCache.Entry<App>> getYarnAppAsync(@NotNull ApplicationKey key) {
+        return yarnApplicationLocalCache.getAsync(key);
+    }
+
+    static ListenableFuture<JobViewCache.Entry<ApplicationMasterLogs>> getYarnLogsAsync(@NotNull ApplicationKey key) {
+        return yarnAppLogLocalCache.getAsync(key);
+    }
+
+    static ListenableFuture<JobViewCache.Entry<List<Job>>> getJobAsync(@NotNull ApplicationKey key) {
+        return sparkJobLocalCache.getAsync(key);
+    }
+
+    static ListenableFuture<JobViewCache.Entry<SparkEventLogs>> getSparkEventLogsAsync(@NotNull ApplicationKey key) {
+        return sparkEventLogCache.getAsync(key);
+    }
+
+    static ListenableFuture<JobViewCache.Entry<List<Stage>>> getStagesAsync(@NotNull ApplicationKey key) {
+        return sparkStageLocalCache.getAsync(key);
+    }
+
+    static ListenableFuture<JobViewCache.Entry<List<Executor>>> getExecutorsAsync(@NotNull ApplicationKey key) {
+        return sparkExecutorLocalCache.getAsync(key);
+    }
+
+    @Nullable
+    static JobViewCache.Entry<List<Task>> getTasksIfPresent(@NotNull ApplicationKey key) {
+        return sparkTasksSummaryLocalCache.getEntryIfPresent(key);
+    }
+
+    /**
+     * Get the latest application list of the cluster, not cached, in the interactive lane of the cluster
+     */
+    static ListenableFuture<List<Application>> getLatestSparkApplicationsAsync(@NotNull IClusterDetail clusterDetail) {
+        return callInteractive(clusterDetail, () -> SparkRestUtil.getSparkApplications(clusterDetail));
+    }
+
+    static ListenableFuture<Application> getSingleSparkApplicationAsync(@NotNull ApplicationKey key) {
+        return callInteractive(key.getClusterDetails(), () -> getSingleSparkApplication(key));
+    }
+
+    private static <T> ListenableFuture<T> callInteractive(@NotNull IClusterDetail clusterDetail,
+                                                           @NotNull Callable<T> callable) {
+        final ListenableFutureTask<T> task = ListenableFutureTask.create(callable);
+        TaskScheduler.getInstance().getExecutor(clusterDetail.getName(), TaskPriority.INTERACTIVE).execute(task);
+
+        return task;
+    }
 }
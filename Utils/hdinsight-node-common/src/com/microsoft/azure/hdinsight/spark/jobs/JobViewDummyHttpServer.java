@@ -103,7 +103,7 @@ public class JobViewDummyHttpServer {
                                 }
                             }
 
-                        }));
+                        }), clusterDetail.getName());
                     } else if (requestDetail.getApiType() == HttpRequestType.LivyBatchesRest) {
                         TaskExecutor.submit(new LivyTask(clusterDetail, queryUrl, new HttpFutureCallback(httpExchange) {
                             @Override
@@ -123,7 +123,7 @@ public class JobViewDummyHttpServer {
 //                                    LOGGER.error("Get job history error", e);
                                 }
                             }
-                        }));
+                        }), clusterDetail.getName());
                     } else if(requestDetail.getApiType() == HttpRequestType.MultiTask){
                         TaskExecutor.submit(new MultiRestTask(clusterDetail, requestDetail.getQueryUrls(), new MultiHttpFutureCallback(httpExchange){
                             public void onSuccess(List<String> strs) {
@@ -138,7 +138,7 @@ public class JobViewDummyHttpServer {
 //                                    LOGGER.error("Get job history error", e);
                                 }
                             }
-                        }));
+                        }), clusterDetail.getName());
                     } else {
                         TaskExecutor.submit(new RestTask(clusterDetail, queryUrl, new HttpFutureCallback(httpExchange) {
                             @Override
@@ -153,7 +153,7 @@ public class JobViewDummyHttpServer {
 //                                    LOGGER.error("Get job history error", e);
                                 }
                             }
-                        }));
+                        }), clusterDetail.getName());
                     }
                 }
             });
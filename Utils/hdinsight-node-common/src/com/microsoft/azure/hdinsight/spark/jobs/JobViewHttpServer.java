@@ -17,10 +17,19 @@ import java.net.ServerSocket;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * The local server of the job view pages.
+ *
+ * The handlers don't wait for the remote REST calls: the request threads only dispatch, and the responses are sent by
+ * the job view cache futures when done. So a few request threads serve many job view tabs.
+ */
 public class JobViewHttpServer {
     private static HttpServer server;
-    private static final int NUMBER_OF_THREADS = 50;
+    private static final int NUMBER_OF_THREADS = 4;
+    private static final int BACKLOG = 50;
+    private static final AtomicInteger threadCounter = new AtomicInteger();
     private static ExecutorService executorService;
     private static boolean isEnabled = false;
     private static int port = -1;
@@ -60,7 +69,7 @@ public class JobViewHttpServer {
             InetSocketAddress socketAddress = new InetSocketAddress(s.getLocalPort());
             port = socketAddress.getPort();
 
-            server = HttpServer.create(socketAddress, NUMBER_OF_THREADS);
+            server = HttpServer.create(socketAddress, BACKLOG);
 
             server.createContext("/try", (httpExchange) -> {
                     httpExchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
@@ -70,7 +79,11 @@ public class JobViewHttpServer {
             server.createContext("/apps", new YarnJobHttpHandler());
             server.createContext("/actions", new ActionHttpHandler());
 
-            executorService = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+            executorService = Executors.newFixedThreadPool(NUMBER_OF_THREADS, runnable -> {
+                final Thread thread = new Thread(runnable, "JobViewHttpServer-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
             server.setExecutor(executorService);
             server.start();
             isEnabled = true;
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sends the job view server responses, completed asynchronously from the job view cache futures.
+ *
+ * The JSON responses are gzip compressed when they are bigger than {@value #GZIP_THRESHOLD_BYTES} bytes and the
+ * browser accepts it. The responses of the cached values have the ETag made of the cache entry versions, so the
+ * repeated polls of the job view get 304 without the body.
+ */
+final class JobViewResponses {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobViewResponses.class);
+
+    private static final int GZIP_THRESHOLD_BYTES = 2 * 1024;
+
+    /**
+     * Ends the body of a chunked JSON response failed after the headers sent, which makes the JSON invalid for sure
+     */
+    static final String TRUNCATED_MARKER = "\n!!! JOB VIEW RESPONSE TRUNCATED: ";
+
+    // The cache entry versions restart with the IDE
+    private static final String ETAG_EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    @FunctionalInterface
+    interface ResponseSender<T> {
+        void send(@NotNull HttpExchange httpExchange, T result) throws IOException;
+    }
+
+    private JobViewResponses() {
+    }
+
+    /**
+     * Send the response when the future is done, or the error message with status 500 for the failure
+     */
+    static <T> void whenDone(@NotNull final HttpExchange httpExchange,
+                             @NotNull final ListenableFuture<T> future,
+                             @NotNull final ResponseSender<T> sender) {
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(@Nullable final T result) {
+                try {
+                    sender.send(httpExchange, result);
+                } catch (final IOException | RuntimeException ex) {
+                    onFailure(ex);
+                }
+            }
+
+            @Override
+            public void onFailure(@NotNull final Throwable err) {
+                final Throwable cause = err instanceof ExecutionException && err.getCause() != null
+                        ? err.getCause()
+                        : err;
+
+                LOGGER.warn("Failed to serve job view request " + httpExchange.getRequestURI(), cause);
+                sendText(httpExchange, String.valueOf(cause.getMessage()), 500);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * @return the weak ETag of the cache entry versions
+     */
+    @NotNull
+    static String etagOf(@NotNull final JobViewCache.Entry<?>... entries) {
+        return "W/\"" + ETAG_EPOCH + "-" + Arrays.stream(entries)
+                .map(entry -> Long.toString(entry.getVersion(), 36))
+                .collect(Collectors.joining("-")) + "\"";
+    }
+
+    /**
+     * Send 304 if the browser has the same version
+     *
+     * @return true if 304 is sent
+     */
+    static boolean sendIfNotModified(@NotNull final HttpExchange httpExchange, @NotNull final String etag) {
+        final String ifNoneMatch = httpExchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        final boolean isMatched = Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag) || ("W/" + tag).equals(etag));
+
+        if (!isMatched) {
+            return false;
+        }
+
+        try {
+            setCacheHeaders(httpExchange.getResponseHeaders(), etag);
+            httpExchange.sendResponseHeaders(304, -1);
+        } catch (final IOException ex) {
+            LOGGER.warn("Failed to send job view response " + httpExchange.getRequestURI(), ex);
+        } finally {
+            httpExchange.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * Send the value as JSON with the ETag of the cache entries, or 304 if the browser has the same version
+     */
+    static void sendCachedJson(@NotNull final HttpExchange httpExchange,
+                               @Nullable final Object value,
+                               @NotNull final JobViewCache.Entry<?>... entries) throws IOException {
+        final String etag = etagOf(entries);
+
+        if (!sendIfNotModified(httpExchange, etag)) {
+            sendBody(httpExchange, toJsonBytes(value), etag);
+        }
+    }
+
+    /**
+     * Send the value not cached as JSON with the ETag of its content, or 304 if the browser has the same content
+     */
+    static void sendJson(@NotNull final HttpExchange httpExchange, @Nullable final Object value) throws IOException {
+        final byte[] body = toJsonBytes(value);
+        final String etag = "W/\"" + DigestUtils.md5Hex(body) + "\"";
+
+        if (!sendIfNotModified(httpExchange, etag)) {
+            sendBody(httpExchange, body, etag);
+        }
+    }
+
+    private static byte[] toJsonBytes(@Nullable final Object value) throws IOException {
+        return ObjectConvertUtils.convertObjectToJsonString(value)
+                .orElseThrow(IOException::new)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void sendBody(@NotNull final HttpExchange httpExchange,
+                                 @NotNull final byte[] body,
+                                 @NotNull final String etag) throws IOException {
+        final Headers headers = httpExchange.getResponseHeaders();
+
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        setCacheHeaders(headers, etag);
+
+        try {
+            if (body.length >= GZIP_THRESHOLD_BYTES && isGzipAccepted(httpExchange)) {
+                final ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+                try (final GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(body);
+                }
+
+                headers.set("Content-Encoding", "gzip");
+                headers.set("Vary", "Accept-Encoding");
+                httpExchange.sendResponseHeaders(200, compressed.size());
+                compressed.writeTo(httpExchange.getResponseBody());
+            } else {
+                httpExchange.sendResponseHeaders(200, body.length);
+                httpExchange.getResponseBody().write(body);
+            }
+        } finally {
+            httpExchange.close();
+        }
+    }
+
+    /**
+     * Start a chunked JSON response, gzip compressed if the browser accepts it. Closing the stream got ends the
+     * response.
+     */
+    @NotNull
+    static OutputStream startChunkedJson(@NotNull final HttpExchange httpExchange) throws IOException {
+        final Headers headers = httpExchange.getResponseHeaders();
+        final boolean isGzip = isGzipAccepted(httpExchange);
+
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        if (isGzip) {
+            headers.set("Content-Encoding", "gzip");
+            headers.set("Vary", "Accept-Encoding");
+        }
+
+        httpExchange.sendResponseHeaders(200, 0);
+
+        final OutputStream body = new FilterOutputStream(httpExchange.getResponseBody()) {
+            @Override
+            public void write(@NotNull final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    httpExchange.close();
+                }
+            }
+        };
+
+        return isGzip ? new GZIPOutputStream(body, true) : body;
+    }
+
+    /**
+     * End the chunked JSON response failed after the headers were sent, with the truncation marker and the error
+     * message, so the browser can't take the partial JSON as a complete one
+     *
+     * @param stream the stream got by {@link #startChunkedJson(HttpExchange)}, which is closed
+     */
+    static void endChunkedJsonWithError(@NotNull final OutputStream stream, @NotNull final Throwable err) {
+        try {
+            stream.write((TRUNCATED_MARKER + err.getMessage()).getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException ignored) {
+            // The browser is gone
+        } finally {
+            try {
+                stream.close();
+            } catch (final IOException ignored) {
+                // The browser is gone
+            }
+        }
+    }
+
+    static void sendText(@NotNull final HttpExchange httpExchange, @NotNull final String message, final int code) {
+        final byte[] body = message.getBytes(StandardCharsets.UTF_8);
+
+        try {
+            httpExchange.sendResponseHeaders(code, body.length);
+            httpExchange.getResponseBody().write(body);
+        } catch (final IOException ex) {
+            LOGGER.warn("Failed to send job view response " + httpExchange.getRequestURI(), ex);
+        } finally {
+            httpExchange.close();
+        }
+    }
+
+    private static void setCacheHeaders(@NotNull final Headers headers, @NotNull final String etag) {
+        headers.set("ETag", etag);
+        // Let the browser keep the response, but always check with the ETag
+        headers.set("Cache-Control", "no-cache");
+    }
+
+    private static boolean isGzipAccepted(@NotNull final HttpExchange httpExchange) {
+        final String acceptEncoding = httpExchange.getRequestHeaders().getFirst("Accept-Encoding");
+
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+}
@@ -5,66 +5,170 @@
 
 package com.microsoft.azure.hdinsight.spark.jobs;
 
-import com.microsoft.azure.hdinsight.sdk.common.HDIException;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.microsoft.azure.hdinsight.common.task.TaskPriority;
+import com.microsoft.azure.hdinsight.common.task.TaskScheduler;
 import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
-import com.microsoft.azure.hdinsight.sdk.rest.spark.Application;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.YarnAppWithJobs;
-import com.microsoft.azure.hdinsight.sdk.rest.spark.event.JobStartEventLog;
-import com.microsoft.azure.hdinsight.sdk.rest.spark.executor.Executor;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.SparkEventLogs;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.job.Job;
-import com.microsoft.azure.hdinsight.sdk.rest.spark.stage.Stage;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.App;
 import com.microsoft.azure.hdinsight.spark.jobs.framework.JobRequestDetails;
-import com.microsoft.tooling.msservices.components.DefaultLoader;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.exceptions.Exceptions;
+import rx.schedulers.Schedulers;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class SparkJobHttpHandler implements HttpHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SparkJobHttpHandler.class);
 
+    /**
+     * The request thread returns at once, the response is sent when the job view data is got
+     */
     @Override
     public void handle(HttpExchange httpExchange) throws IOException {
         httpExchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
         JobRequestDetails requestDetail = JobRequestDetails.getJobRequestDetail(httpExchange);
-        try {
-            String path = requestDetail.getRequestPath();
-            if (path.equalsIgnoreCase("/applications/") && requestDetail.getAppId().equalsIgnoreCase("0")) {
-                try {
-                    List<Application> applications = SparkRestUtil.getSparkApplications(requestDetail.getCluster());
-                    Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(applications);
-                    JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
-                } catch (HDIException e) {
-                    DefaultLoader.getUIHelper().logError("get applications list error", e);
-                }
-            } else if (path.contains("application_graph")) {
-                ApplicationKey key = new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId());
-                List<Job> jobs = JobViewCacheManager.getJob(key);
-                App app = JobViewCacheManager.getYarnApp(key);
-                List<JobStartEventLog> jobStartEventLogs = JobViewCacheManager.getJobStartEventLogs(key);
-                YarnAppWithJobs yarnAppWithJobs = new YarnAppWithJobs(app, jobs, jobStartEventLogs);
-                Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(yarnAppWithJobs);
-                JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
-            } else if (path.contains("stages_summary")) {
-                List<Stage> stages = JobViewCacheManager.getStages(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
-                Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(stages);
-                JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
-            } else if (path.contains("executors_summary")) {
-                List<Executor> executors = JobViewCacheManager.getExecutors(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
-                Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(executors);
-                JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
-            } else if (path.contains("tasks_summary")) {
-                List<Task> tasks = JobViewCacheManager.getTasks(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
-                Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(tasks);
-                JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
+        String path = requestDetail.getRequestPath();
+        if (path.equalsIgnoreCase("/applications/") && requestDetail.getAppId().equalsIgnoreCase("0")) {
+            JobViewResponses.whenDone(httpExchange,
+                                      JobViewCacheManager.getLatestSparkApplicationsAsync(requestDetail.getCluster()),
+                                      JobViewResponses::sendJson);
+        } else if (path.contains("application_graph")) {
+            ApplicationKey key = new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId());
+            ListenableFuture<JobViewCache.Entry<List<Job>>> jobs = JobViewCacheManager.getJobAsync(key);
+            ListenableFuture<JobViewCache.Entry<App>> app = JobViewCacheManager.getYarnAppAsync(key);
+            ListenableFuture<JobViewCache.Entry<SparkEventLogs>> eventLogs = JobViewCacheManager.getSparkEventLogsAsync(key);
+
+            JobViewResponses.whenDone(httpExchange, Futures.allAsList(jobs, app, eventLogs), (exchange, all) -> {
+                // All are done
+                JobViewCache.Entry<List<Job>> jobsEntry = Futures.getUnchecked(jobs);
+                JobViewCache.Entry<App> appEntry = Futures.getUnchecked(app);
+                JobViewCache.Entry<SparkEventLogs> eventsEntry = Futures.getUnchecked(eventLogs);
+                YarnAppWithJobs yarnAppWithJobs =
+                        new YarnAppWithJobs(appEntry.getValue(), jobsEntry.getValue(), eventsEntry.getValue());
+
+                JobViewResponses.sendCachedJson(exchange, yarnAppWithJobs, jobsEntry, appEntry, eventsEntry);
+            });
+        } else if (path.contains("stages_summary")) {
+            sendCached(httpExchange, JobViewCacheManager.getStagesAsync(
+                    new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId())));
+        } else if (path.contains("executors_summary")) {
+            sendCached(httpExchange, JobViewCacheManager.getExecutorsAsync(
+                    new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId())));
+        } else if (path.contains("tasks_summary")) {
+            ApplicationKey key = new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId());
+            JobViewCache.Entry<List<Task>> cachedTasks = JobViewCacheManager.getTasksIfPresent(key);
+
+            if (cachedTasks != null) {
+                JobViewResponses.sendCachedJson(httpExchange, cachedTasks.getValue(), cachedTasks);
+            } else {
+                sendTasksInPages(httpExchange, key);
             }
-        } catch (ExecutionException e) {
-            JobUtils.setResponse(httpExchange, e.getMessage(), 500);
+        } else {
+            httpExchange.close();
         }
     }
-}
 
+    private static <T> void sendCached(HttpExchange httpExchange, ListenableFuture<JobViewCache.Entry<T>> future) {
+        JobViewResponses.whenDone(httpExchange, future,
+                                  (exchange, entry) -> JobViewResponses.sendCachedJson(exchange, entry.getValue(), entry));
+    }
+
+    /**
+     * Send the tasks as a chunked JSON array, each page is written out once it's got. The response headers are sent with
+     * the first page, so a failure before it is still sent with status 500, while a failure after it ends the body with
+     * the truncation marker of {@link JobViewResponses#endChunkedJsonWithError}. The fetches not started yet are
+     * cancelled if the job view is closed and the response can't be written.
+     */
+    private void sendTasksInPages(HttpExchange httpExchange, ApplicationKey key) {
+        final AtomicReference<OutputStream> streamRef = new AtomicReference<>();
+        final AtomicBoolean isFirstTask = new AtomicBoolean(true);
+
+        // Not to block the request thread on getting the stages
+        JobViewCacheManager.getTasksInPages(key)
+                .subscribeOn(Schedulers.from(TaskScheduler.getInstance().getExecutor(
+                        key.getClusterDetails().getName(), TaskPriority.INTERACTIVE)))
+                .subscribe(tasks -> {
+                               try {
+                                   final OutputStream stream = startTasks(httpExchange, streamRef);
+
+                                   for (Task task : tasks) {
+                                       final String taskJson = ObjectConvertUtils.convertObjectToJsonString(task)
+                                               .orElseThrow(IOException::new);
+
+                                       if (!isFirstTask.getAndSet(false)) {
+                                           stream.write(',');
+                                       }
+
+                                       stream.write(taskJson.getBytes(StandardCharsets.UTF_8));
+                                   }
+
+                                   stream.flush();
+                               } catch (IOException ex) {
+                                   throw Exceptions.propagate(ex);
+                               }
+                           },
+                           err -> {
+                               LOGGER.warn("Stop sending tasks of " + key.getAppId(), err);
+
+                               final OutputStream stream = streamRef.get();
+                               if (stream == null) {
+                                   JobViewResponses.sendText(httpExchange, String.valueOf(err.getMessage()), 500);
+                               } else {
+                                   JobViewResponses.endChunkedJsonWithError(stream, err);
+                               }
+                           },
+                           () -> {
+                               OutputStream stream = streamRef.get();
+
+                               try {
+                                   stream = startTasks(httpExchange, streamRef);
+                                   stream.write(']');
+                               } catch (IOException ex) {
+                                   LOGGER.warn("Stop sending tasks of " + key.getAppId(), ex);
+                               } finally {
+                                   if (stream != null) {
+                                       closeQuietly(stream);
+                                   } else {
+                                       httpExchange.close();
+                                   }
+                               }
+                           });
+    }
+
+    /**
+     * Start the chunked response and the tasks array if not yet
+     */
+    private static OutputStream startTasks(HttpExchange httpExchange,
+                                           AtomicReference<OutputStream> streamRef) throws IOException {
+        OutputStream stream = streamRef.get();
+
+        if (stream == null) {
+            stream = JobViewResponses.startChunkedJson(httpExchange);
+            streamRef.set(stream);
+            stream.write('[');
+        }
+
+        return stream;
+    }
+
+    private static void closeQuietly(OutputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // The browser is gone
+        }
+    }
+}
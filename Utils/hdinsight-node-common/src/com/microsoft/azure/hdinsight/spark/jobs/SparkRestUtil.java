@@ -5,7 +5,6 @@
 
 package com.microsoft.azure.hdinsight.spark.jobs;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.microsoft.azure.hdinsight.common.HDInsightLoader;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.common.HDIException;
@@ -13,25 +12,22 @@ import com.microsoft.azure.hdinsight.sdk.rest.AttemptWithAppId;
 import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
 import com.microsoft.azure.hdinsight.sdk.rest.RestUtil;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.Application;
-import com.microsoft.azure.hdinsight.sdk.rest.spark.event.JobStartEventLog;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.SparkEventLogReader;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.event.SparkEventLogs;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.executor.Executor;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.job.Job;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.stage.Stage;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
-import com.microsoft.azure.toolkit.lib.common.utils.JsonUtils;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -41,13 +37,21 @@ public class SparkRestUtil {
     @NotNull
     public static List<Application> getSparkApplications(@NotNull IClusterDetail clusterDetail) throws HDIException, IOException {
         HttpEntity entity = getSparkRestEntity(clusterDetail, "");
-        Optional<List<Application>> apps = ObjectConvertUtils.convertEntityToList(entity, Application.class);
 
-        // spark job has at least one attempt
-        return apps.orElse(RestUtil.getEmptyList(Application.class))
-                .stream()
-                .filter(app -> app.getAttempts().size() != 0 && app.getAttempts().get(0).getAttemptId() != null)
-                .collect(Collectors.toList());
+        // spark job has at least one attempt, filter the applications as they are parsed from the long list
+        try {
+            return ObjectConvertUtils.convertEntityToObservable(entity, Application.class)
+                    .filter(app -> app.getAttempts().size() != 0 && app.getAttempts().get(0).getAttemptId() != null)
+                    .toList()
+                    .toBlocking()
+                    .single();
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+
+            throw ex;
+        }
     }
 
     public static List<Executor> getAllExecutorFromApp(@NotNull ApplicationKey key) throws IOException, HDIException, ExecutionException {
@@ -84,40 +88,59 @@ public class SparkRestUtil {
         return tasks.orElse(RestUtil.getEmptyList(Task.class));
     }
 
-    public static List<JobStartEventLog> getSparkEventLogs(@NotNull ApplicationKey key) throws HDIException, IOException {
+    /**
+     * Get a page of the stage attempt's tasks, ordered by task index
+     *
+     * @param offset the index of the first task to get
+     * @param length the max count of tasks to get
+     */
+    public static List<Task> getSparkTasks(@NotNull ApplicationKey key, int stage, int attemptId, int offset, int length) throws IOException, ExecutionException, HDIException {
+        AttemptWithAppId attemptWithAppId = getLastAttemptFromLocalCache(key);
+        String url = String.format("/%s/%s/stages/%s/%s/taskList?offset=%d&length=%d", attemptWithAppId.getAppId(), attemptWithAppId.getAttemptId(), stage, attemptId, offset, length);
+        HttpEntity entity = getSparkRestEntity(key.getClusterDetails(), url);
+
+        Optional<List<Task>> tasks = ObjectConvertUtils.convertEntityToList(entity, Task.class);
+        return tasks.orElse(RestUtil.getEmptyList(Task.class));
+    }
+
+    /**
+     * Get the events of the job view from the Spark event logs of the application
+     */
+    public static SparkEventLogs getSparkEventLogs(@NotNull ApplicationKey key) throws HDIException, IOException {
+        final SparkEventLogs eventLogs = new SparkEventLogs();
+        readSparkEventLogs(key, eventLogs.newReader());
+
+        return eventLogs;
+    }
+
+    /**
+     * Download the Spark event logs of the application, and stream the last attempt's one to the reader
+     *
+     * @param key the application key
+     * @param reader the event log reader with the event handlers registered
+     */
+    public static void readSparkEventLogs(@NotNull ApplicationKey key, @NotNull SparkEventLogReader reader) throws HDIException, IOException {
         String url = String.format("%s/logs", key.getAppId());
         String eventLogsPath = String.format("%s/SparkEventLogs/%s/eventLogs.zip", HDInsightLoader.getHDInsightHelper().getPluginRootPath(), key.getAppId());
         File file = new File(eventLogsPath);
         HttpEntity entity = getSparkRestEntity(key.getClusterDetails(), url);
-        InputStream inputStream = entity.getContent();
-        FileUtils.copyInputStreamToFile(inputStream, file);
-        IOUtils.closeQuietly(inputStream);
-
-        ZipFile zipFile = new ZipFile(file);
-        List<? extends ZipEntry> entities =  Collections.list(zipFile.entries());
-        // every application has an attempt in event log
-        // and the entity name should be in formation "{appId}_{attemptId}"
-        String entityName = String.format("%s_%s", key.getAppId(), entities.size());
-        ZipEntry lastEntity = zipFile.getEntry(entityName);
-        if (lastEntity == null) {
-            throw new HDIException(String.format("No Spark event log entity found for app: %s", key.getAppId()));
+        try (InputStream inputStream = entity.getContent()) {
+            FileUtils.copyInputStreamToFile(inputStream, file);
+        }
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+            // every application has an attempt in event log
+            // and the entity name should be in formation "{appId}_{attemptId}"
+            String entityName = String.format("%s_%s", key.getAppId(), zipFile.size());
+            ZipEntry lastEntity = zipFile.getEntry(entityName);
+            if (lastEntity == null) {
+                throw new HDIException(String.format("No Spark event log entity found for app: %s", key.getAppId()));
+            }
+
+            try (InputStream zipFileInputStream = zipFile.getInputStream(lastEntity)) {
+                reader.read(zipFileInputStream);
+            }
         }
-        InputStream zipFileInputStream = zipFile.getInputStream(lastEntity);
-        String entityContent = IOUtils.toString(zipFileInputStream, Charset.forName("utf-8"));
-
-        String[] lines = entityContent.split("\n");
-        List<JobStartEventLog> jobStartEvents = Arrays.stream(lines)
-                .filter(line -> {
-                    final Map<String, Object> json = JsonUtils.fromJson(line, new TypeReference<HashMap<String, Object>>() {
-                    });
-                    String eventName = ((String) json.get("Event"));
-                    return eventName.equalsIgnoreCase("SparkListenerJobStart");
-                    })
-                .map(oneLine -> ObjectConvertUtils.convertToObjectQuietly(oneLine, JobStartEventLog.class))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
-        return jobStartEvents;
     }
 
     private static AttemptWithAppId getLastAttemptFromLocalCache(@NotNull ApplicationKey key) throws ExecutionException, HDIException {
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.microsoft.azure.hdinsight.common.task.TaskPriority;
+import com.microsoft.azure.hdinsight.common.task.TaskScheduler;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.stage.Stage;
+import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches the tasks of all stages of an application, several stages at a time.
+ *
+ * The fetches run in the cluster lane of {@link TaskScheduler}, so one cluster with thousands of stages doesn't hold up
+ * the others, and they share the lane's concurrency bound with the rest of the job view requests to that cluster.
+ * The tasks of a huge stage are got page by page, and the tasks of a stage that won't change any more are memoized, so
+ * a refresh of a running application only fetches its new and running stages.
+ */
+final class StageTasksFetcher {
+    private static final int MAX_CONCURRENT_STAGES_PER_CLUSTER = 4;
+    private static final int TASK_PAGE_SIZE = 500;
+    private static final long MAX_MEMOIZED_TASKS = 500_000;
+    private static final long MEMOIZED_EXPIRE_AFTER_ACCESS_MINUTES = 30;
+
+    private static final StageTasksFetcher instance = new StageTasksFetcher();
+
+    // The tasks of the finished stages, weighted by the task count
+    private final Cache<StageAttemptKey, List<Task>> finishedStageTasks = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_MEMOIZED_TASKS)
+            .weigher((StageAttemptKey key, List<Task> tasks) -> Math.max(1, tasks.size()))
+            .expireAfterAccess(MEMOIZED_EXPIRE_AFTER_ACCESS_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    @NotNull
+    static StageTasksFetcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Fetch the tasks of the stages, which arrive in pages as soon as they are got. Unsubscribing cancels the fetches
+     * not started yet.
+     *
+     * @param key the application key
+     * @param stages the stages to get tasks of
+     * @return the Observable of task pages, in the order they are got
+     */
+    @NotNull
+    Observable<List<Task>> fetch(@NotNull final ApplicationKey key, @NotNull final List<Stage> stages) {
+        final Scheduler scheduler = Schedulers.from(TaskScheduler.getInstance().getExecutor(
+                key.getClusterDetails().getName(), TaskPriority.INTERACTIVE));
+
+        return Observable.from(stages)
+                .flatMap(stage -> fetchStage(key, stage).subscribeOn(scheduler), MAX_CONCURRENT_STAGES_PER_CLUSTER);
+    }
+
+    /**
+     * Fetch the tasks of all stages one by one on the calling thread and wait for them. It's called by the cache loader,
+     * which already runs in the cluster lane of {@link TaskScheduler}, and waiting there for fetches queued to the same
+     * lane would deadlock once every slot of the lane is held by such a loader.
+     *
+     * @return the tasks, grouped by stage in the order of the stages
+     */
+    @NotNull
+    List<Task> fetchAll(@NotNull final ApplicationKey key, @NotNull final List<Stage> stages) {
+        return Observable.from(stages)
+                .concatMap(stage -> fetchStage(key, stage))
+                .reduce(new ArrayList<Task>(), (all, page) -> {
+                    all.addAll(page);
+                    return all;
+                })
+                .toBlocking()
+                .single();
+    }
+
+    @NotNull
+    private Observable<List<Task>> fetchStage(@NotNull final ApplicationKey key, @NotNull final Stage stage) {
+        final StageAttemptKey stageKey = new StageAttemptKey(key, stage.getStageId(), stage.getAttemptId());
+
+        return Observable.create((Observable.OnSubscribe<List<Task>>) subscriber -> {
+            final List<Task> memoized = finishedStageTasks.getIfPresent(stageKey);
+            if (memoized != null) {
+                subscriber.onNext(memoized);
+                subscriber.onCompleted();
+
+                return;
+            }
+
+            // The stage status is got before its tasks, so the tasks are complete if the status was final
+            final boolean isFinished = isStageFinished(stage);
+            final List<Task> stageTasks = new ArrayList<>();
+
+            try {
+                for (int offset = 0; !subscriber.isUnsubscribed(); offset += TASK_PAGE_SIZE) {
+                    final List<Task> page = SparkRestUtil.getSparkTasks(
+                            key, stage.getStageId(), stage.getAttemptId(), offset, TASK_PAGE_SIZE);
+
+                    if (!page.isEmpty()) {
+                        if (isFinished) {
+                            stageTasks.addAll(page);
+                        }
+
+                        subscriber.onNext(page);
+                    }
+
+                    if (page.size() < TASK_PAGE_SIZE) {
+                        if (isFinished) {
+                            finishedStageTasks.put(stageKey, Collections.unmodifiableList(stageTasks));
+                        }
+
+                        subscriber.onCompleted();
+                        break;
+                    }
+                }
+            } catch (final Exception ex) {
+                subscriber.onError(ex);
+            }
+        });
+    }
+
+    private static boolean isStageFinished(@NotNull final Stage stage) {
+        final String status = stage.getStatus();
+
+        return "COMPLETE".equalsIgnoreCase(status)
+                || "FAILED".equalsIgnoreCase(status)
+                || "SKIPPED".equalsIgnoreCase(status);
+    }
+
+    private static final class StageAttemptKey {
+        @NotNull
+        private final ApplicationKey appKey;
+
+        private final int stageId;
+        private final int attemptId;
+
+        private StageAttemptKey(@NotNull final ApplicationKey appKey, final int stageId, final int attemptId) {
+            this.appKey = appKey;
+            this.stageId = stageId;
+            this.attemptId = attemptId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(appKey, stageId, attemptId);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof StageAttemptKey)) {
+                return false;
+            }
+
+            final StageAttemptKey that = (StageAttemptKey) obj;
+
+            return stageId == that.stageId && attemptId == that.attemptId && appKey.equals(that.appKey);
+        }
+    }
+}
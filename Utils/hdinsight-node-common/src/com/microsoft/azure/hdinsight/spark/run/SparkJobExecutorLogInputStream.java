@@ -35,6 +35,13 @@ class SparkJobExecutorLogInputStream extends SparkJobLogInputStream {
         return sparkJob;
     }
 
+    @NotNull
+    @Override
+    protected String getLogHostUrl(@NotNull ISparkBatchJob sparkBatchJob) {
+        // The executor log is fetched from the host of the log URL, not the Livy one
+        return String.valueOf(getLogUrl());
+    }
+
     public String getLogUrl() {
         return logUrl;
     }
@@ -5,18 +5,28 @@
 
 package com.microsoft.azure.hdinsight.spark.run;
 
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
 import com.microsoft.azure.hdinsight.spark.common.ISparkBatchJob;
+import com.microsoft.azure.hdinsight.spark.common.log.LogTailScheduler;
+import com.microsoft.azure.hdinsight.spark.common.log.LogTailSource.PollResult;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import rx.Subscriber;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
-import static java.lang.Thread.sleep;
+public class SparkJobLogInputStream extends InputStream implements ILogger {
+    // The longest time available() waits for the log tail
+    private static final long AVAILABLE_WAIT_MS = 1000;
+    // The consecutive fetch failures backed off and retried before the tail fails
+    private static final int MAX_CONSECUTIVE_FETCH_FAILURES = 3;
 
-public class SparkJobLogInputStream extends InputStream {
     @NotNull
     private String logType;
     @Nullable
@@ -27,6 +37,17 @@ public class SparkJobLogInputStream extends InputStream {
     private byte[] buffer = new byte[0];
     private int bufferPos;
 
+    // The log slices got by the shared log tail scheduler, one slice is requested only after the previous is read
+    private final BlockingQueue<byte[]> slices = new LinkedBlockingQueue<>();
+    @Nullable
+    private LogSliceSubscriber logSliceSubscriber;
+
+    private int consecutiveFetchFailures = 0;
+    // The tail is done, failed with the error or completed with null
+    private volatile boolean isTailDone = false;
+    @Nullable
+    private volatile Throwable tailError;
+
     public SparkJobLogInputStream(@NotNull String logType) {
         this.logType = logType;
     }
@@ -43,8 +64,55 @@ public class SparkJobLogInputStream extends InputStream {
                                .toBlocking().singleOrDefault(null));
     }
 
-    void setSparkBatchJob(@Nullable ISparkBatchJob sparkBatchJob) {
+    synchronized void setSparkBatchJob(@Nullable ISparkBatchJob sparkBatchJob) {
         this.sparkBatchJob = sparkBatchJob;
+
+        if (logSliceSubscriber == null && sparkBatchJob != null) {
+            logSliceSubscriber = new LogSliceSubscriber();
+
+            LogTailScheduler.getInstance()
+                    .<byte[]>tail(LogTailScheduler.getClusterKey(getLogHostUrl(sparkBatchJob)),
+                                  emitter -> {
+                                      if (!getAttachedJob().isPresent()) {
+                                          return PollResult.FINISHED;
+                                      }
+
+                                      try {
+                                          final PollResult result = fetchLog(offset, -1)
+                                                  .map(sliceOffsetPair -> {
+                                                      offset = sliceOffsetPair.getValue() +
+                                                               sliceOffsetPair.getKey().length();
+                                                      emitter.call(sliceOffsetPair.getKey().getBytes());
+
+                                                      return PollResult.RECEIVED;
+                                                  })
+                                                  .orElse(PollResult.IDLE);
+
+                                          consecutiveFetchFailures = 0;
+
+                                          return result;
+                                      } catch (RuntimeException ex) {
+                                          if (++consecutiveFetchFailures >= MAX_CONSECUTIVE_FETCH_FAILURES) {
+                                              // Fail the tail, the error is got by the reader
+                                              throw ex;
+                                          }
+
+                                          // Back off and retry, as the reader does for an empty fetch
+                                          log().warn("Failed to fetch Spark job " + getLogType() + " log", ex);
+
+                                          return PollResult.IDLE;
+                                      }
+                                  })
+                    .subscribe(logSliceSubscriber);
+        }
+    }
+
+    /**
+     * Get the URL of the host the log is fetched from, to cap the polls in flight of the host
+     */
+    @NotNull
+    protected String getLogHostUrl(@NotNull ISparkBatchJob sparkBatchJob) {
+        return String.valueOf(sparkBatchJob.getConnectUri());
     }
 
     public Optional<ISparkBatchJob> getAttachedJob() {
@@ -54,6 +122,12 @@ public class SparkJobLogInputStream extends InputStream {
     @Override
     public int read() throws IOException {
         if (bufferPos >= buffer.length) {
+            if (isTailDone && slices.isEmpty()) {
+                throwIfTailFailed();
+
+                return -1;
+            }
+
             throw new IOException("Beyond the buffer end, needs a new log fetch");
         }
 
@@ -63,27 +137,75 @@ public class SparkJobLogInputStream extends InputStream {
     @Override
     public int available() throws IOException {
         if (bufferPos >= buffer.length) {
-            return fetchLog(offset, -1)
-                    .map(sliceOffsetPair -> {
-                        buffer = sliceOffsetPair.getKey().getBytes();
-                        bufferPos = 0;
-                        offset = sliceOffsetPair.getValue() + sliceOffsetPair.getKey().length();
-
-                        return buffer.length;
-                    }).orElseGet(() -> {
-                        try {
-                            sleep(3000);
-                        } catch (InterruptedException ignore) { }
-
-                        return 0;
-                    });
+            final byte[] slice;
+
+            try {
+                // Not to wait for the tail done
+                slice = isTailDone ? slices.poll() : slices.poll(AVAILABLE_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ignore) {
+                return 0;
+            }
+
+            if (slice == null) {
+                throwIfTailFailed();
+
+                return 0;
+            }
+
+            buffer = slice;
+            bufferPos = 0;
+            Optional.ofNullable(logSliceSubscriber).ifPresent(subscriber -> subscriber.requestMore(1));
+
+            return buffer.length;
         } else {
             return buffer.length - bufferPos;
         }
     }
 
+    @Override
+    public void close() {
+        Optional.ofNullable(logSliceSubscriber).ifPresent(Subscriber::unsubscribe);
+    }
+
     @NotNull
     public String getLogType() {
         return logType;
     }
+
+    private void throwIfTailFailed() throws IOException {
+        final Throwable err = tailError;
+
+        if (err != null) {
+            throw new IOException("Failed to fetch Spark job " + getLogType() + " log", err);
+        }
+    }
+
+    private final class LogSliceSubscriber extends Subscriber<byte[]> {
+        @Override
+        public void onStart() {
+            request(1);
+        }
+
+        @Override
+        public void onNext(byte[] slice) {
+            slices.offer(slice);
+        }
+
+        @Override
+        public void onError(Throwable err) {
+            log().warn("Stopped tailing Spark job " + getLogType() + " log", err);
+
+            tailError = err;
+            isTailDone = true;
+        }
+
+        @Override
+        public void onCompleted() {
+            isTailDone = true;
+        }
+
+        private void requestMore(long n) {
+            request(n);
+        }
+    }
 }